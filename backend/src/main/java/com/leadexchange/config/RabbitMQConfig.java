@@ -9,6 +9,7 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
@@ -138,6 +139,27 @@ public class RabbitMQConfig {
         return factory;
     }
 
+    /**
+     * 线索索引监听器容器工厂
+     * 单消费者、高预取：未确认消息在内存中按线索合并，批量写入索引成功后才确认，预取数即合并窗口上限
+     * 
+     * @param connectionFactory 连接工厂
+     * @param prefetch 预取数量
+     * @return RabbitListenerContainerFactory
+     */
+    @Bean
+    public RabbitListenerContainerFactory<?> leadIndexListenerContainerFactory(
+            ConnectionFactory connectionFactory, @Value("${app.lead.index.prefetch:1000}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setPrefetchCount(prefetch);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
     // ==================== 交换机配置 ====================
 
     /**
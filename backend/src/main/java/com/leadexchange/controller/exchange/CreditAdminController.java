@@ -0,0 +1,64 @@
+package com.leadexchange.controller.exchange;
+
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.common.result.Result;
+import com.leadexchange.common.result.ResultCode;
+import com.leadexchange.domain.exchange.FrozenCreditEntry;
+import com.leadexchange.service.UserCreditService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 积分管理控制器
+ * 管理员按游标分页查看冻结积分用户和零余额用户，翻页代价与页码无关
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Tag(name = "积分管理", description = "积分用户运营查询相关接口")
+@RestController
+@RequestMapping("/api/exchanges/credits/admin")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class CreditAdminController {
+
+    private final UserCreditService userCreditService;
+
+    /**
+     * 查询有冻结积分的用户
+     */
+    @Operation(summary = "查询有冻结积分的用户", description = "按冻结积分、用户ID倒序游标分页，首页不传游标")
+    @GetMapping("/frozen-users")
+    public Result<List<FrozenCreditEntry>> getFrozenUsers(
+            @Parameter(description = "上一页最后一条的冻结积分") @RequestParam(required = false) BigDecimal lastFrozenCredits,
+            @Parameter(description = "上一页最后一条的用户ID") @RequestParam(required = false) Long lastUserId,
+            @Parameter(description = "页大小") @RequestParam(defaultValue = "100") int size) {
+        try {
+            return Result.success(userCreditService.getUsersWithFrozenCredits(lastFrozenCredits, lastUserId, size));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询积分为零的用户
+     */
+    @Operation(summary = "查询积分为零的用户", description = "按用户ID游标分页返回用户ID，首页不传游标")
+    @GetMapping("/zero-balance-users")
+    public Result<List<Long>> getZeroBalanceUsers(
+            @Parameter(description = "上一页最后一条的用户ID") @RequestParam(required = false) Long lastUserId,
+            @Parameter(description = "页大小") @RequestParam(defaultValue = "100") int size) {
+        try {
+            return Result.success(userCreditService.getUserIdsWithZeroCredits(lastUserId, size));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
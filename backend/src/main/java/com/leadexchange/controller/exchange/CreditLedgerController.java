@@ -0,0 +1,73 @@
+package com.leadexchange.controller.exchange;
+
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.common.result.Result;
+import com.leadexchange.common.result.ResultCode;
+import com.leadexchange.service.exchange.CreditLedgerVerifier;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 积分流水审计控制器
+ * 管理员发起全量审计、查看审计报告以及校验单个用户的余额链
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Tag(name = "积分流水审计", description = "积分流水余额链校验相关接口")
+@RestController
+@RequestMapping("/api/exchanges/credits/ledger")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class CreditLedgerController {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditLedgerController.class);
+
+    private final CreditLedgerVerifier creditLedgerVerifier;
+
+    /**
+     * 发起全量审计
+     */
+    @Operation(summary = "发起全量审计", description = "在后台从各用户检查点开始校验余额链，完成后可查询审计报告")
+    @PostMapping("/audit")
+    public Result<Void> triggerAudit() {
+        if (!creditLedgerVerifier.triggerAudit()) {
+            throw new BusinessException(ResultCode.CONFLICT, "积分流水审计正在运行");
+        }
+        log.info("已发起积分流水审计");
+        return Result.success("积分流水审计已开始");
+    }
+
+    /**
+     * 获取最近一次审计报告
+     */
+    @Operation(summary = "获取最近一次审计报告", description = "获取本节点最近一次完成的全量审计报告")
+    @GetMapping("/audit/latest")
+    public Result<CreditLedgerVerifier.AuditReport> getLastReport() {
+        CreditLedgerVerifier.AuditReport report = creditLedgerVerifier.getLastReport();
+        if (report == null) {
+            throw new BusinessException(ResultCode.NOT_FOUND, "本节点尚未完成积分流水审计");
+        }
+        return Result.success(report);
+    }
+
+    /**
+     * 校验用户余额链
+     */
+    @Operation(summary = "校验用户余额链", description = "从检查点重放用户流水，返回重建余额与不一致项")
+    @GetMapping("/users/{userId}")
+    public Result<CreditLedgerVerifier.UserVerification> verifyUser(
+            @Parameter(description = "用户ID") @PathVariable Long userId) {
+        try {
+            return Result.success(creditLedgerVerifier.verifyUser(userId));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.NOT_FOUND, e.getMessage());
+        }
+    }
+}
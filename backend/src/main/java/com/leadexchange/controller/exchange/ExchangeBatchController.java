@@ -0,0 +1,157 @@
+package com.leadexchange.controller.exchange;
+
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.common.result.Result;
+import com.leadexchange.common.result.ResultCode;
+import com.leadexchange.service.exchange.ExchangeBatchReviewService;
+import com.leadexchange.service.exchange.IdempotencyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 交换申请批量处理控制器
+ * 一次请求批准、拒绝或取消多个交换申请，逐条返回处理结果
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Tag(name = "交换申请批量处理", description = "批量批准、拒绝、取消交换申请")
+@RestController
+@RequestMapping("/api/exchanges/batch")
+@RequiredArgsConstructor
+public class ExchangeBatchController {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeBatchController.class);
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final ExchangeBatchReviewService batchReviewService;
+    private final IdempotencyService idempotencyService;
+
+    /**
+     * 批量批准交换申请
+     */
+    @Operation(summary = "批量批准交换申请", description = "线索所有者批量批准交换申请，逐条返回处理结果")
+    @PostMapping("/approve")
+    public Result<ExchangeBatchReviewService.BatchResult> approve(
+            @Valid @RequestBody BatchReviewRequest request,
+            @Parameter(description = "幂等键") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        return Result.success(process(ExchangeBatchReviewService.Action.APPROVE, request.getApplicationIds(),
+                request.getResponseMessage(), idempotencyKey, authentication));
+    }
+
+    /**
+     * 批量拒绝交换申请
+     */
+    @Operation(summary = "批量拒绝交换申请", description = "线索所有者批量拒绝交换申请，逐条返回处理结果")
+    @PostMapping("/reject")
+    public Result<ExchangeBatchReviewService.BatchResult> reject(
+            @Valid @RequestBody BatchReviewRequest request,
+            @Parameter(description = "幂等键") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        return Result.success(process(ExchangeBatchReviewService.Action.REJECT, request.getApplicationIds(),
+                request.getResponseMessage(), idempotencyKey, authentication));
+    }
+
+    /**
+     * 批量取消交换申请
+     */
+    @Operation(summary = "批量取消交换申请", description = "申请人批量取消自己的交换申请，逐条返回处理结果")
+    @PostMapping("/cancel")
+    public Result<ExchangeBatchReviewService.BatchResult> cancel(
+            @Valid @RequestBody BatchCancelRequest request,
+            @Parameter(description = "幂等键") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        return Result.success(process(ExchangeBatchReviewService.Action.CANCEL, request.getApplicationIds(),
+                null, idempotencyKey, authentication));
+    }
+
+    private ExchangeBatchReviewService.BatchResult process(ExchangeBatchReviewService.Action action,
+                                                           List<Long> applicationIds, String responseMessage,
+                                                           String idempotencyKey, Authentication authentication) {
+        Long userId = getCurrentUserId(authentication);
+        try {
+            ExchangeBatchReviewService.BatchResult result = idempotencyService.execute(userId, idempotencyKey,
+                    "exchange.batch." + action.name().toLowerCase(), Arrays.asList(applicationIds, responseMessage),
+                    ExchangeBatchReviewService.BatchResult.class,
+                    () -> batchReviewService.process(action, applicationIds, userId, responseMessage));
+            log.info("用户[{}]批量{}交换申请，成功：{}，失败：{}", userId, action, result.getSucceeded(), result.getFailed());
+            return result;
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前用户ID
+     * 用户ID由JwtAuthenticationFilter认证成功后写入请求属性userId
+     */
+    private Long getCurrentUserId(Authentication authentication) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object userId = attributes == null ? null : attributes.getAttribute("userId", RequestAttributes.SCOPE_REQUEST);
+        if (authentication == null || !authentication.isAuthenticated() || !(userId instanceof Long)) {
+            throw new BusinessException(ResultCode.UNAUTHORIZED);
+        }
+        return (Long) userId;
+    }
+
+    /**
+     * 批量审核请求DTO
+     */
+    public static class BatchReviewRequest {
+        @NotEmpty(message = "申请ID列表不能为空")
+        private List<Long> applicationIds;
+
+        @NotBlank(message = "响应消息不能为空")
+        private String responseMessage;
+
+        // Getters and Setters
+        public List<Long> getApplicationIds() {
+            return applicationIds;
+        }
+
+        public void setApplicationIds(List<Long> applicationIds) {
+            this.applicationIds = applicationIds;
+        }
+
+        public String getResponseMessage() {
+            return responseMessage;
+        }
+
+        public void setResponseMessage(String responseMessage) {
+            this.responseMessage = responseMessage;
+        }
+    }
+
+    /**
+     * 批量取消请求DTO
+     */
+    public static class BatchCancelRequest {
+        @NotEmpty(message = "申请ID列表不能为空")
+        private List<Long> applicationIds;
+
+        // Getters and Setters
+        public List<Long> getApplicationIds() {
+            return applicationIds;
+        }
+
+        public void setApplicationIds(List<Long> applicationIds) {
+            this.applicationIds = applicationIds;
+        }
+    }
+}
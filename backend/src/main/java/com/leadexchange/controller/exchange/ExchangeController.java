@@ -1,11 +1,16 @@
 package com.leadexchange.controller.exchange;
 
 import com.leadexchange.common.result.Result;
+import com.leadexchange.domain.exchange.CreditRankingType;
 import com.leadexchange.domain.exchange.ExchangeApplication;
 import com.leadexchange.domain.exchange.ExchangeHistory;
 import com.leadexchange.domain.exchange.UserCredit;
 import com.leadexchange.service.ExchangeEngineService;
 import com.leadexchange.service.UserCreditService;
+import com.leadexchange.service.exchange.CreditLeaderboardService;
+import com.leadexchange.service.exchange.ExchangeCommandDispatcher;
+import com.leadexchange.service.exchange.ExchangeExpirySweeper;
+import com.leadexchange.service.exchange.IdempotencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,6 +28,7 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -40,8 +46,13 @@ public class ExchangeController {
     
     private static final Logger log = LoggerFactory.getLogger(ExchangeController.class);
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    
     private final ExchangeEngineService exchangeEngineService;
     private final UserCreditService userCreditService;
+    private final ExchangeExpirySweeper exchangeExpirySweeper;
+    private final IdempotencyService idempotencyService;
+    private final ExchangeCommandDispatcher commandDispatcher;
     
     /**
      * 申请线索交换
@@ -50,12 +61,15 @@ public class ExchangeController {
     @PostMapping("/apply")
     public Result<ExchangeApplication> applyForExchange(
             @Valid @RequestBody ExchangeApplicationRequest request,
+            @Parameter(description = "幂等键") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         
         Long userId = getCurrentUserId(authentication);
         
-        ExchangeApplication application = exchangeEngineService.applyForExchange(
-                userId, request.getTargetLeadId(), request.getOfferedLeadIds(), request.getReason());
+        ExchangeApplication application = idempotencyService.execute(userId, idempotencyKey, "exchange.apply",
+                request, ExchangeApplication.class,
+                () -> exchangeEngineService.applyForExchange(
+                        userId, request.getTargetLeadId(), request.getOfferedLeadIds(), request.getReason()));
         
         log.info("用户[{}]申请线索交换，申请ID：{}", userId, application.getId());
         
@@ -91,12 +105,16 @@ public class ExchangeController {
     public Result<ExchangeApplication> approveExchange(
             @Parameter(description = "申请ID") @PathVariable Long id,
             @Valid @RequestBody ExchangeReviewRequest request,
+            @Parameter(description = "幂等键") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         
         Long userId = getCurrentUserId(authentication);
         
-        ExchangeApplication application = exchangeEngineService.approveExchange(
-                id, userId, request.getResponseMessage());
+        // 幂等认领、业务处理与完成标记整体在申请所属分区内执行，业务与完成标记在同一线程同一事务提交
+        ExchangeApplication application = commandDispatcher.dispatchForApplication(id,
+                () -> idempotencyService.execute(userId, idempotencyKey, "exchange.approve",
+                        Arrays.asList(id, request.getResponseMessage()), ExchangeApplication.class,
+                        () -> exchangeEngineService.approveExchange(id, userId, request.getResponseMessage())));
         
         log.info("用户[{}]审核通过交换申请，申请ID：{}", userId, id);
         
@@ -111,12 +129,16 @@ public class ExchangeController {
     public Result<ExchangeApplication> rejectExchange(
             @Parameter(description = "申请ID") @PathVariable Long id,
             @Valid @RequestBody ExchangeReviewRequest request,
+            @Parameter(description = "幂等键") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         
         Long userId = getCurrentUserId(authentication);
         
-        ExchangeApplication application = exchangeEngineService.rejectExchange(
-                id, userId, request.getResponseMessage());
+        // 幂等认领、业务处理与完成标记整体在申请所属分区内执行，业务与完成标记在同一线程同一事务提交
+        ExchangeApplication application = commandDispatcher.dispatchForApplication(id,
+                () -> idempotencyService.execute(userId, idempotencyKey, "exchange.reject",
+                        Arrays.asList(id, request.getResponseMessage()), ExchangeApplication.class,
+                        () -> exchangeEngineService.rejectExchange(id, userId, request.getResponseMessage())));
         
         log.info("用户[{}]拒绝交换申请，申请ID：{}", userId, id);
         
@@ -134,7 +156,8 @@ public class ExchangeController {
         
         Long userId = getCurrentUserId(authentication);
         
-        ExchangeApplication application = exchangeEngineService.cancelExchange(id, userId);
+        ExchangeApplication application = commandDispatcher.dispatchForApplication(id,
+                () -> exchangeEngineService.cancelExchange(id, userId));
         
         log.info("用户[{}]取消交换申请，申请ID：{}", userId, id);
         
@@ -218,6 +241,18 @@ public class ExchangeController {
         return Result.success(ranking);
     }
     
+    /**
+     * 获取我的积分排名
+     */
+    @Operation(summary = "获取我的积分排名", description = "获取当前用户在指定排行榜中的名次")
+    @GetMapping("/credits/ranking/my")
+    public Result<CreditLeaderboardService.RankEntry> getMyCreditRank(
+            @Parameter(description = "排行类型") @RequestParam(defaultValue = "TOTAL_CREDITS") CreditRankingType type,
+            Authentication authentication) {
+        Long userId = getCurrentUserId(authentication);
+        return Result.success(userCreditService.getUserRank(userId, type));
+    }
+    
     /**
      * 批量处理过期申请（管理员接口）
      */
@@ -226,7 +261,7 @@ public class ExchangeController {
     public Result<Integer> processExpiredApplications(Authentication authentication) {
         // TODO: 添加管理员权限验证
         
-        int processedCount = exchangeEngineService.processExpiredApplications();
+        int processedCount = exchangeExpirySweeper.sweep();
         
         log.info("管理员[{}]批量处理过期申请，处理数量：{}", getCurrentUserId(authentication), processedCount);
         
@@ -0,0 +1,98 @@
+package com.leadexchange.controller.exchange;
+
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.common.result.Result;
+import com.leadexchange.common.result.ResultCode;
+import com.leadexchange.domain.exchange.ExchangeFeedEntry;
+import com.leadexchange.service.exchange.ExchangeFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+
+/**
+ * 交换动态控制器
+ * 基于交换动态读模型的列表接口，按申请ID游标分页：首页不传 lastApplicationId，
+ * 下一页传入上一页最后一条的 applicationId
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Tag(name = "交换动态", description = "我发起的、我收到的交换申请及交换历史")
+@RestController
+@RequestMapping("/api/exchanges/feed")
+@RequiredArgsConstructor
+public class ExchangeFeedController {
+
+    private final ExchangeFeedService exchangeFeedService;
+
+    /**
+     * 获取我发起的交换申请
+     */
+    @Operation(summary = "获取我发起的交换申请", description = "按申请时间倒序，游标分页")
+    @GetMapping("/sent")
+    public Result<List<ExchangeFeedEntry>> getSentApplications(
+            @Parameter(description = "上一页最后一条的申请ID") @RequestParam(required = false) Long lastApplicationId,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") int size,
+            Authentication authentication) {
+        try {
+            return Result.success(exchangeFeedService.getSentApplications(
+                    getCurrentUserId(authentication), lastApplicationId, size));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取我收到的交换申请
+     */
+    @Operation(summary = "获取我收到的交换申请", description = "按申请时间倒序，游标分页")
+    @GetMapping("/received")
+    public Result<List<ExchangeFeedEntry>> getReceivedApplications(
+            @Parameter(description = "上一页最后一条的申请ID") @RequestParam(required = false) Long lastApplicationId,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") int size,
+            Authentication authentication) {
+        try {
+            return Result.success(exchangeFeedService.getReceivedApplications(
+                    getCurrentUserId(authentication), lastApplicationId, size));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取交换历史
+     */
+    @Operation(summary = "获取交换历史", description = "已结束的交换申请，按申请时间倒序，游标分页")
+    @GetMapping("/history")
+    public Result<List<ExchangeFeedEntry>> getHistory(
+            @Parameter(description = "上一页最后一条的申请ID") @RequestParam(required = false) Long lastApplicationId,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") int size,
+            Authentication authentication) {
+        try {
+            return Result.success(exchangeFeedService.getHistory(
+                    getCurrentUserId(authentication), lastApplicationId, size));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前用户ID
+     * 用户ID由JwtAuthenticationFilter认证成功后写入请求属性userId
+     */
+    private Long getCurrentUserId(Authentication authentication) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object userId = attributes == null ? null : attributes.getAttribute("userId", RequestAttributes.SCOPE_REQUEST);
+        if (authentication == null || !authentication.isAuthenticated() || !(userId instanceof Long)) {
+            throw new BusinessException(ResultCode.UNAUTHORIZED);
+        }
+        return (Long) userId;
+    }
+}
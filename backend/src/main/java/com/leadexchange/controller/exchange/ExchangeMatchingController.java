@@ -0,0 +1,161 @@
+package com.leadexchange.controller.exchange;
+
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.common.result.Result;
+import com.leadexchange.common.result.ResultCode;
+import com.leadexchange.domain.exchange.ExchangeWant;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.service.exchange.ExchangeMatchingEngine;
+import com.leadexchange.service.exchange.ExchangeWantService;
+import com.leadexchange.service.exchange.OfferSuggestionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * 交换撮合控制器
+ * 管理用户的交换需求，查询撮合引擎给出的交换建议
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Tag(name = "交换撮合", description = "交换需求与撮合建议相关接口")
+@RestController
+@RequestMapping("/api/exchanges/matching")
+@RequiredArgsConstructor
+public class ExchangeMatchingController {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeMatchingController.class);
+
+    private final ExchangeWantService exchangeWantService;
+    private final ExchangeMatchingEngine exchangeMatchingEngine;
+    private final OfferSuggestionService offerSuggestionService;
+
+    /**
+     * 发布交换需求
+     */
+    @Operation(summary = "发布交换需求", description = "登记希望换入的线索条件，撮合引擎据此寻找交换机会")
+    @PostMapping("/wants")
+    public Result<ExchangeWant> createWant(
+            @Valid @RequestBody ExchangeWantRequest request,
+            Authentication authentication) {
+
+        Long userId = getCurrentUserId(authentication);
+        ExchangeWant want = exchangeWantService.createWant(userId, request.getMinRating(),
+                request.getIndustryDirection(), request.getIntendedRegion());
+
+        log.info("用户[{}]发布交换需求，需求ID：{}", userId, want.getId());
+
+        return Result.success(want);
+    }
+
+    /**
+     * 获取我的交换需求
+     */
+    @Operation(summary = "获取我的交换需求", description = "获取当前用户生效中的交换需求")
+    @GetMapping("/wants/my")
+    public Result<List<ExchangeWant>> getMyWants(Authentication authentication) {
+        Long userId = getCurrentUserId(authentication);
+        return Result.success(exchangeWantService.getActiveWants(userId));
+    }
+
+    /**
+     * 取消交换需求
+     */
+    @Operation(summary = "取消交换需求", description = "取消当前用户的交换需求")
+    @DeleteMapping("/wants/{id}")
+    public Result<ExchangeWant> cancelWant(
+            @Parameter(description = "需求ID") @PathVariable Long id,
+            Authentication authentication) {
+
+        Long userId = getCurrentUserId(authentication);
+        ExchangeWant want = exchangeWantService.cancelWant(userId, id);
+
+        log.info("用户[{}]取消交换需求，需求ID：{}", userId, id);
+
+        return Result.success(want);
+    }
+
+    /**
+     * 获取我的撮合建议
+     */
+    @Operation(summary = "获取我的撮合建议", description = "获取撮合引擎为当前用户找到的二元互换和三方环形交换")
+    @GetMapping("/matches/my")
+    public Result<List<ExchangeMatchingEngine.ExchangeMatch>> getMyMatches(Authentication authentication) {
+        Long userId = getCurrentUserId(authentication);
+        return Result.success(exchangeMatchingEngine.getMatches(userId));
+    }
+
+    /**
+     * 推荐提供线索组合
+     */
+    @Operation(summary = "推荐提供线索组合", description = "为目标线索推荐总价值最接近、线索数量最少的提供线索组合")
+    @GetMapping("/offer-suggestion")
+    public Result<OfferSuggestionService.OfferSuggestion> suggestOffer(
+            @Parameter(description = "目标线索ID") @RequestParam Long targetLeadId,
+            Authentication authentication) {
+        Long userId = getCurrentUserId(authentication);
+        return Result.success(offerSuggestionService.suggestOffer(userId, targetLeadId));
+    }
+
+    /**
+     * 获取当前用户ID
+     * 用户ID由JwtAuthenticationFilter认证成功后写入请求属性userId
+     */
+    private Long getCurrentUserId(Authentication authentication) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object userId = attributes == null ? null : attributes.getAttribute("userId", RequestAttributes.SCOPE_REQUEST);
+        if (authentication == null || !authentication.isAuthenticated() || !(userId instanceof Long)) {
+            throw new BusinessException(ResultCode.UNAUTHORIZED);
+        }
+        return (Long) userId;
+    }
+
+    /**
+     * 交换需求请求DTO
+     */
+    public static class ExchangeWantRequest {
+        @NotNull(message = "最低评级不能为空")
+        private LeadRating minRating;
+
+        private String industryDirection;
+
+        private String intendedRegion;
+
+        // Getters and Setters
+        public LeadRating getMinRating() {
+            return minRating;
+        }
+
+        public void setMinRating(LeadRating minRating) {
+            this.minRating = minRating;
+        }
+
+        public String getIndustryDirection() {
+            return industryDirection;
+        }
+
+        public void setIndustryDirection(String industryDirection) {
+            this.industryDirection = industryDirection;
+        }
+
+        public String getIntendedRegion() {
+            return intendedRegion;
+        }
+
+        public void setIntendedRegion(String intendedRegion) {
+            this.intendedRegion = intendedRegion;
+        }
+    }
+}
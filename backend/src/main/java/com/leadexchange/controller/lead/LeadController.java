@@ -1,6 +1,10 @@
 package com.leadexchange.controller.lead;
 
 import com.leadexchange.service.lead.LeadService;
+import com.leadexchange.service.lead.LeadSearchService;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.dto.lead.LeadSearchResponse;
+import com.leadexchange.domain.lead.LeadRating;
 import com.leadexchange.domain.lead.Lead;
 import com.leadexchange.domain.lead.LeadStatus;
 import com.leadexchange.domain.lead.AuditStatus;
@@ -19,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.math.BigDecimal;
 import java.util.Optional;
 import java.util.List;
 
@@ -39,6 +44,9 @@ public class LeadController {
     @Autowired
     private LeadService leadService;
 
+    @Autowired
+    private LeadSearchService leadSearchService;
+
     /**
      * 创建线索
      */
@@ -293,6 +301,42 @@ public class LeadController {
         }
     }
 
+    /**
+     * 高级搜索线索
+     */
+    @Operation(summary = "高级搜索线索", description = "按关键词和状态、评级、区域、投资额过滤搜索线索，返回高亮片段，使用游标翻页")
+    @GetMapping("/search/advanced")
+    public Result<LeadSearchResponse> advancedSearch(
+            @Parameter(description = "搜索关键词") @RequestParam(required = false) String keyword,
+            @Parameter(description = "线索状态") @RequestParam(required = false) LeadStatus status,
+            @Parameter(description = "线索评级") @RequestParam(required = false) LeadRating rating,
+            @Parameter(description = "意向区域") @RequestParam(required = false) String region,
+            @Parameter(description = "最小投资额") @RequestParam(required = false) BigDecimal minInvestment,
+            @Parameter(description = "最大投资额") @RequestParam(required = false) BigDecimal maxInvestment,
+            @Parameter(description = "翻页游标，取上一页的nextCursor") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") int size) {
+        try {
+            LeadSearchRequest request = LeadSearchRequest.ofKeyword(keyword);
+            if (status != null) {
+                request.setStatus(status);
+            }
+            request.setRating(rating);
+            request.setRegion(region);
+            request.setMinInvestment(minInvestment);
+            request.setMaxInvestment(maxInvestment);
+            request.setCursor(cursor);
+            request.setSize(size);
+            
+            return Result.success("搜索线索成功", leadSearchService.search(request));
+            
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            logger.error("高级搜索线索失败", e);
+            return Result.error("搜索线索失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取我的线索
      */
@@ -0,0 +1,61 @@
+package com.leadexchange.controller.lead;
+
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.common.result.Result;
+import com.leadexchange.common.result.ResultCode;
+import com.leadexchange.service.lead.impl.LeadIndexManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 线索索引管理控制器
+ * 管理员发起线索索引全量重建并查看重建报告，仅在启用Elasticsearch时注册
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Tag(name = "线索索引管理", description = "线索搜索索引重建相关接口")
+@RestController
+@RequestMapping("/api/leads/index")
+@PreAuthorize("hasRole('ADMIN')")
+@ConditionalOnProperty(name = "spring.elasticsearch.enabled", havingValue = "true")
+public class LeadIndexController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadIndexController.class);
+
+    @Autowired
+    private LeadIndexManager leadIndexManager;
+
+    /**
+     * 发起全量重建
+     */
+    @Operation(summary = "发起索引全量重建", description = "在后台构建新版本索引，完成后原子切换别名，重建期间搜索不受影响")
+    @PostMapping("/reindex")
+    public Result<Void> triggerReindex() {
+        if (!leadIndexManager.triggerReindex()) {
+            throw new BusinessException(ResultCode.CONFLICT, "线索索引重建正在运行");
+        }
+        logger.info("已发起线索索引重建");
+        return Result.success("线索索引重建已开始");
+    }
+
+    /**
+     * 获取最近一次重建报告
+     */
+    @Operation(summary = "获取最近一次重建报告", description = "获取本节点最近一次完成的索引重建报告")
+    @GetMapping("/reindex/latest")
+    public Result<LeadIndexManager.ReindexReport> getLastReport() {
+        LeadIndexManager.ReindexReport report = leadIndexManager.getLastReport();
+        if (report == null) {
+            String message = leadIndexManager.isRunning() ? "线索索引重建正在运行" : "本节点尚未完成线索索引重建";
+            throw new BusinessException(ResultCode.NOT_FOUND, message);
+        }
+        return Result.success(report);
+    }
+}
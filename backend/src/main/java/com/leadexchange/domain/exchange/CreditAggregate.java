@@ -0,0 +1,104 @@
+package com.leadexchange.domain.exchange;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 系统积分汇总条带实体类
+ * 系统总积分、可用积分、冻结积分和交易总额分散在多个条带行中累加，读取时对少量条带行求和。
+ * 条带0由对账任务写入初始值和修正量，其存在表示汇总已完成初始化；积分变更事务只写入1到N号条带。
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "credit_aggregates")
+public class CreditAggregate {
+    
+    /**
+     * 条带编号
+     */
+    @Id
+    @Column(name = "stripe")
+    private Integer stripe;
+    
+    /**
+     * 总积分
+     */
+    @Column(name = "total_credits", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalCredits = BigDecimal.ZERO;
+    
+    /**
+     * 可用积分
+     */
+    @Column(name = "available_credits", nullable = false, precision = 19, scale = 2)
+    private BigDecimal availableCredits = BigDecimal.ZERO;
+    
+    /**
+     * 冻结积分
+     */
+    @Column(name = "frozen_credits", nullable = false, precision = 19, scale = 2)
+    private BigDecimal frozenCredits = BigDecimal.ZERO;
+    
+    /**
+     * 交易流水总额
+     */
+    @Column(name = "transaction_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal transactionAmount = BigDecimal.ZERO;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time", nullable = false)
+    private LocalDateTime updateTime;
+    
+    // Getter和Setter方法
+    public Integer getStripe() {
+        return stripe;
+    }
+    
+    public void setStripe(Integer stripe) {
+        this.stripe = stripe;
+    }
+    
+    public BigDecimal getTotalCredits() {
+        return totalCredits;
+    }
+    
+    public void setTotalCredits(BigDecimal totalCredits) {
+        this.totalCredits = totalCredits;
+    }
+    
+    public BigDecimal getAvailableCredits() {
+        return availableCredits;
+    }
+    
+    public void setAvailableCredits(BigDecimal availableCredits) {
+        this.availableCredits = availableCredits;
+    }
+    
+    public BigDecimal getFrozenCredits() {
+        return frozenCredits;
+    }
+    
+    public void setFrozenCredits(BigDecimal frozenCredits) {
+        this.frozenCredits = frozenCredits;
+    }
+    
+    public BigDecimal getTransactionAmount() {
+        return transactionAmount;
+    }
+    
+    public void setTransactionAmount(BigDecimal transactionAmount) {
+        this.transactionAmount = transactionAmount;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -0,0 +1,76 @@
+package com.leadexchange.domain.exchange;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户积分余额快照
+ * 通过构造表达式直接从数据库读取，不进入持久化上下文，用于无锁读取最新余额及版本号
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class CreditBalanceSnapshot {
+
+    private final Long userId;
+    private final BigDecimal totalCredits;
+    private final BigDecimal availableCredits;
+    private final BigDecimal frozenCredits;
+    private final BigDecimal totalIncome;
+    private final BigDecimal totalExpense;
+    private final Integer version;
+
+    public CreditBalanceSnapshot(Long userId, BigDecimal totalCredits, BigDecimal availableCredits,
+                                 BigDecimal frozenCredits, BigDecimal totalIncome, BigDecimal totalExpense,
+                                 Integer version) {
+        this.userId = userId;
+        this.totalCredits = totalCredits;
+        this.availableCredits = availableCredits;
+        this.frozenCredits = frozenCredits;
+        this.totalIncome = totalIncome;
+        this.totalExpense = totalExpense;
+        this.version = version;
+    }
+
+    /**
+     * 转换为游离状态的积分对象，可直接调用积分业务方法计算新余额
+     * @return 积分对象副本
+     */
+    public UserCredit toUserCredit() {
+        UserCredit userCredit = new UserCredit(userId);
+        userCredit.setTotalCredits(totalCredits);
+        userCredit.setAvailableCredits(availableCredits);
+        userCredit.setFrozenCredits(frozenCredits);
+        userCredit.setTotalIncome(totalIncome);
+        userCredit.setTotalExpense(totalExpense);
+        userCredit.setVersion(version);
+        return userCredit;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getTotalCredits() {
+        return totalCredits;
+    }
+
+    public BigDecimal getAvailableCredits() {
+        return availableCredits;
+    }
+
+    public BigDecimal getFrozenCredits() {
+        return frozenCredits;
+    }
+
+    public BigDecimal getTotalIncome() {
+        return totalIncome;
+    }
+
+    public BigDecimal getTotalExpense() {
+        return totalExpense;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,130 @@
+package com.leadexchange.domain.exchange;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 用户积分余额检查点实体类
+ * 记录已校验通过的最后一条交易流水及其后的可用积分余额，
+ * 校验与重建余额时只需从检查点之后的流水开始重放。
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "credit_checkpoints",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_checkpoint_user_id", columnNames = "user_id")
+        })
+public class CreditCheckpoint {
+    
+    /**
+     * 检查点ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    /**
+     * 已校验的最后一条交易流水ID
+     */
+    @Column(name = "last_transaction_id", nullable = false)
+    private Long lastTransactionId;
+    
+    /**
+     * 检查点处的可用积分余额
+     */
+    @Column(name = "balance", nullable = false, precision = 10, scale = 2)
+    private BigDecimal balance;
+    
+    /**
+     * 检查点之前的流水条数
+     */
+    @Column(name = "entry_count", nullable = false)
+    private Long entryCount;
+    
+    /**
+     * 检查点时间
+     */
+    @Column(name = "checkpoint_time", nullable = false)
+    private LocalDateTime checkpointTime;
+    
+    public CreditCheckpoint() {
+    }
+    
+    public CreditCheckpoint(Long userId) {
+        this.userId = userId;
+        this.lastTransactionId = 0L;
+        this.balance = BigDecimal.ZERO;
+        this.entryCount = 0L;
+    }
+    
+    /**
+     * 推进检查点
+     * @param lastTransactionId 已校验的最后一条流水ID
+     * @param balance 该流水之后的可用积分余额
+     * @param replayedCount 本次重放的流水条数
+     */
+    public void advance(Long lastTransactionId, BigDecimal balance, int replayedCount) {
+        this.lastTransactionId = lastTransactionId;
+        this.balance = balance;
+        this.entryCount = this.entryCount + replayedCount;
+        this.checkpointTime = LocalDateTime.now();
+    }
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Long getLastTransactionId() {
+        return lastTransactionId;
+    }
+    
+    public void setLastTransactionId(Long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+    
+    public Long getEntryCount() {
+        return entryCount;
+    }
+    
+    public void setEntryCount(Long entryCount) {
+        this.entryCount = entryCount;
+    }
+    
+    public LocalDateTime getCheckpointTime() {
+        return checkpointTime;
+    }
+    
+    public void setCheckpointTime(LocalDateTime checkpointTime) {
+        this.checkpointTime = checkpointTime;
+    }
+}
@@ -0,0 +1,41 @@
+package com.leadexchange.domain.exchange;
+
+import java.math.BigDecimal;
+
+/**
+ * 积分流水余额链条目
+ * 通过构造表达式只读取校验余额链所需的列，不进入持久化上下文
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class CreditLedgerEntry {
+
+    private final Long id;
+    private final Long userId;
+    private final BigDecimal balanceBefore;
+    private final BigDecimal balanceAfter;
+
+    public CreditLedgerEntry(Long id, Long userId, BigDecimal balanceBefore, BigDecimal balanceAfter) {
+        this.id = id;
+        this.userId = userId;
+        this.balanceBefore = balanceBefore;
+        this.balanceAfter = balanceAfter;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getBalanceBefore() {
+        return balanceBefore;
+    }
+
+    public BigDecimal getBalanceAfter() {
+        return balanceAfter;
+    }
+}
@@ -0,0 +1,41 @@
+package com.leadexchange.domain.exchange;
+
+/**
+ * 积分排行榜类型
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public enum CreditRankingType {
+
+    /**
+     * 总积分排行
+     */
+    TOTAL_CREDITS("total", "总积分排行"),
+
+    /**
+     * 可用积分排行
+     */
+    AVAILABLE_CREDITS("available", "可用积分排行"),
+
+    /**
+     * 成功交换次数排行
+     */
+    EXCHANGE_COUNT("exchanges", "交换次数排行");
+
+    private final String keySuffix;
+    private final String description;
+
+    CreditRankingType(String keySuffix, String description) {
+        this.keySuffix = keySuffix;
+        this.description = description;
+    }
+
+    public String getKeySuffix() {
+        return keySuffix;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
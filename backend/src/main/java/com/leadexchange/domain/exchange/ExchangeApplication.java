@@ -13,7 +13,9 @@ import java.util.List;
  * @since 1.0.0
  */
 @Entity
-@Table(name = "exchange_applications")
+@Table(name = "exchange_applications", indexes = {
+        @Index(name = "idx_status_expire_time", columnList = "status, expire_time")
+})
 public class ExchangeApplication {
     
     /**
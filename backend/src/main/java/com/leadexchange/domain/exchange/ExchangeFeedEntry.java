@@ -0,0 +1,268 @@
+package com.leadexchange.domain.exchange;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 用户交换动态实体类（读模型）
+ * 每个交换申请为申请人和目标线索所有者各保存一行，冗余对方名称和线索标题，
+ * 由交换申请事件在业务事务内维护，列表查询按申请ID游标分页，只需一次索引范围扫描。
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "exchange_feed",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_user_application", columnNames = {"user_id", "application_id"})
+        },
+        indexes = {
+                @Index(name = "idx_user_role_application", columnList = "user_id, role, application_id"),
+                @Index(name = "idx_user_finished_application", columnList = "user_id, finished, application_id"),
+                @Index(name = "idx_application_id", columnList = "application_id")
+        })
+public class ExchangeFeedEntry {
+    
+    /**
+     * 动态ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    /**
+     * 交换申请ID
+     */
+    @Column(name = "application_id", nullable = false)
+    private Long applicationId;
+    
+    /**
+     * 用户在申请中的角色
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role", nullable = false, length = 20)
+    private ExchangeFeedRole role;
+    
+    /**
+     * 对方用户ID
+     */
+    @Column(name = "counterparty_id")
+    private Long counterpartyId;
+    
+    /**
+     * 对方名称
+     */
+    @Column(name = "counterparty_name", length = 100)
+    private String counterpartyName;
+    
+    /**
+     * 申请人名称
+     */
+    @Column(name = "applicant_name", length = 100)
+    private String applicantName;
+    
+    /**
+     * 目标线索所有者名称
+     */
+    @Column(name = "target_owner_name", length = 100)
+    private String targetOwnerName;
+    
+    /**
+     * 目标线索ID
+     */
+    @Column(name = "target_lead_id")
+    private Long targetLeadId;
+    
+    /**
+     * 目标线索标题
+     */
+    @Column(name = "target_lead_title", length = 200)
+    private String targetLeadTitle;
+    
+    /**
+     * 提供线索标题列表
+     */
+    @Column(name = "offered_lead_titles", length = 1000)
+    private String offeredLeadTitles;
+    
+    /**
+     * 积分差额
+     */
+    @Column(name = "credit_difference", precision = 10, scale = 2)
+    private BigDecimal creditDifference;
+    
+    /**
+     * 申请状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ExchangeStatus status;
+    
+    /**
+     * 是否已结束，已结束的申请出现在交换历史中
+     */
+    @Column(name = "finished", nullable = false)
+    private Boolean finished;
+    
+    /**
+     * 回复消息
+     */
+    @Column(name = "response_message", length = 500)
+    private String responseMessage;
+    
+    /**
+     * 申请时间
+     */
+    @Column(name = "apply_time")
+    private LocalDateTime applyTime;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time", nullable = false)
+    private LocalDateTime updateTime;
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Long getApplicationId() {
+        return applicationId;
+    }
+    
+    public void setApplicationId(Long applicationId) {
+        this.applicationId = applicationId;
+    }
+    
+    public ExchangeFeedRole getRole() {
+        return role;
+    }
+    
+    public void setRole(ExchangeFeedRole role) {
+        this.role = role;
+    }
+    
+    public Long getCounterpartyId() {
+        return counterpartyId;
+    }
+    
+    public void setCounterpartyId(Long counterpartyId) {
+        this.counterpartyId = counterpartyId;
+    }
+    
+    public String getCounterpartyName() {
+        return counterpartyName;
+    }
+    
+    public void setCounterpartyName(String counterpartyName) {
+        this.counterpartyName = counterpartyName;
+    }
+    
+    public String getApplicantName() {
+        return applicantName;
+    }
+    
+    public void setApplicantName(String applicantName) {
+        this.applicantName = applicantName;
+    }
+    
+    public String getTargetOwnerName() {
+        return targetOwnerName;
+    }
+    
+    public void setTargetOwnerName(String targetOwnerName) {
+        this.targetOwnerName = targetOwnerName;
+    }
+    
+    public Long getTargetLeadId() {
+        return targetLeadId;
+    }
+    
+    public void setTargetLeadId(Long targetLeadId) {
+        this.targetLeadId = targetLeadId;
+    }
+    
+    public String getTargetLeadTitle() {
+        return targetLeadTitle;
+    }
+    
+    public void setTargetLeadTitle(String targetLeadTitle) {
+        this.targetLeadTitle = targetLeadTitle;
+    }
+    
+    public String getOfferedLeadTitles() {
+        return offeredLeadTitles;
+    }
+    
+    public void setOfferedLeadTitles(String offeredLeadTitles) {
+        this.offeredLeadTitles = offeredLeadTitles;
+    }
+    
+    public BigDecimal getCreditDifference() {
+        return creditDifference;
+    }
+    
+    public void setCreditDifference(BigDecimal creditDifference) {
+        this.creditDifference = creditDifference;
+    }
+    
+    public ExchangeStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(ExchangeStatus status) {
+        this.status = status;
+    }
+    
+    public Boolean getFinished() {
+        return finished;
+    }
+    
+    public void setFinished(Boolean finished) {
+        this.finished = finished;
+    }
+    
+    public String getResponseMessage() {
+        return responseMessage;
+    }
+    
+    public void setResponseMessage(String responseMessage) {
+        this.responseMessage = responseMessage;
+    }
+    
+    public LocalDateTime getApplyTime() {
+        return applyTime;
+    }
+    
+    public void setApplyTime(LocalDateTime applyTime) {
+        this.applyTime = applyTime;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
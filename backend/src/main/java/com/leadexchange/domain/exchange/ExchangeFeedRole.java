@@ -0,0 +1,30 @@
+package com.leadexchange.domain.exchange;
+
+/**
+ * 交换动态中用户的角色
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public enum ExchangeFeedRole {
+
+    /**
+     * 用户发起的申请
+     */
+    SENT("我发起的"),
+
+    /**
+     * 用户收到的申请
+     */
+    RECEIVED("我收到的");
+
+    private final String description;
+
+    ExchangeFeedRole(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -12,7 +12,10 @@ import java.time.LocalDateTime;
  * @since 1.0.0
  */
 @Entity
-@Table(name = "exchange_history")
+@Table(name = "exchange_history", indexes = {
+        @Index(name = "idx_status_applicant", columnList = "final_status, applicant_id"),
+        @Index(name = "idx_status_target_owner", columnList = "final_status, target_owner_id")
+})
 public class ExchangeHistory {
     
     /**
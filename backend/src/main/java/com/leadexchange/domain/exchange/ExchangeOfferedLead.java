@@ -0,0 +1,105 @@
+package com.leadexchange.domain.exchange;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 交换申请提供线索实体类
+ * 交换申请与其提供线索的关联，每条提供线索一行，便于按线索ID索引查询
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "exchange_application_offered_leads",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_application_lead", columnNames = {"application_id", "lead_id"})
+        },
+        indexes = {
+                @Index(name = "idx_lead_application", columnList = "lead_id, application_id")
+        })
+public class ExchangeOfferedLead {
+
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 交换申请ID
+     */
+    @Column(name = "application_id", nullable = false)
+    private Long applicationId;
+
+    /**
+     * 提供的线索ID
+     */
+    @Column(name = "lead_id", nullable = false)
+    private Long leadId;
+
+    /**
+     * 申请人ID
+     */
+    @Column(name = "applicant_id", nullable = false)
+    private Long applicantId;
+
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+
+    public ExchangeOfferedLead() {
+        this.createTime = LocalDateTime.now();
+    }
+
+    public ExchangeOfferedLead(Long applicationId, Long leadId, Long applicantId) {
+        this();
+        this.applicationId = applicationId;
+        this.leadId = leadId;
+        this.applicantId = applicantId;
+    }
+
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getApplicationId() {
+        return applicationId;
+    }
+
+    public void setApplicationId(Long applicationId) {
+        this.applicationId = applicationId;
+    }
+
+    public Long getLeadId() {
+        return leadId;
+    }
+
+    public void setLeadId(Long leadId) {
+        this.leadId = leadId;
+    }
+
+    public Long getApplicantId() {
+        return applicantId;
+    }
+
+    public void setApplicantId(Long applicantId) {
+        this.applicantId = applicantId;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+}
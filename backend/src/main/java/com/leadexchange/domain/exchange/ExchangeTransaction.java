@@ -12,7 +12,9 @@ import java.time.LocalDateTime;
  * @since 1.0.0
  */
 @Entity
-@Table(name = "exchange_transactions")
+@Table(name = "exchange_transactions", indexes = {
+        @Index(name = "idx_user_id_id", columnList = "user_id, id")
+})
 public class ExchangeTransaction {
     
     /**
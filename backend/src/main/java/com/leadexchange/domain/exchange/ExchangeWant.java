@@ -0,0 +1,160 @@
+package com.leadexchange.domain.exchange;
+
+import com.leadexchange.domain.lead.LeadRating;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 交换需求实体类
+ * 用户希望换入的线索条件：最低评级，以及可选的行业方向与意向区域
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "exchange_wants", indexes = {
+        @Index(name = "idx_status_id", columnList = "status, id"),
+        @Index(name = "idx_user_status", columnList = "user_id, status")
+})
+public class ExchangeWant {
+    
+    /**
+     * 需求ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    /**
+     * 最低评级
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "min_rating", nullable = false, length = 10)
+    private LeadRating minRating;
+    
+    /**
+     * 行业方向，为空表示不限
+     */
+    @Column(name = "industry_direction", length = 100)
+    private String industryDirection;
+    
+    /**
+     * 意向区域，为空表示不限
+     */
+    @Column(name = "intended_region", length = 100)
+    private String intendedRegion;
+    
+    /**
+     * 需求状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ExchangeWantStatus status = ExchangeWantStatus.ACTIVE;
+    
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time", nullable = false)
+    private LocalDateTime updateTime;
+    
+    public ExchangeWant() {
+        this.createTime = LocalDateTime.now();
+        this.updateTime = LocalDateTime.now();
+    }
+    
+    // 业务方法
+    
+    /**
+     * 取消需求
+     */
+    public void cancel() {
+        this.status = ExchangeWantStatus.CANCELLED;
+        this.updateTime = LocalDateTime.now();
+    }
+    
+    /**
+     * 判断是否生效中
+     * @return true表示生效中
+     */
+    public boolean isActive() {
+        return this.status == ExchangeWantStatus.ACTIVE;
+    }
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public LeadRating getMinRating() {
+        return minRating;
+    }
+    
+    public void setMinRating(LeadRating minRating) {
+        this.minRating = minRating;
+    }
+    
+    public String getIndustryDirection() {
+        return industryDirection;
+    }
+    
+    public void setIndustryDirection(String industryDirection) {
+        this.industryDirection = industryDirection;
+    }
+    
+    public String getIntendedRegion() {
+        return intendedRegion;
+    }
+    
+    public void setIntendedRegion(String intendedRegion) {
+        this.intendedRegion = intendedRegion;
+    }
+    
+    public ExchangeWantStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(ExchangeWantStatus status) {
+        this.status = status;
+    }
+    
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -0,0 +1,30 @@
+package com.leadexchange.domain.exchange;
+
+/**
+ * 交换需求状态枚举
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public enum ExchangeWantStatus {
+    
+    /**
+     * 生效中 - 参与撮合
+     */
+    ACTIVE("生效中"),
+    
+    /**
+     * 已取消 - 用户撤销需求
+     */
+    CANCELLED("已取消");
+    
+    private final String description;
+    
+    ExchangeWantStatus(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,29 @@
+package com.leadexchange.domain.exchange;
+
+import java.math.BigDecimal;
+
+/**
+ * 冻结积分条目
+ * 只包含 idx_frozen_user 索引中的列，游标查询通过构造表达式读取，可由索引覆盖而不回表
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class FrozenCreditEntry {
+
+    private final Long userId;
+    private final BigDecimal frozenCredits;
+
+    public FrozenCreditEntry(Long userId, BigDecimal frozenCredits) {
+        this.userId = userId;
+        this.frozenCredits = frozenCredits;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getFrozenCredits() {
+        return frozenCredits;
+    }
+}
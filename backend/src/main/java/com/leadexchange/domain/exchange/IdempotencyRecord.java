@@ -0,0 +1,214 @@
+package com.leadexchange.domain.exchange;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录实体类
+ * 记录带 Idempotency-Key 的写请求的指纹与响应，同一用户同一幂等键由唯一索引保证只执行一次
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "idempotency_records",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_user_idempotency_key", columnNames = {"user_id", "idempotency_key"})
+        },
+        indexes = {
+                @Index(name = "idx_expire_time", columnList = "expire_time")
+        })
+public class IdempotencyRecord {
+    
+    /**
+     * 记录ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    /**
+     * 幂等键
+     */
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+    
+    /**
+     * 操作名称
+     */
+    @Column(name = "operation", nullable = false, length = 50)
+    private String operation;
+    
+    /**
+     * 请求指纹（SHA-256）
+     */
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+    
+    /**
+     * 处理状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private IdempotencyStatus status = IdempotencyStatus.IN_PROGRESS;
+    
+    /**
+     * 认领令牌，每次重新认领加1，完成标记和释放都须持有当前令牌
+     */
+    @Column(name = "claim_token", nullable = false)
+    private Integer claimToken = 0;
+    
+    /**
+     * 响应内容（JSON）
+     */
+    @Lob
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+    
+    /**
+     * 过期时间
+     */
+    @Column(name = "expire_time", nullable = false)
+    private LocalDateTime expireTime;
+    
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    @Column(name = "update_time", nullable = false)
+    private LocalDateTime updateTime;
+    
+    public IdempotencyRecord() {
+        this.createTime = LocalDateTime.now();
+        this.updateTime = LocalDateTime.now();
+    }
+    
+    public IdempotencyRecord(Long userId, String idempotencyKey, String operation,
+                             String requestFingerprint, LocalDateTime expireTime) {
+        this();
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+        this.operation = operation;
+        this.requestFingerprint = requestFingerprint;
+        this.expireTime = expireTime;
+    }
+    
+    // 业务方法
+    
+    /**
+     * 判断是否已完成
+     * @return true表示已完成
+     */
+    public boolean isCompleted() {
+        return this.status == IdempotencyStatus.COMPLETED;
+    }
+    
+    /**
+     * 判断请求指纹是否一致
+     * @param fingerprint 请求指纹
+     * @return true表示一致
+     */
+    public boolean matches(String fingerprint) {
+        return this.requestFingerprint.equals(fingerprint);
+    }
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+    
+    public String getRequestFingerprint() {
+        return requestFingerprint;
+    }
+    
+    public void setRequestFingerprint(String requestFingerprint) {
+        this.requestFingerprint = requestFingerprint;
+    }
+    
+    public IdempotencyStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(IdempotencyStatus status) {
+        this.status = status;
+    }
+    
+    public Integer getClaimToken() {
+        return claimToken;
+    }
+    
+    public void setClaimToken(Integer claimToken) {
+        this.claimToken = claimToken;
+    }
+    
+    public String getResponseBody() {
+        return responseBody;
+    }
+    
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+    
+    public LocalDateTime getExpireTime() {
+        return expireTime;
+    }
+    
+    public void setExpireTime(LocalDateTime expireTime) {
+        this.expireTime = expireTime;
+    }
+    
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+    
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
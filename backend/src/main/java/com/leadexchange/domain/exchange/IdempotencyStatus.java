@@ -0,0 +1,30 @@
+package com.leadexchange.domain.exchange;
+
+/**
+ * 幂等记录状态枚举
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public enum IdempotencyStatus {
+    
+    /**
+     * 处理中 - 请求已认领，业务尚未提交
+     */
+    IN_PROGRESS("处理中"),
+    
+    /**
+     * 已完成 - 业务已提交，响应已保存
+     */
+    COMPLETED("已完成");
+    
+    private final String description;
+    
+    IdempotencyStatus(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
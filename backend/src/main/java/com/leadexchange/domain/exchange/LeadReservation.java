@@ -0,0 +1,123 @@
+package com.leadexchange.domain.exchange;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 线索预留实体类
+ * 交换申请提交时预留目标线索与提供线索，申请结束（拒绝、取消、过期、完成）时释放。
+ * 独占预留的 exclusive_lead_id 等于线索ID，共享预留为空，由唯一索引保证同一线索只有一个独占预留。
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "lead_reservations",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_exclusive_lead_id", columnNames = "exclusive_lead_id")
+        },
+        indexes = {
+                @Index(name = "idx_lead_id", columnList = "lead_id"),
+                @Index(name = "idx_application_id", columnList = "application_id")
+        })
+public class LeadReservation {
+    
+    /**
+     * 预留ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 线索ID
+     */
+    @Column(name = "lead_id", nullable = false)
+    private Long leadId;
+    
+    /**
+     * 交换申请ID
+     */
+    @Column(name = "application_id", nullable = false)
+    private Long applicationId;
+    
+    /**
+     * 预留角色
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role", nullable = false, length = 20)
+    private LeadReservationRole role;
+    
+    /**
+     * 独占线索ID，独占预留时等于线索ID，共享预留为空
+     */
+    @Column(name = "exclusive_lead_id")
+    private Long exclusiveLeadId;
+    
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    public LeadReservation() {
+        this.createTime = LocalDateTime.now();
+    }
+    
+    public LeadReservation(Long leadId, Long applicationId, LeadReservationRole role) {
+        this();
+        this.leadId = leadId;
+        this.applicationId = applicationId;
+        this.role = role;
+        this.exclusiveLeadId = role.isExclusive() ? leadId : null;
+    }
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getLeadId() {
+        return leadId;
+    }
+    
+    public void setLeadId(Long leadId) {
+        this.leadId = leadId;
+    }
+    
+    public Long getApplicationId() {
+        return applicationId;
+    }
+    
+    public void setApplicationId(Long applicationId) {
+        this.applicationId = applicationId;
+    }
+    
+    public LeadReservationRole getRole() {
+        return role;
+    }
+    
+    public void setRole(LeadReservationRole role) {
+        this.role = role;
+    }
+    
+    public Long getExclusiveLeadId() {
+        return exclusiveLeadId;
+    }
+    
+    public void setExclusiveLeadId(Long exclusiveLeadId) {
+        this.exclusiveLeadId = exclusiveLeadId;
+    }
+    
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -0,0 +1,38 @@
+package com.leadexchange.domain.exchange;
+
+/**
+ * 线索预留角色枚举
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public enum LeadReservationRole {
+    
+    /**
+     * 目标线索 - 共享预留，多个申请可同时申请同一线索
+     */
+    TARGET("目标线索"),
+    
+    /**
+     * 提供线索 - 独占预留，同一线索同时只能在一个申请中提供
+     */
+    OFFERED("提供线索");
+    
+    private final String description;
+    
+    LeadReservationRole(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    /**
+     * 判断是否为独占预留
+     * @return true表示独占预留
+     */
+    public boolean isExclusive() {
+        return this == OFFERED;
+    }
+}
@@ -12,7 +12,10 @@ import java.time.LocalDateTime;
  * @since 1.0.0
  */
 @Entity
-@Table(name = "user_credits")
+@Table(name = "user_credits", indexes = {
+        @Index(name = "idx_frozen_user", columnList = "frozen_credits, user_id"),
+        @Index(name = "idx_zero_balance_user", columnList = "total_credits, available_credits, frozen_credits, user_id")
+})
 public class UserCredit {
     
     /**
@@ -88,6 +91,13 @@ public class UserCredit {
     @Column(name = "update_by")
     private Long updateBy;
     
+    /**
+     * 版本号（乐观锁）
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version = 0;
+    
     // 构造函数
     public UserCredit() {
         this.createTime = LocalDateTime.now();
@@ -293,4 +303,12 @@ public class UserCredit {
     public void setUpdateBy(Long updateBy) {
         this.updateBy = updateBy;
     }
+    
+    public Integer getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
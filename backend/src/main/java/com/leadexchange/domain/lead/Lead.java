@@ -20,9 +20,15 @@ import java.time.LocalDateTime;
  * @since 1.0.0
  */
 @Entity
-@Table(name = "leads")
+@Table(name = "leads", indexes = {
+        @Index(name = "idx_status_deleted_id", columnList = "status, deleted, id"),
+        @Index(name = "idx_status_deleted_rating_id", columnList = "status, deleted, rating, id"),
+        @Index(name = "idx_status_deleted_region_id", columnList = "status, deleted, intended_region, id"),
+        @Index(name = "idx_owner_status_rating", columnList = "owner_id, status, rating"),
+        @Index(name = "idx_update_time", columnList = "update_time")
+})
 @TableName("leads")
-@Document(indexName = "leads")
+@Document(indexName = "leads", versionType = Document.VersionType.EXTERNAL_GTE)
 @ApiModel(description = "线索实体")
 public class Lead extends BaseEntity {
 
@@ -0,0 +1,257 @@
+package com.leadexchange.domain.outbox;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 发件箱消息实体类
+ * 业务事件与业务数据在同一事务中写入发件箱，由投递任务异步发送到消息代理，
+ * 事务回滚时消息随之回滚，进程退出后未投递的消息仍保留在表中。
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_status_next_attempt", columnList = "status, next_attempt_time"),
+        @Index(name = "idx_status_published_time", columnList = "status, published_time")
+})
+public class OutboxEvent {
+    
+    /**
+     * 消息ID，同时作为投递消息的messageId供消费方去重
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 聚合类型
+     */
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    private String aggregateType;
+    
+    /**
+     * 聚合ID
+     */
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+    
+    /**
+     * 事件类型
+     */
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+    
+    /**
+     * 目标交换机
+     */
+    @Column(name = "exchange_name", nullable = false, length = 100)
+    private String exchangeName;
+    
+    /**
+     * 路由键
+     */
+    @Column(name = "routing_key", nullable = false, length = 100)
+    private String routingKey;
+    
+    /**
+     * 消息内容（JSON）
+     */
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    /**
+     * 投递状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private OutboxStatus status;
+    
+    /**
+     * 已尝试投递次数
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+    
+    /**
+     * 下次投递时间
+     */
+    @Column(name = "next_attempt_time", nullable = false)
+    private LocalDateTime nextAttemptTime;
+    
+    /**
+     * 最近一次投递失败原因
+     */
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    /**
+     * 投递成功时间
+     */
+    @Column(name = "published_time")
+    private LocalDateTime publishedTime;
+    
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time", nullable = false)
+    private LocalDateTime createTime;
+    
+    public OutboxEvent() {
+    }
+    
+    public OutboxEvent(String aggregateType, Long aggregateId, String eventType,
+                       String exchangeName, String routingKey, String payload) {
+        LocalDateTime now = LocalDateTime.now();
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.exchangeName = exchangeName;
+        this.routingKey = routingKey;
+        this.payload = payload;
+        this.status = OutboxStatus.PENDING;
+        this.attempts = 0;
+        this.nextAttemptTime = now;
+        this.createTime = now;
+    }
+    
+    /**
+     * 认领消息：把下次投递时间推迟到租约到期，租约内其他节点不会再认领
+     * @param leaseUntil 租约到期时间
+     */
+    public void lease(LocalDateTime leaseUntil) {
+        this.nextAttemptTime = leaseUntil;
+    }
+    
+    /**
+     * 标记投递成功
+     */
+    public void markPublished() {
+        this.status = OutboxStatus.PUBLISHED;
+        this.attempts = this.attempts + 1;
+        this.publishedTime = LocalDateTime.now();
+        this.lastError = null;
+    }
+    
+    /**
+     * 记录投递失败
+     * @param error 失败原因
+     * @param nextAttemptTime 下次投递时间
+     * @param maxAttempts 最大投递次数，达到后不再自动投递
+     */
+    public void markFailed(String error, LocalDateTime nextAttemptTime, int maxAttempts) {
+        this.attempts = this.attempts + 1;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        this.nextAttemptTime = nextAttemptTime;
+        if (this.attempts >= maxAttempts) {
+            this.status = OutboxStatus.FAILED;
+        }
+    }
+    
+    // Getter和Setter方法
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getAggregateType() {
+        return aggregateType;
+    }
+    
+    public void setAggregateType(String aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+    
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+    
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+    
+    public String getEventType() {
+        return eventType;
+    }
+    
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+    
+    public String getExchangeName() {
+        return exchangeName;
+    }
+    
+    public void setExchangeName(String exchangeName) {
+        this.exchangeName = exchangeName;
+    }
+    
+    public String getRoutingKey() {
+        return routingKey;
+    }
+    
+    public void setRoutingKey(String routingKey) {
+        this.routingKey = routingKey;
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+    public OutboxStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(OutboxStatus status) {
+        this.status = status;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+    
+    public void setNextAttemptTime(LocalDateTime nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public LocalDateTime getPublishedTime() {
+        return publishedTime;
+    }
+    
+    public void setPublishedTime(LocalDateTime publishedTime) {
+        this.publishedTime = publishedTime;
+    }
+    
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+}
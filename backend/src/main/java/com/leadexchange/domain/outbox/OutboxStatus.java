@@ -0,0 +1,25 @@
+package com.leadexchange.domain.outbox;
+
+/**
+ * 发件箱消息状态
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public enum OutboxStatus {
+
+    /**
+     * 待投递
+     */
+    PENDING,
+
+    /**
+     * 已投递，消息代理已确认
+     */
+    PUBLISHED,
+
+    /**
+     * 投递失败次数达到上限，需人工处理
+     */
+    FAILED
+}
@@ -0,0 +1,78 @@
+package com.leadexchange.dto.lead;
+
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.domain.lead.LeadStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 线索搜索条件DTO
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Data
+@Schema(description = "线索搜索条件")
+public class LeadSearchRequest {
+
+    /**
+     * 关键词，匹配标题、企业名称、行业方向和描述
+     */
+    @Schema(description = "关键词")
+    private String keyword;
+
+    /**
+     * 线索状态，默认已发布
+     */
+    @Schema(description = "线索状态", example = "PUBLISHED")
+    private LeadStatus status = LeadStatus.PUBLISHED;
+
+    /**
+     * 线索评级
+     */
+    @Schema(description = "线索评级")
+    private LeadRating rating;
+
+    /**
+     * 意向区域
+     */
+    @Schema(description = "意向区域")
+    private String region;
+
+    /**
+     * 最小投资额
+     */
+    @Schema(description = "最小投资额")
+    private BigDecimal minInvestment;
+
+    /**
+     * 最大投资额
+     */
+    @Schema(description = "最大投资额")
+    private BigDecimal maxInvestment;
+
+    /**
+     * 翻页游标，取上一页结果中的 nextCursor，首页为空
+     */
+    @Schema(description = "翻页游标")
+    private String cursor;
+
+    /**
+     * 每页大小
+     */
+    @Schema(description = "每页大小", example = "10")
+    private int size = 10;
+
+    /**
+     * 仅按关键词搜索已发布线索
+     * @param keyword 关键词
+     * @return 搜索条件
+     */
+    public static LeadSearchRequest ofKeyword(String keyword) {
+        LeadSearchRequest request = new LeadSearchRequest();
+        request.setKeyword(keyword);
+        return request;
+    }
+}
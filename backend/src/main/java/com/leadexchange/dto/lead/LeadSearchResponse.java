@@ -0,0 +1,67 @@
+package com.leadexchange.dto.lead;
+
+import com.leadexchange.domain.lead.Lead;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 线索搜索结果DTO
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Data
+@Schema(description = "线索搜索结果")
+public class LeadSearchResponse {
+
+    /**
+     * 本页命中的线索
+     */
+    @Schema(description = "命中的线索")
+    private List<Hit> hits = Collections.emptyList();
+
+    /**
+     * 命中总数，数据库降级查询时为null
+     */
+    @Schema(description = "命中总数")
+    private Long total;
+
+    /**
+     * 下一页游标，没有更多结果时为null
+     */
+    @Schema(description = "下一页游标")
+    private String nextCursor;
+
+    /**
+     * 搜索引擎：ELASTICSEARCH、EMBEDDED 或 DATABASE
+     */
+    @Schema(description = "搜索引擎")
+    private String engine;
+
+    /**
+     * 单条命中
+     */
+    @Data
+    @Schema(description = "线索命中")
+    public static class Hit {
+
+        /**
+         * 线索
+         */
+        private Lead lead;
+
+        /**
+         * 相关度得分，数据库降级查询时为null
+         */
+        private Float score;
+
+        /**
+         * 高亮片段，键为字段名
+         */
+        private Map<String, List<String>> highlights = Collections.emptyMap();
+    }
+}
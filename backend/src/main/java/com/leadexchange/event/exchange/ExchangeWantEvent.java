@@ -0,0 +1,32 @@
+package com.leadexchange.event.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeWant;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 交换需求事件
+ * 在交换需求创建或取消时发布此事件
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class ExchangeWantEvent extends ApplicationEvent {
+    
+    /** 交换需求 */
+    private final ExchangeWant want;
+    
+    /**
+     * 构造函数
+     * 
+     * @param source 事件源
+     * @param want 交换需求
+     */
+    public ExchangeWantEvent(Object source, ExchangeWant want) {
+        super(source);
+        this.want = want;
+    }
+    
+    public ExchangeWant getWant() {
+        return want;
+    }
+}
@@ -7,9 +7,10 @@ import com.leadexchange.service.notification.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.HashMap;
 import java.util.List;
@@ -32,10 +33,11 @@ public class NotificationEventHandler {
     
     /**
      * 处理交换申请事件
+     * 在发布事件的事务提交后异步处理，回滚的业务操作不会发出通知
      * 
      * @param event 交换申请事件
      */
-    @EventListener
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
     @Async
     public void handleExchangeApplicationEvent(ExchangeApplicationEvent event) {
         try {
@@ -44,15 +46,19 @@ public class NotificationEventHandler {
             // 根据事件类型发送不同的通知
             switch (event.getEventType()) {
                 case APPLICATION_SUBMITTED:
+                case SUBMITTED:
                     handleApplicationSubmitted(event);
                     break;
                 case APPLICATION_APPROVED:
+                case APPROVED:
                     handleApplicationApproved(event);
                     break;
                 case APPLICATION_REJECTED:
+                case REJECTED:
                     handleApplicationRejected(event);
                     break;
                 case APPLICATION_CANCELLED:
+                case CANCELLED:
                     handleApplicationCancelled(event);
                     break;
                 case EXCHANGE_COMPLETED:
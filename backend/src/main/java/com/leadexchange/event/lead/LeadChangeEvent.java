@@ -0,0 +1,101 @@
+package com.leadexchange.event.lead;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 线索变更事件
+ * 在线索创建、更新、状态变化、评级变化或所有权转移时发布此事件，
+ * 事件只携带线索ID，监听方按需重新读取线索的最新状态
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class LeadChangeEvent extends ApplicationEvent {
+    
+    /**
+     * 变更类型枚举
+     */
+    public enum ChangeType {
+        /** 线索创建 */
+        CREATED("线索已创建"),
+        /** 线索更新 */
+        UPDATED("线索已更新"),
+        /** 状态变化（发布、下架等） */
+        STATUS_CHANGED("线索状态已变化"),
+        /** 评级变化 */
+        RATING_CHANGED("线索评级已变化"),
+        /** 所有权转移 */
+        OWNER_CHANGED("线索所有权已转移"),
+        /** 线索删除 */
+        DELETED("线索已删除");
+        
+        private final String description;
+        
+        ChangeType(String description) {
+            this.description = description;
+        }
+        
+        public String getDescription() {
+            return description;
+        }
+    }
+    
+    /** 变更类型 */
+    private final ChangeType changeType;
+    
+    /** 变更的线索ID */
+    private final List<Long> leadIds;
+    
+    /** 事件发生时间 */
+    private final LocalDateTime eventTime;
+    
+    /**
+     * 构造函数
+     * 
+     * @param source 事件源
+     * @param changeType 变更类型
+     * @param leadIds 变更的线索ID
+     */
+    public LeadChangeEvent(Object source, ChangeType changeType, List<Long> leadIds) {
+        super(source);
+        this.changeType = changeType;
+        this.leadIds = Collections.unmodifiableList(leadIds);
+        this.eventTime = LocalDateTime.now();
+    }
+    
+    /**
+     * 单个线索的构造函数
+     * 
+     * @param source 事件源
+     * @param changeType 变更类型
+     * @param leadId 变更的线索ID
+     */
+    public LeadChangeEvent(Object source, ChangeType changeType, Long leadId) {
+        this(source, changeType, Collections.singletonList(leadId));
+    }
+    
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+    
+    public List<Long> getLeadIds() {
+        return leadIds;
+    }
+    
+    public LocalDateTime getEventTime() {
+        return eventTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "LeadChangeEvent{" +
+                "changeType=" + changeType +
+                ", leadIds=" + leadIds +
+                ", eventTime=" + eventTime +
+                '}';
+    }
+}
@@ -0,0 +1,78 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.CreditAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 系统积分汇总数据访问接口
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface CreditAggregateRepository extends JpaRepository<CreditAggregate, Integer> {
+    
+    /**
+     * 向指定条带累加变化量
+     * 条带行由 CreditAggregateService 在启动时预先创建，热路径只做按主键的UPDATE，不依赖特定数据库的upsert语法
+     * @return 影响行数，条带行不存在时为0
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CreditAggregate a SET a.totalCredits = a.totalCredits + :totalDelta, " +
+           "a.availableCredits = a.availableCredits + :availableDelta, " +
+           "a.frozenCredits = a.frozenCredits + :frozenDelta, " +
+           "a.transactionAmount = a.transactionAmount + :transactionDelta, " +
+           "a.updateTime = :now WHERE a.stripe = :stripe")
+    int addDelta(@Param("stripe") int stripe,
+                 @Param("totalDelta") BigDecimal totalDelta,
+                 @Param("availableDelta") BigDecimal availableDelta,
+                 @Param("frozenDelta") BigDecimal frozenDelta,
+                 @Param("transactionDelta") BigDecimal transactionDelta,
+                 @Param("now") LocalDateTime now);
+    
+    /**
+     * 创建取值为零的条带行，行已存在时抛出主键冲突异常，须在独立事务中调用
+     * @return 影响行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO credit_aggregates " +
+                   "(stripe, total_credits, available_credits, frozen_credits, transaction_amount, update_time) " +
+                   "VALUES (:stripe, 0, 0, 0, 0, :now)",
+           nativeQuery = true)
+    int insertStripe(@Param("stripe") int stripe, @Param("now") LocalDateTime now);
+    
+    /**
+     * 统计总积分
+     * @return 各条带总积分之和
+     */
+    @Query("SELECT COALESCE(SUM(a.totalCredits), 0) FROM CreditAggregate a")
+    BigDecimal sumTotalCredits();
+    
+    /**
+     * 统计可用积分
+     * @return 各条带可用积分之和
+     */
+    @Query("SELECT COALESCE(SUM(a.availableCredits), 0) FROM CreditAggregate a")
+    BigDecimal sumAvailableCredits();
+    
+    /**
+     * 统计冻结积分
+     * @return 各条带冻结积分之和
+     */
+    @Query("SELECT COALESCE(SUM(a.frozenCredits), 0) FROM CreditAggregate a")
+    BigDecimal sumFrozenCredits();
+    
+    /**
+     * 统计交易流水总额
+     * @return 各条带交易流水总额之和
+     */
+    @Query("SELECT COALESCE(SUM(a.transactionAmount), 0) FROM CreditAggregate a")
+    BigDecimal sumTransactionAmount();
+}
@@ -0,0 +1,33 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.CreditCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 用户积分余额检查点数据访问接口
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface CreditCheckpointRepository extends JpaRepository<CreditCheckpoint, Long> {
+    
+    /**
+     * 查询用户的检查点
+     * @param userId 用户ID
+     * @return 检查点
+     */
+    Optional<CreditCheckpoint> findByUserId(Long userId);
+    
+    /**
+     * 批量查询用户的检查点
+     * @param userIds 用户ID集合
+     * @return 检查点列表
+     */
+    List<CreditCheckpoint> findByUserIdIn(Collection<Long> userIds);
+}
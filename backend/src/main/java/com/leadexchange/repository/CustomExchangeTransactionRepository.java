@@ -0,0 +1,23 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.ExchangeTransaction;
+
+import java.util.List;
+
+/**
+ * 自定义交易记录Repository接口
+ * 提供批量写入等JPA不便表达的操作
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public interface CustomExchangeTransactionRepository {
+
+    /**
+     * 使用单条多行INSERT语句批量写入交易记录
+     * 
+     * @param transactions 交易记录列表
+     * @return 写入行数
+     */
+    int batchInsert(List<ExchangeTransaction> transactions);
+}
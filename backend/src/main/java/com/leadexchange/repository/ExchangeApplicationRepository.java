@@ -5,11 +5,15 @@ import com.leadexchange.domain.exchange.ExchangeStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -86,6 +90,54 @@ public interface ExchangeApplicationRepository extends JpaRepository<ExchangeApp
            "AND ea.status = 'PENDING'")
     List<ExchangeApplication> findExpiredApplications(@Param("currentTime") LocalDateTime currentTime);
     
+    /**
+     * 认领一批已过期的待处理申请（加行锁并跳过已被其他节点锁定的行）
+     * @param currentTime 当前时间
+     * @param limit 认领数量
+     * @return 已加锁的过期申请列表
+     */
+    @Query(value = "SELECT * FROM exchange_applications WHERE status = 'PENDING' AND expire_time < :currentTime " +
+                   "ORDER BY expire_time LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ExchangeApplication> claimExpiredApplications(@Param("currentTime") LocalDateTime currentTime,
+                                                       @Param("limit") int limit);
+    
+    /**
+     * 认领单个已过期的待处理申请（加行锁并跳过已被锁定的行）
+     * @param id 申请ID
+     * @param currentTime 当前时间
+     * @return 已加锁的过期申请
+     */
+    @Query(value = "SELECT * FROM exchange_applications WHERE id = :id AND status = 'PENDING' " +
+                   "AND expire_time < :currentTime FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<ExchangeApplication> claimExpiredApplication(@Param("id") Long id,
+                                                          @Param("currentTime") LocalDateTime currentTime);
+    
+    /**
+     * 根据ID查询交换申请（加悲观锁）
+     * @param id 申请ID
+     * @return 交换申请
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ea FROM ExchangeApplication ea WHERE ea.id = :id")
+    Optional<ExchangeApplication> findByIdWithLock(@Param("id") Long id);
+    
+    /**
+     * 按ID升序批量加锁查询交换申请
+     * @param ids 申请ID集合
+     * @return 按ID升序排列的已加锁申请列表
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ea FROM ExchangeApplication ea WHERE ea.id IN :ids ORDER BY ea.id")
+    List<ExchangeApplication> findAllByIdInWithLock(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 查询交换申请的目标线索所有者ID
+     * @param id 申请ID
+     * @return 目标线索所有者ID
+     */
+    @Query("SELECT ea.targetOwnerId FROM ExchangeApplication ea WHERE ea.id = :id")
+    Optional<Long> findTargetOwnerIdById(@Param("id") Long id);
+    
     /**
      * 查询指定目标线索的所有交换申请
      * @param targetLeadId 目标线索ID
@@ -162,4 +214,12 @@ public interface ExchangeApplicationRepository extends JpaRepository<ExchangeApp
      */
     Page<ExchangeApplication> findByStatusInOrderByCreateTimeDesc(
             List<ExchangeStatus> statuses, Pageable pageable);
+    
+    /**
+     * 按ID游标顺序扫描交换申请
+     * @param afterId 上一批最后一条的申请ID（不含）
+     * @param pageable 分页参数（只使用页大小）
+     * @return 交换申请列表
+     */
+    List<ExchangeApplication> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
\ No newline at end of file
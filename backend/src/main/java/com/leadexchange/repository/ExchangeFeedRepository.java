@@ -0,0 +1,81 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.ExchangeFeedEntry;
+import com.leadexchange.domain.exchange.ExchangeFeedRole;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户交换动态数据访问接口
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface ExchangeFeedRepository extends JpaRepository<ExchangeFeedEntry, Long> {
+    
+    /**
+     * 按申请ID游标查询用户指定角色的交换动态，按申请ID倒序
+     * @param userId 用户ID
+     * @param role 用户角色
+     * @param beforeApplicationId 上一页最后一条的申请ID（不含）
+     * @param pageable 分页参数（只使用页大小）
+     * @return 交换动态列表
+     */
+    @Query("SELECT f FROM ExchangeFeedEntry f WHERE f.userId = :userId AND f.role = :role " +
+           "AND f.applicationId < :beforeApplicationId ORDER BY f.applicationId DESC")
+    List<ExchangeFeedEntry> findByRoleBefore(@Param("userId") Long userId,
+                                             @Param("role") ExchangeFeedRole role,
+                                             @Param("beforeApplicationId") Long beforeApplicationId,
+                                             Pageable pageable);
+    
+    /**
+     * 按申请ID游标查询用户已结束的交换动态，按申请ID倒序
+     * @param userId 用户ID
+     * @param beforeApplicationId 上一页最后一条的申请ID（不含）
+     * @param pageable 分页参数（只使用页大小）
+     * @return 交换动态列表
+     */
+    @Query("SELECT f FROM ExchangeFeedEntry f WHERE f.userId = :userId AND f.finished = true " +
+           "AND f.applicationId < :beforeApplicationId ORDER BY f.applicationId DESC")
+    List<ExchangeFeedEntry> findFinishedBefore(@Param("userId") Long userId,
+                                               @Param("beforeApplicationId") Long beforeApplicationId,
+                                               Pageable pageable);
+    
+    /**
+     * 查询申请的交换动态
+     * @param applicationId 申请ID
+     * @return 交换动态列表
+     */
+    List<ExchangeFeedEntry> findByApplicationId(Long applicationId);
+    
+    /**
+     * 查询已有交换动态的申请ID
+     * @param applicationIds 申请ID集合
+     * @return 申请ID列表
+     */
+    @Query("SELECT DISTINCT f.applicationId FROM ExchangeFeedEntry f WHERE f.applicationId IN :applicationIds")
+    List<Long> findExistingApplicationIds(@Param("applicationIds") Collection<Long> applicationIds);
+    
+    /**
+     * 更新申请的状态
+     * @return 更新行数，0表示申请尚无交换动态
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ExchangeFeedEntry f SET f.status = :status, f.finished = :finished, " +
+           "f.responseMessage = :responseMessage, f.updateTime = :now WHERE f.applicationId = :applicationId")
+    int updateStatus(@Param("applicationId") Long applicationId,
+                     @Param("status") ExchangeStatus status,
+                     @Param("finished") boolean finished,
+                     @Param("responseMessage") String responseMessage,
+                     @Param("now") LocalDateTime now);
+}
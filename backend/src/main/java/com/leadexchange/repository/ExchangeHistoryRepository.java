@@ -268,4 +268,21 @@ public interface ExchangeHistoryRepository extends JpaRepository<ExchangeHistory
            "SELECT target_owner_id as userId FROM exchange_history" +
            ") as allUsers GROUP BY userId ORDER BY exchangeCount DESC", nativeQuery = true)
     List<Object[]> findMostActiveExchangeUsers(Pageable pageable);
+    
+    /**
+     * 统计用户ID区间内每个用户的成功交换次数
+     * 两个分支分别走(final_status, applicant_id)和(final_status, target_owner_id)索引做范围扫描
+     * @param afterUserId 区间下界（不含）
+     * @param toUserId 区间上界（含）
+     * @return 用户ID和成功交换次数
+     */
+    @Query(value = "SELECT userId, COUNT(*) as exchangeCount FROM (" +
+           "SELECT applicant_id as userId FROM exchange_history WHERE final_status = 'COMPLETED' " +
+           "AND applicant_id > :afterUserId AND applicant_id <= :toUserId " +
+           "UNION ALL " +
+           "SELECT target_owner_id as userId FROM exchange_history WHERE final_status = 'COMPLETED' " +
+           "AND target_owner_id > :afterUserId AND target_owner_id <= :toUserId" +
+           ") as completedUsers GROUP BY userId", nativeQuery = true)
+    List<Object[]> countCompletedExchangesByUserRange(@Param("afterUserId") Long afterUserId,
+                                                      @Param("toUserId") Long toUserId);
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.ExchangeOfferedLead;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 交换申请提供线索数据访问接口
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface ExchangeOfferedLeadRepository extends JpaRepository<ExchangeOfferedLead, Long> {
+
+    /**
+     * 查询申请提供的线索ID，按提交顺序排列
+     * @param applicationId 申请ID
+     * @return 线索ID列表
+     */
+    @Query("SELECT o.leadId FROM ExchangeOfferedLead o WHERE o.applicationId = :applicationId ORDER BY o.id")
+    List<Long> findLeadIdsByApplicationId(@Param("applicationId") Long applicationId);
+
+    /**
+     * 批量查询多个申请提供的线索，按提交顺序排列
+     * @param applicationIds 申请ID集合
+     * @return 提供线索列表
+     */
+    @Query("SELECT o FROM ExchangeOfferedLead o WHERE o.applicationId IN :applicationIds ORDER BY o.id")
+    List<ExchangeOfferedLead> findByApplicationIdIn(@Param("applicationIds") Collection<Long> applicationIds);
+
+    /**
+     * 查询提供了指定线索且处于指定状态的申请ID
+     * @param leadId 线索ID
+     * @param status 申请状态
+     * @return 申请ID列表
+     */
+    @Query("SELECT o.applicationId FROM ExchangeOfferedLead o, ExchangeApplication a " +
+           "WHERE a.id = o.applicationId AND o.leadId = :leadId AND a.status = :status")
+    List<Long> findApplicationIdsByLeadIdAndStatus(@Param("leadId") Long leadId,
+                                                   @Param("status") ExchangeStatus status);
+}
@@ -1,5 +1,6 @@
 package com.leadexchange.repository;
 
+import com.leadexchange.domain.exchange.CreditLedgerEntry;
 import com.leadexchange.domain.exchange.ExchangeTransaction;
 import com.leadexchange.domain.exchange.TransactionType;
 import org.springframework.data.domain.Page;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,7 +22,8 @@ import java.util.List;
  * @since 1.0.0
  */
 @Repository
-public interface ExchangeTransactionRepository extends JpaRepository<ExchangeTransaction, Long> {
+public interface ExchangeTransactionRepository extends JpaRepository<ExchangeTransaction, Long>,
+        CustomExchangeTransactionRepository {
     
     /**
      * 根据用户ID查询交易记录
@@ -209,4 +212,26 @@ public interface ExchangeTransactionRepository extends JpaRepository<ExchangeTra
      */
     Page<ExchangeTransaction> findByAmountGreaterThanOrderByAmountDesc(
             BigDecimal minAmount, Pageable pageable);
-}
\ No newline at end of file
+    
+    /**
+     * 批量读取用户在指定流水ID之后的余额链，按用户ID、流水ID排序
+     * @param userIds 用户ID集合
+     * @param afterId 起始流水ID（不含）
+     * @return 余额链条目列表
+     */
+    @Query("SELECT new com.leadexchange.domain.exchange.CreditLedgerEntry(" +
+           "et.id, et.userId, et.balanceBefore, et.balanceAfter) " +
+           "FROM ExchangeTransaction et WHERE et.userId IN :userIds AND et.id > :afterId " +
+           "ORDER BY et.userId, et.id")
+    List<CreditLedgerEntry> findLedgerEntries(@Param("userIds") Collection<Long> userIds,
+                                              @Param("afterId") Long afterId);
+    
+    /**
+     * 批量查询用户的最后一条流水ID，只扫描(user_id, id)索引
+     * @param userIds 用户ID集合
+     * @return [用户ID, 最后一条流水ID]列表，没有流水的用户不返回
+     */
+    @Query("SELECT et.userId, MAX(et.id) FROM ExchangeTransaction et " +
+           "WHERE et.userId IN :userIds GROUP BY et.userId")
+    List<Object[]> findLastTransactionIds(@Param("userIds") Collection<Long> userIds);
+}
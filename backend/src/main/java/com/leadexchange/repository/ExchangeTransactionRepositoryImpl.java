@@ -0,0 +1,59 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.ExchangeTransaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易记录Repository实现类
+ * 提供批量写入功能
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public class ExchangeTransactionRepositoryImpl implements CustomExchangeTransactionRepository {
+
+    private static final String INSERT_PREFIX = "INSERT INTO exchange_transactions " +
+            "(user_id, transaction_type, amount, balance_before, balance_after, " +
+            "source_type, source_id, description, create_time, create_by) VALUES ";
+
+    private static final String VALUES_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchInsert(List<ExchangeTransaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(transactions.size() * 10);
+        for (int i = 0; i < transactions.size(); i++) {
+            ExchangeTransaction transaction = transactions.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(VALUES_ROW);
+            args.add(transaction.getUserId());
+            args.add(transaction.getTransactionType().name());
+            args.add(transaction.getAmount());
+            args.add(transaction.getBalanceBefore());
+            args.add(transaction.getBalanceAfter());
+            args.add(transaction.getSourceType());
+            args.add(transaction.getSourceId());
+            args.add(transaction.getDescription());
+            args.add(transaction.getCreateTime() != null ? transaction.getCreateTime() : LocalDateTime.now());
+            args.add(transaction.getCreateBy());
+        }
+
+        return jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+}
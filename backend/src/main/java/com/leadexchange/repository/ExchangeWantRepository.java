@@ -0,0 +1,40 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.ExchangeWant;
+import com.leadexchange.domain.exchange.ExchangeWantStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 交换需求数据访问接口
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface ExchangeWantRepository extends JpaRepository<ExchangeWant, Long> {
+    
+    /**
+     * 查询用户指定状态的需求
+     * @param userId 用户ID
+     * @param status 需求状态
+     * @return 需求列表
+     */
+    List<ExchangeWant> findByUserIdAndStatusOrderByIdDesc(Long userId, ExchangeWantStatus status);
+    
+    /**
+     * 按ID游标分页查询指定状态的需求，用于启动时恢复撮合状态
+     * @param status 需求状态
+     * @param lastId 上一页最后一条的ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 需求列表
+     */
+    @Query("SELECT w FROM ExchangeWant w WHERE w.status = :status AND w.id > :lastId ORDER BY w.id")
+    List<ExchangeWant> findByStatusAfterId(@Param("status") ExchangeWantStatus status,
+                                           @Param("lastId") Long lastId, Pageable pageable);
+}
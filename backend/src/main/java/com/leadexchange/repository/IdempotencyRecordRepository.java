@@ -0,0 +1,85 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * 幂等记录数据访问接口
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    
+    /**
+     * 根据用户ID和幂等键查询记录
+     * @param userId 用户ID
+     * @param idempotencyKey 幂等键
+     * @return 幂等记录
+     */
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+    
+    /**
+     * 标记记录已完成并保存响应，只有持有当前认领令牌的执行者可以完成
+     * @param id 记录ID
+     * @param claimToken 认领令牌
+     * @param responseBody 响应内容
+     * @param now 当前时间
+     * @return 更新数量，0表示记录已被重新认领
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.leadexchange.domain.exchange.IdempotencyStatus.COMPLETED, " +
+           "r.responseBody = :responseBody, r.updateTime = :now " +
+           "WHERE r.id = :id AND r.claimToken = :claimToken " +
+           "AND r.status = com.leadexchange.domain.exchange.IdempotencyStatus.IN_PROGRESS")
+    int markCompleted(@Param("id") Long id, @Param("claimToken") Integer claimToken,
+                      @Param("responseBody") String responseBody, @Param("now") LocalDateTime now);
+    
+    /**
+     * 重新认领超时未完成的记录并递增认领令牌
+     * 业务与完成标记在同一事务提交，超时未完成说明业务未提交；原执行者若仍在运行，
+     * 其完成标记因令牌不匹配而失败，业务事务随之回滚，不会与新执行者重复生效
+     * @param id 记录ID
+     * @param fingerprint 请求指纹
+     * @param claimToken 读取到的认领令牌
+     * @param staleBefore 超时时间点
+     * @param now 当前时间
+     * @return 更新数量
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE IdempotencyRecord r SET r.claimToken = r.claimToken + 1, r.updateTime = :now " +
+           "WHERE r.id = :id AND r.requestFingerprint = :fingerprint AND r.claimToken = :claimToken " +
+           "AND r.status = com.leadexchange.domain.exchange.IdempotencyStatus.IN_PROGRESS " +
+           "AND r.updateTime < :staleBefore")
+    int reclaimStale(@Param("id") Long id, @Param("fingerprint") String fingerprint,
+                     @Param("claimToken") Integer claimToken, @Param("staleBefore") LocalDateTime staleBefore,
+                     @Param("now") LocalDateTime now);
+    
+    /**
+     * 删除未完成的记录，业务失败后释放幂等键供客户端重试；记录已被重新认领时不删除
+     * @param id 记录ID
+     * @param claimToken 认领令牌
+     * @return 删除数量
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.claimToken = :claimToken " +
+           "AND r.status = com.leadexchange.domain.exchange.IdempotencyStatus.IN_PROGRESS")
+    int deleteInProgress(@Param("id") Long id, @Param("claimToken") Integer claimToken);
+    
+    /**
+     * 删除过期记录
+     * @param now 当前时间
+     * @return 删除数量
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expireTime < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
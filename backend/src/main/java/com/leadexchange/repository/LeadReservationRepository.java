@@ -0,0 +1,51 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.LeadReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 线索预留数据访问接口
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface LeadReservationRepository extends JpaRepository<LeadReservation, Long> {
+    
+    /**
+     * 查询线索的独占预留
+     * @param leadIds 线索ID集合
+     * @return 独占预留列表
+     */
+    List<LeadReservation> findByExclusiveLeadIdIn(Collection<Long> leadIds);
+    
+    /**
+     * 查询线索的全部预留（提供和目标）
+     * @param leadId 线索ID
+     * @return 预留列表
+     */
+    List<LeadReservation> findByLeadId(Long leadId);
+    
+    /**
+     * 查询申请的全部预留
+     * @param applicationId 申请ID
+     * @return 预留列表
+     */
+    List<LeadReservation> findByApplicationId(Long applicationId);
+    
+    /**
+     * 释放申请的全部预留
+     * @param applicationId 申请ID
+     * @return 释放数量
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM LeadReservation r WHERE r.applicationId = :applicationId")
+    int deleteByApplicationId(@Param("applicationId") Long applicationId);
+}
@@ -1,14 +1,20 @@
 package com.leadexchange.repository;
 
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.FrozenCreditEntry;
 import com.leadexchange.domain.exchange.UserCredit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,6 +43,99 @@ public interface UserCreditRepository extends JpaRepository<UserCredit, Long> {
     @Query("SELECT uc FROM UserCredit uc WHERE uc.userId = :userId")
     Optional<UserCredit> findByUserIdWithLock(@Param("userId") Long userId);
     
+    /**
+     * 无锁读取用户积分余额快照（不进入持久化上下文）
+     * @param userId 用户ID
+     * @return 积分余额快照
+     */
+    @Query("SELECT new com.leadexchange.domain.exchange.CreditBalanceSnapshot(" +
+           "uc.userId, uc.totalCredits, uc.availableCredits, uc.frozenCredits, " +
+           "uc.totalIncome, uc.totalExpense, uc.version) " +
+           "FROM UserCredit uc WHERE uc.userId = :userId")
+    Optional<CreditBalanceSnapshot> findSnapshotByUserId(@Param("userId") Long userId);
+    
+    /**
+     * 按增量条件更新积分余额（乐观模式）
+     * 在最新已提交的行上累加增量，可用积分和冻结积分不会因此变为负数
+     * @return 更新行数，0表示余额不足或记录不存在
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserCredit uc SET uc.totalCredits = uc.totalCredits + :totalDelta, " +
+           "uc.availableCredits = uc.availableCredits + :availableDelta, " +
+           "uc.frozenCredits = uc.frozenCredits + :frozenDelta, " +
+           "uc.totalIncome = uc.totalIncome + :incomeDelta, uc.totalExpense = uc.totalExpense + :expenseDelta, " +
+           "uc.lastTransactionTime = :now, uc.updateTime = :now, uc.updateBy = :userId, " +
+           "uc.version = uc.version + 1 " +
+           "WHERE uc.userId = :userId AND uc.availableCredits + :availableDelta >= 0 " +
+           "AND uc.frozenCredits + :frozenDelta >= 0")
+    int applyBalanceDelta(@Param("userId") Long userId,
+                          @Param("totalDelta") BigDecimal totalDelta,
+                          @Param("availableDelta") BigDecimal availableDelta,
+                          @Param("frozenDelta") BigDecimal frozenDelta,
+                          @Param("incomeDelta") BigDecimal incomeDelta,
+                          @Param("expenseDelta") BigDecimal expenseDelta,
+                          @Param("now") LocalDateTime now);
+    
+    /**
+     * 批量无锁读取用户积分余额快照（不进入持久化上下文）
+     * @param userIds 用户ID列表
+     * @return 积分余额快照列表
+     */
+    @Query("SELECT new com.leadexchange.domain.exchange.CreditBalanceSnapshot(" +
+           "uc.userId, uc.totalCredits, uc.availableCredits, uc.frozenCredits, " +
+           "uc.totalIncome, uc.totalExpense, uc.version) " +
+           "FROM UserCredit uc WHERE uc.userId IN :userIds")
+    List<CreditBalanceSnapshot> findSnapshotsByUserIdIn(@Param("userIds") List<Long> userIds);
+    
+    /**
+     * 按用户ID游标分页读取积分余额快照（不进入持久化上下文）
+     * @param lastUserId 上一页最后一条的用户ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 积分余额快照列表
+     */
+    @Query("SELECT new com.leadexchange.domain.exchange.CreditBalanceSnapshot(" +
+           "uc.userId, uc.totalCredits, uc.availableCredits, uc.frozenCredits, " +
+           "uc.totalIncome, uc.totalExpense, uc.version) " +
+           "FROM UserCredit uc WHERE uc.userId > :lastUserId ORDER BY uc.userId")
+    List<CreditBalanceSnapshot> findSnapshotsAfterUserId(@Param("lastUserId") Long lastUserId, Pageable pageable);
+    
+    /**
+     * 扣减冻结积分（带余额条件）
+     * @return 更新行数，0表示冻结积分不足或记录不存在
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserCredit uc SET uc.frozenCredits = uc.frozenCredits - :amount, " +
+           "uc.totalExpense = uc.totalExpense + :amount, uc.lastTransactionTime = :now, " +
+           "uc.updateTime = :now, uc.updateBy = :userId, uc.version = uc.version + 1 " +
+           "WHERE uc.userId = :userId AND uc.frozenCredits >= :amount")
+    int debitFrozenCredits(@Param("userId") Long userId, @Param("amount") BigDecimal amount,
+                           @Param("now") LocalDateTime now);
+    
+    /**
+     * 扣减可用积分（带余额条件）
+     * @return 更新行数，0表示可用积分不足或记录不存在
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserCredit uc SET uc.availableCredits = uc.availableCredits - :amount, " +
+           "uc.totalExpense = uc.totalExpense + :amount, uc.lastTransactionTime = :now, " +
+           "uc.updateTime = :now, uc.updateBy = :userId, uc.version = uc.version + 1 " +
+           "WHERE uc.userId = :userId AND uc.availableCredits >= :amount")
+    int debitAvailableCredits(@Param("userId") Long userId, @Param("amount") BigDecimal amount,
+                              @Param("now") LocalDateTime now);
+    
+    /**
+     * 增加可用积分
+     * @return 更新行数，0表示记录不存在
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserCredit uc SET uc.totalCredits = uc.totalCredits + :amount, " +
+           "uc.availableCredits = uc.availableCredits + :amount, " +
+           "uc.totalIncome = uc.totalIncome + :amount, uc.lastTransactionTime = :now, " +
+           "uc.updateTime = :now, uc.updateBy = :userId, uc.version = uc.version + 1 " +
+           "WHERE uc.userId = :userId")
+    int creditAvailableCredits(@Param("userId") Long userId, @Param("amount") BigDecimal amount,
+                               @Param("now") LocalDateTime now);
+    
     /**
      * 查询积分余额大于指定值的用户
      * @param minCredits 最小积分值
@@ -54,19 +153,19 @@ public interface UserCreditRepository extends JpaRepository<UserCredit, Long> {
     
     /**
      * 查询总积分排名前N的用户
-     * @param limit 限制数量
+     * @param pageable 分页参数（只使用页大小）
      * @return 用户积分记录列表
      */
     @Query("SELECT uc FROM UserCredit uc ORDER BY uc.totalCredits DESC")
-    List<UserCredit> findTopByTotalCredits(@Param("limit") int limit);
+    List<UserCredit> findTopByTotalCredits(Pageable pageable);
     
     /**
      * 查询可用积分排名前N的用户
-     * @param limit 限制数量
+     * @param pageable 分页参数（只使用页大小）
      * @return 用户积分记录列表
      */
     @Query("SELECT uc FROM UserCredit uc ORDER BY uc.availableCredits DESC")
-    List<UserCredit> findTopByAvailableCredits(@Param("limit") int limit);
+    List<UserCredit> findTopByAvailableCredits(Pageable pageable);
     
     /**
      * 统计总积分
@@ -90,17 +189,66 @@ public interface UserCreditRepository extends JpaRepository<UserCredit, Long> {
     BigDecimal sumFrozenCredits();
     
     /**
-     * 查询有冻结积分的用户
-     * @return 有冻结积分的用户积分记录列表
+     * 分页查询有冻结积分的用户（按冻结积分、用户ID倒序）
+     * @param pageable 分页参数
+     * @return 有冻结积分的用户积分记录分页
+     */
+    @Query(value = "SELECT uc FROM UserCredit uc WHERE uc.frozenCredits > 0 " +
+                   "ORDER BY uc.frozenCredits DESC, uc.userId DESC",
+           countQuery = "SELECT COUNT(uc) FROM UserCredit uc WHERE uc.frozenCredits > 0")
+    Page<UserCredit> findWithFrozenCredits(Pageable pageable);
+    
+    /**
+     * 游标查询有冻结积分的用户的首页（按冻结积分、用户ID倒序）
+     * 只读取 idx_frozen_user 索引中的列，返回列表不统计总数
+     * @param pageable 分页参数（只使用页大小）
+     * @return 冻结积分条目列表
+     */
+    @Query("SELECT new com.leadexchange.domain.exchange.FrozenCreditEntry(uc.userId, uc.frozenCredits) " +
+           "FROM UserCredit uc WHERE uc.frozenCredits > 0 " +
+           "ORDER BY uc.frozenCredits DESC, uc.userId DESC")
+    List<FrozenCreditEntry> findFrozenCreditEntries(Pageable pageable);
+    
+    /**
+     * 按游标查询有冻结积分的用户（按冻结积分、用户ID倒序）
+     * 游标为上一页最后一条的冻结积分和用户ID，沿 idx_frozen_user 索引倒序扫描，只读取索引中的列
+     * @param lastFrozenCredits 上一页最后一条的冻结积分
+     * @param lastUserId 上一页最后一条的用户ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 冻结积分条目列表
+     */
+    @Query("SELECT new com.leadexchange.domain.exchange.FrozenCreditEntry(uc.userId, uc.frozenCredits) " +
+           "FROM UserCredit uc WHERE uc.frozenCredits > 0 AND " +
+           "(uc.frozenCredits < :lastFrozenCredits OR " +
+           "(uc.frozenCredits = :lastFrozenCredits AND uc.userId < :lastUserId)) " +
+           "ORDER BY uc.frozenCredits DESC, uc.userId DESC")
+    List<FrozenCreditEntry> findFrozenCreditEntriesBefore(@Param("lastFrozenCredits") BigDecimal lastFrozenCredits,
+                                                          @Param("lastUserId") Long lastUserId,
+                                                          Pageable pageable);
+    
+    /**
+     * 分页查询积分为零的用户（按用户ID排序）
+     * @param pageable 分页参数
+     * @return 积分为零的用户积分记录分页
      */
-    List<UserCredit> findByFrozenCreditsGreaterThan(BigDecimal zero);
+    @Query(value = "SELECT uc FROM UserCredit uc " +
+                   "WHERE uc.totalCredits = 0 AND uc.availableCredits = 0 AND uc.frozenCredits = 0 " +
+                   "ORDER BY uc.userId",
+           countQuery = "SELECT COUNT(uc) FROM UserCredit uc " +
+                        "WHERE uc.totalCredits = 0 AND uc.availableCredits = 0 AND uc.frozenCredits = 0")
+    Page<UserCredit> findWithZeroCredits(Pageable pageable);
     
     /**
-     * 查询积分为零的用户
-     * @return 积分为零的用户积分记录列表
+     * 按用户ID游标查询积分为零的用户ID
+     * 三个余额列等值匹配后按用户ID有序，沿 idx_zero_balance_user 索引扫描，只读取索引中的列
+     * @param lastUserId 上一页最后一条的用户ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 用户ID列表
      */
-    @Query("SELECT uc FROM UserCredit uc WHERE uc.totalCredits = 0 AND uc.availableCredits = 0 AND uc.frozenCredits = 0")
-    List<UserCredit> findUsersWithZeroCredits();
+    @Query("SELECT uc.userId FROM UserCredit uc " +
+           "WHERE uc.totalCredits = 0 AND uc.availableCredits = 0 AND uc.frozenCredits = 0 " +
+           "AND uc.userId > :lastUserId ORDER BY uc.userId")
+    List<Long> findZeroCreditUserIdsAfter(@Param("lastUserId") Long lastUserId, Pageable pageable);
     
     /**
      * 根据用户ID列表查询积分记录
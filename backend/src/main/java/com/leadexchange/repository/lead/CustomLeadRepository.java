@@ -0,0 +1,27 @@
+package com.leadexchange.repository.lead;
+
+import com.leadexchange.domain.lead.Lead;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * 自定义线索Repository接口
+ * 提供按动态条件取前N条等JPA派生查询不便表达的操作
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public interface CustomLeadRepository {
+
+    /**
+     * 按动态条件和排序取前N条线索，不执行计数查询
+     * 
+     * @param specification 查询条件
+     * @param sort 排序
+     * @param limit 最大条数
+     * @return 线索列表
+     */
+    List<Lead> findTop(Specification<Lead> specification, Sort sort, int limit);
+}
@@ -4,13 +4,17 @@ import com.leadexchange.domain.lead.Lead;
 import com.leadexchange.domain.lead.LeadRating;
 import com.leadexchange.domain.lead.LeadStatus;
 import com.leadexchange.domain.lead.AuditStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,7 +25,8 @@ import java.util.List;
  * @since 1.0.0
  */
 @Repository
-public interface LeadRepository extends JpaRepository<Lead, Long> {
+public interface LeadRepository extends JpaRepository<Lead, Long>, JpaSpecificationExecutor<Lead>,
+        CustomLeadRepository {
 
     /**
      * 根据状态查找线索
@@ -114,4 +119,90 @@ public interface LeadRepository extends JpaRepository<Lead, Long> {
      * @return 线索数量
      */
     long countByOwnerId(Long ownerId);
-}
\ No newline at end of file
+
+    /**
+     * 批量转移线索所有权
+     * 仅转移仍属于预期所有者且未删除的线索，调用方通过返回行数判断是否全部转移成功
+     * 
+     * @param leadIds 线索ID列表
+     * @param expectedOwnerId 预期的当前所有者ID
+     * @param newOwnerId 新所有者ID
+     * @param now 更新时间
+     * @return 更新行数
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Lead l SET l.ownerId = :newOwnerId, l.updateBy = :newOwnerId, l.updateTime = :now, " +
+           "l.version = l.version + 1 " +
+           "WHERE l.id IN :leadIds AND l.ownerId = :expectedOwnerId AND l.deleted = 0")
+    int transferOwnership(@Param("leadIds") List<Long> leadIds,
+                          @Param("expectedOwnerId") Long expectedOwnerId,
+                          @Param("newOwnerId") Long newOwnerId,
+                          @Param("now") LocalDateTime now);
+
+    /**
+     * 批量查询未删除线索的当前所有者，只读取主键与所有者列，不加载实体
+     * 
+     * @param leadIds 线索ID集合
+     * @return [线索ID, 所有者ID]列表，已删除或不存在的线索不返回
+     */
+    @Query("SELECT l.id, l.ownerId FROM Lead l WHERE l.id IN :leadIds AND l.deleted = 0")
+    List<Object[]> findActiveOwnerIdsByIdIn(@Param("leadIds") Collection<Long> leadIds);
+
+    /**
+     * 按ID游标分页查询指定状态的未删除线索
+     * 
+     * @param status 线索状态
+     * @param lastId 上一页最后一条的ID
+     * @param pageable 分页参数（只使用页大小）
+     * @return 线索列表
+     */
+    @Query("SELECT l FROM Lead l WHERE l.status = :status AND l.deleted = 0 AND l.id > :lastId ORDER BY l.id")
+    List<Lead> findByStatusAfterId(@Param("status") LeadStatus status,
+                                   @Param("lastId") Long lastId,
+                                   Pageable pageable);
+
+    /**
+     * 查询用户可用于交换的线索ID与评级
+     * 排除已作为提供线索被进行中的交换申请独占预留的线索
+     * 
+     * @param ownerId 所有者ID
+     * @param status 线索状态
+     * @return [线索ID, 评级] 列表
+     */
+    @Query("SELECT l.id, l.rating FROM Lead l WHERE l.ownerId = :ownerId AND l.status = :status " +
+           "AND l.deleted = 0 AND l.rating IS NOT NULL " +
+           "AND NOT EXISTS (SELECT r.id FROM LeadReservation r WHERE r.exclusiveLeadId = l.id) " +
+           "ORDER BY l.id")
+    List<Object[]> findAvailableIdAndRatingByOwnerId(@Param("ownerId") Long ownerId,
+                                                     @Param("status") LeadStatus status);
+
+    /**
+     * 查询最大线索ID
+     * 
+     * @return 最大线索ID，没有线索时为null
+     */
+    @Query("SELECT MAX(l.id) FROM Lead l")
+    Long findMaxId();
+
+    /**
+     * 按ID游标读取未删除的线索，用于重建索引
+     * 
+     * @param afterId 游标，返回ID大于该值的线索
+     * @param pageable 分页参数，只使用条数
+     * @return 线索列表，按ID升序
+     */
+    @Query("SELECT l FROM Lead l WHERE l.id > :afterId AND l.deleted = 0 ORDER BY l.id ASC")
+    List<Lead> findActiveAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 按ID游标读取指定时间之后更新过的线索（含已删除），用于重建索引期间的变更回放
+     * 
+     * @param since 更新时间下限
+     * @param afterId 游标，返回ID大于该值的线索
+     * @param pageable 分页参数，只使用条数
+     * @return 线索列表，按ID升序
+     */
+    @Query("SELECT l FROM Lead l WHERE l.updateTime >= :since AND l.id > :afterId ORDER BY l.id ASC")
+    List<Lead> findUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                Pageable pageable);
+}
@@ -0,0 +1,42 @@
+package com.leadexchange.repository.lead;
+
+import com.leadexchange.domain.lead.Lead;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+/**
+ * 线索Repository实现类
+ * 提供动态条件的前N条查询
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public class LeadRepositoryImpl implements CustomLeadRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Lead> findTop(Specification<Lead> specification, Sort sort, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Lead> query = criteriaBuilder.createQuery(Lead.class);
+        Root<Lead> root = query.from(Lead.class);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,52 @@
+package com.leadexchange.repository.outbox;
+
+import com.leadexchange.domain.outbox.OutboxEvent;
+import com.leadexchange.domain.outbox.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 发件箱消息数据访问接口
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    /**
+     * 认领一批到期的待投递消息并加行锁，跳过其他节点已锁定的行
+     * 须在事务中调用，行锁持续到事务结束
+     * @param now 当前时间
+     * @param limit 认领数量
+     * @return 待投递消息列表
+     */
+    @Query(value = "SELECT * FROM outbox_events WHERE status = 'PENDING' AND next_attempt_time <= :now " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OutboxEvent> claimPending(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /**
+     * 分批删除早于指定时间投递成功的消息
+     * @param cutoff 截止时间
+     * @param limit 单批删除数量
+     * @return 删除数量
+     */
+    @Modifying
+    @Query(value = "DELETE FROM outbox_events WHERE status = 'PUBLISHED' AND published_time < :cutoff LIMIT :limit",
+           nativeQuery = true)
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    /**
+     * 统计指定状态的消息数量
+     * @param status 消息状态
+     * @return 消息数量
+     */
+    long countByStatus(OutboxStatus status);
+}
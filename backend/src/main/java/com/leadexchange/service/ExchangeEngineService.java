@@ -5,6 +5,9 @@ import com.leadexchange.domain.lead.Lead;
 import com.leadexchange.event.exchange.ExchangeApplicationEvent;
 import com.leadexchange.repository.ExchangeApplicationRepository;
 import com.leadexchange.repository.ExchangeHistoryRepository;
+import com.leadexchange.repository.ExchangeOfferedLeadRepository;
+import com.leadexchange.service.exchange.ExchangeFeedService;
+import com.leadexchange.service.exchange.LeadReservationService;
 import com.leadexchange.service.lead.LeadService;
 import com.leadexchange.service.rating.RatingEngineService;
 import com.leadexchange.util.ExchangeValueCalculator;
@@ -21,6 +24,8 @@ import org.springframework.util.CollectionUtils;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,8 +44,11 @@ public class ExchangeEngineService {
     
     private final ExchangeApplicationRepository applicationRepository;
     private final ExchangeHistoryRepository historyRepository;
+    private final ExchangeOfferedLeadRepository offeredLeadRepository;
     private final UserCreditService userCreditService;
     private final LeadService leadService;
+    private final LeadReservationService leadReservationService;
+    private final ExchangeFeedService exchangeFeedService;
     private final RatingEngineService ratingEngineService;
     private final ExchangeValueCalculator valueCalculator;
     private final ApplicationEventPublisher eventPublisher;
@@ -70,10 +78,10 @@ public class ExchangeEngineService {
         // 3. 验证交换条件
         validateExchangeConditions(applicantId, targetLead, offeredLeads);
         
-        // 4. 计算交换价值
-        BigDecimal targetValue = valueCalculator.calculateLeadValue(targetLead);
-        BigDecimal offeredValue = valueCalculator.calculateLeadsValue(offeredLeads);
-        BigDecimal creditDifference = valueCalculator.calculateValueDifference(offeredLeads, targetLead);
+        // 4. 计算交换价值（一次遍历，金额字段在持久化时转换）
+        ExchangeValueCalculator.Valuation valuation = valueCalculator.valuate(targetLead, offeredLeads);
+        BigDecimal targetValue = BigDecimal.valueOf(valuation.getTargetValue());
+        BigDecimal creditDifference = BigDecimal.valueOf(valuation.getDifference());
         
         // 5. 检查用户积分是否足够（如果需要补充积分）
         if (creditDifference.compareTo(BigDecimal.ZERO) > 0) {
@@ -105,6 +113,8 @@ public class ExchangeEngineService {
         application.setUpdatedBy(applicantId);
         
         application = applicationRepository.save(application);
+        saveOfferedLeads(application, offeredLeadIds);
+        leadReservationService.reserve(application.getId(), targetLeadId, offeredLeadIds);
         
         // 发布交换申请提交事件
         publishExchangeEvent(ExchangeApplicationEvent.EventType.SUBMITTED, application, applicantId, "交换申请已提交");
@@ -124,7 +134,7 @@ public class ExchangeEngineService {
      */
     @Transactional
     public ExchangeApplication approveExchange(Long applicationId, Long reviewerId, String responseMessage) {
-        ExchangeApplication application = getApplicationById(applicationId);
+        ExchangeApplication application = getApplicationForUpdate(applicationId);
         
         // 验证审核权限
         if (!application.getTargetLeadOwnerId().equals(reviewerId)) {
@@ -141,10 +151,10 @@ public class ExchangeEngineService {
             return expireApplication(application, "申请已过期");
         }
         
-        // 执行交换
-        executeExchange(application);
+        // 目标线索被所有者在其他申请中提供时，须先处理该申请
+        leadReservationService.checkTargetNotOffered(applicationId, application.getTargetLeadId());
         
-        // 更新申请状态
+        // 更新申请状态（交换完成要求申请已处于同意状态，必须先于执行交换）
         application.approve(responseMessage);
         application.setUpdateBy(reviewerId);
         application = applicationRepository.save(application);
@@ -152,6 +162,9 @@ public class ExchangeEngineService {
         // 发布交换申请批准事件
         publishExchangeEvent(ExchangeApplicationEvent.EventType.APPROVED, application, reviewerId, responseMessage);
         
+        // 执行交换
+        executeExchange(application);
+        
         log.info("交换申请审核通过，申请ID：{}，审核人：{}，响应消息：{}", 
                 applicationId, reviewerId, responseMessage);
         
@@ -167,7 +180,7 @@ public class ExchangeEngineService {
      */
     @Transactional
     public ExchangeApplication rejectExchange(Long applicationId, Long reviewerId, String responseMessage) {
-        ExchangeApplication application = getApplicationById(applicationId);
+        ExchangeApplication application = getApplicationForUpdate(applicationId);
         
         // 验证审核权限
         if (!application.getTargetLeadOwnerId().equals(reviewerId)) {
@@ -186,6 +199,8 @@ public class ExchangeEngineService {
                     "交换申请被拒绝，解冻积分");
         }
         
+        leadReservationService.release(applicationId);
+        
         // 更新申请状态
         application.reject(responseMessage);
         application.setUpdateBy(reviewerId);
@@ -211,7 +226,7 @@ public class ExchangeEngineService {
      */
     @Transactional
     public ExchangeApplication cancelExchange(Long applicationId, Long userId) {
-        ExchangeApplication application = getApplicationById(applicationId);
+        ExchangeApplication application = getApplicationForUpdate(applicationId);
         
         // 验证取消权限（只有申请人可以取消）
         if (!application.getApplicantId().equals(userId)) {
@@ -230,6 +245,8 @@ public class ExchangeEngineService {
                     "交换申请被取消，解冻积分");
         }
         
+        leadReservationService.release(applicationId);
+        
         // 更新申请状态
         application.cancel("用户主动取消");
         application.setUpdateBy(userId);
@@ -255,45 +272,32 @@ public class ExchangeEngineService {
         Long applicantId = application.getApplicantId();
         Long targetLeadOwnerId = application.getTargetLeadOwnerId();
         Long targetLeadId = application.getTargetLeadId();
-        List<Long> offeredLeadIds = parseOfferedLeadIds(application.getOfferedLeadIds());
+        List<Long> offeredLeadIds = resolveOfferedLeadIds(application);
         BigDecimal creditDifference = application.getCreditDifference();
         
         try {
-            // 1. 转移线索所有权
+            // 1. 转移线索所有权（每个方向一条UPDATE，按预期所有者校验防止线索已被转走）
             // 目标线索转给申请人
-            leadService.transferLeadOwnership(targetLeadId, applicantId);
+            transferLeads(Collections.singletonList(targetLeadId), targetLeadOwnerId, applicantId);
             
             // 提供的线索转给目标线索原所有者
-            for (Long offeredLeadId : offeredLeadIds) {
-                leadService.transferLeadOwnership(offeredLeadId, targetLeadOwnerId);
-            }
+            transferLeads(offeredLeadIds, applicantId, targetLeadOwnerId);
             
-            // 2. 处理积分交易
+            // 2. 处理积分结算（两条带余额条件的UPDATE加一次批量流水写入）
             if (creditDifference.compareTo(BigDecimal.ZERO) > 0) {
-                // 申请人需要补充积分给目标线索所有者
-                // 扣减申请人的冻结积分
-                userCreditService.deductFrozenCredits(applicantId, creditDifference, 
-                        "EXCHANGE", application.getId(), "交换执行，支付积分差额");
-                
-                // 增加目标线索所有者的积分
-                userCreditService.addCredits(targetLeadOwnerId, creditDifference, 
-                        "EXCHANGE", application.getId(), "交换执行，收到积分差额");
+                // 申请人以冻结积分向目标线索所有者支付差额
+                userCreditService.settleTransfer(applicantId, targetLeadOwnerId, creditDifference, true,
+                        "EXCHANGE", application.getId(), "交换执行，支付积分差额", "交换执行，收到积分差额");
             } else if (creditDifference.compareTo(BigDecimal.ZERO) < 0) {
-                // 目标线索所有者需要补充积分给申请人
-                BigDecimal compensationAmount = creditDifference.abs();
-                
-                // 扣减目标线索所有者的积分
-                userCreditService.deductCredits(targetLeadOwnerId, compensationAmount, 
-                        "EXCHANGE", application.getId(), "交换执行，支付积分差额");
-                
-                // 增加申请人的积分
-                userCreditService.addCredits(applicantId, compensationAmount, 
-                        "EXCHANGE", application.getId(), "交换执行，收到积分差额");
+                // 目标线索所有者以可用积分向申请人补偿差额
+                userCreditService.settleTransfer(targetLeadOwnerId, applicantId, creditDifference.abs(), false,
+                        "EXCHANGE", application.getId(), "交换执行，支付积分差额", "交换执行，收到积分差额");
             }
             
             // 3. 更新申请状态为已完成
             application.complete();
             applicationRepository.save(application);
+            leadReservationService.release(application.getId());
             
             // 发布交换完成事件
             publishExchangeEvent(ExchangeApplicationEvent.EventType.EXCHANGE_COMPLETED, application, null, "交换已完成");
@@ -322,6 +326,19 @@ public class ExchangeEngineService {
         }
     }
     
+    /**
+     * 批量转移线索所有权，实际转移数量不符时说明线索已被删除或转走
+     */
+    private void transferLeads(List<Long> leadIds, Long expectedOwnerId, Long newOwnerId) {
+        if (CollectionUtils.isEmpty(leadIds)) {
+            return;
+        }
+        int transferred = leadService.transferLeadsOwnership(leadIds, expectedOwnerId, newOwnerId);
+        if (transferred != leadIds.size()) {
+            throw new IllegalStateException("线索所有权转移失败，线索已被删除或所有者已变更，线索ID：" + leadIds);
+        }
+    }
+    
     /**
      * 处理过期的交换申请
      * @param application 交换申请
@@ -337,6 +354,8 @@ public class ExchangeEngineService {
                     "交换申请过期，解冻积分");
         }
         
+        leadReservationService.release(application.getId());
+        
         // 更新申请状态
         application.expire();
         application.setResponseMessage(reason);
@@ -349,9 +368,30 @@ public class ExchangeEngineService {
         recordExchangeHistory(application);
         
         log.info("交换申请已过期，申请ID：{}，过期原因：{}", application.getId(), reason);
-        
+
         return application;
     }
+
+    /**
+     * 按申请ID过期到期的交换申请
+     * 加行锁后重新校验状态与过期时间，申请已被处理或尚未到期时不做任何修改
+     * @param applicationId 申请ID
+     * @param reason 过期原因
+     * @return true表示申请已被过期处理
+     */
+    @Transactional
+    public boolean expireIfDue(Long applicationId, String reason) {
+        Optional<ExchangeApplication> locked = applicationRepository.findByIdWithLock(applicationId);
+        if (!locked.isPresent()) {
+            return false;
+        }
+        ExchangeApplication application = locked.get();
+        if (application.getStatus() != ExchangeStatus.PENDING || !application.isExpired()) {
+            return false;
+        }
+        expireApplication(application, reason);
+        return true;
+    }
     
     /**
      * 记录交换历史
@@ -359,12 +399,13 @@ public class ExchangeEngineService {
      */
     @Transactional
     public void recordExchangeHistory(ExchangeApplication application) {
+        ExchangeFeedEntry feed = exchangeFeedService.describe(application);
         ExchangeHistory history = ExchangeHistory.fromApplication(
                 application, 
-                "申请人", // TODO: 从用户服务获取真实姓名
-                "目标所有者", // TODO: 从用户服务获取真实姓名
-                "目标线索", // TODO: 从线索服务获取真实标题
-                "提供线索" // TODO: 从线索服务获取真实标题列表
+                feed.getApplicantName(), 
+                feed.getTargetOwnerName(), 
+                feed.getTargetLeadTitle(), 
+                feed.getOfferedLeadTitles()
         );
         historyRepository.save(history);
         
@@ -372,6 +413,42 @@ public class ExchangeEngineService {
                 application.getId(), application.getStatus());
     }
     
+    /**
+     * 查询提供了指定线索的待处理申请ID
+     * @param leadId 线索ID
+     * @return 申请ID列表
+     */
+    @Transactional(readOnly = true)
+    public List<Long> getPendingApplicationIdsOfferingLead(Long leadId) {
+        return offeredLeadRepository.findApplicationIdsByLeadIdAndStatus(leadId, ExchangeStatus.PENDING);
+    }
+    
+    /**
+     * 获取申请提供的线索ID列表
+     * @param application 交换申请
+     * @return 线索ID列表
+     */
+    @Transactional(readOnly = true)
+    public List<Long> resolveOfferedLeadIds(ExchangeApplication application) {
+        List<Long> leadIds = offeredLeadRepository.findLeadIdsByApplicationId(application.getId());
+        if (!leadIds.isEmpty()) {
+            return leadIds;
+        }
+        // 关联表上线前提交的申请只有字符串字段
+        return parseOfferedLeadIds(application.getOfferedLeadIds());
+    }
+    
+    /**
+     * 保存申请提供的线索
+     */
+    private void saveOfferedLeads(ExchangeApplication application, List<Long> offeredLeadIds) {
+        List<ExchangeOfferedLead> offeredLeads = new ArrayList<>(offeredLeadIds.size());
+        for (Long leadId : offeredLeadIds) {
+            offeredLeads.add(new ExchangeOfferedLead(application.getId(), leadId, application.getApplicantId()));
+        }
+        offeredLeadRepository.saveAll(offeredLeads);
+    }
+    
     /**
      * 解析提供的线索ID列表
      * 
@@ -437,6 +514,16 @@ public class ExchangeEngineService {
                 .orElseThrow(() -> new IllegalArgumentException("交换申请不存在，ID：" + applicationId));
     }
     
+    /**
+     * 获取交换申请并加行锁，与过期清理任务互斥
+     * @param applicationId 申请ID
+     * @return 交换申请
+     */
+    private ExchangeApplication getApplicationForUpdate(Long applicationId) {
+        return applicationRepository.findByIdWithLock(applicationId)
+                .orElseThrow(() -> new IllegalArgumentException("交换申请不存在，ID：" + applicationId));
+    }
+    
     /**
      * 获取用户的交换申请列表
      * @param userId 用户ID
@@ -470,30 +557,6 @@ public class ExchangeEngineService {
         return historyRepository.findByApplicantIdOrTargetOwnerIdOrderByCreateTimeDesc(userId, pageable);
     }
     
-    /**
-     * 批量处理过期申请
-     * @return 处理的过期申请数量
-     */
-    @Transactional
-    public int processExpiredApplications() {
-        List<ExchangeApplication> expiredApplications = applicationRepository.findExpiredApplications(LocalDateTime.now());
-        
-        int processedCount = 0;
-        for (ExchangeApplication application : expiredApplications) {
-            try {
-                expireApplication(application, "系统自动过期处理");
-                processedCount++;
-            } catch (Exception e) {
-                log.error("处理过期申请失败，申请ID：{}，错误信息：{}", 
-                        application.getId(), e.getMessage(), e);
-            }
-        }
-        
-        log.info("批量处理过期申请完成，总数：{}，成功：{}", expiredApplications.size(), processedCount);
-        
-        return processedCount;
-    }
-    
     /**
      * 验证交换申请参数
      */
@@ -510,6 +573,9 @@ public class ExchangeEngineService {
         if (offeredLeadIds.contains(targetLeadId)) {
             throw new IllegalArgumentException("不能用目标线索作为交换条件");
         }
+        if (new HashSet<>(offeredLeadIds).size() != offeredLeadIds.size()) {
+            throw new IllegalArgumentException("提供的线索ID不能重复");
+        }
     }
     
     /**
@@ -542,5 +608,12 @@ public class ExchangeEngineService {
         if (hasPendingApplication) {
             throw new IllegalArgumentException("已存在针对此线索的待处理交换申请");
         }
+        
+        // 检查提供的线索及目标线索是否已在其他待处理申请中提供
+        List<Long> offeredLeadIds = new ArrayList<>(offeredLeads.size());
+        for (Lead offeredLead : offeredLeads) {
+            offeredLeadIds.add(offeredLead.getId());
+        }
+        leadReservationService.checkAvailable(targetLead.getId(), offeredLeadIds);
     }
 }
\ No newline at end of file
@@ -1,23 +1,39 @@
 package com.leadexchange.service;
 
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.CreditRankingType;
 import com.leadexchange.domain.exchange.ExchangeTransaction;
+import com.leadexchange.domain.exchange.FrozenCreditEntry;
 import com.leadexchange.domain.exchange.TransactionType;
 import com.leadexchange.domain.exchange.UserCredit;
 import com.leadexchange.repository.ExchangeTransactionRepository;
 import com.leadexchange.repository.UserCreditRepository;
+import com.leadexchange.service.exchange.CreditAggregateService;
+import com.leadexchange.service.exchange.CreditBalanceCache;
+import com.leadexchange.service.exchange.CreditLeaderboardService;
+import com.leadexchange.service.exchange.CreditLockCoordinator;
+import com.leadexchange.service.exchange.CreditUpdateExecutor;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 用户积分服务类
@@ -32,29 +48,48 @@ public class UserCreditService {
     
     private static final Logger log = LoggerFactory.getLogger(UserCreditService.class);
     
+    /**
+     * 游标查询的最大页大小
+     */
+    private static final int MAX_PAGE_SIZE = 500;
+    
     private final UserCreditRepository userCreditRepository;
     private final ExchangeTransactionRepository transactionRepository;
+    private final CreditLockCoordinator creditLockCoordinator;
+    private final CreditUpdateExecutor creditUpdateExecutor;
+    private final CreditBalanceCache creditBalanceCache;
+    private final CreditLeaderboardService creditLeaderboardService;
+    private final CreditAggregateService creditAggregateService;
     
     /**
      * 获取用户积分信息
+     * 优先读取余额缓存，未命中时读取数据库并回填缓存；返回值仅用于展示和预检
      * @param userId 用户ID
      * @return 用户积分信息，如果不存在则创建新的积分记录
      */
     @Transactional(readOnly = true)
     public UserCredit getUserCredit(Long userId) {
-        return userCreditRepository.findByUserId(userId)
-                .orElseGet(() -> createInitialCredit(userId));
+        Optional<UserCredit> cached = creditBalanceCache.get(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Optional<UserCredit> userCredit = userCreditRepository.findByUserId(userId);
+        if (userCredit.isPresent()) {
+            creditBalanceCache.put(userCredit.get());
+            return userCredit.get();
+        }
+        return createInitialCredit(userId);
     }
     
     /**
      * 获取用户积分信息（带悲观锁）
+     * 经由积分锁协调器加锁，先获取进程内条带锁再获取数据库行锁
      * @param userId 用户ID
      * @return 用户积分信息
      */
     @Transactional
     public UserCredit getUserCreditWithLock(Long userId) {
-        return userCreditRepository.findByUserIdWithLock(userId)
-                .orElseGet(() -> createInitialCredit(userId));
+        return creditLockCoordinator.lockCredit(userId);
     }
     
     /**
@@ -77,7 +112,10 @@ public class UserCreditService {
         userCredit.setCreateBy(userId);
         userCredit.setUpdateBy(userId);
         
-        return userCreditRepository.save(userCredit);
+        userCredit = userCreditRepository.save(userCredit);
+        creditBalanceCache.putAfterCommit(userCredit);
+        creditLeaderboardService.updateAfterCommit(userCredit);
+        return userCredit;
     }
     
     /**
@@ -96,30 +134,13 @@ public class UserCreditService {
             throw new IllegalArgumentException("增加积分金额必须大于0");
         }
         
-        UserCredit userCredit = getUserCreditWithLock(userId);
-        BigDecimal beforeBalance = userCredit.getAvailableCredits();
-        
-        // 增加积分
-        userCredit.addCredits(amount);
-        userCredit.setUpdateBy(userId);
-        userCredit = userCreditRepository.save(userCredit);
-        
-        // 记录交易
-        ExchangeTransaction transaction;
-        if ("EXCHANGE".equals(sourceType)) {
-            transaction = ExchangeTransaction.createExchangeTransaction(
-                    userId, TransactionType.INCOME, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), sourceId, description);
-        } else if ("MANUAL".equals(sourceType)) {
-            transaction = ExchangeTransaction.createManualTransaction(
-                    userId, TransactionType.INCOME, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), userId, description);
-        } else {
-            transaction = ExchangeTransaction.createSystemTransaction(
-                    userId, TransactionType.INCOME, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), description);
-        }
-        transactionRepository.save(transaction);
+        UserCredit userCredit = applyCreditChange(userId, TransactionType.INCOME, amount,
+                sourceType, sourceId, description,
+                credit -> {
+                    credit.addCredits(amount);
+                    return true;
+                },
+                credit -> "增加积分失败");
         
         log.info("用户[{}]积分增加成功，金额：{}，来源：{}，当前可用积分：{}", 
                 userId, amount, sourceType, userCredit.getAvailableCredits());
@@ -143,36 +164,11 @@ public class UserCreditService {
             throw new IllegalArgumentException("扣减积分金额必须大于0");
         }
         
-        UserCredit userCredit = getUserCreditWithLock(userId);
-        BigDecimal beforeBalance = userCredit.getAvailableCredits();
-        
-        // 检查余额是否足够
-        if (userCredit.getAvailableCredits().compareTo(amount) < 0) {
-            throw new IllegalStateException("用户积分余额不足，当前可用积分：" + 
-                    userCredit.getAvailableCredits() + "，需要扣减：" + amount);
-        }
-        
-        // 扣减积分
-        userCredit.deductCredits(amount);
-        userCredit.setUpdateBy(userId);
-        userCredit = userCreditRepository.save(userCredit);
-        
-        // 记录交易
-        ExchangeTransaction transaction;
-        if ("EXCHANGE".equals(sourceType)) {
-            transaction = ExchangeTransaction.createExchangeTransaction(
-                    userId, TransactionType.EXPENSE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), sourceId, description);
-        } else if ("MANUAL".equals(sourceType)) {
-            transaction = ExchangeTransaction.createManualTransaction(
-                    userId, TransactionType.EXPENSE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), userId, description);
-        } else {
-            transaction = ExchangeTransaction.createSystemTransaction(
-                    userId, TransactionType.EXPENSE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), description);
-        }
-        transactionRepository.save(transaction);
+        UserCredit userCredit = applyCreditChange(userId, TransactionType.EXPENSE, amount,
+                sourceType, sourceId, description,
+                credit -> credit.deductCredits(amount),
+                credit -> "用户积分余额不足，当前可用积分：" + 
+                        credit.getAvailableCredits() + "，需要扣减：" + amount);
         
         log.info("用户[{}]积分扣减成功，金额：{}，来源：{}，当前可用积分：{}", 
                 userId, amount, sourceType, userCredit.getAvailableCredits());
@@ -196,36 +192,11 @@ public class UserCreditService {
             throw new IllegalArgumentException("冻结积分金额必须大于0");
         }
         
-        UserCredit userCredit = getUserCreditWithLock(userId);
-        BigDecimal beforeBalance = userCredit.getAvailableCredits();
-        
-        // 检查余额是否足够
-        if (userCredit.getAvailableCredits().compareTo(amount) < 0) {
-            throw new IllegalStateException("用户积分余额不足，当前可用积分：" + 
-                    userCredit.getAvailableCredits() + "，需要冻结：" + amount);
-        }
-        
-        // 冻结积分
-        userCredit.freezeCredits(amount);
-        userCredit.setUpdateBy(userId);
-        userCredit = userCreditRepository.save(userCredit);
-        
-        // 记录交易
-        ExchangeTransaction transaction;
-        if ("EXCHANGE".equals(sourceType)) {
-            transaction = ExchangeTransaction.createExchangeTransaction(
-                    userId, TransactionType.FREEZE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), sourceId, description);
-        } else if ("MANUAL".equals(sourceType)) {
-            transaction = ExchangeTransaction.createManualTransaction(
-                    userId, TransactionType.FREEZE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), userId, description);
-        } else {
-            transaction = ExchangeTransaction.createSystemTransaction(
-                    userId, TransactionType.FREEZE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), description);
-        }
-        transactionRepository.save(transaction);
+        UserCredit userCredit = applyCreditChange(userId, TransactionType.FREEZE, amount,
+                sourceType, sourceId, description,
+                credit -> credit.freezeCredits(amount),
+                credit -> "用户积分余额不足，当前可用积分：" + 
+                        credit.getAvailableCredits() + "，需要冻结：" + amount);
         
         log.info("用户[{}]积分冻结成功，金额：{}，来源：{}，当前可用积分：{}，冻结积分：{}", 
                 userId, amount, sourceType, userCredit.getAvailableCredits(), userCredit.getFrozenCredits());
@@ -249,36 +220,11 @@ public class UserCreditService {
             throw new IllegalArgumentException("解冻积分金额必须大于0");
         }
         
-        UserCredit userCredit = getUserCreditWithLock(userId);
-        BigDecimal beforeBalance = userCredit.getAvailableCredits();
-        
-        // 检查冻结余额是否足够
-        if (userCredit.getFrozenCredits().compareTo(amount) < 0) {
-            throw new IllegalStateException("用户冻结积分不足，当前冻结积分：" + 
-                    userCredit.getFrozenCredits() + "，需要解冻：" + amount);
-        }
-        
-        // 解冻积分
-        userCredit.unfreezeCredits(amount);
-        userCredit.setUpdateBy(userId);
-        userCredit = userCreditRepository.save(userCredit);
-        
-        // 记录交易
-        ExchangeTransaction transaction;
-        if ("EXCHANGE".equals(sourceType)) {
-            transaction = ExchangeTransaction.createExchangeTransaction(
-                    userId, TransactionType.UNFREEZE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), sourceId, description);
-        } else if ("MANUAL".equals(sourceType)) {
-            transaction = ExchangeTransaction.createManualTransaction(
-                    userId, TransactionType.UNFREEZE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), userId, description);
-        } else {
-            transaction = ExchangeTransaction.createSystemTransaction(
-                    userId, TransactionType.UNFREEZE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), description);
-        }
-        transactionRepository.save(transaction);
+        UserCredit userCredit = applyCreditChange(userId, TransactionType.UNFREEZE, amount,
+                sourceType, sourceId, description,
+                credit -> credit.unfreezeCredits(amount),
+                credit -> "用户冻结积分不足，当前冻结积分：" + 
+                        credit.getFrozenCredits() + "，需要解冻：" + amount);
         
         log.info("用户[{}]积分解冻成功，金额：{}，来源：{}，当前可用积分：{}，冻结积分：{}", 
                 userId, amount, sourceType, userCredit.getAvailableCredits(), userCredit.getFrozenCredits());
@@ -302,36 +248,11 @@ public class UserCreditService {
             throw new IllegalArgumentException("扣减冻结积分金额必须大于0");
         }
         
-        UserCredit userCredit = getUserCreditWithLock(userId);
-        BigDecimal beforeBalance = userCredit.getAvailableCredits();
-        
-        // 检查冻结余额是否足够
-        if (userCredit.getFrozenCredits().compareTo(amount) < 0) {
-            throw new IllegalStateException("用户冻结积分不足，当前冻结积分：" + 
-                    userCredit.getFrozenCredits() + "，需要扣减：" + amount);
-        }
-        
-        // 扣减冻结积分
-        userCredit.deductFrozenCredits(amount);
-        userCredit.setUpdateBy(userId);
-        userCredit = userCreditRepository.save(userCredit);
-        
-        // 记录交易
-        ExchangeTransaction transaction;
-        if ("EXCHANGE".equals(sourceType)) {
-            transaction = ExchangeTransaction.createExchangeTransaction(
-                    userId, TransactionType.EXPENSE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), sourceId, description);
-        } else if ("MANUAL".equals(sourceType)) {
-            transaction = ExchangeTransaction.createManualTransaction(
-                    userId, TransactionType.EXPENSE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), userId, description);
-        } else {
-            transaction = ExchangeTransaction.createSystemTransaction(
-                    userId, TransactionType.EXPENSE, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), description);
-        }
-        transactionRepository.save(transaction);
+        UserCredit userCredit = applyCreditChange(userId, TransactionType.EXPENSE, amount,
+                sourceType, sourceId, description,
+                credit -> credit.deductFrozenCredits(amount),
+                credit -> "用户冻结积分不足，当前冻结积分：" + 
+                        credit.getFrozenCredits() + "，需要扣减：" + amount);
         
         log.info("用户[{}]冻结积分扣减成功，金额：{}，来源：{}，当前可用积分：{}，冻结积分：{}", 
                 userId, amount, sourceType, userCredit.getAvailableCredits(), userCredit.getFrozenCredits());
@@ -355,37 +276,157 @@ public class UserCreditService {
             throw new IllegalArgumentException("退款积分金额必须大于0");
         }
         
-        UserCredit userCredit = getUserCreditWithLock(userId);
-        BigDecimal beforeBalance = userCredit.getAvailableCredits();
-        
         // 增加积分（退款）
-        userCredit.addCredits(amount);
-        userCredit.setUpdateBy(userId);
-        userCredit = userCreditRepository.save(userCredit);
+        UserCredit userCredit = applyCreditChange(userId, TransactionType.REFUND, amount,
+                sourceType, sourceId, description,
+                credit -> {
+                    credit.addCredits(amount);
+                    return true;
+                },
+                credit -> "退款积分失败");
         
-        // 记录交易
-        ExchangeTransaction transaction;
-        if ("EXCHANGE".equals(sourceType)) {
-            transaction = ExchangeTransaction.createExchangeTransaction(
-                    userId, TransactionType.REFUND, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), sourceId, description);
-        } else if ("MANUAL".equals(sourceType)) {
-            transaction = ExchangeTransaction.createManualTransaction(
-                    userId, TransactionType.REFUND, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), userId, description);
+        log.info("用户[{}]积分退款成功，金额：{}，来源：{}，当前可用积分：{}", 
+                userId, amount, sourceType, userCredit.getAvailableCredits());
+        
+        return userCredit;
+    }
+    
+    /**
+     * 交换结算：在两个用户之间转移积分
+     * 付款方扣减与收款方入账各为一条带余额条件的UPDATE（按用户ID升序执行，与行锁顺序约定一致），
+     * 结算后一次读取双方余额，两条交易流水通过一条多行INSERT写入
+     * @param payerId 付款方用户ID
+     * @param payeeId 收款方用户ID
+     * @param amount 转移金额
+     * @param fromFrozen true表示从付款方冻结积分扣减，false表示从可用积分扣减
+     * @param sourceType 来源类型
+     * @param sourceId 来源ID
+     * @param payerDescription 付款方流水描述
+     * @param payeeDescription 收款方流水描述
+     */
+    @Transactional
+    public void settleTransfer(Long payerId, Long payeeId, BigDecimal amount, boolean fromFrozen,
+                               String sourceType, Long sourceId,
+                               String payerDescription, String payeeDescription) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("结算积分金额必须大于0");
+        }
+        if (payerId.equals(payeeId)) {
+            throw new IllegalArgumentException("付款方与收款方不能为同一用户");
+        }
+        
+        List<Long> userIds = Arrays.asList(payerId, payeeId);
+        if (!creditLockCoordinator.isOptimisticMode()) {
+            creditLockCoordinator.lockStripes(userIds);
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        if (payerId < payeeId) {
+            debitForSettlement(payerId, amount, fromFrozen, now);
+            creditForSettlement(payeeId, amount, now);
         } else {
-            transaction = ExchangeTransaction.createSystemTransaction(
-                    userId, TransactionType.REFUND, amount, beforeBalance, 
-                    userCredit.getAvailableCredits(), description);
+            creditForSettlement(payeeId, amount, now);
+            debitForSettlement(payerId, amount, fromFrozen, now);
+        }
+        creditLockCoordinator.markBulkUpdated(userIds);
+        // 付款方扣款不改变总积分，收款方入账增加总积分和可用积分
+        creditAggregateService.recordChange(amount,
+                fromFrozen ? amount : BigDecimal.ZERO,
+                fromFrozen ? amount.negate() : BigDecimal.ZERO,
+                amount.add(amount));
+        
+        Map<Long, CreditBalanceSnapshot> snapshots = new HashMap<>();
+        for (CreditBalanceSnapshot snapshot : userCreditRepository.findSnapshotsByUserIdIn(userIds)) {
+            snapshots.put(snapshot.getUserId(), snapshot);
+        }
+        BigDecimal payerAfter = snapshots.get(payerId).getAvailableCredits();
+        BigDecimal payerBefore = fromFrozen ? payerAfter : payerAfter.add(amount);
+        BigDecimal payeeAfter = snapshots.get(payeeId).getAvailableCredits();
+        BigDecimal payeeBefore = payeeAfter.subtract(amount);
+        for (CreditBalanceSnapshot snapshot : snapshots.values()) {
+            UserCredit balance = snapshot.toUserCredit();
+            balance.setLastTransactionTime(now);
+            balance.setUpdateTime(now);
+            balance.setCreateTime(null);
+            creditBalanceCache.putAfterCommit(balance);
+            creditLeaderboardService.updateAfterCommit(balance);
         }
-        transactionRepository.save(transaction);
         
-        log.info("用户[{}]积分退款成功，金额：{}，来源：{}，当前可用积分：{}", 
-                userId, amount, sourceType, userCredit.getAvailableCredits());
+        transactionRepository.batchInsert(Arrays.asList(
+                createTransaction(payerId, TransactionType.EXPENSE, amount, payerBefore, payerAfter,
+                        sourceType, sourceId, payerDescription),
+                createTransaction(payeeId, TransactionType.INCOME, amount, payeeBefore, payeeAfter,
+                        sourceType, sourceId, payeeDescription)));
+        
+        log.info("积分结算成功，付款方：{}，收款方：{}，金额：{}，来源：{}[{}]", 
+                payerId, payeeId, amount, sourceType, sourceId);
+    }
+    
+    /**
+     * 结算扣款，余额不足时抛出异常回滚整个结算
+     */
+    private void debitForSettlement(Long payerId, BigDecimal amount, boolean fromFrozen, LocalDateTime now) {
+        int updated = fromFrozen
+                ? userCreditRepository.debitFrozenCredits(payerId, amount, now)
+                : userCreditRepository.debitAvailableCredits(payerId, amount, now);
+        if (updated == 0) {
+            throw new IllegalStateException("用户[" + payerId + "]" + (fromFrozen ? "冻结" : "可用") + 
+                    "积分不足，无法完成结算，需要：" + amount);
+        }
+    }
+    
+    /**
+     * 结算入账，收款方积分记录不存在时先创建
+     */
+    private void creditForSettlement(Long payeeId, BigDecimal amount, LocalDateTime now) {
+        if (userCreditRepository.creditAvailableCredits(payeeId, amount, now) == 0) {
+            createInitialCredit(payeeId);
+            userCreditRepository.creditAvailableCredits(payeeId, amount, now);
+        }
+    }
+    
+    /**
+     * 执行积分变更并记录交易
+     * 按部署配置的并发模式（悲观加锁或乐观条件更新）修改余额
+     */
+    private UserCredit applyCreditChange(Long userId, TransactionType transactionType, BigDecimal amount,
+                                         String sourceType, Long sourceId, String description,
+                                         Predicate<UserCredit> mutation,
+                                         Function<UserCredit, String> insufficientMessage) {
+        CreditUpdateExecutor.CreditUpdateResult result = creditUpdateExecutor.update(
+                userId, mutation, insufficientMessage);
+        UserCredit userCredit = result.getCredit();
+        creditBalanceCache.putAfterCommit(userCredit);
+        creditLeaderboardService.updateAfterCommit(userCredit);
+        creditAggregateService.recordChange(result.getTotalDelta(), result.getAvailableDelta(),
+                result.getFrozenDelta(), amount);
+        
+        transactionRepository.save(createTransaction(userId, transactionType, amount, 
+                result.getBeforeBalance(), userCredit.getAvailableCredits(), 
+                sourceType, sourceId, description));
         
         return userCredit;
     }
     
+    /**
+     * 根据来源类型创建交易记录
+     */
+    private ExchangeTransaction createTransaction(Long userId, TransactionType transactionType, 
+                                                  BigDecimal amount, BigDecimal beforeBalance, 
+                                                  BigDecimal afterBalance, String sourceType, 
+                                                  Long sourceId, String description) {
+        if ("EXCHANGE".equals(sourceType)) {
+            return ExchangeTransaction.createExchangeTransaction(
+                    userId, transactionType, amount, beforeBalance, afterBalance, sourceId, description);
+        } else if ("MANUAL".equals(sourceType)) {
+            return ExchangeTransaction.createManualTransaction(
+                    userId, transactionType, amount, beforeBalance, afterBalance, userId, description);
+        } else {
+            return ExchangeTransaction.createSystemTransaction(
+                    userId, transactionType, amount, beforeBalance, afterBalance, description);
+        }
+    }
+    
     /**
      * 检查用户是否有足够的可用积分
      * @param userId 用户ID
@@ -394,6 +435,11 @@ public class UserCreditService {
      */
     @Transactional(readOnly = true)
     public boolean hasEnoughCredits(Long userId, BigDecimal amount) {
+        // 缓存判定足够时直接返回，冻结、扣减时仍以加锁读取的余额做最终判定；判定不足时以数据库为准
+        Optional<UserCredit> cached = creditBalanceCache.get(userId);
+        if (cached.isPresent() && cached.get().getAvailableCredits().compareTo(amount) >= 0) {
+            return true;
+        }
         return userCreditRepository.hasEnoughCredits(userId, amount);
     }
     
@@ -425,12 +471,14 @@ public class UserCreditService {
     
     /**
      * 获取积分排行榜
+     * 名次取自Redis排行榜，排行榜不可用时按数据库排序
      * @param limit 限制数量
      * @return 积分排行榜
      */
     @Transactional(readOnly = true)
     public List<UserCredit> getCreditRanking(int limit) {
-        return userCreditRepository.findTopByTotalCredits(limit);
+        return getRanking(CreditRankingType.TOTAL_CREDITS, limit,
+                () -> userCreditRepository.findTopByTotalCredits(PageRequest.of(0, limit)));
     }
     
     /**
@@ -440,7 +488,47 @@ public class UserCreditService {
      */
     @Transactional(readOnly = true)
     public List<UserCredit> getAvailableCreditRanking(int limit) {
-        return userCreditRepository.findTopByAvailableCredits(limit);
+        return getRanking(CreditRankingType.AVAILABLE_CREDITS, limit,
+                () -> userCreditRepository.findTopByAvailableCredits(PageRequest.of(0, limit)));
+    }
+    
+    /**
+     * 获取用户在排行榜中的名次
+     * @param userId 用户ID
+     * @param type 排行类型
+     * @return 排行项，用户不在排行榜中时返回null
+     */
+    public CreditLeaderboardService.RankEntry getUserRank(Long userId, CreditRankingType type) {
+        return creditLeaderboardService.getRank(type, userId);
+    }
+    
+    /**
+     * 按排行榜名次加载积分记录
+     */
+    private List<UserCredit> getRanking(CreditRankingType type, int limit, Supplier<List<UserCredit>> fallback) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<CreditLeaderboardService.RankEntry> entries = creditLeaderboardService.getTop(type, limit);
+        if (entries.isEmpty()) {
+            return fallback.get();
+        }
+        List<Long> userIds = new ArrayList<>(entries.size());
+        for (CreditLeaderboardService.RankEntry entry : entries) {
+            userIds.add(entry.getUserId());
+        }
+        Map<Long, UserCredit> credits = new HashMap<>();
+        for (UserCredit userCredit : userCreditRepository.findByUserIdIn(userIds)) {
+            credits.put(userCredit.getUserId(), userCredit);
+        }
+        List<UserCredit> ranking = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            UserCredit userCredit = credits.get(userId);
+            if (userCredit != null) {
+                ranking.add(userCredit);
+            }
+        }
+        return ranking;
     }
     
     /**
@@ -449,7 +537,7 @@ public class UserCreditService {
      */
     @Transactional(readOnly = true)
     public BigDecimal getTotalSystemCredits() {
-        return userCreditRepository.sumTotalCredits();
+        return creditAggregateService.getTotalCredits();
     }
     
     /**
@@ -458,7 +546,7 @@ public class UserCreditService {
      */
     @Transactional(readOnly = true)
     public BigDecimal getTotalAvailableCredits() {
-        return userCreditRepository.sumAvailableCredits();
+        return creditAggregateService.getAvailableCredits();
     }
     
     /**
@@ -467,28 +555,71 @@ public class UserCreditService {
      */
     @Transactional(readOnly = true)
     public BigDecimal getTotalFrozenCredits() {
-        return userCreditRepository.sumFrozenCredits();
+        return creditAggregateService.getFrozenCredits();
+    }
+    
+    /**
+     * 统计系统交易流水总额
+     * @return 交易流水总额
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalTransactionAmount() {
+        return creditAggregateService.getTransactionAmount();
     }
     
     /**
      * 查询有冻结积分的用户
      * @param pageable 分页参数
-     * @return 有冻结积分的用户列表
+     * @return 有冻结积分的用户列表，按冻结积分倒序
      */
     @Transactional(readOnly = true)
     public Page<UserCredit> getUsersWithFrozenCredits(Pageable pageable) {
-        List<UserCredit> users = userCreditRepository.findByFrozenCreditsGreaterThan(BigDecimal.ZERO);
-        return new PageImpl<>(users, pageable, users.size());
+        return userCreditRepository.findWithFrozenCredits(pageable);
+    }
+    
+    /**
+     * 按游标查询有冻结积分的用户，翻页代价与页码无关且不统计总数（包括首页）
+     * @param lastFrozenCredits 上一页最后一条的冻结积分，首页传null
+     * @param lastUserId 上一页最后一条的用户ID，首页传null
+     * @param size 页大小
+     * @return 冻结积分条目列表，按冻结积分、用户ID倒序
+     */
+    @Transactional(readOnly = true)
+    public List<FrozenCreditEntry> getUsersWithFrozenCredits(BigDecimal lastFrozenCredits, Long lastUserId,
+                                                             int size) {
+        Pageable limit = PageRequest.of(0, checkPageSize(size));
+        if (lastFrozenCredits == null || lastUserId == null) {
+            return userCreditRepository.findFrozenCreditEntries(limit);
+        }
+        return userCreditRepository.findFrozenCreditEntriesBefore(lastFrozenCredits, lastUserId, limit);
     }
     
     /**
      * 查询积分为零的用户
      * @param pageable 分页参数
-     * @return 积分为零的用户列表
+     * @return 积分为零的用户列表，按用户ID排序
      */
     @Transactional(readOnly = true)
     public Page<UserCredit> getUsersWithZeroCredits(Pageable pageable) {
-        List<UserCredit> users = userCreditRepository.findUsersWithZeroCredits();
-        return new PageImpl<>(users, pageable, users.size());
+        return userCreditRepository.findWithZeroCredits(pageable);
+    }
+    
+    /**
+     * 按用户ID游标查询积分为零的用户ID，翻页代价与页码无关且不统计总数
+     * @param lastUserId 上一页最后一条的用户ID，首页传null
+     * @param size 页大小
+     * @return 积分为零的用户ID列表，按用户ID排序
+     */
+    @Transactional(readOnly = true)
+    public List<Long> getUserIdsWithZeroCredits(Long lastUserId, int size) {
+        return userCreditRepository.findZeroCreditUserIdsAfter(
+                lastUserId == null ? 0L : lastUserId, PageRequest.of(0, checkPageSize(size)));
+    }
+    
+    private int checkPageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("页大小必须在1到" + MAX_PAGE_SIZE + "之间：" + size);
+        }
+        return size;
     }
 }
\ No newline at end of file
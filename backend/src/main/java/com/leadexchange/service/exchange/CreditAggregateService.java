@@ -0,0 +1,265 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditAggregate;
+import com.leadexchange.repository.CreditAggregateRepository;
+import com.leadexchange.repository.ExchangeTransactionRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 系统积分汇总服务
+ * 积分变更在所属事务内累计总积分、可用积分、冻结积分和交易流水总额的变化量，
+ * 提交前一次性累加到随机选择的一个汇总条带行，与积分变更同提交同回滚；
+ * 每个事务只写一个条带行且行锁只在提交前持有，避免汇总行成为热点或与积分行锁形成死锁。
+ * 条带行在启动时以独立事务预先创建，提交前只执行按主键累加的UPDATE，不依赖特定数据库的upsert语法；
+ * 条带行缺失导致未写入的变化量由对账修正。
+ * 定时对账在同一一致性快照内比较全表求和与条带求和，将差额写入条带0修正。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class CreditAggregateService {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditAggregateService.class);
+
+    /**
+     * 初始化与修正条带，存在即表示汇总已完成初始化
+     */
+    private static final int SEED_STRIPE = 0;
+
+    private static final String RECONCILE_LOCK_KEY = "credit:aggregates:reconcile-lock";
+
+    private static final Object PENDING_DELTA_RESOURCE_KEY = new Object();
+
+    private final CreditAggregateRepository creditAggregateRepository;
+    private final UserCreditRepository userCreditRepository;
+    private final ExchangeTransactionRepository transactionRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.exchange.credit.aggregates.stripes:16}")
+    private int stripes;
+
+    @Value("${app.exchange.credit.aggregates.reconcile-lock-seconds:600}")
+    private long reconcileLockSeconds;
+
+    /**
+     * 启动时创建缺失的1到N号条带行
+     * 每行在独立事务中插入，多节点同时启动时的主键冲突表示该行已由其他节点创建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initStripes() {
+        Set<Integer> existing = new HashSet<>();
+        for (CreditAggregate aggregate : creditAggregateRepository.findAll()) {
+            existing.add(aggregate.getStripe());
+        }
+        for (int stripe = 1; stripe <= stripes; stripe++) {
+            if (!existing.contains(stripe)) {
+                createStripe(stripe);
+            }
+        }
+    }
+
+    /**
+     * 记录积分变化量，在当前事务提交前写入汇总条带，无事务时立即写入
+     * @param totalDelta 总积分变化量
+     * @param availableDelta 可用积分变化量
+     * @param frozenDelta 冻结积分变化量
+     * @param transactionDelta 新增交易流水金额
+     */
+    public void recordChange(BigDecimal totalDelta, BigDecimal availableDelta, BigDecimal frozenDelta,
+                             BigDecimal transactionDelta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingDelta delta = new PendingDelta();
+            delta.add(totalDelta, availableDelta, frozenDelta, transactionDelta);
+            flush(delta);
+            return;
+        }
+        PendingDelta pending = (PendingDelta) TransactionSynchronizationManager.getResource(PENDING_DELTA_RESOURCE_KEY);
+        if (pending == null) {
+            PendingDelta created = new PendingDelta();
+            pending = created;
+            TransactionSynchronizationManager.bindResource(PENDING_DELTA_RESOURCE_KEY, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    flush(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_DELTA_RESOURCE_KEY);
+                }
+            });
+        }
+        pending.add(totalDelta, availableDelta, frozenDelta, transactionDelta);
+    }
+
+    /**
+     * 获取系统总积分
+     * @return 系统总积分
+     */
+    public BigDecimal getTotalCredits() {
+        return isSeeded() ? creditAggregateRepository.sumTotalCredits() : orZero(userCreditRepository.sumTotalCredits());
+    }
+
+    /**
+     * 获取系统可用积分
+     * @return 系统可用积分
+     */
+    public BigDecimal getAvailableCredits() {
+        return isSeeded() ? creditAggregateRepository.sumAvailableCredits() : orZero(userCreditRepository.sumAvailableCredits());
+    }
+
+    /**
+     * 获取系统冻结积分
+     * @return 系统冻结积分
+     */
+    public BigDecimal getFrozenCredits() {
+        return isSeeded() ? creditAggregateRepository.sumFrozenCredits() : orZero(userCreditRepository.sumFrozenCredits());
+    }
+
+    /**
+     * 获取系统交易流水总额
+     * @return 交易流水总额
+     */
+    public BigDecimal getTransactionAmount() {
+        return isSeeded() ? creditAggregateRepository.sumTransactionAmount() : orZero(transactionRepository.sumTotalTransactionAmount());
+    }
+
+    /**
+     * 定时对账：初始化汇总或修正漂移
+     * 同一事务内的普通查询读取同一一致性快照（可重复读），因此全表求和与条带求和可直接比较；
+     * 修正量以累加方式写入，对账期间提交的积分变更不会被覆盖。
+     */
+    @Scheduled(fixedDelayString = "${app.exchange.credit.aggregates.reconcile-interval-ms:3600000}",
+               initialDelayString = "${app.exchange.credit.aggregates.reconcile-initial-delay-ms:30000}")
+    public void reconcile() {
+        Boolean locked;
+        try {
+            locked = stringRedisTemplate.opsForValue().setIfAbsent(
+                    RECONCILE_LOCK_KEY, "1", reconcileLockSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("获取积分汇总对账锁失败：{}", e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            transactionTemplate.execute(status -> {
+                reconcileInTransaction();
+                return null;
+            });
+            log.debug("积分汇总对账完成，耗时：{}ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("积分汇总对账失败：{}", e.getMessage(), e);
+        } finally {
+            // 修正已提交后再释放锁，避免其他节点基于旧快照重复修正
+            stringRedisTemplate.delete(RECONCILE_LOCK_KEY);
+        }
+    }
+
+    private void reconcileInTransaction() {
+        boolean seeded = isSeeded();
+        BigDecimal totalDrift = orZero(userCreditRepository.sumTotalCredits())
+                .subtract(creditAggregateRepository.sumTotalCredits());
+        BigDecimal availableDrift = orZero(userCreditRepository.sumAvailableCredits())
+                .subtract(creditAggregateRepository.sumAvailableCredits());
+        BigDecimal frozenDrift = orZero(userCreditRepository.sumFrozenCredits())
+                .subtract(creditAggregateRepository.sumFrozenCredits());
+        BigDecimal transactionDrift = orZero(transactionRepository.sumTotalTransactionAmount())
+                .subtract(creditAggregateRepository.sumTransactionAmount());
+
+        boolean drifted = totalDrift.signum() != 0 || availableDrift.signum() != 0
+                || frozenDrift.signum() != 0 || transactionDrift.signum() != 0;
+        if (seeded && !drifted) {
+            return;
+        }
+        if (seeded) {
+            log.warn("积分汇总存在漂移，已修正。总积分：{}，可用积分：{}，冻结积分：{}，交易总额：{}",
+                    totalDrift, availableDrift, frozenDrift, transactionDrift);
+        } else {
+            log.info("积分汇总初始化完成");
+        }
+        if (!seeded) {
+            creditAggregateRepository.insertStripe(SEED_STRIPE, LocalDateTime.now());
+        }
+        creditAggregateRepository.addDelta(SEED_STRIPE, totalDrift, availableDrift, frozenDrift,
+                transactionDrift, LocalDateTime.now());
+    }
+
+    private void createStripe(int stripe) {
+        try {
+            transactionTemplate.execute(status -> creditAggregateRepository.insertStripe(stripe, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("积分汇总条带{}已由其他节点创建", stripe);
+        }
+    }
+
+    private void flush(PendingDelta delta) {
+        if (delta.isZero()) {
+            return;
+        }
+        int stripe = 1 + ThreadLocalRandom.current().nextInt(stripes);
+        int updated = creditAggregateRepository.addDelta(stripe, delta.total, delta.available, delta.frozen,
+                delta.transaction, LocalDateTime.now());
+        if (updated == 0) {
+            log.warn("积分汇总条带{}不存在，本次变化量由对账修正", stripe);
+        }
+    }
+
+    private boolean isSeeded() {
+        return creditAggregateRepository.existsById(SEED_STRIPE);
+    }
+
+    private BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    /**
+     * 事务内累计的变化量
+     */
+    private static final class PendingDelta {
+
+        private BigDecimal total = BigDecimal.ZERO;
+        private BigDecimal available = BigDecimal.ZERO;
+        private BigDecimal frozen = BigDecimal.ZERO;
+        private BigDecimal transaction = BigDecimal.ZERO;
+
+        private void add(BigDecimal totalDelta, BigDecimal availableDelta, BigDecimal frozenDelta,
+                         BigDecimal transactionDelta) {
+            total = total.add(totalDelta);
+            available = available.add(availableDelta);
+            frozen = frozen.add(frozenDelta);
+            transaction = transaction.add(transactionDelta);
+        }
+
+        private boolean isZero() {
+            return total.signum() == 0 && available.signum() == 0
+                    && frozen.signum() == 0 && transaction.signum() == 0;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.UserCredit;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户积分余额缓存
+ * 两级缓存：进程内L1（短有效期，限制其他节点更新后的陈旧时间）和Redis共享缓存。
+ * 缓存项以积分记录的版本号为戳，写入时只接受比已缓存版本更新的值：
+ * Redis侧由Lua脚本原子比较版本后写入，L1侧在同一键上原子合并，因此迟到的旧值不会覆盖新余额。
+ * 修改积分的代码路径在事务提交后写入缓存，回滚的修改不会进入缓存。
+ * 缓存仅用于展示和预检，冻结、扣减等操作的最终判定仍以加锁读取的数据库行为准。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class CreditBalanceCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditBalanceCache.class);
+
+    private static final String KEY_PREFIX = "credit:balance:";
+
+    private static final String FIELD_VERSION = "version";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TOTAL = "totalCredits";
+    private static final String FIELD_AVAILABLE = "availableCredits";
+    private static final String FIELD_FROZEN = "frozenCredits";
+    private static final String FIELD_INCOME = "totalIncome";
+    private static final String FIELD_EXPENSE = "totalExpense";
+    private static final String FIELD_LAST_TRANSACTION_TIME = "lastTransactionTime";
+    private static final String FIELD_CREATE_TIME = "createTime";
+    private static final String FIELD_UPDATE_TIME = "updateTime";
+    private static final String FIELD_CREATE_BY = "createBy";
+    private static final String FIELD_UPDATE_BY = "updateBy";
+
+    /**
+     * 版本比较写入：已缓存版本不低于新版本时放弃；键不存在且不是完整记录时放弃，避免留下残缺缓存项
+     * KEYS[1] 缓存键；ARGV[1] 版本号；ARGV[2] 是否完整记录；ARGV[3] 有效期（毫秒）；ARGV[4..] 字段与值
+     */
+    private static final DefaultRedisScript<Long> VERSIONED_PUT_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 'version') " +
+            "if current then " +
+            "  if tonumber(current) >= tonumber(ARGV[1]) then return 0 end " +
+            "elseif ARGV[2] ~= '1' then " +
+            "  return 0 " +
+            "end " +
+            "redis.call('HSET', KEYS[1], 'version', ARGV[1], unpack(ARGV, 4)) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.exchange.credit.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.exchange.credit.cache.local-ttl-ms:2000}")
+    private long localTtlMs;
+
+    @Value("${app.exchange.credit.cache.local-max-entries:10000}")
+    private int localMaxEntries;
+
+    @Value("${app.exchange.credit.cache.redis-ttl-ms:600000}")
+    private long redisTtlMs;
+
+    private final Map<Long, LocalEntry> localCache = new ConcurrentHashMap<>();
+
+    /**
+     * 读取缓存的积分信息
+     * @param userId 用户ID
+     * @return 积分信息副本，未命中时为空
+     */
+    public Optional<UserCredit> get(Long userId) {
+        if (!enabled || userId == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        LocalEntry local = localCache.get(userId);
+        if (local != null && local.expireAt > now && local.isComplete()) {
+            return Optional.of(toUserCredit(userId, local.fields));
+        }
+
+        Map<Object, Object> remote;
+        try {
+            remote = stringRedisTemplate.opsForHash().entries(key(userId));
+        } catch (Exception e) {
+            log.warn("读取积分缓存失败，用户ID：{}，错误信息：{}", userId, e.getMessage());
+            return Optional.empty();
+        }
+        if (remote == null || !remote.containsKey(FIELD_ID) || !remote.containsKey(FIELD_VERSION)) {
+            return Optional.empty();
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : remote.entrySet()) {
+            fields.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+        }
+        // 本节点已有更新的版本时以本节点为准
+        LocalEntry merged = putLocal(userId, Long.parseLong(fields.get(FIELD_VERSION)), fields, true, now);
+        return Optional.of(toUserCredit(userId, merged != null ? merged.fields : fields));
+    }
+
+    /**
+     * 写入从数据库读取的积分信息（读穿透回填）
+     * @param userCredit 积分信息
+     */
+    public void put(UserCredit userCredit) {
+        if (!enabled || userCredit == null || userCredit.getUserId() == null || userCredit.getVersion() == null) {
+            return;
+        }
+        Map<String, String> fields = toFields(userCredit);
+        boolean complete = userCredit.getId() != null;
+        long version = userCredit.getVersion();
+        putLocal(userCredit.getUserId(), version, fields, complete, System.currentTimeMillis());
+        putRemote(userCredit.getUserId(), version, fields, complete);
+    }
+
+    /**
+     * 在当前事务提交后写入积分信息，无事务时立即写入
+     * 提交后读取对象的字段，此时受管实体的版本号已由持久化框架递增
+     * @param userCredit 积分信息，缺少ID时只更新已缓存项的余额字段
+     */
+    public void putAfterCommit(UserCredit userCredit) {
+        if (!enabled || userCredit == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(userCredit);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    put(userCredit);
+                } catch (Exception e) {
+                    log.warn("写入积分缓存失败，用户ID：{}，错误信息：{}", userCredit.getUserId(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private LocalEntry putLocal(Long userId, long version, Map<String, String> fields, boolean complete, long now) {
+        if (localCache.size() >= localMaxEntries && !localCache.containsKey(userId)) {
+            localCache.values().removeIf(entry -> entry.expireAt <= now);
+            if (localCache.size() >= localMaxEntries) {
+                localCache.clear();
+            }
+        }
+        long expireAt = now + localTtlMs;
+        return localCache.compute(userId, (id, current) -> {
+            if (current == null) {
+                if (!complete) {
+                    return null;
+                }
+                Map<String, String> created = new HashMap<>(fields);
+                created.put(FIELD_VERSION, String.valueOf(version));
+                return new LocalEntry(version, created, expireAt);
+            }
+            if (current.version > version) {
+                return current;
+            }
+            if (current.version == version) {
+                return new LocalEntry(version, current.fields, expireAt);
+            }
+            Map<String, String> merged = new HashMap<>(current.fields);
+            merged.putAll(fields);
+            merged.put(FIELD_VERSION, String.valueOf(version));
+            return new LocalEntry(version, merged, expireAt);
+        });
+    }
+
+    private void putRemote(Long userId, long version, Map<String, String> fields, boolean complete) {
+        List<String> args = new ArrayList<>(3 + fields.size() * 2);
+        args.add(String.valueOf(version));
+        args.add(complete ? "1" : "0");
+        args.add(String.valueOf(redisTtlMs));
+        for (Map.Entry<String, String> entry : fields.entrySet()) {
+            args.add(entry.getKey());
+            args.add(entry.getValue());
+        }
+        try {
+            stringRedisTemplate.execute(VERSIONED_PUT_SCRIPT, Collections.singletonList(key(userId)), args.toArray());
+        } catch (Exception e) {
+            log.warn("写入积分缓存失败，用户ID：{}，错误信息：{}", userId, e.getMessage());
+        }
+    }
+
+    private String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    /**
+     * 只序列化非空字段，缺失的字段保留已缓存的值；版本号单独作为脚本参数传递
+     */
+    private Map<String, String> toFields(UserCredit userCredit) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        putIfNotNull(fields, FIELD_ID, userCredit.getId());
+        putDecimal(fields, FIELD_TOTAL, userCredit.getTotalCredits());
+        putDecimal(fields, FIELD_AVAILABLE, userCredit.getAvailableCredits());
+        putDecimal(fields, FIELD_FROZEN, userCredit.getFrozenCredits());
+        putDecimal(fields, FIELD_INCOME, userCredit.getTotalIncome());
+        putDecimal(fields, FIELD_EXPENSE, userCredit.getTotalExpense());
+        putIfNotNull(fields, FIELD_LAST_TRANSACTION_TIME, userCredit.getLastTransactionTime());
+        putIfNotNull(fields, FIELD_CREATE_TIME, userCredit.getCreateTime());
+        putIfNotNull(fields, FIELD_UPDATE_TIME, userCredit.getUpdateTime());
+        putIfNotNull(fields, FIELD_CREATE_BY, userCredit.getCreateBy());
+        putIfNotNull(fields, FIELD_UPDATE_BY, userCredit.getUpdateBy());
+        return fields;
+    }
+
+    private void putIfNotNull(Map<String, String> fields, String name, Object value) {
+        if (value != null) {
+            fields.put(name, value.toString());
+        }
+    }
+
+    private void putDecimal(Map<String, String> fields, String name, BigDecimal value) {
+        if (value != null) {
+            fields.put(name, value.toPlainString());
+        }
+    }
+
+    private UserCredit toUserCredit(Long userId, Map<String, String> fields) {
+        UserCredit userCredit = new UserCredit(userId);
+        userCredit.setId(parseLong(fields.get(FIELD_ID)));
+        userCredit.setVersion(Integer.valueOf(fields.get(FIELD_VERSION)));
+        userCredit.setTotalCredits(parseDecimal(fields.get(FIELD_TOTAL)));
+        userCredit.setAvailableCredits(parseDecimal(fields.get(FIELD_AVAILABLE)));
+        userCredit.setFrozenCredits(parseDecimal(fields.get(FIELD_FROZEN)));
+        userCredit.setTotalIncome(parseDecimal(fields.get(FIELD_INCOME)));
+        userCredit.setTotalExpense(parseDecimal(fields.get(FIELD_EXPENSE)));
+        userCredit.setLastTransactionTime(parseTime(fields.get(FIELD_LAST_TRANSACTION_TIME)));
+        userCredit.setCreateTime(parseTime(fields.get(FIELD_CREATE_TIME)));
+        userCredit.setUpdateTime(parseTime(fields.get(FIELD_UPDATE_TIME)));
+        userCredit.setCreateBy(parseLong(fields.get(FIELD_CREATE_BY)));
+        userCredit.setUpdateBy(parseLong(fields.get(FIELD_UPDATE_BY)));
+        return userCredit;
+    }
+
+    private Long parseLong(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    private BigDecimal parseDecimal(String value) {
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value);
+    }
+
+    private LocalDateTime parseTime(String value) {
+        return value == null ? null : LocalDateTime.parse(value);
+    }
+
+    /**
+     * L1缓存项
+     */
+    private static final class LocalEntry {
+
+        private final long version;
+        private final Map<String, String> fields;
+        private final long expireAt;
+
+        private LocalEntry(long version, Map<String, String> fields, long expireAt) {
+            this.version = version;
+            this.fields = fields;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isComplete() {
+            return fields.containsKey(FIELD_ID);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.leadexchange.service.exchange;
+
+/**
+ * 积分并发控制模式
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public enum CreditConcurrencyMode {
+
+    /**
+     * 悲观模式：先 SELECT ... FOR UPDATE 锁定积分行再修改
+     */
+    PESSIMISTIC,
+
+    /**
+     * 乐观模式：不加锁，以带余额条件的增量UPDATE修改最新已提交的行，条件不满足时退回悲观加锁
+     */
+    OPTIMISTIC
+}
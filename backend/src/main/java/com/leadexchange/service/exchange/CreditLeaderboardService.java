@@ -0,0 +1,357 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.CreditRankingType;
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.event.exchange.ExchangeApplicationEvent;
+import com.leadexchange.repository.ExchangeHistoryRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 积分排行榜服务
+ * 在Redis有序集合中维护总积分、可用积分和成功交换次数排行，Top-N与个人排名查询均为O(log N)。
+ * 积分排行在积分变更事务提交后按积分记录版本号增量更新，迟到的旧版本不会覆盖新值；
+ * 交换次数在交换完成后递增。定时对账任务按用户ID游标分页读取数据库并修复漂移，
+ * 交换次数按每页的用户ID区间在数据库中聚合，写入重建键后原子替换，不在内存中汇总全部历史。
+ * 多节点部署时由带持有者令牌的Redis锁保证同一时间只有一个节点对账，只有持有者能释放锁。
+ * 排行榜只用于展示，Redis不可用时查询降级为空结果。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class CreditLeaderboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditLeaderboardService.class);
+
+    // 哈希标签保证集群模式下各键位于同一槽位，可在同一脚本内操作
+    private static final String KEY_PREFIX = "{credit:rank}:";
+    private static final String VERSION_KEY = KEY_PREFIX + "version";
+    private static final String RECONCILE_LOCK_KEY = KEY_PREFIX + "reconcile-lock";
+    private static final String REBUILD_SUFFIX = ":rebuild";
+
+    /**
+     * 持有者令牌匹配时才删除锁，避免锁过期后误删其他节点的锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /**
+     * 按版本号批量更新积分排行
+     * KEYS[1] 版本哈希；KEYS[2] 总积分排行；KEYS[3] 可用积分排行；
+     * ARGV 每4个一组：用户ID、版本号、总积分、可用积分
+     */
+    private static final DefaultRedisScript<Long> VERSIONED_UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "local updated = 0 " +
+            "for i = 1, #ARGV, 4 do " +
+            "  local current = redis.call('HGET', KEYS[1], ARGV[i]) " +
+            "  if not current or tonumber(current) < tonumber(ARGV[i + 1]) then " +
+            "    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+            "    redis.call('ZADD', KEYS[2], ARGV[i + 2], ARGV[i]) " +
+            "    redis.call('ZADD', KEYS[3], ARGV[i + 3], ARGV[i]) " +
+            "    updated = updated + 1 " +
+            "  end " +
+            "end " +
+            "return updated",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserCreditRepository userCreditRepository;
+    private final ExchangeHistoryRepository exchangeHistoryRepository;
+
+    @Value("${app.exchange.ranking.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.exchange.ranking.reconcile-page-size:1000}")
+    private int reconcilePageSize;
+
+    @Value("${app.exchange.ranking.reconcile-lock-seconds:600}")
+    private long reconcileLockSeconds;
+
+    /**
+     * 在当前事务提交后更新用户的积分排行，无事务时立即更新
+     * @param userCredit 积分信息，提交后读取其余额和版本号
+     */
+    public void updateAfterCommit(UserCredit userCredit) {
+        if (!enabled || userCredit == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(userCredit);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update(userCredit);
+            }
+        });
+    }
+
+    /**
+     * 交换完成后递增双方的交换次数
+     * @param event 交换申请事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExchangeCompleted(ExchangeApplicationEvent event) {
+        if (!enabled || event.getEventType() != ExchangeApplicationEvent.EventType.EXCHANGE_COMPLETED) {
+            return;
+        }
+        try {
+            String key = key(CreditRankingType.EXCHANGE_COUNT);
+            for (Long userId : Arrays.asList(event.getApplicantId(), event.getTargetUserId())) {
+                if (userId != null) {
+                    stringRedisTemplate.opsForZSet().incrementScore(key, userId.toString(), 1);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("更新交换次数排行失败，申请ID：{}，错误信息：{}", event.getApplicationId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 查询排行榜前N名
+     * @param type 排行类型
+     * @param limit 数量
+     * @return 排行项，排行榜为空或读取失败时返回空列表
+     */
+    public List<RankEntry> getTop(CreditRankingType type, int limit) {
+        if (!enabled || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Set<ZSetOperations.TypedTuple<String>> tuples;
+        try {
+            tuples = stringRedisTemplate.opsForZSet().reverseRangeWithScores(key(type), 0, limit - 1);
+        } catch (Exception e) {
+            log.warn("读取排行榜失败，类型：{}，错误信息：{}", type, e.getMessage());
+            return Collections.emptyList();
+        }
+        if (tuples == null || tuples.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<RankEntry> entries = new ArrayList<>(tuples.size());
+        long rank = 1;
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            entries.add(new RankEntry(Long.valueOf(tuple.getValue()), rank++,
+                    tuple.getScore() == null ? 0 : tuple.getScore()));
+        }
+        return entries;
+    }
+
+    /**
+     * 查询用户排名
+     * @param type 排行类型
+     * @param userId 用户ID
+     * @return 排行项，用户不在排行榜中或读取失败时返回null
+     */
+    public RankEntry getRank(CreditRankingType type, Long userId) {
+        if (!enabled || userId == null) {
+            return null;
+        }
+        String member = userId.toString();
+        Long rank;
+        Double score;
+        try {
+            rank = stringRedisTemplate.opsForZSet().reverseRank(key(type), member);
+            if (rank == null) {
+                return null;
+            }
+            score = stringRedisTemplate.opsForZSet().score(key(type), member);
+        } catch (Exception e) {
+            log.warn("读取用户排名失败，类型：{}，用户ID：{}，错误信息：{}", type, userId, e.getMessage());
+            return null;
+        }
+        return new RankEntry(userId, rank + 1, score == null ? 0 : score);
+    }
+
+    /**
+     * 定时对账：以数据库为准修复排行榜漂移
+     */
+    @Scheduled(fixedDelayString = "${app.exchange.ranking.reconcile-interval-ms:3600000}",
+               initialDelayString = "${app.exchange.ranking.reconcile-initial-delay-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        Boolean locked;
+        try {
+            locked = stringRedisTemplate.opsForValue().setIfAbsent(
+                    RECONCILE_LOCK_KEY, token, reconcileLockSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("获取排行榜对账锁失败：{}", e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            reconcilePages(start);
+        } catch (Exception e) {
+            log.error("排行榜对账失败：{}", e.getMessage(), e);
+        } finally {
+            releaseLock(token);
+        }
+    }
+
+    /**
+     * 按用户ID游标分页对账：每页修复积分排行，并把本页用户ID区间内的交换次数写入重建键；
+     * 最后一页的区间上界不封顶，覆盖没有积分记录的用户。全部写完后重建键原子替换交换次数排行，
+     * 已不在统计结果中的用户随之移除；对账期间完成的交换可能被统计值覆盖，下一轮对账修复
+     */
+    private void reconcilePages(long start) {
+        String countKey = key(CreditRankingType.EXCHANGE_COUNT);
+        String rebuildKey = countKey + REBUILD_SUFFIX;
+        stringRedisTemplate.delete(rebuildKey);
+        int repairedCredits = 0;
+        int rankedUsers = 0;
+        long lastUserId = 0L;
+        while (true) {
+            List<CreditBalanceSnapshot> page = userCreditRepository.findSnapshotsAfterUserId(
+                    lastUserId, PageRequest.of(0, reconcilePageSize));
+            boolean lastPage = page.size() < reconcilePageSize;
+            repairedCredits += reconcileCredits(page);
+            long toUserId = lastPage ? Long.MAX_VALUE : page.get(page.size() - 1).getUserId();
+            rankedUsers += rebuildExchangeCounts(rebuildKey, lastUserId, toUserId);
+            if (lastPage) {
+                break;
+            }
+            lastUserId = toUserId;
+        }
+        if (rankedUsers > 0) {
+            stringRedisTemplate.rename(rebuildKey, countKey);
+        } else {
+            stringRedisTemplate.delete(countKey);
+        }
+        log.info("排行榜对账完成，修复积分排行：{}，交换次数排行用户数：{}，耗时：{}ms",
+                repairedCredits, rankedUsers, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 以数据库版本修复一页积分排行，只有数据库版本更新的用户会被改写
+     * @return 修复的用户数
+     */
+    private int reconcileCredits(List<CreditBalanceSnapshot> page) {
+        if (page.isEmpty()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>(page.size() * 4);
+        for (CreditBalanceSnapshot snapshot : page) {
+            args.add(snapshot.getUserId().toString());
+            args.add(String.valueOf(snapshot.getVersion() == null ? 0 : snapshot.getVersion()));
+            args.add(snapshot.getTotalCredits().toPlainString());
+            args.add(snapshot.getAvailableCredits().toPlainString());
+        }
+        Long updated = stringRedisTemplate.execute(VERSIONED_UPDATE_SCRIPT, creditKeys(), args.toArray());
+        return updated == null ? 0 : updated.intValue();
+    }
+
+    /**
+     * 统计用户ID区间内的成功交换次数并写入重建键
+     * @return 写入的用户数
+     */
+    private int rebuildExchangeCounts(String rebuildKey, long afterUserId, long toUserId) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        for (Object[] row : exchangeHistoryRepository.countCompletedExchangesByUserRange(afterUserId, toUserId)) {
+            if (row[0] == null) {
+                continue;
+            }
+            String member = String.valueOf(((Number) row[0]).longValue());
+            tuples.add(new ZSetOperations.DefaultTypedTuple<>(member, ((Number) row[1]).doubleValue()));
+        }
+        if (!tuples.isEmpty()) {
+            stringRedisTemplate.opsForZSet().add(rebuildKey, tuples);
+        }
+        return tuples.size();
+    }
+
+    private void releaseLock(String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(RECONCILE_LOCK_KEY), token);
+        } catch (Exception e) {
+            log.warn("释放排行榜对账锁失败：{}", e.getMessage());
+        }
+    }
+
+    private void update(UserCredit userCredit) {
+        if (userCredit.getUserId() == null || userCredit.getVersion() == null
+                || userCredit.getTotalCredits() == null || userCredit.getAvailableCredits() == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(VERSIONED_UPDATE_SCRIPT, creditKeys(),
+                    userCredit.getUserId().toString(),
+                    userCredit.getVersion().toString(),
+                    userCredit.getTotalCredits().toPlainString(),
+                    userCredit.getAvailableCredits().toPlainString());
+        } catch (Exception e) {
+            log.warn("更新积分排行失败，用户ID：{}，错误信息：{}", userCredit.getUserId(), e.getMessage());
+        }
+    }
+
+    private List<String> creditKeys() {
+        return Arrays.asList(VERSION_KEY, key(CreditRankingType.TOTAL_CREDITS),
+                key(CreditRankingType.AVAILABLE_CREDITS));
+    }
+
+    private String key(CreditRankingType type) {
+        return KEY_PREFIX + type.getKeySuffix();
+    }
+
+    /**
+     * 排行项
+     */
+    public static class RankEntry {
+
+        private final Long userId;
+        private final long rank;
+        private final double score;
+
+        public RankEntry(Long userId, long rank, double score) {
+            this.userId = userId;
+            this.rank = rank;
+            this.score = score;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        /**
+         * @return 名次，从1开始
+         */
+        public long getRank() {
+            return rank;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.CreditCheckpoint;
+import com.leadexchange.domain.exchange.CreditLedgerEntry;
+import com.leadexchange.repository.CreditCheckpointRepository;
+import com.leadexchange.repository.ExchangeTransactionRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 积分流水校验器
+ * 交易流水按用户构成余额链：每条流水的变更前余额等于同一用户上一条流水的变更后余额，
+ * 最后一条流水的变更后余额等于当前可用积分。同一用户的积分变更在行锁或版本条件更新下串行提交，
+ * 流水ID顺序即提交顺序。
+ * 校验从用户的检查点开始只重放之后的流水，用户按ID分批并行校验，校验通过后推进检查点，
+ * 因此每晚的全量审计只读取上次审计之后新增的流水，并精确指出断链的流水和余额不符的用户。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class CreditLedgerVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditLedgerVerifier.class);
+
+    private static final String AUDIT_LOCK_KEY = "credit:ledger:audit-lock";
+
+    private final UserCreditRepository userCreditRepository;
+    private final ExchangeTransactionRepository transactionRepository;
+    private final CreditCheckpointRepository checkpointRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.exchange.credit.ledger.audit-threads:4}")
+    private int auditThreads;
+
+    @Value("${app.exchange.credit.ledger.audit-batch-size:500}")
+    private int auditBatchSize;
+
+    @Value("${app.exchange.credit.ledger.max-reported-divergences:1000}")
+    private int maxReportedDivergences;
+
+    @Value("${app.exchange.credit.ledger.audit-lock-seconds:3600}")
+    private long auditLockSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ExecutorService workerExecutor;
+    private ExecutorService launchExecutor;
+
+    private volatile AuditReport lastReport;
+
+    @PostConstruct
+    public void init() {
+        workerExecutor = Executors.newFixedThreadPool(auditThreads, namedThreadFactory("credit-ledger-audit"));
+        launchExecutor = Executors.newSingleThreadExecutor(namedThreadFactory("credit-ledger-audit-launcher"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        launchExecutor.shutdownNow();
+        workerExecutor.shutdownNow();
+    }
+
+    /**
+     * 每晚定时全量审计
+     */
+    @Scheduled(cron = "${app.exchange.credit.ledger.audit-cron:0 30 2 * * ?}")
+    public void scheduledAudit() {
+        runLockedAudit();
+    }
+
+    /**
+     * 在后台发起一次全量审计
+     * @return false表示本节点已有审计在运行
+     */
+    public boolean triggerAudit() {
+        if (running.get()) {
+            return false;
+        }
+        launchExecutor.execute(this::runLockedAudit);
+        return true;
+    }
+
+    /**
+     * 获取最近一次完成的审计报告
+     * @return 审计报告，尚未审计时为null
+     */
+    public AuditReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 校验单个用户的余额链并从检查点重建可用积分，不推进检查点
+     * @param userId 用户ID
+     * @return 校验结果
+     */
+    public UserVerification verifyUser(Long userId) {
+        CreditBalanceSnapshot snapshot = userCreditRepository.findSnapshotByUserId(userId)
+                .orElseThrow(() -> new IllegalArgumentException("用户积分记录不存在：" + userId));
+        CreditCheckpoint checkpoint = checkpointRepository.findByUserId(userId)
+                .orElseGet(() -> new CreditCheckpoint(userId));
+        List<CreditLedgerEntry> entries = transactionRepository.findLedgerEntries(
+                Collections.singletonList(userId), checkpoint.getLastTransactionId());
+        List<Divergence> divergences = new ArrayList<>();
+        BigDecimal rebuilt = replay(userId, checkpoint.getBalance(), entries, snapshot.getAvailableCredits(), divergences);
+        return new UserVerification(userId, checkpoint.getLastTransactionId(), entries.size(), rebuilt,
+                snapshot.getAvailableCredits(), divergences);
+    }
+
+    private void runLockedAudit() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Boolean locked;
+            try {
+                locked = stringRedisTemplate.opsForValue().setIfAbsent(
+                        AUDIT_LOCK_KEY, "1", auditLockSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("获取积分流水审计锁失败：{}", e.getMessage());
+                return;
+            }
+            if (!Boolean.TRUE.equals(locked)) {
+                log.info("其他节点正在执行积分流水审计，本次跳过");
+                return;
+            }
+            try {
+                AuditReport report = audit();
+                lastReport = report;
+                if (report.getDivergenceCount() > 0) {
+                    log.error("积分流水审计发现{}处不一致，校验用户：{}，重放流水：{}，耗时：{}ms",
+                            report.getDivergenceCount(), report.getUsersChecked(),
+                            report.getEntriesReplayed(), report.getDurationMs());
+                } else {
+                    log.info("积分流水审计完成，校验用户：{}，重放流水：{}，推进检查点：{}，耗时：{}ms",
+                            report.getUsersChecked(), report.getEntriesReplayed(),
+                            report.getCheckpointsAdvanced(), report.getDurationMs());
+                }
+            } catch (Exception e) {
+                log.error("积分流水审计失败：{}", e.getMessage(), e);
+            } finally {
+                stringRedisTemplate.delete(AUDIT_LOCK_KEY);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 全量审计：按用户ID游标分批，每批提交到工作线程并行校验，在途批次数有上限
+     */
+    private AuditReport audit() {
+        LocalDateTime startTime = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        AuditProgress progress = new AuditProgress(maxReportedDivergences);
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(workerExecutor);
+        int maxInFlight = auditThreads * 2;
+        int inFlight = 0;
+        long lastUserId = 0L;
+        while (true) {
+            List<CreditBalanceSnapshot> page = userCreditRepository.findSnapshotsAfterUserId(
+                    lastUserId, PageRequest.of(0, auditBatchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            completionService.submit(() -> {
+                verifyBatch(page, progress);
+                return null;
+            });
+            inFlight++;
+            if (inFlight >= maxInFlight) {
+                awaitBatch(completionService, progress);
+                inFlight--;
+            }
+            if (page.size() < auditBatchSize) {
+                break;
+            }
+            lastUserId = page.get(page.size() - 1).getUserId();
+        }
+        while (inFlight > 0) {
+            awaitBatch(completionService, progress);
+            inFlight--;
+        }
+        return progress.toReport(startTime, System.currentTimeMillis() - start);
+    }
+
+    private void awaitBatch(CompletionService<Void> completionService, AuditProgress progress) {
+        try {
+            completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("积分流水审计被中断", e);
+        } catch (ExecutionException e) {
+            progress.failedBatches.incrementAndGet();
+            log.error("积分流水审计批次失败：{}", e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 校验一批用户：一次读取检查点和各用户最后一条流水ID，流水ID未超过检查点的用户无需读取流水，
+     * 其余用户各自从自己的检查点之后读取流水，不因批内有新用户而重读其他用户的全部历史
+     */
+    private void verifyBatch(List<CreditBalanceSnapshot> page, AuditProgress progress) {
+        List<Long> userIds = new ArrayList<>(page.size());
+        for (CreditBalanceSnapshot snapshot : page) {
+            userIds.add(snapshot.getUserId());
+        }
+        Map<Long, CreditCheckpoint> checkpoints = new HashMap<>();
+        for (CreditCheckpoint checkpoint : checkpointRepository.findByUserIdIn(userIds)) {
+            checkpoints.put(checkpoint.getUserId(), checkpoint);
+        }
+        Map<Long, Long> lastTransactionIds = new HashMap<>();
+        for (Object[] row : transactionRepository.findLastTransactionIds(userIds)) {
+            lastTransactionIds.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+
+        List<CreditCheckpoint> advanced = new ArrayList<>();
+        for (CreditBalanceSnapshot snapshot : page) {
+            Long userId = snapshot.getUserId();
+            CreditCheckpoint checkpoint = checkpoints.getOrDefault(userId, new CreditCheckpoint(userId));
+            Long lastTransactionId = lastTransactionIds.get(userId);
+            List<CreditLedgerEntry> entries = lastTransactionId != null
+                    && lastTransactionId > checkpoint.getLastTransactionId()
+                    ? transactionRepository.findLedgerEntries(
+                            Collections.singletonList(userId), checkpoint.getLastTransactionId())
+                    : Collections.emptyList();
+            progress.usersChecked.incrementAndGet();
+            progress.entriesReplayed.addAndGet(entries.size());
+
+            List<Divergence> divergences = new ArrayList<>();
+            BigDecimal rebuilt = replay(userId, checkpoint.getBalance(), entries,
+                    snapshot.getAvailableCredits(), divergences);
+            if (divergences.isEmpty()) {
+                if (!entries.isEmpty()) {
+                    checkpoint.advance(entries.get(entries.size() - 1).getId(), rebuilt, entries.size());
+                    advanced.add(checkpoint);
+                } else if (checkpoint.getId() == null) {
+                    // 尚无流水的用户也写入检查点，记录其已校验
+                    checkpoint.advance(checkpoint.getLastTransactionId(), rebuilt, 0);
+                    advanced.add(checkpoint);
+                }
+            } else if (isBalanceMismatchOnly(divergences)) {
+                recheckBalance(userId, checkpoint, progress);
+            } else {
+                progress.addDivergences(divergences);
+            }
+        }
+        if (!advanced.isEmpty()) {
+            transactionTemplate.execute(status -> checkpointRepository.saveAll(advanced));
+            progress.checkpointsAdvanced.addAndGet(advanced.size());
+        }
+    }
+
+    /**
+     * 余额链完整但余额不符时单独复核：批次读取余额与读取流水之间可能有新的积分变更提交，
+     * 复核前后两次读取的版本号一致时才判定为不一致，否则计为审计期间发生变更，留待下次审计
+     */
+    private void recheckBalance(Long userId, CreditCheckpoint checkpoint, AuditProgress progress) {
+        Optional<CreditBalanceSnapshot> before = userCreditRepository.findSnapshotByUserId(userId);
+        List<CreditLedgerEntry> entries = transactionRepository.findLedgerEntries(
+                Collections.singletonList(userId), checkpoint.getLastTransactionId());
+        Optional<CreditBalanceSnapshot> after = userCreditRepository.findSnapshotByUserId(userId);
+        if (!before.isPresent() || !after.isPresent()
+                || !before.get().getVersion().equals(after.get().getVersion())) {
+            progress.usersChangedDuringAudit.incrementAndGet();
+            return;
+        }
+        List<Divergence> divergences = new ArrayList<>();
+        replay(userId, checkpoint.getBalance(), entries, after.get().getAvailableCredits(), divergences);
+        progress.addDivergences(divergences);
+    }
+
+    /**
+     * 从检查点余额开始重放余额链
+     * 断链处记录后以该流水的变更后余额继续，只报告确切的断点
+     * @param storedBalance 当前可用积分，为null时不比较最终余额
+     * @return 重建的可用积分
+     */
+    private BigDecimal replay(Long userId, BigDecimal startBalance, List<CreditLedgerEntry> entries,
+                              BigDecimal storedBalance, List<Divergence> divergences) {
+        BigDecimal running = startBalance;
+        Long lastTransactionId = null;
+        for (CreditLedgerEntry entry : entries) {
+            if (entry.getBalanceBefore().compareTo(running) != 0) {
+                divergences.add(new Divergence(userId, entry.getId(), DivergenceType.CHAIN_BREAK,
+                        running, entry.getBalanceBefore()));
+            }
+            running = entry.getBalanceAfter();
+            lastTransactionId = entry.getId();
+        }
+        if (storedBalance != null && storedBalance.compareTo(running) != 0) {
+            divergences.add(new Divergence(userId, lastTransactionId, DivergenceType.BALANCE_MISMATCH,
+                    running, storedBalance));
+        }
+        return running;
+    }
+
+    private boolean isBalanceMismatchOnly(List<Divergence> divergences) {
+        return divergences.size() == 1 && divergences.get(0).getType() == DivergenceType.BALANCE_MISMATCH;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 不一致类型
+     */
+    public enum DivergenceType {
+        /**
+         * 流水的变更前余额与上一条流水的变更后余额不符
+         */
+        CHAIN_BREAK,
+
+        /**
+         * 重放得到的余额与当前可用积分不符
+         */
+        BALANCE_MISMATCH
+    }
+
+    /**
+     * 余额链不一致项
+     */
+    public static class Divergence {
+
+        private final Long userId;
+        private final Long transactionId;
+        private final DivergenceType type;
+        private final BigDecimal expected;
+        private final BigDecimal actual;
+
+        public Divergence(Long userId, Long transactionId, DivergenceType type,
+                          BigDecimal expected, BigDecimal actual) {
+            this.userId = userId;
+            this.transactionId = transactionId;
+            this.type = type;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        /**
+         * @return 断链的流水ID；余额不符时为最后一条流水ID，检查点之后没有流水时为null
+         */
+        public Long getTransactionId() {
+            return transactionId;
+        }
+
+        public DivergenceType getType() {
+            return type;
+        }
+
+        /**
+         * @return 按余额链推算的余额
+         */
+        public BigDecimal getExpected() {
+            return expected;
+        }
+
+        /**
+         * @return 流水或积分记录中的实际余额
+         */
+        public BigDecimal getActual() {
+            return actual;
+        }
+    }
+
+    /**
+     * 单用户校验结果
+     */
+    public static class UserVerification {
+
+        private final Long userId;
+        private final Long checkpointTransactionId;
+        private final int replayedEntries;
+        private final BigDecimal rebuiltBalance;
+        private final BigDecimal storedBalance;
+        private final List<Divergence> divergences;
+
+        public UserVerification(Long userId, Long checkpointTransactionId, int replayedEntries,
+                                BigDecimal rebuiltBalance, BigDecimal storedBalance, List<Divergence> divergences) {
+            this.userId = userId;
+            this.checkpointTransactionId = checkpointTransactionId;
+            this.replayedEntries = replayedEntries;
+            this.rebuiltBalance = rebuiltBalance;
+            this.storedBalance = storedBalance;
+            this.divergences = divergences;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public Long getCheckpointTransactionId() {
+            return checkpointTransactionId;
+        }
+
+        public int getReplayedEntries() {
+            return replayedEntries;
+        }
+
+        /**
+         * @return 从检查点重放流水得到的可用积分
+         */
+        public BigDecimal getRebuiltBalance() {
+            return rebuiltBalance;
+        }
+
+        public BigDecimal getStoredBalance() {
+            return storedBalance;
+        }
+
+        public List<Divergence> getDivergences() {
+            return divergences;
+        }
+
+        public boolean isConsistent() {
+            return divergences.isEmpty();
+        }
+    }
+
+    /**
+     * 全量审计报告
+     */
+    public static class AuditReport {
+
+        private final LocalDateTime startTime;
+        private final long durationMs;
+        private final long usersChecked;
+        private final long entriesReplayed;
+        private final long checkpointsAdvanced;
+        private final long usersChangedDuringAudit;
+        private final long failedBatches;
+        private final long divergenceCount;
+        private final List<Divergence> divergences;
+
+        public AuditReport(LocalDateTime startTime, long durationMs, long usersChecked, long entriesReplayed,
+                           long checkpointsAdvanced, long usersChangedDuringAudit, long failedBatches,
+                           long divergenceCount, List<Divergence> divergences) {
+            this.startTime = startTime;
+            this.durationMs = durationMs;
+            this.usersChecked = usersChecked;
+            this.entriesReplayed = entriesReplayed;
+            this.checkpointsAdvanced = checkpointsAdvanced;
+            this.usersChangedDuringAudit = usersChangedDuringAudit;
+            this.failedBatches = failedBatches;
+            this.divergenceCount = divergenceCount;
+            this.divergences = divergences;
+        }
+
+        public LocalDateTime getStartTime() {
+            return startTime;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public long getUsersChecked() {
+            return usersChecked;
+        }
+
+        public long getEntriesReplayed() {
+            return entriesReplayed;
+        }
+
+        public long getCheckpointsAdvanced() {
+            return checkpointsAdvanced;
+        }
+
+        /**
+         * @return 余额不符但复核时积分已变更、留待下次审计的用户数
+         */
+        public long getUsersChangedDuringAudit() {
+            return usersChangedDuringAudit;
+        }
+
+        public long getFailedBatches() {
+            return failedBatches;
+        }
+
+        public long getDivergenceCount() {
+            return divergenceCount;
+        }
+
+        /**
+         * @return 不一致项，数量超过上限时只保留前若干项
+         */
+        public List<Divergence> getDivergences() {
+            return divergences;
+        }
+    }
+
+    /**
+     * 审计进度，由各工作线程并发累加
+     */
+    private static final class AuditProgress {
+
+        private final int maxReported;
+        private final AtomicLong usersChecked = new AtomicLong();
+        private final AtomicLong entriesReplayed = new AtomicLong();
+        private final AtomicLong checkpointsAdvanced = new AtomicLong();
+        private final AtomicLong usersChangedDuringAudit = new AtomicLong();
+        private final AtomicLong failedBatches = new AtomicLong();
+        private final AtomicLong divergenceCount = new AtomicLong();
+        private final List<Divergence> divergences = new ArrayList<>();
+
+        private AuditProgress(int maxReported) {
+            this.maxReported = maxReported;
+        }
+
+        private void addDivergences(List<Divergence> found) {
+            if (found.isEmpty()) {
+                return;
+            }
+            divergenceCount.addAndGet(found.size());
+            synchronized (divergences) {
+                for (Divergence divergence : found) {
+                    if (divergences.size() >= maxReported) {
+                        break;
+                    }
+                    divergences.add(divergence);
+                }
+            }
+        }
+
+        private AuditReport toReport(LocalDateTime startTime, long durationMs) {
+            synchronized (divergences) {
+                return new AuditReport(startTime, durationMs, usersChecked.get(), entriesReplayed.get(),
+                        checkpointsAdvanced.get(), usersChangedDuringAudit.get(), failedBatches.get(),
+                        divergenceCount.get(), new ArrayList<>(divergences));
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.repository.UserCreditRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 积分锁协调器
+ * 同一事务内涉及多个用户积分时，统一按用户ID升序加行锁，避免反向交换互相等待造成死锁；
+ * 加行锁前先获取进程内条带锁，使同一节点上的热点用户在内存中排队，减少数据库锁等待。
+ * 条带锁在事务结束（提交或回滚）后释放。
+ * <p>
+ * 升序只在一次调用内成立，因此同一事务内涉及的用户应在一次调用中全部锁定。
+ * 事务内已持有的用户再次加锁视为重入；之后新加锁的用户ID和条带序号必须大于已持有的，
+ * 否则抛出 {@link IllegalStateException}，防止嵌套调用以相反顺序加锁。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class CreditLockCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditLockCoordinator.class);
+
+    // MySQL死锁错误码及标准SQLState
+    private static final int MYSQL_DEADLOCK_ERROR_CODE = 1213;
+    private static final String DEADLOCK_SQL_STATE = "40001";
+
+    // 事务内已被批量UPDATE修改过的用户ID集合的资源键
+    private static final Object BULK_UPDATED_RESOURCE_KEY = new Object();
+
+    // 事务内已持有的用户ID和条带序号的资源键
+    private static final Object HELD_LOCKS_RESOURCE_KEY = new Object();
+
+    private final UserCreditRepository userCreditRepository;
+    private final MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.exchange.lock.stripes:64}")
+    private int stripeCount;
+
+    @Value("${app.exchange.lock.wait-timeout-ms:3000}")
+    private long waitTimeoutMs;
+
+    @Value("${app.exchange.credit.concurrency-mode:PESSIMISTIC}")
+    private CreditConcurrencyMode concurrencyMode;
+
+    private ReentrantLock[] stripes;
+    private Timer stripeWaitTimer;
+    private Timer rowLockWaitTimer;
+    private Counter deadlockCounter;
+    private Counter lockTimeoutCounter;
+
+    @PostConstruct
+    public void init() {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("积分锁条带数必须大于0");
+        }
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        stripeWaitTimer = Timer.builder("credit.lock.wait")
+                .description("积分锁等待时间")
+                .tag("level", "stripe")
+                .register(meterRegistry);
+        rowLockWaitTimer = Timer.builder("credit.lock.wait")
+                .description("积分锁等待时间")
+                .tag("level", "row")
+                .register(meterRegistry);
+        deadlockCounter = Counter.builder("credit.lock.deadlocks")
+                .description("积分行锁死锁次数")
+                .register(meterRegistry);
+        lockTimeoutCounter = Counter.builder("credit.lock.timeouts")
+                .description("积分锁获取超时次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取当前部署的积分并发控制模式
+     * @return 并发控制模式
+     */
+    public CreditConcurrencyMode getConcurrencyMode() {
+        return concurrencyMode;
+    }
+
+    /**
+     * 是否为乐观模式，乐观模式下多用户结算不预先加行锁
+     * @return true表示乐观模式
+     */
+    public boolean isOptimisticMode() {
+        return concurrencyMode == CreditConcurrencyMode.OPTIMISTIC;
+    }
+
+    /**
+     * 锁定单个用户的积分记录，不存在时创建初始记录
+     * @param userId 用户ID
+     * @return 已加锁的积分记录
+     */
+    public UserCredit lockCredit(Long userId) {
+        return lockCredits(Collections.singletonList(userId)).get(0);
+    }
+
+    /**
+     * 按用户ID升序锁定多个用户的积分记录，不存在时创建初始记录
+     * 必须在事务内调用，条带锁随事务结束释放
+     * @param userIds 用户ID集合
+     * @return 按用户ID升序排列的已加锁积分记录
+     */
+    public List<UserCredit> lockCredits(Collection<Long> userIds) {
+        TreeSet<Long> orderedUserIds = lockStripes(userIds);
+
+        List<UserCredit> credits = new ArrayList<>(orderedUserIds.size());
+        for (Long userId : orderedUserIds) {
+            credits.add(lockRow(userId));
+        }
+        return credits;
+    }
+
+    /**
+     * 仅获取进程内条带锁，供按用户ID升序执行带条件UPDATE的调用方使用
+     * 必须在事务内调用，条带锁随事务结束释放；已持有的用户视为重入，
+     * 新用户的ID和条带序号须大于事务内已持有的，否则抛出异常
+     * @param userIds 用户ID集合
+     * @return 升序排列的用户ID
+     */
+    public TreeSet<Long> lockStripes(Collection<Long> userIds) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("积分加锁必须在事务内执行");
+        }
+
+        TreeSet<Long> orderedUserIds = new TreeSet<>();
+        for (Long userId : userIds) {
+            if (userId != null) {
+                orderedUserIds.add(userId);
+            }
+        }
+        if (orderedUserIds.isEmpty()) {
+            throw new IllegalArgumentException("加锁用户ID不能为空");
+        }
+
+        HeldLocks held = currentHeldLocks();
+        TreeSet<Long> newUserIds = new TreeSet<>(orderedUserIds);
+        TreeSet<Integer> newStripeIndexes = new TreeSet<>();
+        if (held != null) {
+            newUserIds.removeAll(held.userIds);
+        }
+        for (Long userId : newUserIds) {
+            newStripeIndexes.add(stripeIndex(userId));
+        }
+        if (held != null) {
+            newStripeIndexes.removeAll(held.stripeIndexes);
+            checkOrder(held, newUserIds, newStripeIndexes);
+        }
+        if (newUserIds.isEmpty()) {
+            return orderedUserIds;
+        }
+
+        List<ReentrantLock> acquired = acquireStripes(newStripeIndexes, orderedUserIds);
+        HeldLocks holder = bindHeldLocks(held);
+        holder.userIds.addAll(newUserIds);
+        holder.stripeIndexes.addAll(newStripeIndexes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                releaseStripes(acquired);
+                holder.userIds.removeAll(newUserIds);
+                holder.stripeIndexes.removeAll(newStripeIndexes);
+                if (holder.userIds.isEmpty()) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(HELD_LOCKS_RESOURCE_KEY);
+                }
+            }
+        });
+        return orderedUserIds;
+    }
+
+    /**
+     * 标记用户积分已在当前事务内被批量UPDATE修改
+     * 批量UPDATE不会同步持久化上下文中的实体，后续加锁读取时需要刷新
+     * @param userIds 用户ID集合
+     */
+    @SuppressWarnings("unchecked")
+    public void markBulkUpdated(Collection<Long> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Set<Long> bulkUpdated = (Set<Long>) TransactionSynchronizationManager.getResource(BULK_UPDATED_RESOURCE_KEY);
+        if (bulkUpdated == null) {
+            bulkUpdated = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(BULK_UPDATED_RESOURCE_KEY, bulkUpdated);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BULK_UPDATED_RESOURCE_KEY);
+                }
+            });
+        }
+        bulkUpdated.addAll(userIds);
+    }
+
+    /**
+     * 按条带序号升序获取条带锁
+     */
+    private List<ReentrantLock> acquireStripes(TreeSet<Integer> stripeIndexes, TreeSet<Long> orderedUserIds) {
+        List<ReentrantLock> acquired = new ArrayList<>(stripeIndexes.size());
+        long start = System.nanoTime();
+        try {
+            for (Integer index : stripeIndexes) {
+                ReentrantLock lock = stripes[index];
+                if (!lock.tryLock(waitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    lockTimeoutCounter.increment();
+                    throw new IllegalStateException("获取积分锁超时，用户ID：" + orderedUserIds);
+                }
+                acquired.add(lock);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseStripes(acquired);
+            throw new IllegalStateException("获取积分锁被中断，用户ID：" + orderedUserIds, e);
+        } catch (RuntimeException e) {
+            releaseStripes(acquired);
+            throw e;
+        } finally {
+            stripeWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return acquired;
+    }
+
+    /**
+     * 获取数据库行锁，记录等待时间与死锁次数
+     */
+    private UserCredit lockRow(Long userId) {
+        long start = System.nanoTime();
+        try {
+            UserCredit userCredit = userCreditRepository.findByUserIdWithLock(userId)
+                    .orElseGet(() -> createInitialCredit(userId));
+            if (isBulkUpdated(userId) && entityManager.contains(userCredit)) {
+                entityManager.refresh(userCredit);
+            }
+            return userCredit;
+        } catch (PessimisticLockingFailureException e) {
+            if (isDeadlock(e)) {
+                deadlockCounter.increment();
+                log.warn("积分行锁发生死锁，用户ID：{}", userId);
+            } else {
+                lockTimeoutCounter.increment();
+                log.warn("积分行锁获取失败，用户ID：{}，错误信息：{}", userId, e.getMessage());
+            }
+            throw e;
+        } finally {
+            rowLockWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private UserCredit createInitialCredit(Long userId) {
+        UserCredit userCredit = new UserCredit(userId);
+        userCredit.setCreateBy(userId);
+        userCredit.setUpdateBy(userId);
+        return userCreditRepository.save(userCredit);
+    }
+
+    /**
+     * 校验新加锁的用户和条带排在事务内已持有的之后
+     */
+    private void checkOrder(HeldLocks held, TreeSet<Long> newUserIds, TreeSet<Integer> newStripeIndexes) {
+        boolean userOutOfOrder = !newUserIds.isEmpty() && !held.userIds.isEmpty()
+                && newUserIds.first() < held.userIds.last();
+        boolean stripeOutOfOrder = !newStripeIndexes.isEmpty() && !held.stripeIndexes.isEmpty()
+                && newStripeIndexes.first() < held.stripeIndexes.last();
+        if (userOutOfOrder || stripeOutOfOrder) {
+            throw new IllegalStateException("积分加锁顺序错误，已持有用户：" + held.userIds
+                    + "，新加锁用户：" + newUserIds + "，同一事务涉及的用户须在一次调用中锁定");
+        }
+    }
+
+    private HeldLocks currentHeldLocks() {
+        return (HeldLocks) TransactionSynchronizationManager.getResource(HELD_LOCKS_RESOURCE_KEY);
+    }
+
+    private HeldLocks bindHeldLocks(HeldLocks held) {
+        if (held != null) {
+            return held;
+        }
+        HeldLocks created = new HeldLocks();
+        TransactionSynchronizationManager.bindResource(HELD_LOCKS_RESOURCE_KEY, created);
+        return created;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isBulkUpdated(Long userId) {
+        Set<Long> bulkUpdated = (Set<Long>) TransactionSynchronizationManager.getResource(BULK_UPDATED_RESOURCE_KEY);
+        return bulkUpdated != null && bulkUpdated.contains(userId);
+    }
+
+    private int stripeIndex(Long userId) {
+        return Math.floorMod(Objects.hashCode(userId), stripes.length);
+    }
+
+    private void releaseStripes(List<ReentrantLock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            ReentrantLock lock = acquired.get(i);
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+        acquired.clear();
+    }
+
+    private boolean isDeadlock(Throwable throwable) {
+        Throwable current = throwable;
+        while (current != null) {
+            if (current instanceof DeadlockLoserDataAccessException) {
+                return true;
+            }
+            if (current instanceof SQLException) {
+                SQLException sqlException = (SQLException) current;
+                if (sqlException.getErrorCode() == MYSQL_DEADLOCK_ERROR_CODE
+                        || DEADLOCK_SQL_STATE.equals(sqlException.getSQLState())) {
+                    return true;
+                }
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 事务内已持有的用户ID与条带序号
+     */
+    private static final class HeldLocks {
+        private final TreeSet<Long> userIds = new TreeSet<>();
+        private final TreeSet<Integer> stripeIndexes = new TreeSet<>();
+    }
+}
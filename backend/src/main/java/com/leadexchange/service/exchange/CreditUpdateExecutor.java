@@ -0,0 +1,185 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.repository.UserCreditRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 积分更新执行器
+ * 根据部署配置的并发模式修改单个用户的积分余额：
+ * 悲观模式直接加行锁修改；乐观模式无锁读取快照，只用于算出本次变更的增量，
+ * 再以一条带余额条件的增量UPDATE作用在最新已提交的行上。
+ * 可重复读隔离级别下事务内的快照不会前进，因此不做读取-比较-重试循环，也不在事务内休眠等待；
+ * 快照判定余额不足或条件UPDATE未命中时退回加锁路径做最终判定。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class CreditUpdateExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditUpdateExecutor.class);
+
+    private final UserCreditRepository userCreditRepository;
+    private final CreditLockCoordinator creditLockCoordinator;
+    private final MeterRegistry meterRegistry;
+
+    private Counter conflictCounter;
+    private Counter fallbackCounter;
+
+    @PostConstruct
+    public void init() {
+        conflictCounter = Counter.builder("credit.optimistic.conflicts")
+                .description("乐观模式条件更新未命中次数")
+                .register(meterRegistry);
+        fallbackCounter = Counter.builder("credit.optimistic.fallbacks")
+                .description("乐观模式退回加锁路径次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 修改用户积分
+     * @param userId 用户ID
+     * @param mutation 积分变更操作，返回false表示余额不足
+     * @param insufficientMessage 余额不足时的错误信息
+     * @return 更新结果
+     */
+    public CreditUpdateResult update(Long userId, Predicate<UserCredit> mutation,
+                                     Function<UserCredit, String> insufficientMessage) {
+        if (creditLockCoordinator.getConcurrencyMode() == CreditConcurrencyMode.OPTIMISTIC) {
+            CreditUpdateResult result = tryOptimisticUpdate(userId, mutation);
+            if (result != null) {
+                return result;
+            }
+            fallbackCounter.increment();
+        }
+        return lockedUpdate(userId, mutation, insufficientMessage);
+    }
+
+    /**
+     * 乐观更新，失败时返回null
+     */
+    private CreditUpdateResult tryOptimisticUpdate(Long userId, Predicate<UserCredit> mutation) {
+        Optional<CreditBalanceSnapshot> snapshot = userCreditRepository.findSnapshotByUserId(userId);
+        if (!snapshot.isPresent()) {
+            // 积分记录不存在，由加锁路径负责创建
+            return null;
+        }
+
+        UserCredit base = snapshot.get().toUserCredit();
+        UserCredit working = snapshot.get().toUserCredit();
+        if (!mutation.test(working)) {
+            // 快照可能落后于最新提交，余额不足由加锁路径做最终判定
+            return null;
+        }
+        BigDecimal totalDelta = working.getTotalCredits().subtract(base.getTotalCredits());
+        BigDecimal availableDelta = working.getAvailableCredits().subtract(base.getAvailableCredits());
+        BigDecimal frozenDelta = working.getFrozenCredits().subtract(base.getFrozenCredits());
+        BigDecimal incomeDelta = working.getTotalIncome().subtract(base.getTotalIncome());
+        BigDecimal expenseDelta = working.getTotalExpense().subtract(base.getTotalExpense());
+
+        int updated = userCreditRepository.applyBalanceDelta(userId, totalDelta, availableDelta, frozenDelta,
+                incomeDelta, expenseDelta, LocalDateTime.now());
+        if (updated != 1) {
+            conflictCounter.increment();
+            log.debug("用户[{}]积分条件更新未命中，退回加锁路径", userId);
+            return null;
+        }
+        creditLockCoordinator.markBulkUpdated(Collections.singletonList(userId));
+
+        // 本事务的修改对自身可见，读回的是在最新提交之上累加增量后的余额
+        UserCredit updatedCredit = userCreditRepository.findSnapshotByUserId(userId)
+                .orElseThrow(() -> new IllegalStateException("积分记录不存在，用户ID：" + userId))
+                .toUserCredit();
+        updatedCredit.setUpdateBy(userId);
+        return new CreditUpdateResult(updatedCredit,
+                updatedCredit.getTotalCredits().subtract(totalDelta),
+                updatedCredit.getAvailableCredits().subtract(availableDelta),
+                updatedCredit.getFrozenCredits().subtract(frozenDelta));
+    }
+
+    /**
+     * 加锁更新
+     */
+    private CreditUpdateResult lockedUpdate(Long userId, Predicate<UserCredit> mutation,
+                                            Function<UserCredit, String> insufficientMessage) {
+        // 条件更新不会同步持久化上下文，协调器加锁时会刷新已被批量修改的实体
+        UserCredit userCredit = creditLockCoordinator.lockCredit(userId);
+
+        BigDecimal beforeTotal = userCredit.getTotalCredits();
+        BigDecimal beforeBalance = userCredit.getAvailableCredits();
+        BigDecimal beforeFrozen = userCredit.getFrozenCredits();
+        if (!mutation.test(userCredit)) {
+            throw new IllegalStateException(insufficientMessage.apply(userCredit));
+        }
+        userCredit.setUpdateBy(userId);
+        userCredit = userCreditRepository.save(userCredit);
+        return new CreditUpdateResult(userCredit, beforeTotal, beforeBalance, beforeFrozen);
+    }
+
+    /**
+     * 积分更新结果
+     */
+    public static class CreditUpdateResult {
+
+        private final UserCredit credit;
+        private final BigDecimal beforeTotal;
+        private final BigDecimal beforeBalance;
+        private final BigDecimal beforeFrozen;
+
+        public CreditUpdateResult(UserCredit credit, BigDecimal beforeTotal, BigDecimal beforeBalance,
+                                  BigDecimal beforeFrozen) {
+            this.credit = credit;
+            this.beforeTotal = beforeTotal;
+            this.beforeBalance = beforeBalance;
+            this.beforeFrozen = beforeFrozen;
+        }
+
+        public UserCredit getCredit() {
+            return credit;
+        }
+
+        /**
+         * @return 变更前可用积分
+         */
+        public BigDecimal getBeforeBalance() {
+            return beforeBalance;
+        }
+
+        /**
+         * @return 总积分变化量
+         */
+        public BigDecimal getTotalDelta() {
+            return credit.getTotalCredits().subtract(beforeTotal);
+        }
+
+        /**
+         * @return 可用积分变化量
+         */
+        public BigDecimal getAvailableDelta() {
+            return credit.getAvailableCredits().subtract(beforeBalance);
+        }
+
+        /**
+         * @return 冻结积分变化量
+         */
+        public BigDecimal getFrozenDelta() {
+            return credit.getFrozenCredits().subtract(beforeFrozen);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeOfferedLead;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import com.leadexchange.domain.exchange.LeadReservation;
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.repository.ExchangeOfferedLeadRepository;
+import com.leadexchange.repository.LeadReservationRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.service.ExchangeEngineService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 交换申请批量处理服务
+ * 一次查询预取全部申请，在内存中过滤不存在、无权限或状态不允许的申请，不为它们加锁或开启事务；
+ * 其余申请分组后并行处理，每组在一个事务内依次走单条审核流程，锁下校验不通过的申请单独失败，
+ * 整组意外失败时退回逐条独立事务处理，单条失败不影响其他申请；
+ * 单条命令经 {@link ExchangeCommandDispatcher} 执行，分区模式下与单条接口按所有者共用同一串行分区。
+ * 同一目标线索的批准按请求顺序串行执行，先到者完成交换，其余申请因线索已转出而失败。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class ExchangeBatchReviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeBatchReviewService.class);
+
+    private final ExchangeEngineService exchangeEngineService;
+    private final ExchangeApplicationRepository applicationRepository;
+    private final ExchangeCommandDispatcher commandDispatcher;
+    private final ExchangeOfferedLeadRepository offeredLeadRepository;
+    private final LeadRepository leadRepository;
+    private final LeadReservationRepository reservationRepository;
+    private final UserCreditRepository userCreditRepository;
+    private final CreditLockCoordinator creditLockCoordinator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.exchange.batch-review.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${app.exchange.batch-review.threads:4}")
+    private int threads;
+
+    private ExecutorService workerExecutor;
+
+    @PostConstruct
+    public void start() {
+        workerExecutor = Executors.newFixedThreadPool(threads, namedThreadFactory("exchange-batch-review"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerExecutor.shutdown();
+    }
+
+    /**
+     * 批量操作类型
+     */
+    public enum Action {
+        /** 批准 */
+        APPROVE,
+        /** 拒绝 */
+        REJECT,
+        /** 取消 */
+        CANCEL
+    }
+
+    /**
+     * 批量处理交换申请
+     * @param action 操作类型
+     * @param applicationIds 申请ID列表，重复的ID只处理一次
+     * @param userId 操作用户ID：批准和拒绝为目标线索所有者，取消为申请人
+     * @param responseMessage 响应消息
+     * @return 批量处理结果，逐条列出处理结果
+     */
+    public BatchResult process(Action action, List<Long> applicationIds, Long userId, String responseMessage) {
+        if (applicationIds == null || applicationIds.isEmpty()) {
+            throw new IllegalArgumentException("申请ID列表不能为空");
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(applicationIds));
+        if (ids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("单次最多处理" + maxBatchSize + "个申请");
+        }
+        long start = System.currentTimeMillis();
+
+        Map<Long, ExchangeApplication> applications = applicationRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ExchangeApplication::getId, Function.identity()));
+        Map<Long, ItemResult> results = new HashMap<>(ids.size() * 2);
+        Map<Long, List<ExchangeApplication>> groups = new LinkedHashMap<>();
+        for (Long id : ids) {
+            ExchangeApplication application = applications.get(id);
+            String rejection = precheck(action, application, userId);
+            if (rejection != null) {
+                results.put(id, ItemResult.failure(id, rejection));
+                continue;
+            }
+            // 与单条接口相同的分区键，同一申请的批量与单条命令在同一分区串行
+            groups.computeIfAbsent(ExchangeCommandDispatcher.partitionKey(application), key -> new ArrayList<>())
+                    .add(application);
+        }
+
+        List<Future<List<ItemResult>>> futures = new ArrayList<>(groups.size());
+        for (Map.Entry<Long, List<ExchangeApplication>> group : groups.entrySet()) {
+            futures.add(workerExecutor.submit(() ->
+                    processGroup(action, group.getKey(), group.getValue(), userId, responseMessage)));
+        }
+        for (Future<List<ItemResult>> future : futures) {
+            try {
+                future.get().forEach(result -> results.put(result.getApplicationId(), result));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("批量处理被中断", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("批量处理失败：" + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        BatchResult batch = new BatchResult();
+        batch.setAction(action);
+        batch.setItems(ids.stream().map(results::get).collect(Collectors.toList()));
+        batch.setTotal(ids.size());
+        batch.setSucceeded((int) batch.getItems().stream().filter(ItemResult::isSuccess).count());
+        batch.setFailed(batch.getTotal() - batch.getSucceeded());
+        log.info("批量{}交换申请完成，用户：{}，总数：{}，成功：{}，失败：{}，耗时：{}ms", action, userId,
+                batch.getTotal(), batch.getSucceeded(), batch.getFailed(), System.currentTimeMillis() - start);
+        return batch;
+    }
+
+    /**
+     * 预校验，返回失败原因，可处理时为null
+     * 只是提前过滤，单条处理时会在行锁下重新校验
+     */
+    private String precheck(Action action, ExchangeApplication application, Long userId) {
+        if (application == null) {
+            return "交换申请不存在";
+        }
+        if (action == Action.CANCEL) {
+            if (!application.getApplicantId().equals(userId)) {
+                return "只有申请人才能取消此申请";
+            }
+            if (!application.getStatus().canCancel()) {
+                return "申请状态不允许取消，当前状态：" + application.getStatus();
+            }
+            return null;
+        }
+        if (!application.getTargetLeadOwnerId().equals(userId)) {
+            return "只有目标线索的所有者才能审核此申请";
+        }
+        if (!application.getStatus().canReview()) {
+            return "申请状态不允许审核，当前状态：" + application.getStatus();
+        }
+        return null;
+    }
+
+    /**
+     * 处理同一目标线索所有者的一组申请：整组在一个事务内结算，失败时逐条重新处理
+     */
+    private List<ItemResult> processGroup(Action action, Long ownerId, List<ExchangeApplication> applications,
+                                          Long userId, String responseMessage) {
+        try {
+            return commandDispatcher.dispatch(ownerId, () -> transactionTemplate.execute(status ->
+                    settleGroup(action, applications, userId, responseMessage)));
+        } catch (RuntimeException e) {
+            log.warn("批量{}交换申请整组结算失败，改为逐条处理，所有者：{}，申请数：{}，原因：{}",
+                    action, ownerId, applications.size(), e.getMessage());
+            return processEach(action, ownerId, applications, userId, responseMessage);
+        }
+    }
+
+    /**
+     * 在当前事务内结算一组申请，须在事务中调用
+     * 与单条流程相同，先按ID升序锁定组内申请行，再锁定积分；在锁下重新校验状态、线索归属、独占预留与积分，
+     * 预期内的失败在修改数据前拦下，不会使整组回滚。单条审核流程加入本事务，意外异常仍使整组回滚
+     */
+    private List<ItemResult> settleGroup(Action action, List<ExchangeApplication> applications, Long userId,
+                                         String responseMessage) {
+        Map<Long, ExchangeApplication> locked = lockApplications(applications);
+        Map<Long, String> rejections = new HashMap<>();
+        List<ExchangeApplication> actionable = new ArrayList<>(applications.size());
+        for (ExchangeApplication prefetched : applications) {
+            ExchangeApplication application = locked.get(prefetched.getId());
+            String rejection = precheck(action, application, userId);
+            if (rejection != null) {
+                rejections.put(prefetched.getId(), rejection);
+            } else {
+                actionable.add(application);
+            }
+        }
+        GroupState state = actionable.isEmpty() ? new GroupState() : loadGroup(action, actionable);
+
+        List<ItemResult> results = new ArrayList<>(applications.size());
+        for (ExchangeApplication prefetched : applications) {
+            Long id = prefetched.getId();
+            ExchangeApplication application = locked.get(id);
+            String rejection = rejections.get(id);
+            if (rejection == null && action == Action.APPROVE) {
+                rejection = state.checkApprove(application);
+            }
+            if (rejection != null) {
+                results.add(ItemResult.failure(id, rejection));
+                continue;
+            }
+            ExchangeApplication processed = processOne(action, id, userId, responseMessage);
+            if (processed.getStatus() == ExchangeStatus.COMPLETED) {
+                state.applyApprove(application);
+            }
+            results.add(ItemResult.success(id, processed.getStatus().name()));
+        }
+        return results;
+    }
+
+    /**
+     * 按ID升序一次锁定组内全部申请行，与单条流程先锁申请、后锁积分的顺序一致
+     */
+    private Map<Long, ExchangeApplication> lockApplications(List<ExchangeApplication> applications) {
+        List<Long> ids = applications.stream()
+                .map(ExchangeApplication::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        return applicationRepository.findAllByIdInWithLock(ids).stream()
+                .collect(Collectors.toMap(ExchangeApplication::getId, Function.identity()));
+    }
+
+    /**
+     * 一次读取组内线索的所有者与目标线索的独占预留，并按用户ID升序一次锁定组内全部积分记录，
+     * 之后单条流程对这些用户的加锁均为重入，不会因加锁顺序被拒绝或死锁
+     */
+    private GroupState loadGroup(Action action, List<ExchangeApplication> applications) {
+        GroupState state = new GroupState();
+        Set<Long> userIds = new HashSet<>();
+        for (ExchangeApplication application : applications) {
+            userIds.add(application.getApplicantId());
+            if (action == Action.APPROVE) {
+                userIds.add(application.getTargetOwnerId());
+            }
+        }
+
+        if (action == Action.APPROVE) {
+            List<Long> applicationIds = new ArrayList<>(applications.size());
+            for (ExchangeApplication application : applications) {
+                applicationIds.add(application.getId());
+            }
+            for (ExchangeOfferedLead offered : offeredLeadRepository.findByApplicationIdIn(applicationIds)) {
+                state.offeredLeadIds.computeIfAbsent(offered.getApplicationId(), id -> new ArrayList<>())
+                        .add(offered.getLeadId());
+            }
+            Set<Long> leadIds = new HashSet<>();
+            for (ExchangeApplication application : applications) {
+                // 关联表上线前提交的申请没有关联行，按字符串字段解析
+                List<Long> offered = state.offeredLeadIds.computeIfAbsent(application.getId(),
+                        id -> exchangeEngineService.resolveOfferedLeadIds(application));
+                leadIds.add(application.getTargetLeadId());
+                leadIds.addAll(offered);
+            }
+            for (Object[] row : leadRepository.findActiveOwnerIdsByIdIn(leadIds)) {
+                state.leadOwners.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+            Set<Long> targetLeadIds = applications.stream()
+                    .map(ExchangeApplication::getTargetLeadId)
+                    .collect(Collectors.toSet());
+            for (LeadReservation reservation : reservationRepository.findByExclusiveLeadIdIn(targetLeadIds)) {
+                state.exclusiveHolders.computeIfAbsent(reservation.getExclusiveLeadId(), id -> new ArrayList<>())
+                        .add(reservation.getApplicationId());
+            }
+        }
+
+        if (creditLockCoordinator.isOptimisticMode()) {
+            TreeSet<Long> ordered = creditLockCoordinator.lockStripes(userIds);
+            for (CreditBalanceSnapshot snapshot : userCreditRepository.findSnapshotsByUserIdIn(new ArrayList<>(ordered))) {
+                state.availableCredits.put(snapshot.getUserId(), snapshot.getAvailableCredits());
+            }
+        } else {
+            for (UserCredit credit : creditLockCoordinator.lockCredits(userIds)) {
+                state.availableCredits.put(credit.getUserId(), credit.getAvailableCredits());
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 整组结算失败后逐条处理，每条申请独立事务
+     */
+    private List<ItemResult> processEach(Action action, Long ownerId, List<ExchangeApplication> applications,
+                                         Long userId, String responseMessage) {
+        List<ItemResult> results = new ArrayList<>(applications.size());
+        for (ExchangeApplication prefetched : applications) {
+            Long id = prefetched.getId();
+            try {
+                ExchangeApplication application = commandDispatcher.dispatch(ownerId,
+                        () -> processOne(action, id, userId, responseMessage));
+                results.add(ItemResult.success(id, application.getStatus().name()));
+            } catch (RuntimeException e) {
+                log.debug("批量{}交换申请失败，申请ID：{}，原因：{}", action, id, e.getMessage());
+                results.add(ItemResult.failure(id, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private ExchangeApplication processOne(Action action, Long id, Long userId, String responseMessage) {
+        switch (action) {
+            case APPROVE:
+                return exchangeEngineService.approveExchange(id, userId, responseMessage);
+            case REJECT:
+                return exchangeEngineService.rejectExchange(id, userId, responseMessage);
+            case CANCEL:
+                return exchangeEngineService.cancelExchange(id, userId);
+            default:
+                throw new IllegalArgumentException("不支持的操作类型：" + action);
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 组内结算状态：线索当前所有者、目标线索的独占预留与用户可用积分，随组内已完成的交换在内存中推进
+     */
+    private static final class GroupState {
+
+        private final Map<Long, List<Long>> offeredLeadIds = new HashMap<>();
+        private final Map<Long, Long> leadOwners = new HashMap<>();
+        private final Map<Long, List<Long>> exclusiveHolders = new HashMap<>();
+        private final Map<Long, BigDecimal> availableCredits = new HashMap<>();
+
+        /**
+         * 批准前校验线索归属、目标线索的独占预留与目标线索所有者的可用积分，返回失败原因，可批准时为null
+         */
+        private String checkApprove(ExchangeApplication application) {
+            Long ownerId = application.getTargetOwnerId();
+            if (!ownerId.equals(leadOwners.get(application.getTargetLeadId()))) {
+                return "目标线索已被删除或已转出，线索ID：" + application.getTargetLeadId();
+            }
+            for (Long holder : exclusiveHolders.getOrDefault(application.getTargetLeadId(),
+                    Collections.emptyList())) {
+                if (!holder.equals(application.getId())) {
+                    return "目标线索已在其他交换申请中提供，申请ID：" + holder;
+                }
+            }
+            for (Long leadId : offeredLeadIds.get(application.getId())) {
+                if (!application.getApplicantId().equals(leadOwners.get(leadId))) {
+                    return "提供的线索已被删除或已转出，线索ID：" + leadId;
+                }
+            }
+            BigDecimal difference = application.getCreditDifference();
+            if (difference != null && difference.signum() < 0
+                    && available(ownerId).compareTo(difference.negate()) < 0) {
+                return "目标线索所有者积分不足，需要补偿积分：" + difference.negate();
+            }
+            return null;
+        }
+
+        /**
+         * 记录已完成的交换：线索换手，积分差额由付款方转给收款方
+         */
+        private void applyApprove(ExchangeApplication application) {
+            Long applicantId = application.getApplicantId();
+            Long ownerId = application.getTargetOwnerId();
+            leadOwners.put(application.getTargetLeadId(), applicantId);
+            for (Long leadId : offeredLeadIds.get(application.getId())) {
+                leadOwners.put(leadId, ownerId);
+            }
+            BigDecimal difference = application.getCreditDifference();
+            if (difference == null || difference.signum() == 0) {
+                return;
+            }
+            if (difference.signum() > 0) {
+                // 申请人以冻结积分支付，不影响可用积分
+                availableCredits.put(ownerId, available(ownerId).add(difference));
+            } else {
+                availableCredits.put(ownerId, available(ownerId).add(difference));
+                availableCredits.put(applicantId, available(applicantId).subtract(difference));
+            }
+        }
+
+        private BigDecimal available(Long userId) {
+            return availableCredits.getOrDefault(userId, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * 单条处理结果
+     */
+    public static class ItemResult {
+
+        private Long applicationId;
+        private boolean success;
+        private String status;
+        private String message;
+
+        public static ItemResult success(Long applicationId, String status) {
+            ItemResult result = new ItemResult();
+            result.setApplicationId(applicationId);
+            result.setSuccess(true);
+            result.setStatus(status);
+            return result;
+        }
+
+        public static ItemResult failure(Long applicationId, String message) {
+            ItemResult result = new ItemResult();
+            result.setApplicationId(applicationId);
+            result.setSuccess(false);
+            result.setMessage(message);
+            return result;
+        }
+
+        public Long getApplicationId() {
+            return applicationId;
+        }
+
+        public void setApplicationId(Long applicationId) {
+            this.applicationId = applicationId;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * 批量处理结果
+     */
+    public static class BatchResult {
+
+        private Action action;
+        private int total;
+        private int succeeded;
+        private int failed;
+        private List<ItemResult> items;
+
+        public Action getAction() {
+            return action;
+        }
+
+        public void setAction(Action action) {
+            this.action = action;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public void setTotal(int total) {
+            this.total = total;
+        }
+
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        public void setSucceeded(int succeeded) {
+            this.succeeded = succeeded;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public void setFailed(int failed) {
+            this.failed = failed;
+        }
+
+        public List<ItemResult> getItems() {
+            return items;
+        }
+
+        public void setItems(List<ItemResult> items) {
+            this.items = items;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 交换命令分发器
+ * DIRECT 模式下命令在调用线程直接执行，与原有行为一致；
+ * PARTITIONED 模式下命令按目标线索所有者ID哈希到固定的单线程分区执行，同一所有者的审核与取消按到达顺序串行，
+ * 不再在积分行和线索行上互相等待锁，不同所有者的命令在不同分区并行。
+ * 分区只在本节点内串行，多节点部署或过期清理等其他入口仍依赖数据库行锁保证正确性，分区模式下这些锁基本不再发生竞争。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ExchangeCommandDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeCommandDispatcher.class);
+
+    /**
+     * 当前线程所属的分区，非分区线程为null
+     */
+    private static final ThreadLocal<Integer> CURRENT_PARTITION = new ThreadLocal<>();
+
+    private final ExchangeApplicationRepository applicationRepository;
+
+    /**
+     * 执行模式
+     */
+    public enum Mode {
+        /** 调用线程直接执行 */
+        DIRECT,
+        /** 按所有者分区串行执行 */
+        PARTITIONED
+    }
+
+    @Value("${app.exchange.dispatch.mode:DIRECT}")
+    private Mode mode;
+
+    @Value("${app.exchange.dispatch.partitions:16}")
+    private int partitions;
+
+    @Value("${app.exchange.dispatch.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.exchange.dispatch.timeout-ms:30000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor[] workers;
+
+    @PostConstruct
+    public void start() {
+        if (mode != Mode.PARTITIONED) {
+            return;
+        }
+        workers = new ThreadPoolExecutor[partitions];
+        for (int i = 0; i < partitions; i++) {
+            int partition = i;
+            ThreadFactory threadFactory = namedThreadFactory("exchange-partition-" + partition, partition);
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        }
+        log.info("交换命令分区执行已启用，分区数：{}，每分区队列容量：{}", partitions, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers == null) {
+            return;
+        }
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    /**
+     * 执行目标线索所有者的交换命令
+     * @param ownerId 目标线索所有者ID
+     * @param command 交换命令，须自行开启事务
+     * @return 命令结果
+     */
+    public <T> T dispatch(Long ownerId, Supplier<T> command) {
+        if (workers == null || ownerId == null) {
+            return command.get();
+        }
+        int partition = Math.floorMod(Long.hashCode(ownerId), partitions);
+        Integer current = CURRENT_PARTITION.get();
+        if (current != null && current == partition) {
+            // 已在目标分区内（命令内嵌套分发），直接执行避免自我等待
+            return command.get();
+        }
+
+        Future<T> future;
+        try {
+            future = workers[partition].submit(command::get);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("交换处理繁忙，请稍后重试");
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 命令仍会在分区内执行完毕，调用方需查询申请状态确认结果
+            throw new IllegalStateException("交换处理超时，请稍后查询申请状态");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("交换处理被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 执行指定交换申请的命令，按 {@link #partitionKey(ExchangeApplication)} 分区
+     * 单条审核与取消接口均经此方法分发，与批量处理对同一申请落在同一分区
+     * @param applicationId 申请ID
+     * @param command 交换命令，须自行开启事务
+     * @return 命令结果
+     */
+    public <T> T dispatchForApplication(Long applicationId, Supplier<T> command) {
+        if (workers == null) {
+            return command.get();
+        }
+        // 申请不存在时直接执行，由命令给出申请不存在的错误
+        Long ownerId = applicationRepository.findTargetOwnerIdById(applicationId).orElse(null);
+        return dispatch(ownerId, command);
+    }
+
+    /**
+     * 交换申请的分区键：目标线索所有者ID
+     * 批准、拒绝、取消的单条与批量命令均按此键分区，同一申请的命令总在同一分区串行
+     * @param application 交换申请
+     * @return 分区键
+     */
+    public static Long partitionKey(ExchangeApplication application) {
+        return application.getTargetOwnerId();
+    }
+
+    /**
+     * 获取当前执行模式
+     * @return 执行模式
+     */
+    public Mode getMode() {
+        return workers == null ? Mode.DIRECT : Mode.PARTITIONED;
+    }
+
+    private static ThreadFactory namedThreadFactory(String name, int partition) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                CURRENT_PARTITION.set(partition);
+                runnable.run();
+            }, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,279 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import com.leadexchange.event.exchange.ExchangeApplicationEvent;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.service.ExchangeEngineService;
+import com.leadexchange.util.HierarchicalTimerWheel;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 交换申请到期调度器
+ * 申请提交后将到期时间登记到Redis有序集合（成员为申请ID，分值为到期毫秒数），作为跨节点共享的到期队列；
+ * 本节点同时登记到进程内分层时间轮，到期即触发，无需轮询数据库。
+ * 各节点定期从有序集合拉取即将到期的申请补充到本地时间轮，覆盖其他节点提交及重启前登记的申请。
+ * 时间轮触发后以 ZREM 认领，只有认领成功的节点执行过期处理；处理失败时重新登记，稍后重试。
+ * 认领后发现申请仍待处理但尚未到期（如节点间时钟偏差导致提前触发）时，按申请的到期时间重新登记，避免任务丢失。
+ * 申请被批准、拒绝、取消或完成后从有序集合与时间轮中移除。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ExchangeExpiryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeExpiryScheduler.class);
+
+    private static final String EXPIRE_REASON = "系统自动过期处理";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ExchangeEngineService exchangeEngineService;
+    private final ExchangeApplicationRepository applicationRepository;
+
+    @Value("${app.exchange.expiry.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.exchange.expiry.scheduler.redis-key:exchange:expiry}")
+    private String redisKey;
+
+    @Value("${app.exchange.expiry.scheduler.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${app.exchange.expiry.scheduler.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${app.exchange.expiry.scheduler.wheel-levels:3}")
+    private int wheelLevels;
+
+    @Value("${app.exchange.expiry.scheduler.lookahead-ms:5000}")
+    private long lookaheadMs;
+
+    @Value("${app.exchange.expiry.scheduler.poll-batch-size:500}")
+    private int pollBatchSize;
+
+    @Value("${app.exchange.expiry.scheduler.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    @Value("${app.exchange.expiry.scheduler.worker-threads:2}")
+    private int workerThreads;
+
+    private HierarchicalTimerWheel<Long, Long> timerWheel;
+    private ScheduledExecutorService tickExecutor;
+    private ExecutorService workerExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("交换申请到期调度器未启用，仅依赖定时清理任务处理过期申请");
+            return;
+        }
+        timerWheel = new HierarchicalTimerWheel<>(tickMs, wheelSize, wheelLevels, System.currentTimeMillis());
+        tickExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("exchange-expiry-tick"));
+        workerExecutor = Executors.newFixedThreadPool(workerThreads, namedThreadFactory("exchange-expiry-worker"));
+        tickExecutor.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (tickExecutor != null) {
+            tickExecutor.shutdownNow();
+        }
+        if (workerExecutor != null) {
+            workerExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 交换申请事务提交后登记或移除到期任务
+     * @param event 交换申请事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExchangeApplicationEvent(ExchangeApplicationEvent event) {
+        if (!enabled || event.getApplicationId() == null) {
+            return;
+        }
+        switch (event.getEventType()) {
+            case SUBMITTED:
+            case APPLICATION_SUBMITTED:
+                register(event.getExchangeApplication());
+                break;
+            default:
+                unregister(event.getApplicationId());
+                break;
+        }
+    }
+
+    /**
+     * 登记申请到期时间
+     * @param application 交换申请
+     */
+    public void register(ExchangeApplication application) {
+        if (application.getExpireTime() == null) {
+            return;
+        }
+        Long applicationId = application.getId();
+        long deadlineMillis = toEpochMillis(application.getExpireTime());
+        try {
+            stringRedisTemplate.opsForZSet().add(redisKey, applicationId.toString(), deadlineMillis);
+        } catch (Exception e) {
+            log.warn("登记交换申请到期时间到Redis失败，申请ID：{}，错误信息：{}", applicationId, e.getMessage());
+        }
+        timerWheel.schedule(applicationId, applicationId, deadlineMillis);
+    }
+
+    /**
+     * 移除申请到期任务
+     * @param applicationId 申请ID
+     */
+    public void unregister(Long applicationId) {
+        timerWheel.cancel(applicationId);
+        try {
+            stringRedisTemplate.opsForZSet().remove(redisKey, applicationId.toString());
+        } catch (Exception e) {
+            log.warn("从Redis移除交换申请到期任务失败，申请ID：{}，错误信息：{}", applicationId, e.getMessage());
+        }
+    }
+
+    /**
+     * 从Redis拉取即将到期的申请补充到本地时间轮
+     */
+    @Scheduled(fixedDelayString = "${app.exchange.expiry.scheduler.poll-interval-ms:1000}")
+    public void pollDueEntries() {
+        if (!enabled) {
+            return;
+        }
+        long horizon = System.currentTimeMillis() + lookaheadMs;
+        try {
+            Set<ZSetOperations.TypedTuple<String>> entries = stringRedisTemplate.opsForZSet()
+                    .rangeByScoreWithScores(redisKey, 0, horizon, 0, pollBatchSize);
+            if (entries == null) {
+                return;
+            }
+            for (ZSetOperations.TypedTuple<String> entry : entries) {
+                if (entry.getValue() == null || entry.getScore() == null) {
+                    continue;
+                }
+                Long applicationId = Long.valueOf(entry.getValue());
+                timerWheel.schedule(applicationId, applicationId, entry.getScore().longValue());
+            }
+        } catch (Exception e) {
+            log.warn("拉取到期交换申请失败，错误信息：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 推进时间轮，将到期申请交给工作线程处理
+     */
+    private void tick() {
+        try {
+            List<Long> dueIds = timerWheel.advance(System.currentTimeMillis());
+            for (Long applicationId : dueIds) {
+                try {
+                    workerExecutor.execute(() -> expire(applicationId));
+                } catch (RejectedExecutionException e) {
+                    log.warn("到期交换申请处理任务被拒绝，申请ID：{}", applicationId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("推进交换申请到期时间轮失败：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 认领并过期单个申请
+     */
+    void expire(Long applicationId) {
+        if (!claim(applicationId)) {
+            return;
+        }
+        try {
+            if (!exchangeEngineService.expireIfDue(applicationId, EXPIRE_REASON)) {
+                rescheduleIfPending(applicationId);
+            }
+        } catch (Exception e) {
+            log.warn("到期交换申请处理失败，稍后重试，申请ID：{}，错误信息：{}", applicationId, e.getMessage());
+            reschedule(applicationId, System.currentTimeMillis() + retryDelayMs);
+        }
+    }
+
+    /**
+     * 申请未被过期处理时，仍待处理的按到期时间重新登记；已被处理或已删除的不再登记
+     */
+    private void rescheduleIfPending(Long applicationId) {
+        applicationRepository.findById(applicationId)
+                .filter(application -> application.getStatus() == ExchangeStatus.PENDING)
+                .filter(application -> application.getExpireTime() != null)
+                .ifPresent(application -> {
+                    long retryAt = Math.max(toEpochMillis(application.getExpireTime()),
+                            System.currentTimeMillis() + tickMs);
+                    log.debug("交换申请尚未到期，重新登记，申请ID：{}，到期毫秒数：{}", applicationId, retryAt);
+                    reschedule(applicationId, retryAt);
+                });
+    }
+
+    /**
+     * 重新登记到Redis有序集合与本地时间轮
+     */
+    private void reschedule(Long applicationId, long retryAt) {
+        try {
+            stringRedisTemplate.opsForZSet().add(redisKey, applicationId.toString(), retryAt);
+        } catch (Exception redisException) {
+            log.warn("重新登记交换申请到期任务失败，申请ID：{}，错误信息：{}",
+                    applicationId, redisException.getMessage());
+        }
+        timerWheel.schedule(applicationId, applicationId, retryAt);
+    }
+
+    /**
+     * 通过 ZREM 认领到期任务，Redis不可用时直接处理，由申请行锁保证只过期一次
+     * @return true表示由本节点处理
+     */
+    private boolean claim(Long applicationId) {
+        try {
+            Long removed = stringRedisTemplate.opsForZSet().remove(redisKey, applicationId.toString());
+            return removed != null && removed > 0;
+        } catch (Exception e) {
+            log.warn("认领到期交换申请失败，直接处理，申请ID：{}，错误信息：{}", applicationId, e.getMessage());
+            return true;
+        }
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        // 向后顺延1毫秒，保证触发时 isExpired() 判定已过期
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + 1;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
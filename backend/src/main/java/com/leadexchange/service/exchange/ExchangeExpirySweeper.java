@@ -0,0 +1,140 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.service.ExchangeEngineService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 交换申请过期清理任务
+ * 以 SELECT ... FOR UPDATE SKIP LOCKED 分批认领已过期的待处理申请，每批在独立事务中处理，
+ * 多个节点并行运行时各自认领互不重叠的批次。认领按过期时间排序，申请人ID无序，
+ * 因此认领后先按用户ID升序一次锁定本批全部申请人的积分，之后逐条解冻时均为重入。
+ * 某一批处理失败时退回逐条独立事务处理，
+ * 单条失败不影响同批其他申请。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ExchangeExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeExpirySweeper.class);
+
+    private static final String EXPIRE_REASON = "系统自动过期处理";
+
+    private final ExchangeApplicationRepository applicationRepository;
+    private final ExchangeEngineService exchangeEngineService;
+    private final CreditLockCoordinator creditLockCoordinator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.exchange.expiry.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${app.exchange.expiry.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+
+    /**
+     * 定时清理过期申请
+     */
+    @Scheduled(fixedDelayString = "${app.exchange.expiry.sweep-interval-ms:60000}",
+               initialDelayString = "${app.exchange.expiry.initial-delay-ms:30000}")
+    public void scheduledSweep() {
+        try {
+            int expiredCount = sweep();
+            if (expiredCount > 0) {
+                log.info("定时清理过期交换申请完成，处理数量：{}", expiredCount);
+            }
+        } catch (Exception e) {
+            log.error("定时清理过期交换申请失败：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 分批清理过期申请
+     * @return 本次处理的过期申请数量
+     */
+    public int sweep() {
+        int expiredCount = 0;
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            List<Long> claimedIds = new ArrayList<>(chunkSize);
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                Integer expired = transactionTemplate.execute(status -> expireChunk(now, claimedIds));
+                expiredCount += expired == null ? 0 : expired;
+            } catch (Exception e) {
+                log.warn("过期申请批次处理失败，改为逐条处理，申请ID：{}，错误信息：{}", claimedIds, e.getMessage());
+                expiredCount += expireIndividually(claimedIds, now);
+                // 失败的申请仍处于待处理状态，留给下一轮处理，避免本轮反复认领
+                break;
+            }
+            if (claimedIds.size() < chunkSize) {
+                break;
+            }
+        }
+        return expiredCount;
+    }
+
+    /**
+     * 在当前事务内认领并过期一批申请，认领后按用户ID升序锁定本批申请人的积分
+     */
+    private int expireChunk(LocalDateTime now, List<Long> claimedIds) {
+        List<ExchangeApplication> claimed = applicationRepository.claimExpiredApplications(now, chunkSize);
+        Set<Long> applicantIds = new HashSet<>();
+        for (ExchangeApplication application : claimed) {
+            claimedIds.add(application.getId());
+            if (application.getCreditDifference().compareTo(BigDecimal.ZERO) > 0) {
+                applicantIds.add(application.getApplicantId());
+            }
+        }
+        if (!applicantIds.isEmpty()) {
+            if (creditLockCoordinator.isOptimisticMode()) {
+                creditLockCoordinator.lockStripes(applicantIds);
+            } else {
+                creditLockCoordinator.lockCredits(applicantIds);
+            }
+        }
+        for (ExchangeApplication application : claimed) {
+            exchangeEngineService.expireApplication(application, EXPIRE_REASON);
+        }
+        return claimed.size();
+    }
+
+    /**
+     * 逐条在独立事务中过期申请
+     */
+    private int expireIndividually(List<Long> applicationIds, LocalDateTime now) {
+        int expiredCount = 0;
+        for (Long applicationId : applicationIds) {
+            try {
+                Boolean expired = transactionTemplate.execute(status ->
+                        applicationRepository.claimExpiredApplication(applicationId, now)
+                                .map(application -> {
+                                    exchangeEngineService.expireApplication(application, EXPIRE_REASON);
+                                    return true;
+                                })
+                                .orElse(false));
+                if (Boolean.TRUE.equals(expired)) {
+                    expiredCount++;
+                }
+            } catch (Exception e) {
+                log.error("处理过期申请失败，申请ID：{}，错误信息：{}", applicationId, e.getMessage(), e);
+            }
+        }
+        return expiredCount;
+    }
+}
@@ -0,0 +1,334 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeFeedEntry;
+import com.leadexchange.domain.exchange.ExchangeFeedRole;
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.user.User;
+import com.leadexchange.event.exchange.ExchangeApplicationEvent;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.repository.ExchangeFeedRepository;
+import com.leadexchange.repository.ExchangeOfferedLeadRepository;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.repository.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 用户交换动态服务（读模型）
+ * 交换申请事件在业务事务提交前投影到 exchange_feed：首次出现的申请为申请人和目标线索所有者各写入一行，
+ * 冗余双方名称和线索标题；之后的状态变化只按申请ID更新状态列。投影与申请状态变更同提交同回滚，
+ * 且在申请行锁内执行，同一申请的投影天然串行。
+ * 列表查询按 (user_id, role/finished, application_id) 索引游标分页，不再扫描申请表或回表补全名称。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class ExchangeFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeFeedService.class);
+
+    /**
+     * 单页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int MAX_TITLES_LENGTH = 1000;
+
+    private static final String TITLE_SEPARATOR = "、";
+
+    private final ExchangeFeedRepository feedRepository;
+    private final ExchangeApplicationRepository applicationRepository;
+    private final ExchangeOfferedLeadRepository offeredLeadRepository;
+    private final UserRepository userRepository;
+    private final LeadRepository leadRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.exchange.feed.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Value("${app.exchange.feed.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    /**
+     * 交换申请事件在事务提交前投影到交换动态
+     * @param event 交换申请事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onExchangeApplicationEvent(ExchangeApplicationEvent event) {
+        ExchangeApplication application = event.getExchangeApplication();
+        if (application == null || application.getId() == null) {
+            return;
+        }
+        project(application);
+    }
+
+    /**
+     * 投影交换申请：已有动态时更新状态，否则写入双方的动态
+     * @param application 交换申请
+     */
+    @Transactional
+    public void project(ExchangeApplication application) {
+        int updated = feedRepository.updateStatus(application.getId(), application.getStatus(),
+                application.getStatus().isFinalStatus(), application.getResponseMessage(), LocalDateTime.now());
+        if (updated == 0) {
+            feedRepository.saveAll(buildEntries(Collections.singletonList(application)));
+            log.debug("交换动态已创建，申请ID：{}", application.getId());
+        }
+    }
+
+    /**
+     * 获取申请的展示信息（双方名称和线索标题），优先读取已投影的动态
+     * @param application 交换申请
+     * @return 交换动态
+     */
+    @Transactional(readOnly = true)
+    public ExchangeFeedEntry describe(ExchangeApplication application) {
+        List<ExchangeFeedEntry> entries = feedRepository.findByApplicationId(application.getId());
+        if (!entries.isEmpty()) {
+            return entries.get(0);
+        }
+        return buildEntries(Collections.singletonList(application)).get(0);
+    }
+
+    /**
+     * 获取我发起的交换申请
+     * @param userId 用户ID
+     * @param lastApplicationId 上一页最后一条的申请ID，首页为null
+     * @param size 页大小
+     * @return 交换动态列表
+     */
+    @Transactional(readOnly = true)
+    public List<ExchangeFeedEntry> getSentApplications(Long userId, Long lastApplicationId, int size) {
+        return feedRepository.findByRoleBefore(userId, ExchangeFeedRole.SENT,
+                cursor(lastApplicationId), PageRequest.of(0, checkPageSize(size)));
+    }
+
+    /**
+     * 获取我收到的交换申请
+     * @param userId 用户ID
+     * @param lastApplicationId 上一页最后一条的申请ID，首页为null
+     * @param size 页大小
+     * @return 交换动态列表
+     */
+    @Transactional(readOnly = true)
+    public List<ExchangeFeedEntry> getReceivedApplications(Long userId, Long lastApplicationId, int size) {
+        return feedRepository.findByRoleBefore(userId, ExchangeFeedRole.RECEIVED,
+                cursor(lastApplicationId), PageRequest.of(0, checkPageSize(size)));
+    }
+
+    /**
+     * 获取交换历史（已结束的申请）
+     * @param userId 用户ID
+     * @param lastApplicationId 上一页最后一条的申请ID，首页为null
+     * @param size 页大小
+     * @return 交换动态列表
+     */
+    @Transactional(readOnly = true)
+    public List<ExchangeFeedEntry> getHistory(Long userId, Long lastApplicationId, int size) {
+        return feedRepository.findFinishedBefore(userId, cursor(lastApplicationId),
+                PageRequest.of(0, checkPageSize(size)));
+    }
+
+    /**
+     * 启动时为读模型上线前的申请补齐交换动态
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    /**
+     * 为尚无交换动态的申请补齐动态，按申请ID分批，每批一个事务
+     * @return 补齐的申请数量
+     */
+    public int backfill() {
+        long lastId = 0L;
+        int total = 0;
+        while (true) {
+            long afterId = lastId;
+            BackfillBatch batch = transactionTemplate.execute(status -> backfillBatch(afterId));
+            if (batch == null || batch.scanned == 0) {
+                break;
+            }
+            total += batch.created;
+            lastId = batch.lastId;
+            if (batch.scanned < backfillBatchSize) {
+                break;
+            }
+        }
+        log.info("交换动态补齐完成，补齐申请：{}个", total);
+        return total;
+    }
+
+    private BackfillBatch backfillBatch(long afterId) {
+        List<ExchangeApplication> applications = applicationRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId, PageRequest.of(0, backfillBatchSize));
+        if (applications.isEmpty()) {
+            return new BackfillBatch(0, 0, afterId);
+        }
+        Set<Long> existing = new HashSet<>(feedRepository.findExistingApplicationIds(
+                applications.stream().map(ExchangeApplication::getId).collect(Collectors.toList())));
+        List<ExchangeApplication> missing = applications.stream()
+                .filter(application -> !existing.contains(application.getId()))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            feedRepository.saveAll(buildEntries(missing));
+        }
+        return new BackfillBatch(applications.size(), missing.size(),
+                applications.get(applications.size() - 1).getId());
+    }
+
+    /**
+     * 为申请构建双方的交换动态，用户名称和线索标题各批量查询一次
+     */
+    private List<ExchangeFeedEntry> buildEntries(List<ExchangeApplication> applications) {
+        Map<Long, List<Long>> offeredLeadIds = new HashMap<>();
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> leadIds = new HashSet<>();
+        for (ExchangeApplication application : applications) {
+            List<Long> offered = resolveOfferedLeadIds(application);
+            offeredLeadIds.put(application.getId(), offered);
+            userIds.add(application.getApplicantId());
+            userIds.add(application.getTargetOwnerId());
+            leadIds.add(application.getTargetLeadId());
+            leadIds.addAll(offered);
+        }
+        userIds.remove(null);
+        leadIds.remove(null);
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, Lead> leads = leadRepository.findAllById(leadIds).stream()
+                .collect(Collectors.toMap(Lead::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ExchangeFeedEntry> entries = new ArrayList<>(applications.size() * 2);
+        for (ExchangeApplication application : applications) {
+            String applicantName = displayName(users.get(application.getApplicantId()));
+            String targetOwnerName = displayName(users.get(application.getTargetOwnerId()));
+            Lead targetLead = leads.get(application.getTargetLeadId());
+            String targetLeadTitle = targetLead != null ? targetLead.getTitle() : null;
+            String offeredTitles = joinTitles(offeredLeadIds.get(application.getId()), leads);
+
+            ExchangeFeedEntry sent = newEntry(application, applicantName, targetOwnerName,
+                    targetLeadTitle, offeredTitles, now);
+            sent.setUserId(application.getApplicantId());
+            sent.setRole(ExchangeFeedRole.SENT);
+            sent.setCounterpartyId(application.getTargetOwnerId());
+            sent.setCounterpartyName(targetOwnerName);
+            entries.add(sent);
+
+            ExchangeFeedEntry received = newEntry(application, applicantName, targetOwnerName,
+                    targetLeadTitle, offeredTitles, now);
+            received.setUserId(application.getTargetOwnerId());
+            received.setRole(ExchangeFeedRole.RECEIVED);
+            received.setCounterpartyId(application.getApplicantId());
+            received.setCounterpartyName(applicantName);
+            entries.add(received);
+        }
+        return entries;
+    }
+
+    private ExchangeFeedEntry newEntry(ExchangeApplication application, String applicantName, String targetOwnerName,
+                                       String targetLeadTitle, String offeredTitles, LocalDateTime now) {
+        ExchangeFeedEntry entry = new ExchangeFeedEntry();
+        entry.setApplicationId(application.getId());
+        entry.setApplicantName(applicantName);
+        entry.setTargetOwnerName(targetOwnerName);
+        entry.setTargetLeadId(application.getTargetLeadId());
+        entry.setTargetLeadTitle(targetLeadTitle);
+        entry.setOfferedLeadTitles(offeredTitles);
+        entry.setCreditDifference(application.getCreditDifference());
+        entry.setStatus(application.getStatus());
+        entry.setFinished(application.getStatus().isFinalStatus());
+        entry.setResponseMessage(application.getResponseMessage());
+        entry.setApplyTime(application.getCreateTime());
+        entry.setUpdateTime(now);
+        return entry;
+    }
+
+    private List<Long> resolveOfferedLeadIds(ExchangeApplication application) {
+        List<Long> leadIds = offeredLeadRepository.findLeadIdsByApplicationId(application.getId());
+        if (!leadIds.isEmpty() || !StringUtils.hasText(application.getOfferedLeadIds())) {
+            return leadIds;
+        }
+        // 关联表上线前提交的申请只有字符串字段
+        List<Long> parsed = new ArrayList<>();
+        for (String id : application.getOfferedLeadIds().replaceAll("[\\[\\]\\s]", "").split(",")) {
+            try {
+                if (!id.isEmpty()) {
+                    parsed.add(Long.parseLong(id));
+                }
+            } catch (NumberFormatException e) {
+                log.warn("忽略无法解析的提供线索ID，申请ID：{}，原始值：{}", application.getId(), id);
+            }
+        }
+        return parsed;
+    }
+
+    private String displayName(User user) {
+        if (user == null) {
+            return null;
+        }
+        return StringUtils.hasText(user.getRealName()) ? user.getRealName() : user.getUsername();
+    }
+
+    private String joinTitles(List<Long> leadIds, Map<Long, Lead> leads) {
+        if (leadIds == null || leadIds.isEmpty()) {
+            return null;
+        }
+        String titles = leadIds.stream()
+                .map(leads::get)
+                .filter(Objects::nonNull)
+                .map(Lead::getTitle)
+                .collect(Collectors.joining(TITLE_SEPARATOR));
+        return titles.length() > MAX_TITLES_LENGTH ? titles.substring(0, MAX_TITLES_LENGTH) : titles;
+    }
+
+    private long cursor(Long lastApplicationId) {
+        return lastApplicationId == null ? Long.MAX_VALUE : lastApplicationId;
+    }
+
+    private int checkPageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页大小必须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+        return size;
+    }
+
+    /**
+     * 补齐批次结果
+     */
+    private static final class BackfillBatch {
+
+        private final int scanned;
+        private final int created;
+        private final long lastId;
+
+        private BackfillBatch(int scanned, int created, long lastId) {
+            this.scanned = scanned;
+            this.created = created;
+            this.lastId = lastId;
+        }
+    }
+}
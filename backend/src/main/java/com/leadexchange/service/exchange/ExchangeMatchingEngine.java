@@ -0,0 +1,678 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeWant;
+import com.leadexchange.domain.exchange.ExchangeWantStatus;
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.event.exchange.ExchangeWantEvent;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.ExchangeWantRepository;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.util.ExchangeValueCalculator;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 交换撮合引擎
+ * 在内存中维护交换订单簿：供给为用户持有的可交换线索，按评级价值索引；需求为用户希望换入的线索条件，
+ * 按最低评级价值索引。以用户为节点，"A的某条供给满足B的某个需求"为A到B的边，
+ * 寻找包含变化节点的二元互换与三方环形交换。
+ * 撮合按事件增量进行：线索变化或需求变化只从相关节点出发搜索，不做周期性全量扫描；
+ * 启动时从数据库按ID游标分页恢复订单簿。撮合结果为交换建议，由用户据此发起交换申请。
+ * 事务提交后的事件监听只把变更投递到单线程撮合队列，订单簿维护与搜索在撮合线程上串行执行，不占用请求线程；
+ * 撮合结果按线索和需求建立索引，供给或需求移除、变更时作废依赖它们的撮合结果。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ExchangeMatchingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeMatchingEngine.class);
+
+    private final LeadRepository leadRepository;
+    private final ExchangeWantRepository wantRepository;
+    private final ExchangeValueCalculator valueCalculator;
+
+    @Value("${app.exchange.matching.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.exchange.matching.recovery-page-size:1000}")
+    private int recoveryPageSize;
+
+    @Value("${app.exchange.matching.max-candidates:200}")
+    private int maxCandidates;
+
+    @Value("${app.exchange.matching.max-matches-per-event:20}")
+    private int maxMatchesPerEvent;
+
+    @Value("${app.exchange.matching.max-matches-per-user:50}")
+    private int maxMatchesPerUser;
+
+    @Value("${app.exchange.matching.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 供给：线索ID -> 供给；按所有者、按价值索引
+    private final Map<Long, Offer> offers = new HashMap<>();
+    private final Map<Long, Set<Long>> offersByOwner = new HashMap<>();
+    private final NavigableMap<Integer, Set<Long>> offersByValue = new TreeMap<>();
+
+    // 需求：需求ID -> 需求；按用户、按最低价值索引
+    private final Map<Long, Want> wants = new HashMap<>();
+    private final Map<Long, Set<Long>> wantsByUser = new HashMap<>();
+    private final NavigableMap<Integer, Set<Long>> wantsByMinValue = new TreeMap<>();
+
+    // 每个用户最近的撮合结果
+    private final Map<Long, Deque<ExchangeMatch>> matchesByUser = new HashMap<>();
+
+    // 撮合结果按涉及的线索、需求索引，供给或需求移除时据此作废
+    private final Map<Long, Set<ExchangeMatch>> matchesByLead = new HashMap<>();
+    private final Map<Long, Set<ExchangeMatch>> matchesByWant = new HashMap<>();
+
+    private ThreadPoolExecutor matchExecutor;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        matchExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), namedThreadFactory("exchange-matching"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        matchExecutor.shutdownNow();
+    }
+
+    /**
+     * 启动时从数据库恢复订单簿
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!enabled) {
+            log.info("交换撮合引擎未启用");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int offerCount = 0;
+        int wantCount = 0;
+        try {
+            long lastId = 0L;
+            while (true) {
+                List<Lead> leads = leadRepository.findByStatusAfterId(LeadStatus.PUBLISHED, lastId,
+                        PageRequest.of(0, recoveryPageSize));
+                synchronized (this) {
+                    for (Lead lead : leads) {
+                        upsertOffer(lead);
+                    }
+                }
+                offerCount += leads.size();
+                if (leads.size() < recoveryPageSize) {
+                    break;
+                }
+                lastId = leads.get(leads.size() - 1).getId();
+            }
+
+            lastId = 0L;
+            while (true) {
+                List<ExchangeWant> page = wantRepository.findByStatusAfterId(ExchangeWantStatus.ACTIVE, lastId,
+                        PageRequest.of(0, recoveryPageSize));
+                synchronized (this) {
+                    for (ExchangeWant want : page) {
+                        upsertWant(want);
+                    }
+                }
+                wantCount += page.size();
+                if (page.size() < recoveryPageSize) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+            }
+            ready = true;
+            log.info("交换撮合引擎恢复完成，供给：{}，需求：{}，耗时：{}ms",
+                    offerCount, wantCount, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("交换撮合引擎恢复失败：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 线索变化后更新供给并增量撮合
+     * @param event 线索变更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLeadChanged(LeadChangeEvent event) {
+        if (!enabled || !ready) {
+            return;
+        }
+        submit(() -> applyLeadChange(event), event);
+    }
+
+    /**
+     * 需求变化后更新需求并增量撮合
+     * @param event 交换需求事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onWantChanged(ExchangeWantEvent event) {
+        if (!enabled || !ready) {
+            return;
+        }
+        submit(() -> applyWantChange(event), event);
+    }
+
+    /**
+     * 查询用户最近的撮合结果
+     * @param userId 用户ID
+     * @return 撮合结果，最新的在前
+     */
+    public synchronized List<ExchangeMatch> getMatches(Long userId) {
+        Deque<ExchangeMatch> matches = matchesByUser.get(userId);
+        return matches == null ? Collections.emptyList() : new ArrayList<>(matches);
+    }
+
+    /**
+     * 投递到撮合线程；队列已满时丢弃，撮合结果只是建议，后续变更会再次触发撮合
+     */
+    private void submit(Runnable task, Object event) {
+        try {
+            matchExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("撮合队列已满，丢弃事件：{}", event);
+        }
+    }
+
+    private void applyLeadChange(LeadChangeEvent event) {
+        try {
+            List<Lead> leads = leadRepository.findAllById(event.getLeadIds());
+            Set<Long> foundIds = new HashSet<>();
+            synchronized (this) {
+                for (Lead lead : leads) {
+                    foundIds.add(lead.getId());
+                    Offer offer = upsertOffer(lead);
+                    if (offer != null) {
+                        matchFromOffer(offer);
+                    }
+                }
+                for (Long leadId : event.getLeadIds()) {
+                    if (!foundIds.contains(leadId)) {
+                        removeOffer(leadId);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理线索变更撮合失败，事件：{}，错误信息：{}", event, e.getMessage(), e);
+        }
+    }
+
+    private void applyWantChange(ExchangeWantEvent event) {
+        try {
+            synchronized (this) {
+                Want want = upsertWant(event.getWant());
+                if (want != null) {
+                    matchFromWant(want);
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理需求变更撮合失败，事件：{}，错误信息：{}", event, e.getMessage(), e);
+        }
+    }
+
+    // ==================== 订单簿维护 ====================
+
+    /**
+     * 更新供给，线索不可交换时移除
+     * @return 更新后的供给，已移除时返回null
+     */
+    private Offer upsertOffer(Lead lead) {
+        removeOffer(lead.getId());
+        if ((lead.getDeleted() != null && lead.getDeleted() == 1) || !lead.isExchangeable()
+                || lead.getOwnerId() == null || lead.getRating() == null) {
+            return null;
+        }
+        Offer offer = new Offer(lead.getId(), lead.getOwnerId(), valueCalculator.getRatingValue(lead.getRating()),
+                lead.getIndustryDirection(), lead.getIntendedRegion());
+        offers.put(offer.leadId, offer);
+        offersByOwner.computeIfAbsent(offer.ownerId, k -> new LinkedHashSet<>()).add(offer.leadId);
+        offersByValue.computeIfAbsent(offer.value, k -> new LinkedHashSet<>()).add(offer.leadId);
+        return offer;
+    }
+
+    private void removeOffer(Long leadId) {
+        Offer offer = offers.remove(leadId);
+        if (offer == null) {
+            return;
+        }
+        removeIndexed(offersByOwner, offer.ownerId, leadId);
+        removeIndexed(offersByValue, offer.value, leadId);
+        invalidate(matchesByLead.remove(leadId));
+    }
+
+    /**
+     * 更新需求，需求失效时移除
+     * @return 更新后的需求，已移除时返回null
+     */
+    private Want upsertWant(ExchangeWant exchangeWant) {
+        removeWant(exchangeWant.getId());
+        if (!exchangeWant.isActive()) {
+            return null;
+        }
+        Want want = new Want(exchangeWant.getId(), exchangeWant.getUserId(),
+                valueCalculator.getRatingValue(exchangeWant.getMinRating()),
+                exchangeWant.getIndustryDirection(), exchangeWant.getIntendedRegion());
+        wants.put(want.wantId, want);
+        wantsByUser.computeIfAbsent(want.userId, k -> new LinkedHashSet<>()).add(want.wantId);
+        wantsByMinValue.computeIfAbsent(want.minValue, k -> new LinkedHashSet<>()).add(want.wantId);
+        return want;
+    }
+
+    private void removeWant(Long wantId) {
+        Want want = wants.remove(wantId);
+        if (want == null) {
+            return;
+        }
+        removeIndexed(wantsByUser, want.userId, wantId);
+        removeIndexed(wantsByMinValue, want.minValue, wantId);
+        invalidate(matchesByWant.remove(wantId));
+    }
+
+    private <K, V> void removeIndexed(Map<K, Set<V>> index, K key, V value) {
+        Set<V> values = index.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 作废依赖已移除供给或需求的撮合结果，从所有参与用户的结果中删除
+     */
+    private void invalidate(Set<ExchangeMatch> dependents) {
+        if (dependents == null) {
+            return;
+        }
+        for (ExchangeMatch match : new ArrayList<>(dependents)) {
+            for (Leg leg : match.getLegs()) {
+                Deque<ExchangeMatch> matches = matchesByUser.get(leg.giverId);
+                if (matches != null) {
+                    matches.remove(match);
+                    if (matches.isEmpty()) {
+                        matchesByUser.remove(leg.giverId);
+                    }
+                }
+            }
+            unindexMatch(match);
+            log.debug("撮合结果已作废，线索：{}", match.getMatchKey());
+        }
+    }
+
+    private void indexMatch(ExchangeMatch match) {
+        for (Leg leg : match.getLegs()) {
+            matchesByLead.computeIfAbsent(leg.leadId, k -> new HashSet<>()).add(match);
+            matchesByWant.computeIfAbsent(leg.wantId, k -> new HashSet<>()).add(match);
+        }
+    }
+
+    private void unindexMatch(ExchangeMatch match) {
+        for (Leg leg : match.getLegs()) {
+            removeIndexed(matchesByLead, leg.leadId, match);
+            removeIndexed(matchesByWant, leg.wantId, match);
+        }
+    }
+
+    private boolean isHeld(ExchangeMatch match) {
+        for (Leg leg : match.getLegs()) {
+            Deque<ExchangeMatch> matches = matchesByUser.get(leg.giverId);
+            if (matches != null && matches.contains(match)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== 撮合 ====================
+
+    /**
+     * 从新供给出发撮合：供给所有者u把线索给v，再寻找v到u（二元）或v到x到u（三方）的回路
+     */
+    private void matchFromOffer(Offer offer) {
+        Long owner = offer.ownerId;
+        int found = 0;
+        for (Want want : wantsSatisfiedBy(offer)) {
+            if (found >= maxMatchesPerEvent) {
+                return;
+            }
+            Leg first = new Leg(owner, want.userId, offer.leadId, want.wantId);
+            found += closeCycle(first);
+        }
+    }
+
+    /**
+     * 从新需求出发撮合：某个供给者v把线索给需求用户u，再寻找u到v（二元）或u到x到v（三方）的回路
+     */
+    private void matchFromWant(Want want) {
+        int found = 0;
+        for (Offer offer : offersSatisfying(want)) {
+            if (found >= maxMatchesPerEvent) {
+                return;
+            }
+            Leg first = new Leg(offer.ownerId, want.userId, offer.leadId, want.wantId);
+            found += closeCycle(first);
+        }
+    }
+
+    /**
+     * 以给定的一条边为起点闭合回路，优先二元互换
+     * @return 找到的撮合数量
+     */
+    private int closeCycle(Leg first) {
+        Long giver = first.giverId;
+        Long receiver = first.receiverId;
+
+        Leg back = findLeg(receiver, giver, Collections.singleton(first.leadId));
+        if (back != null) {
+            return record(new ExchangeMatch(List.of(first, back))) ? 1 : 0;
+        }
+
+        // 三方：receiver -> middle -> giver
+        Set<Long> usedLeads = new HashSet<>();
+        usedLeads.add(first.leadId);
+        for (Long middle : receiversOf(receiver)) {
+            if (middle.equals(giver) || middle.equals(receiver)) {
+                continue;
+            }
+            Leg second = findLeg(receiver, middle, usedLeads);
+            if (second == null) {
+                continue;
+            }
+            usedLeads.add(second.leadId);
+            Leg third = findLeg(middle, giver, usedLeads);
+            if (third != null) {
+                return record(new ExchangeMatch(List.of(first, second, third))) ? 1 : 0;
+            }
+            usedLeads.remove(second.leadId);
+        }
+        return 0;
+    }
+
+    /**
+     * 寻找giver的某条供给满足receiver的某个需求
+     */
+    private Leg findLeg(Long giver, Long receiver, Set<Long> excludedLeads) {
+        Set<Long> receiverWants = wantsByUser.get(receiver);
+        Set<Long> giverOffers = offersByOwner.get(giver);
+        if (receiverWants == null || giverOffers == null) {
+            return null;
+        }
+        for (Long wantId : receiverWants) {
+            Want want = wants.get(wantId);
+            for (Long leadId : giverOffers) {
+                if (excludedLeads.contains(leadId)) {
+                    continue;
+                }
+                if (satisfies(offers.get(leadId), want)) {
+                    return new Leg(giver, receiver, leadId, wantId);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用户的供给能满足其需求的其他用户，数量受候选上限约束
+     */
+    private Set<Long> receiversOf(Long giver) {
+        Set<Long> receivers = new LinkedHashSet<>();
+        Set<Long> giverOffers = offersByOwner.get(giver);
+        if (giverOffers == null) {
+            return receivers;
+        }
+        for (Long leadId : giverOffers) {
+            for (Want want : wantsSatisfiedBy(offers.get(leadId))) {
+                receivers.add(want.userId);
+                if (receivers.size() >= maxCandidates) {
+                    return receivers;
+                }
+            }
+        }
+        return receivers;
+    }
+
+    /**
+     * 供给能满足的需求：只遍历最低价值不高于供给价值的需求
+     */
+    private List<Want> wantsSatisfiedBy(Offer offer) {
+        List<Want> result = new ArrayList<>();
+        for (Set<Long> wantIds : wantsByMinValue.headMap(offer.value, true).values()) {
+            for (Long wantId : wantIds) {
+                Want want = wants.get(wantId);
+                if (satisfies(offer, want)) {
+                    result.add(want);
+                    if (result.size() >= maxCandidates) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 满足需求的供给：只遍历价值不低于需求最低价值的供给
+     */
+    private List<Offer> offersSatisfying(Want want) {
+        List<Offer> result = new ArrayList<>();
+        for (Set<Long> leadIds : offersByValue.tailMap(want.minValue, true).values()) {
+            for (Long leadId : leadIds) {
+                Offer offer = offers.get(leadId);
+                if (satisfies(offer, want)) {
+                    result.add(offer);
+                    if (result.size() >= maxCandidates) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean satisfies(Offer offer, Want want) {
+        return !offer.ownerId.equals(want.userId)
+                && offer.value >= want.minValue
+                && (want.industry == null || want.industry.equals(offer.industry))
+                && (want.region == null || want.region.equals(offer.region));
+    }
+
+    /**
+     * 记录撮合结果，同一组线索只记录一次
+     * @return true表示新的撮合结果
+     */
+    private boolean record(ExchangeMatch match) {
+        for (Leg leg : match.getLegs()) {
+            Deque<ExchangeMatch> matches = matchesByUser.get(leg.giverId);
+            if (matches != null) {
+                for (ExchangeMatch existing : matches) {
+                    if (existing.getMatchKey().equals(match.getMatchKey())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        indexMatch(match);
+        for (Leg leg : match.getLegs()) {
+            Deque<ExchangeMatch> matches = matchesByUser.computeIfAbsent(leg.giverId, k -> new ArrayDeque<>());
+            matches.addFirst(match);
+            while (matches.size() > maxMatchesPerUser) {
+                ExchangeMatch evicted = matches.removeLast();
+                if (!isHeld(evicted)) {
+                    unindexMatch(evicted);
+                }
+            }
+        }
+        log.info("撮合到{}方交换，线索：{}", match.getLegs().size(), match.getMatchKey());
+        return true;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 供给
+     */
+    private static final class Offer {
+
+        private final Long leadId;
+        private final Long ownerId;
+        private final int value;
+        private final String industry;
+        private final String region;
+
+        private Offer(Long leadId, Long ownerId, int value, String industry, String region) {
+            this.leadId = leadId;
+            this.ownerId = ownerId;
+            this.value = value;
+            this.industry = industry;
+            this.region = region;
+        }
+    }
+
+    /**
+     * 需求
+     */
+    private static final class Want {
+
+        private final Long wantId;
+        private final Long userId;
+        private final int minValue;
+        private final String industry;
+        private final String region;
+
+        private Want(Long wantId, Long userId, int minValue, String industry, String region) {
+            this.wantId = wantId;
+            this.userId = userId;
+            this.minValue = minValue;
+            this.industry = industry;
+            this.region = region;
+        }
+    }
+
+    /**
+     * 撮合中的一条边：giver把线索交给receiver，满足receiver的某个需求
+     */
+    public static class Leg {
+
+        private final Long giverId;
+        private final Long receiverId;
+        private final Long leadId;
+        private final Long wantId;
+
+        public Leg(Long giverId, Long receiverId, Long leadId, Long wantId) {
+            this.giverId = giverId;
+            this.receiverId = receiverId;
+            this.leadId = leadId;
+            this.wantId = wantId;
+        }
+
+        public Long getGiverId() {
+            return giverId;
+        }
+
+        public Long getReceiverId() {
+            return receiverId;
+        }
+
+        public Long getLeadId() {
+            return leadId;
+        }
+
+        public Long getWantId() {
+            return wantId;
+        }
+    }
+
+    /**
+     * 撮合结果：首尾相接的交换回路
+     */
+    public static class ExchangeMatch {
+
+        private final List<Leg> legs;
+        private final String matchKey;
+        private final LocalDateTime matchTime;
+
+        public ExchangeMatch(List<Leg> legs) {
+            this.legs = legs;
+            Set<Long> leadIds = new TreeSet<>();
+            for (Leg leg : legs) {
+                leadIds.add(leg.getLeadId());
+            }
+            this.matchKey = leadIds.toString();
+            this.matchTime = LocalDateTime.now();
+        }
+
+        public List<Leg> getLegs() {
+            return legs;
+        }
+
+        public String getMatchKey() {
+            return matchKey;
+        }
+
+        public LocalDateTime getMatchTime() {
+            return matchTime;
+        }
+
+        /**
+         * 判断用户是否参与此撮合
+         * @param userId 用户ID
+         * @return true表示参与
+         */
+        public boolean involves(Long userId) {
+            for (Leg leg : legs) {
+                if (Objects.equals(leg.getGiverId(), userId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
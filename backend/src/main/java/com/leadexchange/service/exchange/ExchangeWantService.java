@@ -0,0 +1,106 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeWant;
+import com.leadexchange.domain.exchange.ExchangeWantStatus;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.event.exchange.ExchangeWantEvent;
+import com.leadexchange.repository.ExchangeWantRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * 交换需求服务
+ * 管理用户希望换入的线索条件，需求变化通过事件通知撮合引擎
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class ExchangeWantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeWantService.class);
+
+    private final ExchangeWantRepository wantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.exchange.matching.max-wants-per-user:20}")
+    private int maxWantsPerUser;
+
+    /**
+     * 创建交换需求
+     * @param userId 用户ID
+     * @param minRating 最低评级
+     * @param industryDirection 行业方向，为空表示不限
+     * @param intendedRegion 意向区域，为空表示不限
+     * @return 交换需求
+     */
+    @Transactional
+    public ExchangeWant createWant(Long userId, LeadRating minRating, String industryDirection,
+                                   String intendedRegion) {
+        if (userId == null) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        if (minRating == null) {
+            throw new IllegalArgumentException("最低评级不能为空");
+        }
+        List<ExchangeWant> activeWants = wantRepository.findByUserIdAndStatusOrderByIdDesc(
+                userId, ExchangeWantStatus.ACTIVE);
+        if (activeWants.size() >= maxWantsPerUser) {
+            throw new IllegalStateException("生效中的交换需求不能超过" + maxWantsPerUser + "个");
+        }
+
+        ExchangeWant want = new ExchangeWant();
+        want.setUserId(userId);
+        want.setMinRating(minRating);
+        want.setIndustryDirection(StringUtils.hasText(industryDirection) ? industryDirection.trim() : null);
+        want.setIntendedRegion(StringUtils.hasText(intendedRegion) ? intendedRegion.trim() : null);
+        want = wantRepository.save(want);
+
+        eventPublisher.publishEvent(new ExchangeWantEvent(this, want));
+        log.info("交换需求创建成功，需求ID：{}，用户ID：{}，最低评级：{}", want.getId(), userId, minRating);
+        return want;
+    }
+
+    /**
+     * 取消交换需求
+     * @param userId 用户ID
+     * @param wantId 需求ID
+     * @return 交换需求
+     */
+    @Transactional
+    public ExchangeWant cancelWant(Long userId, Long wantId) {
+        ExchangeWant want = wantRepository.findById(wantId)
+                .orElseThrow(() -> new IllegalArgumentException("交换需求不存在，ID：" + wantId));
+        if (!want.getUserId().equals(userId)) {
+            throw new IllegalStateException("只能取消自己的交换需求");
+        }
+        if (!want.isActive()) {
+            return want;
+        }
+        want.cancel();
+        want = wantRepository.save(want);
+
+        eventPublisher.publishEvent(new ExchangeWantEvent(this, want));
+        log.info("交换需求已取消，需求ID：{}，用户ID：{}", wantId, userId);
+        return want;
+    }
+
+    /**
+     * 查询用户生效中的交换需求
+     * @param userId 用户ID
+     * @return 需求列表
+     */
+    @Transactional(readOnly = true)
+    public List<ExchangeWant> getActiveWants(Long userId) {
+        return wantRepository.findByUserIdAndStatusOrderByIdDesc(userId, ExchangeWantStatus.ACTIVE);
+    }
+}
@@ -0,0 +1,294 @@
+package com.leadexchange.service.exchange;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.common.result.ResultCode;
+import com.leadexchange.domain.exchange.IdempotencyRecord;
+import com.leadexchange.repository.IdempotencyRecordRepository;
+import com.leadexchange.util.BloomFilter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求服务
+ * 为带 Idempotency-Key 的写请求保证同一用户同一幂等键只执行一次，重试时直接返回首次执行的响应：
+ * 本地布隆过滤器判定键一定未出现时跳过查询直接认领；可能出现时依次查询Redis缓存和数据库记录；
+ * 认领时插入处理中记录并独立提交，唯一索引兜底并发重试；业务执行与完成标记在同一事务提交，
+ * 因此处理中的记录超时未完成即说明业务未提交，可以重新认领。重新认领会递增认领令牌，完成标记须持有当前令牌，
+ * 仍在运行的原执行者完成时发现令牌已变，整个业务事务回滚，同一请求不会被执行两次。
+ * 业务失败时释放幂等键（同样须持有当前令牌），允许客户端重试。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final String CACHE_KEY_PREFIX = "idempotency:";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.exchange.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${app.exchange.idempotency.in-progress-timeout-ms:60000}")
+    private long inProgressTimeoutMs;
+
+    @Value("${app.exchange.idempotency.bloom.expected-insertions:1000000}")
+    private long bloomExpectedInsertions;
+
+    @Value("${app.exchange.idempotency.bloom.false-positive-rate:0.01}")
+    private double bloomFalsePositiveRate;
+
+    private TransactionTemplate requiresNewTemplate;
+    private TransactionTemplate requiredTemplate;
+
+    // 两代布隆过滤器轮换，定期丢弃较旧的一代，避免误判率随时间增长
+    private volatile BloomFilter currentBloom;
+    private volatile BloomFilter previousBloom;
+
+    @PostConstruct
+    public void init() {
+        requiresNewTemplate = new TransactionTemplate(transactionManager);
+        requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiredTemplate = new TransactionTemplate(transactionManager);
+        requiredTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+        currentBloom = newBloom();
+        previousBloom = newBloom();
+    }
+
+    /**
+     * 幂等执行写请求
+     * @param userId 用户ID
+     * @param idempotencyKey 幂等键，为空时直接执行
+     * @param operation 操作名称
+     * @param request 请求参数，用于计算指纹
+     * @param responseType 响应类型
+     * @param action 业务操作
+     * @param <T> 响应类型
+     * @return 业务响应，重试时为首次执行的响应
+     */
+    public <T> T execute(Long userId, String idempotencyKey, String operation, Object request,
+                         Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
+            return action.get();
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "Idempotency-Key长度不能超过" + MAX_KEY_LENGTH);
+        }
+
+        String fingerprint = fingerprint(operation, request);
+        String cacheKey = CACHE_KEY_PREFIX + userId + ":" + key;
+
+        if (mightContain(cacheKey)) {
+            Optional<T> cached = findCachedResponse(cacheKey, fingerprint, responseType);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        IdempotencyRecord record = claim(userId, key, operation, fingerprint, cacheKey);
+        if (record.isCompleted()) {
+            return readResponse(record.getResponseBody(), responseType);
+        }
+
+        String[] responseBody = new String[1];
+        T response;
+        try {
+            response = requiredTemplate.execute(status -> {
+                T result = action.get();
+                responseBody[0] = writeResponse(result);
+                int completed = recordRepository.markCompleted(record.getId(), record.getClaimToken(),
+                        responseBody[0], LocalDateTime.now());
+                if (completed != 1) {
+                    // 处理超时已被其他请求重新认领，回滚本次业务
+                    throw new BusinessException(ResultCode.CONFLICT, "请求处理超时已被重新执行，请稍后重试");
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            release(record);
+            throw e;
+        }
+
+        cacheResponse(cacheKey, fingerprint, responseBody[0]);
+        return response;
+    }
+
+    /**
+     * 定时删除过期的幂等记录
+     */
+    @Scheduled(fixedDelayString = "${app.exchange.idempotency.cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        try {
+            Integer deleted = requiresNewTemplate.execute(status ->
+                    recordRepository.deleteExpired(LocalDateTime.now()));
+            if (deleted != null && deleted > 0) {
+                log.info("清理过期幂等记录完成，删除数量：{}", deleted);
+            }
+        } catch (Exception e) {
+            log.error("清理过期幂等记录失败：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 定期轮换布隆过滤器，轮换间隔不应小于记录有效期
+     */
+    @Scheduled(fixedDelayString = "${app.exchange.idempotency.bloom.rotate-interval-ms:86400000}",
+               initialDelayString = "${app.exchange.idempotency.bloom.rotate-interval-ms:86400000}")
+    public void rotateBloomFilter() {
+        previousBloom = currentBloom;
+        currentBloom = newBloom();
+    }
+
+    /**
+     * 认领幂等键，已被认领时返回已有记录或抛出冲突
+     */
+    private IdempotencyRecord claim(Long userId, String key, String operation, String fingerprint,
+                                    String cacheKey) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord candidate = new IdempotencyRecord(userId, key, operation, fingerprint,
+                now.plusHours(ttlHours));
+        try {
+            IdempotencyRecord claimed = requiresNewTemplate.execute(status -> recordRepository.saveAndFlush(candidate));
+            currentBloom.put(cacheKey);
+            return claimed;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("幂等键已存在，用户ID：{}，幂等键：{}", userId, key);
+        }
+
+        currentBloom.put(cacheKey);
+        IdempotencyRecord existing = requiresNewTemplate.execute(status ->
+                recordRepository.findByUserIdAndIdempotencyKey(userId, key).orElse(null));
+        if (existing == null) {
+            // 已有记录在查询前被释放或清理，让客户端重试
+            throw new BusinessException(ResultCode.CONFLICT, "请求正在处理中，请稍后重试");
+        }
+        if (!existing.matches(fingerprint)) {
+            throw new BusinessException(ResultCode.CONFLICT, "Idempotency-Key已用于不同的请求");
+        }
+        if (existing.isCompleted()) {
+            cacheResponse(cacheKey, fingerprint, existing.getResponseBody());
+            return existing;
+        }
+
+        LocalDateTime staleBefore = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(inProgressTimeoutMs));
+        Integer reclaimed = requiresNewTemplate.execute(status -> recordRepository.reclaimStale(existing.getId(),
+                fingerprint, existing.getClaimToken(), staleBefore, LocalDateTime.now()));
+        if (reclaimed != null && reclaimed == 1) {
+            log.warn("重新认领超时未完成的幂等请求，用户ID：{}，幂等键：{}", userId, key);
+            existing.setClaimToken(existing.getClaimToken() + 1);
+            return existing;
+        }
+        throw new BusinessException(ResultCode.CONFLICT, "请求正在处理中，请稍后重试");
+    }
+
+    /**
+     * 业务失败后释放幂等键
+     */
+    private void release(IdempotencyRecord record) {
+        try {
+            requiresNewTemplate.execute(status ->
+                    recordRepository.deleteInProgress(record.getId(), record.getClaimToken()));
+        } catch (Exception e) {
+            log.warn("释放幂等键失败，记录ID：{}，错误信息：{}", record.getId(), e.getMessage());
+        }
+    }
+
+    private <T> Optional<T> findCachedResponse(String cacheKey, String fingerprint, Class<T> responseType) {
+        String cached;
+        try {
+            cached = stringRedisTemplate.opsForValue().get(cacheKey);
+        } catch (Exception e) {
+            log.warn("读取幂等响应缓存失败，缓存键：{}，错误信息：{}", cacheKey, e.getMessage());
+            return Optional.empty();
+        }
+        if (cached == null) {
+            return Optional.empty();
+        }
+        // 缓存格式：指纹 + 换行 + 响应JSON
+        int separator = cached.indexOf('\n');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        if (!cached.substring(0, separator).equals(fingerprint)) {
+            throw new BusinessException(ResultCode.CONFLICT, "Idempotency-Key已用于不同的请求");
+        }
+        return Optional.ofNullable(readResponse(cached.substring(separator + 1), responseType));
+    }
+
+    private void cacheResponse(String cacheKey, String fingerprint, String responseBody) {
+        try {
+            stringRedisTemplate.opsForValue().set(cacheKey, fingerprint + "\n" + responseBody, ttlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("写入幂等响应缓存失败，缓存键：{}，错误信息：{}", cacheKey, e.getMessage());
+        }
+    }
+
+    private boolean mightContain(String cacheKey) {
+        return currentBloom.mightContain(cacheKey) || previousBloom.mightContain(cacheKey);
+    }
+
+    private BloomFilter newBloom() {
+        return new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("计算请求指纹失败", e);
+        }
+    }
+
+    private String writeResponse(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化幂等响应失败", e);
+        }
+    }
+
+    private <T> T readResponse(String body, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("反序列化幂等响应失败", e);
+        }
+    }
+}
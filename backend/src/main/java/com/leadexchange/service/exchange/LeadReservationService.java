@@ -0,0 +1,120 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.LeadReservation;
+import com.leadexchange.domain.exchange.LeadReservationRole;
+import com.leadexchange.repository.LeadReservationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 线索预留服务
+ * 交换申请提交时独占预留提供的线索、共享预留目标线索，防止同一线索同时在多个申请中提供，
+ * 或在交换进行中被其他申请转走。提交前先按独占索引查询做廉价的冲突预检，
+ * 写入时由唯一索引兜底并发提交的竞争。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class LeadReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeadReservationService.class);
+
+    private final LeadReservationRepository reservationRepository;
+
+    /**
+     * 预检线索是否可以用于新的交换申请
+     * @param targetLeadId 目标线索ID
+     * @param offeredLeadIds 提供的线索ID列表
+     */
+    @Transactional(readOnly = true)
+    public void checkAvailable(Long targetLeadId, Collection<Long> offeredLeadIds) {
+        List<Long> leadIds = new ArrayList<>(offeredLeadIds);
+        leadIds.add(targetLeadId);
+        List<LeadReservation> conflicts = reservationRepository.findByExclusiveLeadIdIn(leadIds);
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("线索已在其他待处理的交换申请中提供，线索ID：" + leadIdsOf(conflicts));
+        }
+    }
+
+    /**
+     * 为交换申请预留线索
+     * @param applicationId 申请ID
+     * @param targetLeadId 目标线索ID
+     * @param offeredLeadIds 提供的线索ID列表
+     */
+    @Transactional
+    public void reserve(Long applicationId, Long targetLeadId, Collection<Long> offeredLeadIds) {
+        List<LeadReservation> reservations = new ArrayList<>(offeredLeadIds.size() + 1);
+        reservations.add(new LeadReservation(targetLeadId, applicationId, LeadReservationRole.TARGET));
+        for (Long leadId : offeredLeadIds) {
+            reservations.add(new LeadReservation(leadId, applicationId, LeadReservationRole.OFFERED));
+        }
+        try {
+            reservationRepository.saveAll(reservations);
+            // 立即写入，使唯一索引冲突在此处暴露
+            reservationRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("线索预留冲突，申请ID：{}，提供线索：{}", applicationId, offeredLeadIds);
+            throw new IllegalStateException("线索已在其他待处理的交换申请中提供，线索ID：" + offeredLeadIds, e);
+        }
+    }
+
+    /**
+     * 校验目标线索未被其他申请独占预留，审核通过前调用
+     * @param applicationId 当前申请ID
+     * @param targetLeadId 目标线索ID
+     */
+    @Transactional(readOnly = true)
+    public void checkTargetNotOffered(Long applicationId, Long targetLeadId) {
+        List<LeadReservation> conflicts = reservationRepository.findByExclusiveLeadIdIn(
+                Collections.singletonList(targetLeadId));
+        for (LeadReservation conflict : conflicts) {
+            if (!conflict.getApplicationId().equals(applicationId)) {
+                throw new IllegalStateException("目标线索已在其他交换申请中提供，申请ID：" + conflict.getApplicationId());
+            }
+        }
+    }
+
+    /**
+     * 校验线索未被待处理的交换申请预留，编辑或删除线索前调用
+     * 作为提供线索或目标线索参与交换的线索，内容与估值须保持到申请处理完毕
+     * @param leadId 线索ID
+     */
+    @Transactional(readOnly = true)
+    public void checkNotReserved(Long leadId) {
+        List<LeadReservation> reservations = reservationRepository.findByLeadId(leadId);
+        if (!reservations.isEmpty()) {
+            List<Long> applicationIds = reservations.stream()
+                    .map(LeadReservation::getApplicationId)
+                    .distinct()
+                    .collect(Collectors.toList());
+            throw new IllegalStateException("线索正在待处理的交换申请中，不能修改或删除，申请ID：" + applicationIds);
+        }
+    }
+
+    /**
+     * 释放交换申请的全部预留
+     * @param applicationId 申请ID
+     */
+    @Transactional
+    public void release(Long applicationId) {
+        int released = reservationRepository.deleteByApplicationId(applicationId);
+        log.debug("释放线索预留，申请ID：{}，数量：{}", applicationId, released);
+    }
+
+    private List<Long> leadIdsOf(List<LeadReservation> reservations) {
+        return reservations.stream().map(LeadReservation::getLeadId).collect(Collectors.toList());
+    }
+}
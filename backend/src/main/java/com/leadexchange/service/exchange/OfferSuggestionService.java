@@ -0,0 +1,279 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.event.exchange.ExchangeApplicationEvent;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.util.ExchangeValueCalculator;
+import com.leadexchange.util.OfferSetOptimizer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 交换线索组合建议服务
+ * 为目标线索从用户可用线索中选出总价值最接近目标价值、线索数量最少的组合。
+ * 用户可用线索按价值档位缓存为直方图（每档的线索ID），线索或交换申请变化后失效，
+ * 计算时只在档位上做有界背包，耗时与用户线索总数无关。
+ * 建议结果仅供参考，提交申请时仍以交换申请的完整校验为准。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class OfferSuggestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(OfferSuggestionService.class);
+
+    private final LeadRepository leadRepository;
+    private final ExchangeValueCalculator valueCalculator;
+
+    @Value("${app.exchange.suggestion.cache-ttl-ms:300000}")
+    private long cacheTtlMs;
+
+    @Value("${app.exchange.suggestion.cache-max-users:10000}")
+    private int cacheMaxUsers;
+
+    private Map<Long, ValueHistogram> histogramCache;
+
+    // 已缓存线索的所有者，线索所有权变化后用于失效原所有者的缓存
+    private final Map<Long, Long> cachedLeadOwners = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        histogramCache = Collections.synchronizedMap(new LinkedHashMap<Long, ValueHistogram>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ValueHistogram> eldest) {
+                if (size() > cacheMaxUsers) {
+                    forgetLeadOwners(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * 为目标线索推荐提供线索组合
+     * @param userId 用户ID
+     * @param targetLeadId 目标线索ID
+     * @return 组合建议，用户没有可用线索时提供线索列表为空
+     */
+    @Transactional(readOnly = true)
+    public OfferSuggestion suggestOffer(Long userId, Long targetLeadId) {
+        if (userId == null || targetLeadId == null) {
+            throw new IllegalArgumentException("用户ID和目标线索ID不能为空");
+        }
+        Lead targetLead = leadRepository.findById(targetLeadId)
+                .orElseThrow(() -> new IllegalArgumentException("目标线索不存在，ID：" + targetLeadId));
+        if (!targetLead.isExchangeable()) {
+            throw new IllegalStateException("目标线索不可交换，当前状态：" + targetLead.getStatus());
+        }
+        if (userId.equals(targetLead.getOwnerId())) {
+            throw new IllegalArgumentException("不能交换自己的线索");
+        }
+        int targetValue = valueCalculator.getRatingValue(targetLead.getRating());
+        if (targetValue <= 0) {
+            throw new IllegalStateException("目标线索未评级，无法计算交换价值");
+        }
+
+        ValueHistogram histogram = getHistogram(userId);
+        OfferSetOptimizer.Solution solution = OfferSetOptimizer.optimize(
+                histogram.values, histogram.counts(), targetValue);
+        if (solution == null) {
+            return new OfferSuggestion(targetLeadId, targetValue, Collections.emptyList(), 0,
+                    -targetValue, histogram.total);
+        }
+
+        int[] takes = solution.getCounts();
+        List<Long> offeredLeadIds = new ArrayList<>(solution.getLeadCount());
+        for (int i = 0; i < takes.length; i++) {
+            offeredLeadIds.addAll(histogram.leadIds.get(i).subList(0, takes[i]));
+        }
+        log.debug("线索组合建议，用户ID：{}，目标线索：{}，目标价值：{}，建议线索：{}，价值差额：{}",
+                userId, targetLeadId, targetValue, offeredLeadIds, solution.getDifference());
+        return new OfferSuggestion(targetLeadId, targetValue, offeredLeadIds, solution.getTotalValue(),
+                solution.getDifference(), histogram.total);
+    }
+
+    /**
+     * 线索变化后失效相关用户的直方图
+     * @param event 线索变更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLeadChanged(LeadChangeEvent event) {
+        for (Long leadId : event.getLeadIds()) {
+            Long previousOwner = cachedLeadOwners.get(leadId);
+            if (previousOwner != null) {
+                evict(previousOwner);
+            }
+        }
+        if (event.getChangeType() == LeadChangeEvent.ChangeType.DELETED) {
+            return;
+        }
+        try {
+            for (Lead lead : leadRepository.findAllById(event.getLeadIds())) {
+                evict(lead.getOwnerId());
+            }
+        } catch (Exception e) {
+            log.warn("线索变更后失效组合建议缓存失败，事件：{}，错误信息：{}", event, e.getMessage());
+        }
+    }
+
+    /**
+     * 交换申请变化会改变线索预留，失效申请双方的直方图
+     * @param event 交换申请事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExchangeApplicationChanged(ExchangeApplicationEvent event) {
+        evict(event.getApplicantId());
+        evict(event.getTargetUserId());
+    }
+
+    private ValueHistogram getHistogram(Long userId) {
+        ValueHistogram histogram = histogramCache.get(userId);
+        long now = System.currentTimeMillis();
+        if (histogram != null && now - histogram.loadTime < cacheTtlMs) {
+            return histogram;
+        }
+        if (histogram != null) {
+            forgetLeadOwners(histogram);
+        }
+        histogram = loadHistogram(userId, now);
+        histogramCache.put(userId, histogram);
+        return histogram;
+    }
+
+    private ValueHistogram loadHistogram(Long userId, long loadTime) {
+        List<Object[]> rows = leadRepository.findAvailableIdAndRatingByOwnerId(userId, LeadStatus.PUBLISHED);
+        // 按价值从高到低分档
+        TreeMap<Integer, List<Long>> byValue = new TreeMap<>(Collections.reverseOrder());
+        for (Object[] row : rows) {
+            Long leadId = (Long) row[0];
+            int value = valueCalculator.getRatingValue((LeadRating) row[1]);
+            if (value > 0) {
+                byValue.computeIfAbsent(value, k -> new ArrayList<>()).add(leadId);
+                cachedLeadOwners.put(leadId, userId);
+            }
+        }
+        return new ValueHistogram(byValue, loadTime);
+    }
+
+    private void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        ValueHistogram histogram = histogramCache.remove(userId);
+        if (histogram != null) {
+            forgetLeadOwners(histogram);
+        }
+    }
+
+    private void forgetLeadOwners(ValueHistogram histogram) {
+        for (List<Long> ids : histogram.leadIds) {
+            for (Long leadId : ids) {
+                cachedLeadOwners.remove(leadId);
+            }
+        }
+    }
+
+    /**
+     * 用户可用线索的价值直方图
+     */
+    private static final class ValueHistogram {
+
+        private final int[] values;
+        private final List<List<Long>> leadIds;
+        private final int total;
+        private final long loadTime;
+
+        private ValueHistogram(TreeMap<Integer, List<Long>> byValue, long loadTime) {
+            this.values = new int[byValue.size()];
+            this.leadIds = new ArrayList<>(byValue.size());
+            int index = 0;
+            int count = 0;
+            for (Map.Entry<Integer, List<Long>> entry : byValue.entrySet()) {
+                values[index++] = entry.getKey();
+                leadIds.add(Collections.unmodifiableList(entry.getValue()));
+                count += entry.getValue().size();
+            }
+            this.total = count;
+            this.loadTime = loadTime;
+        }
+
+        private int[] counts() {
+            int[] counts = new int[leadIds.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = leadIds.get(i).size();
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * 线索组合建议
+     */
+    public static class OfferSuggestion {
+
+        private final Long targetLeadId;
+        private final int targetValue;
+        private final List<Long> offeredLeadIds;
+        private final int offeredValue;
+        private final int valueDifference;
+        private final int availableLeadCount;
+
+        public OfferSuggestion(Long targetLeadId, int targetValue, List<Long> offeredLeadIds, int offeredValue,
+                               int valueDifference, int availableLeadCount) {
+            this.targetLeadId = targetLeadId;
+            this.targetValue = targetValue;
+            this.offeredLeadIds = offeredLeadIds;
+            this.offeredValue = offeredValue;
+            this.valueDifference = valueDifference;
+            this.availableLeadCount = availableLeadCount;
+        }
+
+        public Long getTargetLeadId() {
+            return targetLeadId;
+        }
+
+        public int getTargetValue() {
+            return targetValue;
+        }
+
+        public List<Long> getOfferedLeadIds() {
+            return offeredLeadIds;
+        }
+
+        public int getOfferedValue() {
+            return offeredValue;
+        }
+
+        /**
+         * @return 提供价值减目标价值，与交换申请的积分差额口径一致
+         */
+        public int getValueDifference() {
+            return valueDifference;
+        }
+
+        public int getAvailableLeadCount() {
+            return availableLeadCount;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.leadexchange.service.lead;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.dto.lead.LeadSearchResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * 线索搜索服务接口
+ * spring.elasticsearch.enabled=true 时基于Elasticsearch检索，否则降级为数据库索引查询
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public interface LeadSearchService {
+
+    /**
+     * 按条件搜索线索，使用游标翻页，适合深度翻页
+     * 
+     * @param request 搜索条件
+     * @return 搜索结果
+     */
+    LeadSearchResponse search(LeadSearchRequest request);
+
+    /**
+     * 按条件分页搜索线索，忽略条件中的游标和页大小
+     * 
+     * @param request 搜索条件
+     * @param pageable 分页参数
+     * @return 线索分页结果
+     */
+    Page<Lead> searchPage(LeadSearchRequest request, Pageable pageable);
+}
@@ -223,4 +223,14 @@ public interface LeadService {
      * @return 是否转移成功
      */
     boolean transferLeadOwnership(Long leadId, Long newOwnerId);
+
+    /**
+     * 批量转移线索所有权（单条UPDATE语句）
+     * 
+     * @param leadIds 线索ID列表
+     * @param expectedOwnerId 预期的当前所有者ID
+     * @param newOwnerId 新所有者ID
+     * @return 实际转移的线索数量
+     */
+    int transferLeadsOwnership(List<Long> leadIds, Long expectedOwnerId, Long newOwnerId);
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.dto.lead.LeadSearchResponse;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.service.lead.LeadSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.Predicate;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 基于数据库的线索搜索服务实现
+ * 未启用Elasticsearch且未选择内嵌索引时使用：只拼接请求中给出的过滤条件，沿 (status, deleted[, rating|intended_region], id)
+ * 索引按ID倒序扫描，取满一页即停止。关键词以LIKE（显式转义通配符）匹配标题、企业名称和行业方向，无法使用索引，
+ * 因此每次请求只在一个ID窗口内匹配：窗口内不足一页时以窗口下界作为游标返回，由客户端继续翻页，单次扫描行数有上限。
+ * 不计算相关度，高亮由关键词原样标记。
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@ConditionalOnExpression("!${spring.elasticsearch.enabled:false} and '${app.lead.search.engine:database}' != 'embedded'")
+@Transactional(readOnly = true)
+public class DatabaseLeadSearchServiceImpl implements LeadSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseLeadSearchServiceImpl.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String HIGHLIGHT_PRE_TAG = "<em>";
+
+    private static final String HIGHLIGHT_POST_TAG = "</em>";
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Value("${app.lead.search.database.keyword-scan-window:10000}")
+    private long keywordScanWindow;
+
+    @Override
+    public LeadSearchResponse search(LeadSearchRequest request) {
+        int size = checkPageSize(request.getSize());
+        long beforeId = parseCursor(request.getCursor());
+        String keyword = normalizeKeyword(request.getKeyword());
+
+        Specification<Lead> specification = filters(request, keyword).and(idBefore(beforeId));
+        long scanFloor = 0;
+        if (keyword != null) {
+            long upperId = beforeId;
+            if (upperId == Long.MAX_VALUE) {
+                Long maxId = leadRepository.findMaxId();
+                upperId = maxId != null ? maxId + 1 : 0;
+            }
+            scanFloor = Math.max(0, upperId - keywordScanWindow);
+            specification = specification.and(idAtLeast(scanFloor));
+        }
+        List<Lead> leads = leadRepository.findTop(specification, Sort.by(Sort.Direction.DESC, "id"), size);
+
+        List<LeadSearchResponse.Hit> hits = new ArrayList<>(leads.size());
+        for (Lead lead : leads) {
+            LeadSearchResponse.Hit hit = new LeadSearchResponse.Hit();
+            hit.setLead(lead);
+            hit.setHighlights(highlight(lead, keyword));
+            hits.add(hit);
+        }
+
+        LeadSearchResponse response = new LeadSearchResponse();
+        response.setHits(hits);
+        response.setEngine("DATABASE");
+        if (leads.size() == size) {
+            response.setNextCursor(String.valueOf(leads.get(leads.size() - 1).getId()));
+        } else if (scanFloor > 0) {
+            // 本窗口已匹配完，从窗口下界继续
+            response.setNextCursor(String.valueOf(scanFloor));
+        }
+        logger.debug("数据库搜索线索: keyword={}, hits={}", keyword, hits.size());
+        return response;
+    }
+
+    @Override
+    public Page<Lead> searchPage(LeadSearchRequest request, Pageable pageable) {
+        Pageable sorted = pageable.getSort().isSorted() ? pageable
+                : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "id"));
+        return leadRepository.findAll(filters(request, normalizeKeyword(request.getKeyword())), sorted);
+    }
+
+    /**
+     * 只为请求中给出的条件生成谓词，避免 (:x IS NULL OR ...) 形式的条件妨碍优化器选择索引
+     */
+    private Specification<Lead> filters(LeadSearchRequest request, String keyword) {
+        LeadStatus status = status(request);
+        LeadRating rating = request.getRating();
+        String region = emptyToNull(request.getRegion());
+        BigDecimal minInvestment = request.getMinInvestment();
+        BigDecimal maxInvestment = request.getMaxInvestment();
+        String pattern = likePattern(keyword);
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(criteriaBuilder.equal(root.get("status"), status));
+            predicates.add(criteriaBuilder.equal(root.get("deleted"), 0));
+            if (rating != null) {
+                predicates.add(criteriaBuilder.equal(root.get("rating"), rating));
+            }
+            if (region != null) {
+                predicates.add(criteriaBuilder.equal(root.get("intendedRegion"), region));
+            }
+            if (minInvestment != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(
+                        root.<BigDecimal>get("investmentAmount"), minInvestment));
+            }
+            if (maxInvestment != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(
+                        root.<BigDecimal>get("investmentAmount"), maxInvestment));
+            }
+            if (pattern != null) {
+                predicates.add(criteriaBuilder.or(
+                        criteriaBuilder.like(root.<String>get("title"), pattern, LIKE_ESCAPE),
+                        criteriaBuilder.like(root.<String>get("companyName"), pattern, LIKE_ESCAPE),
+                        criteriaBuilder.like(root.<String>get("industryDirection"), pattern, LIKE_ESCAPE)));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private Specification<Lead> idBefore(long beforeId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.lessThan(root.<Long>get("id"), beforeId);
+    }
+
+    private Specification<Lead> idAtLeast(long floorId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.<Long>get("id"), floorId);
+    }
+
+    private Map<String, List<String>> highlight(Lead lead, String keyword) {
+        if (keyword == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<String>> highlights = new LinkedHashMap<>();
+        putHighlight(highlights, "title", lead.getTitle(), keyword);
+        putHighlight(highlights, "companyName", lead.getCompanyName(), keyword);
+        putHighlight(highlights, "industryDirection", lead.getIndustryDirection(), keyword);
+        return highlights;
+    }
+
+    private void putHighlight(Map<String, List<String>> highlights, String field, String value, String keyword) {
+        if (value != null && value.contains(keyword)) {
+            highlights.put(field, Collections.singletonList(
+                    value.replace(keyword, HIGHLIGHT_PRE_TAG + keyword + HIGHLIGHT_POST_TAG)));
+        }
+    }
+
+    private LeadStatus status(LeadSearchRequest request) {
+        return request.getStatus() != null ? request.getStatus() : LeadStatus.PUBLISHED;
+    }
+
+    private String normalizeKeyword(String keyword) {
+        return StringUtils.hasText(keyword) ? keyword.trim() : null;
+    }
+
+    private String likePattern(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        // 关键词中的通配符按字面匹配，转义符与 LIKE_ESCAPE 一致
+        String escape = String.valueOf(LIKE_ESCAPE);
+        return "%" + keyword.replace(escape, escape + escape).replace("%", escape + "%").replace("_", escape + "_") + "%";
+    }
+
+    private String emptyToNull(String value) {
+        return StringUtils.hasText(value) ? value.trim() : null;
+    }
+
+    private long parseCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的翻页游标: " + cursor);
+        }
+    }
+
+    private int checkPageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页大小必须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+        return size;
+    }
+}
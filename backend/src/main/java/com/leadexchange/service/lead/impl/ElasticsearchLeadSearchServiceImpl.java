@@ -0,0 +1,169 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.dto.lead.LeadSearchResponse;
+import com.leadexchange.service.lead.LeadSearchService;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 基于Elasticsearch的线索搜索服务实现
+ * 关键词以 multi_match 匹配标题、企业名称、行业方向和描述（ik_max_word 分词），过滤条件放在 filter 子句中不参与打分；
+ * 按相关度和ID排序，翻页使用 search_after，不受 from+size 深度限制。
+ * 索引由 {@link LeadIndexPipeline} 异步批量维护，别名与全量重建由 {@link LeadIndexManager} 管理。
+ * 
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@ConditionalOnProperty(name = "spring.elasticsearch.enabled", havingValue = "true")
+public class ElasticsearchLeadSearchServiceImpl implements LeadSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchLeadSearchServiceImpl.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String[] HIGHLIGHT_FIELDS = {"title", "companyName", "industryDirection", "description"};
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public LeadSearchResponse search(LeadSearchRequest request) {
+        int size = checkPageSize(request.getSize());
+        String keyword = normalizeKeyword(request.getKeyword());
+
+        NativeSearchQuery query = buildQuery(request, keyword, PageRequest.of(0, size));
+        List<Object> searchAfter = parseCursor(request.getCursor(), keyword != null);
+        if (searchAfter != null) {
+            query.setSearchAfter(searchAfter);
+        }
+
+        SearchHits<Lead> searchHits = elasticsearchOperations.search(query, Lead.class);
+        List<LeadSearchResponse.Hit> hits = new ArrayList<>(searchHits.getSearchHits().size());
+        List<Object> lastSortValues = null;
+        for (SearchHit<Lead> searchHit : searchHits.getSearchHits()) {
+            LeadSearchResponse.Hit hit = new LeadSearchResponse.Hit();
+            hit.setLead(searchHit.getContent());
+            hit.setScore(keyword != null ? searchHit.getScore() : null);
+            hit.setHighlights(searchHit.getHighlightFields());
+            hits.add(hit);
+            lastSortValues = searchHit.getSortValues();
+        }
+
+        LeadSearchResponse response = new LeadSearchResponse();
+        response.setHits(hits);
+        response.setTotal(searchHits.getTotalHits());
+        response.setEngine("ELASTICSEARCH");
+        if (hits.size() == size && lastSortValues != null) {
+            response.setNextCursor(lastSortValues.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        logger.debug("ES搜索线索: keyword={}, hits={}, total={}", keyword, hits.size(), searchHits.getTotalHits());
+        return response;
+    }
+
+    @Override
+    public Page<Lead> searchPage(LeadSearchRequest request, Pageable pageable) {
+        NativeSearchQuery query = buildQuery(request, normalizeKeyword(request.getKeyword()), pageable);
+        SearchHits<Lead> searchHits = elasticsearchOperations.search(query, Lead.class);
+        List<Lead> leads = searchHits.getSearchHits().stream().map(SearchHit::getContent).collect(Collectors.toList());
+        return new PageImpl<>(leads, pageable, searchHits.getTotalHits());
+    }
+
+    private NativeSearchQuery buildQuery(LeadSearchRequest request, String keyword, Pageable pageable) {
+        LeadStatus status = request.getStatus() != null ? request.getStatus() : LeadStatus.PUBLISHED;
+        BoolQueryBuilder bool = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery("status", status.name()));
+        if (request.getRating() != null) {
+            bool.filter(QueryBuilders.termQuery("rating", request.getRating().name()));
+        }
+        if (StringUtils.hasText(request.getRegion())) {
+            bool.filter(QueryBuilders.termQuery("intendedRegion", request.getRegion().trim()));
+        }
+        if (request.getMinInvestment() != null || request.getMaxInvestment() != null) {
+            RangeQueryBuilder range = QueryBuilders.rangeQuery("investmentAmount");
+            if (request.getMinInvestment() != null) {
+                range.gte(request.getMinInvestment());
+            }
+            if (request.getMaxInvestment() != null) {
+                range.lte(request.getMaxInvestment());
+            }
+            bool.filter(range);
+        }
+
+        NativeSearchQueryBuilder builder = new NativeSearchQueryBuilder().withPageable(pageable);
+        if (keyword != null) {
+            bool.must(QueryBuilders.multiMatchQuery(keyword)
+                    .field("title", 3.0f)
+                    .field("companyName", 2.0f)
+                    .field("industryDirection", 1.5f)
+                    .field("description"));
+            HighlightBuilder highlight = new HighlightBuilder().preTags("<em>").postTags("</em>");
+            for (String field : HIGHLIGHT_FIELDS) {
+                highlight.field(field);
+            }
+            builder.withHighlightBuilder(highlight)
+                    .withSorts(SortBuilders.scoreSort().order(SortOrder.DESC),
+                            SortBuilders.fieldSort("id").order(SortOrder.DESC));
+        } else {
+            builder.withSorts(SortBuilders.fieldSort("id").order(SortOrder.DESC));
+        }
+        return builder.withQuery(bool).withTrackTotalHits(true).build();
+    }
+
+    /**
+     * 解析游标为 search_after 参数：有关键词时为 [得分, ID]，否则为 [ID]
+     */
+    private List<Object> parseCursor(String cursor, boolean scored) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        String[] parts = cursor.trim().split(",");
+        try {
+            if (scored && parts.length == 2) {
+                return Arrays.asList(Double.parseDouble(parts[0]), Long.parseLong(parts[1]));
+            }
+            if (!scored && parts.length == 1) {
+                return Collections.singletonList(Long.parseLong(parts[0]));
+            }
+        } catch (NumberFormatException e) {
+            // 统一按无效游标处理
+        }
+        throw new IllegalArgumentException("无效的翻页游标: " + cursor);
+    }
+
+    private String normalizeKeyword(String keyword) {
+        return StringUtils.hasText(keyword) ? keyword.trim() : null;
+    }
+
+    private int checkPageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页大小必须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+        return size;
+    }
+}
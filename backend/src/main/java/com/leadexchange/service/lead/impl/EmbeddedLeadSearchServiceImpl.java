@@ -0,0 +1,315 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.dto.lead.LeadSearchResponse;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.service.lead.LeadSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 基于内存倒排索引的线索搜索服务实现
+ * 未启用Elasticsearch且 app.lead.search.engine 为 embedded 时使用，面向单节点的中小规模部署。
+ * 检索、过滤、排序和翻页在 {@link LeadInvertedIndex} 内完成，只按本页ID从数据库读取线索详情；
+ * 线索变更事务提交后交给单线程更新器异步更新索引，更新按提交顺序串行执行并在执行时读取最新状态，
+ * 旧数据不会覆盖新写入的文档。索引定期写入本地段文件，启动时加载段文件并回放检查点之后更新过的线索，
+ * 段文件不存在或损坏时按ID游标从数据库全量构建。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@ConditionalOnExpression("!${spring.elasticsearch.enabled:false} and '${app.lead.search.engine:database}' == 'embedded'")
+public class EmbeddedLeadSearchServiceImpl implements LeadSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedLeadSearchServiceImpl.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEGMENT_FILE = "leads.seg";
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Value("${app.lead.search.embedded.data-dir:./data/lead-index}")
+    private String dataDir;
+
+    @Value("${app.lead.search.embedded.build-batch-size:1000}")
+    private int buildBatchSize;
+
+    @Value("${app.lead.search.embedded.replay-overlap-seconds:60}")
+    private long replayOverlapSeconds;
+
+    private final LeadInvertedIndex index = new LeadInvertedIndex();
+
+    private volatile boolean dirty;
+
+    private ExecutorService updateExecutor;
+
+    /**
+     * 启动时加载段文件并追赶变更，失败时全量构建
+     */
+    @PostConstruct
+    public void init() {
+        updateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lead-index-embedded");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.currentTimeMillis();
+        Path segment = segmentPath();
+        if (Files.exists(segment)) {
+            try {
+                long checkpoint = index.loadSegment(segment);
+                LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(checkpoint), ZoneId.systemDefault());
+                long replayed = replaySince(since);
+                logger.info("已加载线索索引段文件，线索数：{}，回放：{}条，耗时：{}ms",
+                        index.size(), replayed, System.currentTimeMillis() - start);
+                return;
+            } catch (IOException e) {
+                logger.warn("加载线索索引段文件失败，改为全量构建：{}", e.getMessage());
+                index.clear();
+            }
+        }
+        long checkpoint = checkpointMillis();
+        long built = rebuild();
+        persist(checkpoint);
+        logger.info("已全量构建线索索引，线索数：{}，耗时：{}ms", built, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 关闭时写入段文件
+     */
+    @PreDestroy
+    public void shutdown() {
+        updateExecutor.shutdown();
+        try {
+            if (!updateExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("线索索引更新未在关闭前完成，启动时将回放");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dirty) {
+            persist(checkpointMillis());
+        }
+    }
+
+    /**
+     * 定时写入段文件
+     */
+    @Scheduled(fixedDelayString = "${app.lead.search.embedded.flush-interval-ms:60000}",
+               initialDelayString = "${app.lead.search.embedded.flush-interval-ms:60000}")
+    public void flush() {
+        if (dirty) {
+            persist(checkpointMillis());
+        }
+    }
+
+    /**
+     * 线索变更事务提交后提交索引更新
+     * 不同事务的更新若在多个线程并行读取后写入，先读到的旧数据可能覆盖后写入的新文档，
+     * 因此统一在单线程更新器内按提交顺序执行
+     * @param event 线索变更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLeadChanged(LeadChangeEvent event) {
+        try {
+            updateExecutor.execute(() -> applyChange(event.getLeadIds()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("线索索引更新器已关闭，线索ID：{}，启动时将回放", event.getLeadIds());
+        }
+    }
+
+    /**
+     * 读取线索最新状态并更新索引，已不存在的线索从索引移除
+     */
+    private void applyChange(Collection<Long> leadIds) {
+        try {
+            Set<Long> missing = new HashSet<>(leadIds);
+            for (Lead lead : leadRepository.findAllById(leadIds)) {
+                missing.remove(lead.getId());
+                index.put(lead);
+            }
+            missing.forEach(index::remove);
+            dirty = true;
+        } catch (Exception e) {
+            logger.warn("更新线索索引失败，线索ID：{}，原因：{}", leadIds, e.getMessage());
+        }
+    }
+
+    @Override
+    public LeadSearchResponse search(LeadSearchRequest request) {
+        int size = checkPageSize(request.getSize());
+        String keyword = normalizeKeyword(request.getKeyword());
+        Float afterScore = null;
+        Long afterId = null;
+        if (StringUtils.hasText(request.getCursor())) {
+            String[] parts = request.getCursor().trim().split(",");
+            try {
+                if (keyword != null && parts.length == 2) {
+                    afterScore = Float.parseFloat(parts[0]);
+                    afterId = Long.parseLong(parts[1]);
+                } else if (keyword == null && parts.length == 1) {
+                    afterId = Long.parseLong(parts[0]);
+                }
+            } catch (NumberFormatException e) {
+                // 统一按无效游标处理
+            }
+            if (afterId == null) {
+                throw new IllegalArgumentException("无效的翻页游标: " + request.getCursor());
+            }
+        }
+
+        LeadInvertedIndex.SearchResult result = index.search(keyword, request, afterScore, afterId, 0, size);
+        Map<Long, Lead> leads = loadLeads(result.getDocs());
+        List<LeadSearchResponse.Hit> hits = new ArrayList<>(result.getDocs().size());
+        LeadInvertedIndex.ScoredDoc last = null;
+        for (LeadInvertedIndex.ScoredDoc doc : result.getDocs()) {
+            last = doc;
+            Lead lead = leads.get(doc.getId());
+            if (lead == null) {
+                continue;
+            }
+            LeadSearchResponse.Hit hit = new LeadSearchResponse.Hit();
+            hit.setLead(lead);
+            hit.setScore(doc.getScore());
+            hit.setHighlights(index.highlight(lead, keyword));
+            hits.add(hit);
+        }
+
+        LeadSearchResponse response = new LeadSearchResponse();
+        response.setHits(hits);
+        response.setTotal(result.getTotal());
+        response.setEngine("EMBEDDED");
+        if (result.getDocs().size() == size && last != null) {
+            response.setNextCursor(last.getScore() != null
+                    ? last.getScore() + "," + last.getId() : String.valueOf(last.getId()));
+        }
+        logger.debug("内嵌索引搜索线索: keyword={}, hits={}, total={}", keyword, hits.size(), result.getTotal());
+        return response;
+    }
+
+    @Override
+    public Page<Lead> searchPage(LeadSearchRequest request, Pageable pageable) {
+        LeadInvertedIndex.SearchResult result = index.search(normalizeKeyword(request.getKeyword()), request,
+                null, null, (int) pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Lead> leads = loadLeads(result.getDocs());
+        List<Lead> content = result.getDocs().stream()
+                .map(doc -> leads.get(doc.getId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, result.getTotal());
+    }
+
+    /**
+     * 按ID游标从数据库全量构建
+     * @return 构建的线索数
+     */
+    private long rebuild() {
+        index.clear();
+        long built = 0;
+        long lastId = 0L;
+        while (true) {
+            List<Lead> page = leadRepository.findActiveAfterId(lastId, PageRequest.of(0, buildBatchSize));
+            page.forEach(index::put);
+            built += page.size();
+            if (page.size() < buildBatchSize) {
+                return built;
+            }
+            lastId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 回放指定时间之后更新过的线索（含已删除）
+     * @return 回放数量
+     */
+    private long replaySince(LocalDateTime since) {
+        long replayed = 0;
+        long lastId = 0L;
+        while (true) {
+            List<Lead> page = leadRepository.findUpdatedSince(since, lastId, PageRequest.of(0, buildBatchSize));
+            page.forEach(index::put);
+            replayed += page.size();
+            if (page.size() < buildBatchSize) {
+                dirty = dirty || replayed > 0;
+                return replayed;
+            }
+            lastId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 写入段文件，检查点在写入前取得并向前重叠，加载后回放以覆盖写入期间和之后的变更
+     */
+    private synchronized void persist(long checkpoint) {
+        dirty = false;
+        try {
+            Files.createDirectories(segmentPath().getParent());
+            index.writeSegment(segmentPath(), checkpoint);
+        } catch (IOException e) {
+            dirty = true;
+            logger.warn("写入线索索引段文件失败：{}", e.getMessage());
+        }
+    }
+
+    private Map<Long, Lead> loadLeads(List<LeadInvertedIndex.ScoredDoc> docs) {
+        if (docs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = docs.stream().map(LeadInvertedIndex.ScoredDoc::getId).collect(Collectors.toList());
+        return leadRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Lead::getId, Function.identity()));
+    }
+
+    private long checkpointMillis() {
+        return System.currentTimeMillis() - replayOverlapSeconds * 1000L;
+    }
+
+    private Path segmentPath() {
+        return Paths.get(dataDir).toAbsolutePath().resolve(SEGMENT_FILE);
+    }
+
+    private String normalizeKeyword(String keyword) {
+        return StringUtils.hasText(keyword) ? keyword.trim() : null;
+    }
+
+    private int checkPageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页大小必须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+        return size;
+    }
+}
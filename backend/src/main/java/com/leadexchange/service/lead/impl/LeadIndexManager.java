@@ -0,0 +1,562 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.repository.lead.LeadRepository;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthRequest;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线索索引管理器
+ * 搜索与索引管道只访问别名 leads，别名指向带版本号的物理索引。
+ * 全量重建时创建新版本索引（副本数为0、关闭自动刷新），按ID游标从数据库分批读取线索并行 _bulk 写入，
+ * 在途批次数和写入速率有上限，避免挤占线上搜索的集群资源；
+ * 写入完成后回放重建期间更新过的线索，恢复副本和刷新设置，再以一次别名操作原子切换到新索引，
+ * 切换后再次回放切换前后的变更，最后删除旧索引。
+ * 所有写入以线索更新时间的毫秒时间戳作为外部版本号（external_gte），回放或管道中较旧的数据不会覆盖索引中更新的文档。
+ * 跨节点以Redis锁互斥，锁值为持有者令牌，释放时比较令牌后删除。
+ * 未启用别名的旧部署中 leads 为物理索引，切换时在同一别名操作内删除该索引。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "spring.elasticsearch.enabled", havingValue = "true")
+public class LeadIndexManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadIndexManager.class);
+
+    /**
+     * 线索索引别名，与 {@link Lead} 的索引名一致
+     */
+    public static final String ALIAS = "leads";
+
+    private static final String REINDEX_LOCK_KEY = "lead:index:reindex-lock";
+
+    /**
+     * 持有者令牌匹配时才删除锁，避免锁过期后误删其他节点的锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final String VERSION_CONFLICT = "version_conflict_engine_exception";
+
+    private static final DateTimeFormatter VERSION_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private RestHighLevelClient elasticsearchClient;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.lead.index.reindex.threads:2}")
+    private int reindexThreads;
+
+    @Value("${app.lead.index.reindex.batch-size:1000}")
+    private int reindexBatchSize;
+
+    @Value("${app.lead.index.reindex.max-docs-per-second:5000}")
+    private int maxDocsPerSecond;
+
+    @Value("${app.lead.index.reindex.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.lead.index.reindex.replay-overlap-seconds:60}")
+    private long replayOverlapSeconds;
+
+    @Value("${app.lead.index.reindex.replicas:1}")
+    private int replicas;
+
+    @Value("${app.lead.index.reindex.refresh-interval:1s}")
+    private String refreshInterval;
+
+    @Value("${app.lead.index.reindex.health-timeout-seconds:300}")
+    private long healthTimeoutSeconds;
+
+    @Value("${app.lead.index.reindex.delete-old-index:true}")
+    private boolean deleteOldIndex;
+
+    @Value("${app.lead.index.reindex.lock-seconds:21600}")
+    private long lockSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ExecutorService workerExecutor;
+    private ExecutorService launchExecutor;
+
+    private volatile ReindexReport lastReport;
+
+    @PostConstruct
+    public void init() {
+        workerExecutor = Executors.newFixedThreadPool(reindexThreads, namedThreadFactory("lead-reindex"));
+        launchExecutor = Executors.newSingleThreadExecutor(namedThreadFactory("lead-reindex-launcher"));
+        ensureAlias();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        launchExecutor.shutdownNow();
+        workerExecutor.shutdownNow();
+    }
+
+    /**
+     * 启动时确保别名存在：既无别名也无同名物理索引时创建首个版本索引并建立别名
+     */
+    public void ensureAlias() {
+        try {
+            if (elasticsearchClient.indices().exists(new GetIndexRequest(ALIAS), RequestOptions.DEFAULT)) {
+                return;
+            }
+            String index = newIndexName();
+            createIndex(index, Collections.emptyMap());
+            IndicesAliasesRequest request = new IndicesAliasesRequest();
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(ALIAS));
+            elasticsearchClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+            logger.info("已创建线索索引：{}，别名：{}", index, ALIAS);
+        } catch (Exception e) {
+            logger.warn("检查线索索引别名失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取跨节点重建锁后在后台发起全量重建
+     * @return 本节点已有重建在运行或其他节点持有重建锁时返回false
+     */
+    public boolean triggerReindex() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        String token = acquireLock();
+        if (token == null) {
+            running.set(false);
+            return false;
+        }
+        try {
+            launchExecutor.execute(() -> runReindex(token));
+        } catch (RejectedExecutionException e) {
+            releaseLock(token);
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 是否正在重建
+     * @return 是否正在重建
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * 获取本节点最近一次重建报告
+     * @return 重建报告，未执行过时为null
+     */
+    public ReindexReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 获取跨节点重建锁
+     * @return 持有者令牌，其他节点持有锁或Redis不可用时为null
+     */
+    private String acquireLock() {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(
+                    REINDEX_LOCK_KEY, token, lockSeconds, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(locked)) {
+                return token;
+            }
+            logger.info("其他节点正在重建线索索引，本次跳过");
+        } catch (Exception e) {
+            logger.warn("获取线索索引重建锁失败：{}", e.getMessage());
+        }
+        return null;
+    }
+
+    private void runReindex(String token) {
+        try {
+            lastReport = reindex();
+        } finally {
+            releaseLock(token);
+            running.set(false);
+        }
+    }
+
+    private void releaseLock(String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(REINDEX_LOCK_KEY), token);
+        } catch (Exception e) {
+            logger.warn("释放线索索引重建锁失败：{}", e.getMessage());
+        }
+    }
+
+    private ReindexReport reindex() {
+        LocalDateTime startTime = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        String index = newIndexName();
+        long indexed = 0;
+        long replayed = 0;
+        try {
+            Set<String> previous = resolveAliasIndices();
+            boolean legacyIndex = previous.isEmpty()
+                    && elasticsearchClient.indices().exists(new GetIndexRequest(ALIAS), RequestOptions.DEFAULT);
+
+            Map<String, Object> loadSettings = new HashMap<>();
+            loadSettings.put("index.number_of_replicas", 0);
+            loadSettings.put("index.refresh_interval", "-1");
+            createIndex(index, loadSettings);
+            logger.info("开始重建线索索引：{}", index);
+
+            LocalDateTime buildStart = LocalDateTime.now().minusSeconds(replayOverlapSeconds);
+            indexed = bulkLoad(index);
+
+            LocalDateTime replayStart = LocalDateTime.now().minusSeconds(replayOverlapSeconds);
+            replayed += replay(index, buildStart);
+
+            restoreSettings(index);
+            swapAlias(index, previous, legacyIndex);
+            replayed += replay(ALIAS, replayStart);
+
+            if (deleteOldIndex && !previous.isEmpty()) {
+                elasticsearchClient.indices().delete(
+                        new DeleteIndexRequest(previous.toArray(new String[0])), RequestOptions.DEFAULT);
+            }
+            long duration = System.currentTimeMillis() - start;
+            logger.info("线索索引重建完成：{}，写入：{}条，回放：{}条，耗时：{}ms", index, indexed, replayed, duration);
+            return new ReindexReport(index, startTime, duration, indexed, replayed, true, null);
+        } catch (Exception e) {
+            logger.error("线索索引重建失败：{}，原因：{}", index, e.getMessage(), e);
+            dropQuietly(index);
+            return new ReindexReport(index, startTime, System.currentTimeMillis() - start, indexed, replayed,
+                    false, e.getMessage());
+        }
+    }
+
+    /**
+     * 按ID游标分批读取线索并行写入，在途批次数不超过线程数的两倍，按配置限制写入速率
+     * @return 写入数量
+     */
+    private long bulkLoad(String index) throws InterruptedException {
+        IndexCoordinates coordinates = IndexCoordinates.of(index);
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(workerExecutor);
+        int maxInFlight = reindexThreads * 2;
+        int inFlight = 0;
+        long indexed = 0;
+        long submitted = 0;
+        long start = System.currentTimeMillis();
+        long lastId = 0L;
+        while (true) {
+            List<Lead> page = leadRepository.findActiveAfterId(lastId, PageRequest.of(0, reindexBatchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            completionService.submit(() -> bulkIndex(page, coordinates));
+            inFlight++;
+            submitted += page.size();
+            if (inFlight >= maxInFlight) {
+                indexed += awaitBatch(completionService);
+                inFlight--;
+            }
+            throttle(submitted, start);
+            if (page.size() < reindexBatchSize) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).getId();
+        }
+        while (inFlight > 0) {
+            indexed += awaitBatch(completionService);
+            inFlight--;
+        }
+        return indexed;
+    }
+
+    private int awaitBatch(CompletionService<Integer> completionService) throws InterruptedException {
+        try {
+            return completionService.take().get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("线索索引批量写入失败：" + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 写入一批线索，失败时整批重试；只有版本冲突的失败表示索引中已是更新的文档，视为成功
+     * @return 写入数量
+     */
+    private int bulkIndex(List<Lead> leads, IndexCoordinates coordinates) throws InterruptedException {
+        List<IndexQuery> queries = new ArrayList<>(leads.size());
+        for (Lead lead : leads) {
+            queries.add(indexQuery(lead));
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                elasticsearchOperations.bulkIndex(queries, coordinates);
+                return queries.size();
+            } catch (BulkFailureException e) {
+                if (e.getFailedDocuments().values().stream().allMatch(LeadIndexManager::isVersionConflict)) {
+                    return queries.size();
+                }
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.warn("线索索引批量写入部分失败，第{}次重试，失败数：{}", attempt, e.getFailedDocuments().size());
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.warn("线索索引批量写入失败，第{}次重试：{}", attempt, e.getMessage());
+            }
+            Thread.sleep(1000L << Math.min(attempt, 5));
+        }
+    }
+
+    private void throttle(long submitted, long start) throws InterruptedException {
+        if (maxDocsPerSecond <= 0) {
+            return;
+        }
+        long expectedMs = submitted * 1000L / maxDocsPerSecond;
+        long aheadMs = expectedMs - (System.currentTimeMillis() - start);
+        if (aheadMs > 0) {
+            Thread.sleep(aheadMs);
+        }
+    }
+
+    /**
+     * 回放指定时间之后更新过的线索：未删除的写入，已删除的移除
+     * @return 回放数量
+     */
+    private long replay(String target, LocalDateTime since) throws InterruptedException {
+        IndexCoordinates coordinates = IndexCoordinates.of(target);
+        long replayed = 0;
+        long lastId = 0L;
+        while (true) {
+            List<Lead> page = leadRepository.findUpdatedSince(since, lastId, PageRequest.of(0, reindexBatchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Lead> active = new ArrayList<>(page.size());
+            List<String> removals = new ArrayList<>();
+            for (Lead lead : page) {
+                if (lead.getDeleted() != null && lead.getDeleted() == 1) {
+                    removals.add(String.valueOf(lead.getId()));
+                } else {
+                    active.add(lead);
+                }
+            }
+            if (!active.isEmpty()) {
+                bulkIndex(active, coordinates);
+            }
+            if (!removals.isEmpty()) {
+                elasticsearchOperations.delete(new NativeSearchQueryBuilder()
+                        .withQuery(QueryBuilders.idsQuery().addIds(removals.toArray(new String[0]))).build(),
+                        Lead.class, coordinates);
+            }
+            replayed += page.size();
+            if (page.size() < reindexBatchSize) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).getId();
+        }
+        return replayed;
+    }
+
+    /**
+     * 恢复副本数和刷新间隔，刷新后等待副本分配完成再切换别名
+     */
+    private void restoreSettings(String index) throws IOException {
+        UpdateSettingsRequest request = new UpdateSettingsRequest(index).settings(Settings.builder()
+                .put("index.number_of_replicas", replicas)
+                .put("index.refresh_interval", refreshInterval));
+        elasticsearchClient.indices().putSettings(request, RequestOptions.DEFAULT);
+        elasticsearchOperations.indexOps(IndexCoordinates.of(index)).refresh();
+
+        ClusterHealthRequest healthRequest = new ClusterHealthRequest(index)
+                .waitForGreenStatus()
+                .timeout(TimeValue.timeValueSeconds(healthTimeoutSeconds));
+        ClusterHealthResponse health = elasticsearchClient.cluster().health(healthRequest, RequestOptions.DEFAULT);
+        if (health.isTimedOut()) {
+            logger.warn("等待线索索引副本分配超时，当前状态：{}，继续切换别名", health.getStatus());
+        }
+    }
+
+    /**
+     * 一次别名操作内移除旧索引上的别名（或删除同名物理索引）并指向新索引
+     */
+    private void swapAlias(String index, Set<String> previous, boolean legacyIndex) throws IOException {
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        for (String old : previous) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(old).alias(ALIAS));
+        }
+        if (legacyIndex) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(ALIAS));
+        }
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(ALIAS));
+        elasticsearchClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+        logger.info("线索索引别名已切换：{} -> {}", previous.isEmpty() ? ALIAS : previous, index);
+    }
+
+    private Set<String> resolveAliasIndices() throws IOException {
+        GetAliasesRequest request = new GetAliasesRequest(ALIAS);
+        if (!elasticsearchClient.indices().existsAlias(request, RequestOptions.DEFAULT)) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(elasticsearchClient.indices().getAlias(request, RequestOptions.DEFAULT)
+                .getAliases().keySet());
+    }
+
+    private void createIndex(String index, Map<String, Object> settings) {
+        Document mapping = elasticsearchOperations.indexOps(Lead.class).createMapping(Lead.class);
+        elasticsearchOperations.indexOps(IndexCoordinates.of(index)).create(settings, mapping);
+    }
+
+    private void dropQuietly(String index) {
+        try {
+            if (elasticsearchClient.indices().exists(new GetIndexRequest(index), RequestOptions.DEFAULT)
+                    && !resolveAliasIndices().contains(index)) {
+                elasticsearchClient.indices().delete(new DeleteIndexRequest(index), RequestOptions.DEFAULT);
+            }
+        } catch (Exception e) {
+            logger.warn("清理未完成的线索索引失败：{}，原因：{}", index, e.getMessage());
+        }
+    }
+
+    /**
+     * 构建线索的索引写入请求，以更新时间（缺失时为创建时间）的毫秒时间戳作为外部版本号
+     * @param lead 线索
+     * @return 索引写入请求
+     */
+    static IndexQuery indexQuery(Lead lead) {
+        IndexQueryBuilder builder = new IndexQueryBuilder().withId(String.valueOf(lead.getId())).withObject(lead);
+        LocalDateTime versionTime = lead.getUpdateTime() != null ? lead.getUpdateTime() : lead.getCreateTime();
+        if (versionTime != null) {
+            builder.withVersion(versionTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 写入失败原因是否为版本冲突，即索引中已有更新版本的文档
+     * @param reason 失败原因
+     * @return 是否为版本冲突
+     */
+    static boolean isVersionConflict(String reason) {
+        return reason != null && reason.contains(VERSION_CONFLICT);
+    }
+
+    private String newIndexName() {
+        return ALIAS + "_v" + LocalDateTime.now().format(VERSION_FORMATTER);
+    }
+
+    private ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 索引重建报告
+     */
+    public static class ReindexReport {
+
+        private final String index;
+        private final LocalDateTime startTime;
+        private final long durationMs;
+        private final long indexedCount;
+        private final long replayedCount;
+        private final boolean succeeded;
+        private final String error;
+
+        public ReindexReport(String index, LocalDateTime startTime, long durationMs, long indexedCount,
+                             long replayedCount, boolean succeeded, String error) {
+            this.index = index;
+            this.startTime = startTime;
+            this.durationMs = durationMs;
+            this.indexedCount = indexedCount;
+            this.replayedCount = replayedCount;
+            this.succeeded = succeeded;
+            this.error = error;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public LocalDateTime getStartTime() {
+            return startTime;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public long getIndexedCount() {
+            return indexedCount;
+        }
+
+        /**
+         * @return 重建期间更新过、回放写入或移除的线索数
+         */
+        public long getReplayedCount() {
+            return replayedCount;
+        }
+
+        public boolean isSucceeded() {
+            return succeeded;
+        }
+
+        /**
+         * @return 失败原因，成功时为null
+         */
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.leadexchange.service.lead.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadexchange.config.RabbitMQConfig;
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.rabbitmq.client.Channel;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线索索引管道
+ * 线索变更经发件箱投递到 lead.created / lead.updated 队列，本组件消费后按线索ID合并，
+ * 由刷新线程从数据库批量读取最新状态，以 _bulk 写入索引（已删除的线索从索引移除），成功后才确认对应消息。
+ * 批量大小按写入耗时自适应：低于目标耗时逐步增大，超过目标耗时或写入失败时减半；
+ * 写入失败的线索按指数退避重试，达到最大次数后拒绝消息转入死信队列。
+ * 索引写入幂等且带外部版本号（见 {@link LeadIndexManager#indexQuery}），版本冲突表示索引中已是更新的文档，按成功处理；
+ * 进程重启后未确认的消息会被重新投递，语义为至少一次。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "spring.elasticsearch.enabled", havingValue = "true")
+public class LeadIndexPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadIndexPipeline.class);
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.lead.index.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.lead.index.initial-batch-size:200}")
+    private int initialBatchSize;
+
+    @Value("${app.lead.index.min-batch-size:20}")
+    private int minBatchSize;
+
+    @Value("${app.lead.index.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${app.lead.index.target-latency-ms:500}")
+    private long targetLatencyMs;
+
+    @Value("${app.lead.index.batch-size-step:50}")
+    private int batchSizeStep;
+
+    @Value("${app.lead.index.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.lead.index.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${app.lead.index.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    /**
+     * 待写入的线索，键为线索ID
+     */
+    private final Map<Long, PendingLead> pending = new ConcurrentHashMap<>();
+
+    private volatile int batchSize;
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        batchSize = Math.max(minBatchSize, Math.min(initialBatchSize, maxBatchSize));
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lead-index-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushDue, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+    }
+
+    /**
+     * 接收线索变更消息，合并到待写入集合，写入成功后再确认
+     * @param message 消息
+     * @param channel 通道
+     */
+    @RabbitListener(queues = {RabbitMQConfig.LEAD_CREATED_QUEUE, RabbitMQConfig.LEAD_UPDATED_QUEUE},
+                    containerFactory = "leadIndexListenerContainerFactory")
+    public void onMessage(Message message, Channel channel) throws IOException {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        Long leadId = parseLeadId(message);
+        if (leadId == null) {
+            logger.warn("线索索引消息无法解析，转入死信队列，消息ID：{}", message.getMessageProperties().getMessageId());
+            channel.basicNack(deliveryTag, false, false);
+            return;
+        }
+        pending.compute(leadId, (id, existing) -> {
+            PendingLead entry = existing != null ? existing : new PendingLead();
+            entry.deliveries.add(new Delivery(channel, deliveryTag));
+            return entry;
+        });
+    }
+
+    /**
+     * 获取当前批量大小
+     * @return 批量大小
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 获取待写入的线索数量
+     * @return 线索数量
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 刷新到期的待写入线索，直到没有到期线索
+     */
+    void flushDue() {
+        try {
+            while (true) {
+                Map<Long, PendingLead> claimed = claimDue(batchSize);
+                if (claimed.isEmpty()) {
+                    return;
+                }
+                flush(claimed);
+            }
+        } catch (Exception e) {
+            logger.error("线索索引刷新异常：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 认领到期的待写入线索，认领后新到的同一线索消息进入新条目，在下一批读取最新状态
+     */
+    private Map<Long, PendingLead> claimDue(int limit) {
+        long now = System.currentTimeMillis();
+        Map<Long, PendingLead> claimed = new LinkedHashMap<>();
+        for (Map.Entry<Long, PendingLead> entry : pending.entrySet()) {
+            if (claimed.size() >= limit) {
+                break;
+            }
+            if (entry.getValue().nextAttemptAt > now) {
+                continue;
+            }
+            PendingLead removed = pending.remove(entry.getKey());
+            if (removed != null) {
+                claimed.put(entry.getKey(), removed);
+            }
+        }
+        return claimed;
+    }
+
+    private void flush(Map<Long, PendingLead> claimed) {
+        long start = System.currentTimeMillis();
+        Set<Long> failed;
+        try {
+            failed = writeIndex(claimed.keySet());
+        } catch (Exception e) {
+            logger.warn("线索索引批量写入失败，数量：{}，原因：{}", claimed.size(), e.getMessage());
+            failed = claimed.keySet();
+        }
+        long latency = System.currentTimeMillis() - start;
+
+        for (Map.Entry<Long, PendingLead> entry : claimed.entrySet()) {
+            if (failed.contains(entry.getKey())) {
+                retryOrDeadLetter(entry.getKey(), entry.getValue());
+            } else {
+                acknowledge(entry.getValue());
+            }
+        }
+        adjustBatchSize(failed.isEmpty(), latency);
+        logger.debug("线索索引批量写入完成，数量：{}，失败：{}，耗时：{}ms，下一批量：{}",
+                claimed.size(), failed.size(), latency, batchSize);
+    }
+
+    /**
+     * 以 _bulk 写入最新状态，不存在或已删除的线索从索引移除
+     * @return 写入失败的线索ID
+     */
+    private Set<Long> writeIndex(Set<Long> leadIds) {
+        List<IndexQuery> indexQueries = new ArrayList<>();
+        Set<Long> removals = new HashSet<>(leadIds);
+        for (Lead lead : leadRepository.findAllById(leadIds)) {
+            if (lead.getDeleted() != null && lead.getDeleted() == 1) {
+                continue;
+            }
+            removals.remove(lead.getId());
+            indexQueries.add(LeadIndexManager.indexQuery(lead));
+        }
+
+        Set<Long> failed = new HashSet<>();
+        if (!indexQueries.isEmpty()) {
+            try {
+                elasticsearchOperations.bulkIndex(indexQueries, Lead.class);
+            } catch (BulkFailureException e) {
+                e.getFailedDocuments().forEach((id, reason) -> {
+                    if (LeadIndexManager.isVersionConflict(reason)) {
+                        logger.debug("线索索引已有更新版本，线索ID：{}", id);
+                        return;
+                    }
+                    logger.warn("线索索引写入失败，线索ID：{}，原因：{}", id, reason);
+                    failed.add(Long.valueOf(id));
+                });
+            }
+        }
+        if (!removals.isEmpty()) {
+            String[] ids = removals.stream().map(String::valueOf).toArray(String[]::new);
+            elasticsearchOperations.delete(new NativeSearchQueryBuilder()
+                    .withQuery(QueryBuilders.idsQuery().addIds(ids)).build(), Lead.class);
+        }
+        return failed;
+    }
+
+    /**
+     * 按写入结果调整批量大小：成功且低于目标耗时时线性增大，否则减半
+     */
+    private void adjustBatchSize(boolean succeeded, long latencyMs) {
+        if (succeeded && latencyMs <= targetLatencyMs) {
+            batchSize = Math.min(maxBatchSize, batchSize + batchSizeStep);
+        } else {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        }
+    }
+
+    private void retryOrDeadLetter(Long leadId, PendingLead entry) {
+        entry.attempts++;
+        if (entry.attempts >= maxAttempts) {
+            logger.error("线索索引写入已达最大次数，转入死信队列，线索ID：{}，消息数：{}", leadId, entry.deliveries.size());
+            for (Delivery delivery : entry.deliveries) {
+                try {
+                    delivery.channel.basicNack(delivery.deliveryTag, false, false);
+                } catch (Exception e) {
+                    logger.warn("拒绝线索索引消息失败，线索ID：{}，原因：{}", leadId, e.getMessage());
+                }
+            }
+            return;
+        }
+        long backoff = retryBackoffMs << Math.min(entry.attempts - 1, 20);
+        entry.nextAttemptAt = System.currentTimeMillis() + Math.min(backoff, maxBackoffMs);
+        pending.merge(leadId, entry, (current, retry) -> {
+            retry.deliveries.addAll(current.deliveries);
+            return retry;
+        });
+    }
+
+    private void acknowledge(PendingLead entry) {
+        for (Delivery delivery : entry.deliveries) {
+            try {
+                delivery.channel.basicAck(delivery.deliveryTag, false);
+            } catch (Exception e) {
+                // 确认失败时消息会被重新投递，索引写入幂等
+                logger.warn("确认线索索引消息失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    private Long parseLeadId(Message message) {
+        try {
+            JsonNode node = objectMapper.readTree(message.getBody()).get("leadId");
+            return node != null && node.canConvertToLong() ? node.asLong() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 待写入线索及其未确认的消息
+     */
+    private static final class PendingLead {
+
+        private final List<Delivery> deliveries = new ArrayList<>();
+        private int attempts;
+        private long nextAttemptAt;
+    }
+
+    /**
+     * 未确认的消息
+     */
+    private static final class Delivery {
+
+        private final Channel channel;
+        private final long deliveryTag;
+
+        private Delivery(Channel channel, long deliveryTag) {
+            this.channel = channel;
+            this.deliveryTag = deliveryTag;
+        }
+    }
+}
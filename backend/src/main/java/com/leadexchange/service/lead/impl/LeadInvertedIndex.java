@@ -0,0 +1,588 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.util.CjkBigramTokenizer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 线索内存倒排索引
+ * 对标题、企业名称、行业方向和描述做中日韩二元分词，按字段记录词频，以BM25计算相关度，
+ * 字段权重与Elasticsearch查询一致（标题3、企业名称2、行业方向1.5、描述1）；查询词之间为与关系，
+ * 单字查询匹配包含该字的全部二元词。过滤所需的状态、评级、区域和投资额随文档保存，搜索不访问数据库。
+ * 索引可整体写入本地段文件，启动时以内存映射读取段文件恢复，段文件头记录检查点时间供增量追赶。
+ * 读写锁保护：搜索并行，更新互斥。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class LeadInvertedIndex {
+
+    static final String[] FIELDS = {"title", "companyName", "industryDirection", "description"};
+
+    private static final float[] BOOSTS = {3.0f, 2.0f, 1.5f, 1.0f};
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    private static final int SEGMENT_MAGIC = 0x4C494458;
+
+    private static final int SEGMENT_VERSION = 1;
+
+    private static final int MAX_FRAGMENT_LENGTH = 150;
+
+    private static final int FRAGMENT_LEADING = 30;
+
+    private static final String HIGHLIGHT_PRE_TAG = "<em>";
+
+    private static final String HIGHLIGHT_POST_TAG = "</em>";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, DocEntry> docs = new HashMap<>();
+
+    /**
+     * 词 -> (线索ID -> 各字段词频)
+     */
+    private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+
+    private final long[] totalFieldLengths = new long[FIELDS.length];
+
+    /**
+     * 写入或替换线索，已删除的线索从索引移除
+     * @param lead 线索
+     */
+    public void put(Lead lead) {
+        if (lead.getDeleted() != null && lead.getDeleted() == 1) {
+            remove(lead.getId());
+            return;
+        }
+        String[] values = {lead.getTitle(), lead.getCompanyName(), lead.getIndustryDirection(), lead.getDescription()};
+        Map<String, int[]> frequencies = new HashMap<>();
+        int[] lengths = new int[FIELDS.length];
+        for (int field = 0; field < FIELDS.length; field++) {
+            List<String> tokens = CjkBigramTokenizer.tokenize(values[field]);
+            lengths[field] = tokens.size();
+            for (String token : tokens) {
+                frequencies.computeIfAbsent(token, key -> new int[FIELDS.length])[field]++;
+            }
+        }
+        DocEntry entry = new DocEntry(lead.getId(),
+                lead.getStatus() != null ? lead.getStatus().name() : null,
+                lead.getRating() != null ? lead.getRating().name() : null,
+                lead.getIntendedRegion(),
+                lead.getInvestmentAmount() != null ? lead.getInvestmentAmount().doubleValue() : null,
+                lengths, frequencies.keySet().toArray(new String[0]));
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(lead.getId());
+            for (Map.Entry<String, int[]> frequency : frequencies.entrySet()) {
+                postings.computeIfAbsent(frequency.getKey(), key -> new HashMap<>()).put(lead.getId(), frequency.getValue());
+            }
+            addLengths(lengths, 1);
+            docs.put(lead.getId(), entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除线索
+     * @param leadId 线索ID
+     */
+    public void remove(Long leadId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(leadId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            Arrays.fill(totalFieldLengths, 0L);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引中的线索数量
+     * @return 线索数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索线索：有关键词时按得分和ID倒序，否则按ID倒序
+     * @param keyword 关键词，null表示只按条件过滤
+     * @param filter 过滤条件
+     * @param afterScore 游标得分，无关键词时忽略
+     * @param afterId 游标ID，null表示从头开始
+     * @param offset 跳过的条数
+     * @param limit 返回的条数
+     * @return 搜索结果，总数为游标之前的全部命中数
+     */
+    public SearchResult search(String keyword, LeadSearchRequest filter, Float afterScore, Long afterId,
+                               int offset, int limit) {
+        List<ScoredDoc> matched = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<String> tokens = keyword == null ? Collections.emptyList()
+                    : new ArrayList<>(new LinkedHashSet<>(CjkBigramTokenizer.tokenize(keyword)));
+            if (keyword != null && tokens.isEmpty()) {
+                return new SearchResult(Collections.emptyList(), 0L);
+            }
+            if (tokens.isEmpty()) {
+                for (DocEntry entry : docs.values()) {
+                    if (entry.matches(filter)) {
+                        matched.add(new ScoredDoc(entry.id, null));
+                    }
+                }
+            } else {
+                collectScored(tokens, filter, matched);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<ScoredDoc> order = Comparator.comparing((ScoredDoc doc) -> doc.score,
+                        Comparator.nullsLast(Comparator.<Float>reverseOrder()))
+                .thenComparing(doc -> doc.id, Comparator.<Long>reverseOrder());
+        matched.sort(order);
+        long total = matched.size();
+
+        List<ScoredDoc> page = new ArrayList<>(Math.min(limit, matched.size()));
+        int skipped = 0;
+        for (ScoredDoc doc : matched) {
+            if (afterId != null && !isAfter(doc, afterScore, afterId)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(doc);
+        }
+        return new SearchResult(page, total);
+    }
+
+    /**
+     * 按关键词标记线索各字段的命中片段
+     * @param lead 线索
+     * @param keyword 关键词
+     * @return 高亮片段，键为字段名
+     */
+    public Map<String, List<String>> highlight(Lead lead, String keyword) {
+        if (keyword == null) {
+            return Collections.emptyMap();
+        }
+        Set<String> tokens = new LinkedHashSet<>(CjkBigramTokenizer.tokenize(keyword));
+        String[] values = {lead.getTitle(), lead.getCompanyName(), lead.getIndustryDirection(), lead.getDescription()};
+        Map<String, List<String>> highlights = new LinkedHashMap<>();
+        for (int field = 0; field < FIELDS.length; field++) {
+            String fragment = highlightField(values[field], tokens);
+            if (fragment != null) {
+                highlights.put(FIELDS[field], Collections.singletonList(fragment));
+            }
+        }
+        return highlights;
+    }
+
+    /**
+     * 将索引写入段文件：先写临时文件再原子替换
+     * @param file 段文件
+     * @param checkpointMillis 检查点时间，此时间之后的变更需在加载后追赶
+     * @throws IOException 写入失败
+     */
+    public void writeSegment(Path file, long checkpointMillis) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(SEGMENT_VERSION);
+            out.writeLong(checkpointMillis);
+            out.writeInt(docs.size());
+            for (DocEntry entry : docs.values()) {
+                out.writeLong(entry.id);
+                writeString(out, entry.status);
+                writeString(out, entry.rating);
+                writeString(out, entry.region);
+                out.writeDouble(entry.investment != null ? entry.investment : Double.NaN);
+                for (int length : entry.lengths) {
+                    out.writeInt(length);
+                }
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, Map<Long, int[]>> term : postings.entrySet()) {
+                writeString(out, term.getKey());
+                out.writeInt(term.getValue().size());
+                for (Map.Entry<Long, int[]> posting : term.getValue().entrySet()) {
+                    out.writeLong(posting.getKey());
+                    for (int frequency : posting.getValue()) {
+                        out.writeInt(frequency);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 以内存映射读取段文件，替换当前索引内容
+     * @param file 段文件
+     * @return 段文件记录的检查点时间
+     * @throws IOException 读取失败或格式不符
+     */
+    public long loadSegment(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != SEGMENT_MAGIC || buffer.getInt() != SEGMENT_VERSION) {
+                throw new IOException("线索索引段文件格式不符：" + file);
+            }
+            long checkpointMillis = buffer.getLong();
+
+            Map<Long, DocEntry> loadedDocs = new HashMap<>();
+            Map<Long, List<String>> docTerms = new HashMap<>();
+            int docCount = buffer.getInt();
+            for (int i = 0; i < docCount; i++) {
+                long id = buffer.getLong();
+                String status = readString(buffer);
+                String rating = readString(buffer);
+                String region = readString(buffer);
+                double investment = buffer.getDouble();
+                int[] lengths = new int[FIELDS.length];
+                for (int field = 0; field < FIELDS.length; field++) {
+                    lengths[field] = buffer.getInt();
+                }
+                loadedDocs.put(id, new DocEntry(id, status, rating, region,
+                        Double.isNaN(investment) ? null : investment, lengths, null));
+                docTerms.put(id, new ArrayList<>());
+            }
+
+            Map<String, Map<Long, int[]>> loadedPostings = new HashMap<>();
+            int termCount = buffer.getInt();
+            for (int i = 0; i < termCount; i++) {
+                String term = readString(buffer);
+                int postingCount = buffer.getInt();
+                Map<Long, int[]> termPostings = new HashMap<>(postingCount * 2);
+                for (int j = 0; j < postingCount; j++) {
+                    long id = buffer.getLong();
+                    int[] frequencies = new int[FIELDS.length];
+                    for (int field = 0; field < FIELDS.length; field++) {
+                        frequencies[field] = buffer.getInt();
+                    }
+                    termPostings.put(id, frequencies);
+                    docTerms.get(id).add(term);
+                }
+                loadedPostings.put(term, termPostings);
+            }
+
+            lock.writeLock().lock();
+            try {
+                docs.clear();
+                postings.clear();
+                Arrays.fill(totalFieldLengths, 0L);
+                for (DocEntry entry : loadedDocs.values()) {
+                    entry.terms = docTerms.get(entry.id).toArray(new String[0]);
+                    docs.put(entry.id, entry);
+                    addLengths(entry.lengths, 1);
+                }
+                postings.putAll(loadedPostings);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return checkpointMillis;
+        } catch (RuntimeException e) {
+            throw new IOException("读取线索索引段文件失败：" + file, e);
+        }
+    }
+
+    /**
+     * 取各查询词的倒排表求交集，计算BM25得分
+     */
+    private void collectScored(List<String> tokens, LeadSearchRequest filter, List<ScoredDoc> matched) {
+        List<Map<Long, int[]>> termPostings = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Map<Long, int[]> resolved = resolvePostings(token);
+            if (resolved.isEmpty()) {
+                return;
+            }
+            termPostings.add(resolved);
+        }
+        termPostings.sort(Comparator.comparingInt(Map::size));
+
+        int docCount = docs.size();
+        double[] averageLengths = new double[FIELDS.length];
+        for (int field = 0; field < FIELDS.length; field++) {
+            averageLengths[field] = docCount == 0 || totalFieldLengths[field] == 0
+                    ? 1.0 : (double) totalFieldLengths[field] / docCount;
+        }
+
+        for (Long id : termPostings.get(0).keySet()) {
+            DocEntry entry = docs.get(id);
+            if (entry == null || !entry.matches(filter)) {
+                continue;
+            }
+            double score = 0;
+            boolean all = true;
+            for (Map<Long, int[]> posting : termPostings) {
+                int[] frequencies = posting.get(id);
+                if (frequencies == null) {
+                    all = false;
+                    break;
+                }
+                int documentFrequency = posting.size();
+                double idf = Math.log(1 + (docCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                for (int field = 0; field < FIELDS.length; field++) {
+                    int frequency = frequencies[field];
+                    if (frequency == 0) {
+                        continue;
+                    }
+                    double norm = K1 * (1 - B + B * entry.lengths[field] / averageLengths[field]);
+                    score += BOOSTS[field] * idf * frequency * (K1 + 1) / (frequency + norm);
+                }
+            }
+            if (all) {
+                matched.add(new ScoredDoc(id, (float) score));
+            }
+        }
+    }
+
+    /**
+     * 获取查询词的倒排表，单字查询合并包含该字的全部词
+     */
+    private Map<Long, int[]> resolvePostings(String token) {
+        Map<Long, int[]> exact = postings.get(token);
+        if (!CjkBigramTokenizer.isSingleCjk(token)) {
+            return exact != null ? exact : Collections.emptyMap();
+        }
+        Map<Long, int[]> merged = new HashMap<>();
+        for (Map.Entry<String, Map<Long, int[]>> term : postings.entrySet()) {
+            if (!term.getKey().contains(token)) {
+                continue;
+            }
+            for (Map.Entry<Long, int[]> posting : term.getValue().entrySet()) {
+                int[] sum = merged.computeIfAbsent(posting.getKey(), key -> new int[FIELDS.length]);
+                for (int field = 0; field < FIELDS.length; field++) {
+                    sum[field] += posting.getValue()[field];
+                }
+            }
+        }
+        return merged;
+    }
+
+    private boolean isAfter(ScoredDoc doc, Float afterScore, long afterId) {
+        if (doc.score == null || afterScore == null) {
+            return doc.id < afterId;
+        }
+        int compare = Float.compare(doc.score, afterScore);
+        return compare < 0 || (compare == 0 && doc.id < afterId);
+    }
+
+    private String highlightField(String value, Set<String> tokens) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        if (lower.length() != value.length()) {
+            return null;
+        }
+        boolean[] marks = new boolean[value.length()];
+        int first = -1;
+        for (String token : tokens) {
+            int from = 0;
+            int index;
+            while ((index = lower.indexOf(token, from)) >= 0) {
+                Arrays.fill(marks, index, index + token.length(), true);
+                first = first < 0 ? index : Math.min(first, index);
+                from = index + 1;
+            }
+        }
+        if (first < 0) {
+            return null;
+        }
+        int start = value.length() <= MAX_FRAGMENT_LENGTH ? 0 : Math.max(0, first - FRAGMENT_LEADING);
+        int end = Math.min(value.length(), start + MAX_FRAGMENT_LENGTH);
+        StringBuilder fragment = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            if (marks[i] && (i == start || !marks[i - 1])) {
+                fragment.append(HIGHLIGHT_PRE_TAG);
+            }
+            fragment.append(value.charAt(i));
+            if (marks[i] && (i + 1 == end || !marks[i + 1])) {
+                fragment.append(HIGHLIGHT_POST_TAG);
+            }
+        }
+        return fragment.toString();
+    }
+
+    private void removeInternal(Long leadId) {
+        DocEntry existing = docs.remove(leadId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms) {
+            Map<Long, int[]> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(leadId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        addLengths(existing.lengths, -1);
+    }
+
+    private void addLengths(int[] lengths, int sign) {
+        for (int field = 0; field < FIELDS.length; field++) {
+            totalFieldLengths[field] += sign * (long) lengths[field];
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 索引中的线索
+     */
+    private static final class DocEntry {
+
+        private final long id;
+        private final String status;
+        private final String rating;
+        private final String region;
+        private final Double investment;
+        private final int[] lengths;
+        private String[] terms;
+
+        private DocEntry(long id, String status, String rating, String region, Double investment,
+                         int[] lengths, String[] terms) {
+            this.id = id;
+            this.status = status;
+            this.rating = rating;
+            this.region = region;
+            this.investment = investment;
+            this.lengths = lengths;
+            this.terms = terms;
+        }
+
+        private boolean matches(LeadSearchRequest filter) {
+            LeadStatus expectedStatus = filter.getStatus() != null ? filter.getStatus() : LeadStatus.PUBLISHED;
+            if (!expectedStatus.name().equals(status)) {
+                return false;
+            }
+            if (filter.getRating() != null && !filter.getRating().name().equals(rating)) {
+                return false;
+            }
+            if (filter.getRegion() != null && !filter.getRegion().trim().isEmpty()
+                    && !filter.getRegion().trim().equals(region)) {
+                return false;
+            }
+            if (filter.getMinInvestment() != null
+                    && (investment == null || investment < filter.getMinInvestment().doubleValue())) {
+                return false;
+            }
+            return filter.getMaxInvestment() == null
+                    || (investment != null && investment <= filter.getMaxInvestment().doubleValue());
+        }
+    }
+
+    /**
+     * 命中的线索ID及得分
+     */
+    public static final class ScoredDoc {
+
+        private final long id;
+        private final Float score;
+
+        public ScoredDoc(long id, Float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return 相关度得分，无关键词时为null
+         */
+        public Float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * 搜索结果
+     */
+    public static final class SearchResult {
+
+        private final List<ScoredDoc> docs;
+        private final long total;
+
+        public SearchResult(List<ScoredDoc> docs, long total) {
+            this.docs = docs;
+            this.total = total;
+        }
+
+        public List<ScoredDoc> getDocs() {
+            return docs;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+}
@@ -1,20 +1,23 @@
 package com.leadexchange.service.lead.impl;
 
+import com.leadexchange.service.lead.LeadSearchService;
 import com.leadexchange.service.lead.LeadService;
+import com.leadexchange.dto.lead.LeadSearchRequest;
 import com.leadexchange.domain.lead.Lead;
 import com.leadexchange.domain.lead.LeadStatus;
 import com.leadexchange.domain.lead.LeadRating;
 import com.leadexchange.domain.lead.AuditStatus;
 import com.leadexchange.domain.lead.LeadFavorite;
 import com.leadexchange.domain.lead.LeadView;
+import com.leadexchange.event.lead.LeadChangeEvent;
 import com.leadexchange.repository.lead.LeadRepository;
 import com.leadexchange.repository.lead.LeadViewRepository;
 import com.leadexchange.repository.lead.LeadFavoriteRepository;
+import com.leadexchange.service.exchange.LeadReservationService;
 import com.leadexchange.service.rating.RatingEngineService;
 import com.leadexchange.service.rating.RatingEngineService.RatingTrendData;
 import com.leadexchange.service.rating.RatingEngineService.RatingBatchCondition;
 import com.leadexchange.util.EditDistanceUtil;
-// import com.leadexchange.repository.elasticsearch.LeadSearchRepository;
 // import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 // import com.baomidou.mybatisplus.core.metadata.IPage;
 // import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -24,6 +27,7 @@ import org.springframework.data.domain.Pageable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -55,11 +59,17 @@ public class LeadServiceImpl implements LeadService {
     @Autowired
     private RatingEngineService ratingEngineService;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     // @Autowired
     // private LeadFavoriteRepository leadFavoriteRepository;
     
-    // @Autowired
-    // private LeadSearchRepository leadSearchRepository;
+    @Autowired
+    private LeadSearchService leadSearchService;
+
+    @Autowired
+    private LeadReservationService leadReservationService;
 
     @Override
     public Lead createLead(Lead lead) {
@@ -77,12 +87,7 @@ public class LeadServiceImpl implements LeadService {
         // 保存到数据库
         leadRepository.save(lead);
         
-        // 同步到Elasticsearch (暂时注释)
-        // try {
-        //     leadSearchRepository.save(lead);
-        // } catch (Exception e) {
-        //     logger.warn("同步线索到Elasticsearch失败: {}", e.getMessage());
-        // }
+        publishLeadChange(LeadChangeEvent.ChangeType.CREATED, lead.getId());
         
         logger.info("线索创建成功，ID: {}", lead.getId());
         return lead;
@@ -97,6 +102,9 @@ public class LeadServiceImpl implements LeadService {
             throw new IllegalArgumentException("线索不存在: " + lead.getId());
         }
         
+        // 交换进行中的线索不允许修改，避免申请估值与线索内容不一致
+        leadReservationService.checkNotReserved(lead.getId());
+        
         // 重新计算评级
         int ratingScore = calculateLeadRating(lead);
         lead.setRatingScore(ratingScore);
@@ -105,12 +113,7 @@ public class LeadServiceImpl implements LeadService {
         // 更新数据库
         leadRepository.save(lead);
         
-        // 同步到Elasticsearch (暂时注释)
-        // try {
-        //     leadSearchRepository.save(lead);
-        // } catch (Exception e) {
-        //     logger.warn("同步线索到Elasticsearch失败: {}", e.getMessage());
-        // }
+        publishLeadChange(LeadChangeEvent.ChangeType.UPDATED, lead.getId());
         
         logger.info("线索更新成功: {}", lead.getId());
         return lead;
@@ -126,16 +129,14 @@ public class LeadServiceImpl implements LeadService {
             return false;
         }
         
+        // 交换进行中的线索不允许删除，否则交换执行时所有权转移失败
+        leadReservationService.checkNotReserved(id);
+        
         // 软删除
         lead.setDeleted(1);
         leadRepository.save(lead);
         
-        // 从Elasticsearch删除 (暂时注释)
-        // try {
-        //     leadSearchRepository.deleteById(id);
-        // } catch (Exception e) {
-        //     logger.warn("从Elasticsearch删除线索失败: {}", e.getMessage());
-        // }
+        publishLeadChange(LeadChangeEvent.ChangeType.DELETED, id);
         
         logger.info("线索删除成功: {}", id);
         return true;
@@ -182,8 +183,7 @@ public class LeadServiceImpl implements LeadService {
             return getLeadPage(pageable, null, LeadStatus.PUBLISHED);
         }
         
-        // 暂时返回所有数据，后续可以添加自定义搜索方法
-        return leadRepository.findAll(pageable);
+        return leadSearchService.searchPage(LeadSearchRequest.ofKeyword(keyword), pageable);
     }
 
     @Override
@@ -206,6 +206,8 @@ public class LeadServiceImpl implements LeadService {
         lead.setPublishedTime(LocalDateTime.now());
         leadRepository.save(lead);
         
+        publishLeadChange(LeadChangeEvent.ChangeType.STATUS_CHANGED, id);
+        
         logger.info("线索发布成功: {}", id);
         return true;
     }
@@ -223,6 +225,8 @@ public class LeadServiceImpl implements LeadService {
         lead.setStatus(LeadStatus.OFFLINE);
         leadRepository.save(lead);
         
+        publishLeadChange(LeadChangeEvent.ChangeType.STATUS_CHANGED, id);
+        
         logger.info("线索下架成功: {}", id);
         return true;
     }
@@ -269,6 +273,8 @@ public class LeadServiceImpl implements LeadService {
         lead.setStatus(status);
         leadRepository.save(lead);
         
+        publishLeadChange(LeadChangeEvent.ChangeType.STATUS_CHANGED, id);
+        
         logger.info("线索状态更新成功: {}", id);
         return true;
     }
@@ -759,6 +765,7 @@ public class LeadServiceImpl implements LeadService {
             lead.setUpdateTime(LocalDateTime.now());
             
             leadRepository.save(lead);
+            publishLeadChange(LeadChangeEvent.ChangeType.RATING_CHANGED, leadId);
             
             logger.info("线索评级更新成功: leadId={}, rating={}, score={}", leadId, rating, score);
             return true;
@@ -809,11 +816,12 @@ public class LeadServiceImpl implements LeadService {
             }
             
             // 更新所有者
-            lead.setCreateBy(newOwnerId);
+            lead.setOwnerId(newOwnerId);
             lead.setUpdateTime(LocalDateTime.now());
             lead.setUpdateBy(newOwnerId);
             
             leadRepository.save(lead);
+            publishLeadChange(LeadChangeEvent.ChangeType.OWNER_CHANGED, leadId);
             
             logger.info("线索所有权转移成功: leadId={}, newOwnerId={}", leadId, newOwnerId);
             return true;
@@ -823,4 +831,27 @@ public class LeadServiceImpl implements LeadService {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public int transferLeadsOwnership(List<Long> leadIds, Long expectedOwnerId, Long newOwnerId) {
+        if (leadIds == null || leadIds.isEmpty()) {
+            return 0;
+        }
+        
+        int updated = leadRepository.transferOwnership(leadIds, expectedOwnerId, newOwnerId, LocalDateTime.now());
+        if (updated > 0) {
+            eventPublisher.publishEvent(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.OWNER_CHANGED,
+                    new ArrayList<>(leadIds)));
+        }
+        logger.info("批量转移线索所有权: leadIds={}, expectedOwnerId={}, newOwnerId={}, updated={}", 
+            leadIds, expectedOwnerId, newOwnerId, updated);
+        return updated;
+    }
+    
+    /**
+     * 发布线索变更事件
+     */
+    private void publishLeadChange(LeadChangeEvent.ChangeType changeType, Long leadId) {
+        eventPublisher.publishEvent(new LeadChangeEvent(this, changeType, leadId));
+    }
+}
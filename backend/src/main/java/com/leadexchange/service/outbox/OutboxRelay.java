@@ -0,0 +1,248 @@
+package com.leadexchange.service.outbox;
+
+import com.leadexchange.domain.outbox.OutboxEvent;
+import com.leadexchange.domain.outbox.OutboxStatus;
+import com.leadexchange.repository.outbox.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 发件箱投递任务
+ * 每批在一个短事务内以 FOR UPDATE SKIP LOCKED 认领到期消息，并把下次投递时间推迟到租约到期后提交，
+ * 多节点并行投递互不重复；发送和等待发布确认在事务外进行，不占用数据库连接和行锁，
+ * 确认结果再以一个短事务回写。认领节点在租约内未回写结果时，消息到期后由其他节点重新投递，
+ * 因此投递语义为至少一次，消费方按 messageId 去重。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.relay.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.outbox.relay.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${app.outbox.relay.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.relay.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${app.outbox.relay.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${app.outbox.cleanup.retention-hours:72}")
+    private long retentionHours;
+
+    @Value("${app.outbox.cleanup.batch-size:1000}")
+    private int cleanupBatchSize;
+
+    /**
+     * 投递到期消息，单轮最多处理若干批
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<OutboxEvent> events;
+            try {
+                events = transactionTemplate.execute(status -> claimBatch());
+            } catch (Exception e) {
+                log.warn("发件箱认领失败：{}", e.getMessage());
+                return;
+            }
+            if (events == null || events.isEmpty()) {
+                return;
+            }
+            List<String> errors = publish(events);
+            try {
+                Integer published = transactionTemplate.execute(status -> complete(events, errors));
+                log.debug("发件箱本批认领：{}条，投递成功：{}条", events.size(), published);
+            } catch (Exception e) {
+                log.warn("发件箱投递结果回写失败，租约到期后重新投递：{}", e.getMessage());
+                return;
+            }
+            if (events.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 清理已投递的历史消息
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup.interval-ms:3600000}",
+               initialDelayString = "${app.outbox.cleanup.initial-delay-ms:60000}")
+    public void cleanup() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        int total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status ->
+                    outboxEventRepository.deletePublishedBefore(cutoff, cleanupBatchSize));
+            total += deleted == null ? 0 : deleted;
+            if (deleted == null || deleted < cleanupBatchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("已清理发件箱历史消息：{}条", total);
+        }
+    }
+
+    /**
+     * 认领一批到期消息并设置租约，须在事务中调用
+     * @return 认领的消息
+     */
+    private List<OutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.claimPending(now, batchSize);
+        LocalDateTime leaseUntil = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs));
+        for (OutboxEvent event : events) {
+            event.lease(leaseUntil);
+        }
+        return events;
+    }
+
+    /**
+     * 整批发送后统一等待发布确认，不在事务中调用
+     * @return 与消息一一对应的失败原因，投递成功时为null
+     */
+    private List<String> publish(List<OutboxEvent> events) {
+        List<CorrelationData> confirmations = new ArrayList<>(events.size());
+        List<String> errors = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            CorrelationData correlation = new CorrelationData(String.valueOf(event.getId()));
+            confirmations.add(correlation);
+            try {
+                rabbitTemplate.send(event.getExchangeName(), event.getRoutingKey(), toMessage(event), correlation);
+                errors.add(null);
+            } catch (Exception e) {
+                errors.add("发送失败：" + e.getMessage());
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + confirmTimeoutMs;
+        for (int i = 0; i < events.size(); i++) {
+            if (errors.get(i) == null) {
+                errors.set(i, awaitConfirm(confirmations.get(i), deadline));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * 回写投递结果，须在事务中调用
+     * 重新加载认领的消息，租约到期后已被其他节点处理的消息不再修改
+     * @return 投递成功数量
+     */
+    private int complete(List<OutboxEvent> claimed, List<String> errors) {
+        Map<Long, String> errorById = new HashMap<>();
+        List<Long> ids = new ArrayList<>(claimed.size());
+        for (int i = 0; i < claimed.size(); i++) {
+            ids.add(claimed.get(i).getId());
+            errorById.put(claimed.get(i).getId(), errors.get(i));
+        }
+        int published = 0;
+        for (OutboxEvent event : outboxEventRepository.findAllById(ids)) {
+            if (event.getStatus() != OutboxStatus.PENDING) {
+                continue;
+            }
+            String error = errorById.get(event.getId());
+            if (error == null) {
+                event.markPublished();
+                published++;
+            } else {
+                event.markFailed(error, nextAttemptTime(event.getAttempts()), maxAttempts);
+                log.warn("发件箱消息投递失败，消息ID：{}，已尝试：{}次，原因：{}",
+                        event.getId(), event.getAttempts(), error);
+            }
+        }
+        return published;
+    }
+
+    /**
+     * 等待发布确认
+     * @return 失败原因，确认成功时为null
+     */
+    private String awaitConfirm(CorrelationData correlation, long deadline) {
+        try {
+            long waitMs = Math.max(0L, deadline - System.currentTimeMillis());
+            CorrelationData.Confirm confirm = correlation.getFuture().get(waitMs, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                return "消息代理拒绝：" + confirm.getReason();
+            }
+            if (correlation.getReturned() != null) {
+                return "消息无法路由：" + correlation.getReturned().getReplyText();
+            }
+            return null;
+        } catch (TimeoutException e) {
+            return "等待发布确认超时";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "等待发布确认被中断";
+        } catch (ExecutionException e) {
+            return "发布确认异常：" + e.getCause().getMessage();
+        }
+    }
+
+    private LocalDateTime nextAttemptTime(int attempts) {
+        long backoff = retryBackoffMs << Math.min(attempts, 20);
+        return LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(Math.min(backoff, maxBackoffMs)));
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setMessageId(String.valueOf(event.getId()));
+        properties.setType(event.getEventType());
+        properties.setTimestamp(Date.from(event.getCreateTime().atZone(ZoneId.systemDefault()).toInstant()));
+        properties.setHeader("aggregateType", event.getAggregateType());
+        properties.setHeader("aggregateId", event.getAggregateId());
+        return new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,125 @@
+package com.leadexchange.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadexchange.config.RabbitMQConfig;
+import com.leadexchange.domain.outbox.OutboxEvent;
+import com.leadexchange.event.exchange.ExchangeApplicationEvent;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.outbox.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 发件箱服务
+ * 在业务事务内写入待投递消息，由 {@link OutboxRelay} 异步投递到消息代理。
+ * 交换申请事件在事务提交前写入发件箱，写入失败时整个业务事务回滚，保证事件与业务数据同生同灭。
+ * 启用Elasticsearch时，线索变更同样经发件箱投递到线索交换机，由索引管道异步写入搜索索引。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    /**
+     * 交换申请聚合类型
+     */
+    public static final String AGGREGATE_EXCHANGE_APPLICATION = "EXCHANGE_APPLICATION";
+
+    /**
+     * 线索聚合类型
+     */
+    public static final String AGGREGATE_LEAD = "LEAD";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${spring.elasticsearch.enabled:false}")
+    private boolean leadIndexEnabled;
+
+    /**
+     * 写入待投递消息，须在业务事务内调用
+     * @param aggregateType 聚合类型
+     * @param aggregateId 聚合ID
+     * @param eventType 事件类型
+     * @param exchange 目标交换机
+     * @param routingKey 路由键
+     * @param payload 消息内容
+     * @return 发件箱消息
+     */
+    public OutboxEvent enqueue(String aggregateType, Long aggregateId, String eventType,
+                               String exchange, String routingKey, Map<String, Object> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化发件箱消息失败，事件类型：" + eventType, e);
+        }
+        return outboxEventRepository.save(
+                new OutboxEvent(aggregateType, aggregateId, eventType, exchange, routingKey, json));
+    }
+
+    /**
+     * 交换申请事件在事务提交前写入发件箱：全部事件投递到通知交换机，交换完成事件同时投递到线索交换机
+     * @param event 交换申请事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onExchangeApplicationEvent(ExchangeApplicationEvent event) {
+        Map<String, Object> payload = toPayload(event);
+        enqueue(AGGREGATE_EXCHANGE_APPLICATION, event.getApplicationId(), event.getEventCode(),
+                RabbitMQConfig.NOTIFICATION_EXCHANGE, RabbitMQConfig.NOTIFICATION_ROUTING_KEY, payload);
+        if (event.getEventType() == ExchangeApplicationEvent.EventType.EXCHANGE_COMPLETED) {
+            enqueue(AGGREGATE_EXCHANGE_APPLICATION, event.getApplicationId(), event.getEventCode(),
+                    RabbitMQConfig.LEAD_EXCHANGE, RabbitMQConfig.LEAD_EXCHANGED_ROUTING_KEY, payload);
+        }
+        log.debug("交换申请事件已写入发件箱，事件类型：{}，申请ID：{}", event.getEventType(), event.getApplicationId());
+    }
+
+    /**
+     * 线索变更在事务提交前写入发件箱，每个线索一条消息，供索引管道按线索合并后批量写入索引
+     * @param event 线索变更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onLeadChanged(LeadChangeEvent event) {
+        if (!leadIndexEnabled) {
+            return;
+        }
+        String routingKey = event.getChangeType() == LeadChangeEvent.ChangeType.CREATED
+                ? RabbitMQConfig.LEAD_CREATED_ROUTING_KEY : RabbitMQConfig.LEAD_UPDATED_ROUTING_KEY;
+        for (Long leadId : event.getLeadIds()) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("leadId", leadId);
+            payload.put("changeType", event.getChangeType().name());
+            payload.put("eventTime", event.getEventTime().toString());
+            enqueue(AGGREGATE_LEAD, leadId, event.getChangeType().name(),
+                    RabbitMQConfig.LEAD_EXCHANGE, routingKey, payload);
+        }
+    }
+
+    private Map<String, Object> toPayload(ExchangeApplicationEvent event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("eventType", event.getEventCode());
+        payload.put("applicationId", event.getApplicationId());
+        payload.put("applicationStatus", event.getApplicationStatus());
+        payload.put("applicantId", event.getApplicantId());
+        payload.put("targetUserId", event.getTargetUserId());
+        payload.put("requestedLeadId", event.getRequestedLeadId());
+        payload.put("offeredLeadId", event.getOfferedLeadId());
+        payload.put("operatorId", event.getOperatorId());
+        payload.put("remark", event.getRemark());
+        payload.put("eventTime", event.getEventTime().toString());
+        return payload;
+    }
+}
@@ -0,0 +1,115 @@
+package com.leadexchange.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 布隆过滤器
+ * 用于本地快速判定某个键一定不存在，可能存在时再查询外部存储。
+ * 位数组与哈希函数个数按预期元素数和误判率计算，采用双重哈希生成各哈希位置。线程安全。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 预期元素数
+     * @param falsePositiveRate 期望误判率，取值 (0, 1)
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("布隆过滤器参数不合法");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(Math.max(words, 1));
+        this.bitCount = (long) this.bits.length() * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 加入元素
+     * @param value 元素
+     */
+    public void put(String value) {
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = bitIndex(hash1 + i * hash2);
+            setBit(index);
+        }
+    }
+
+    /**
+     * 判断元素是否可能存在
+     * @param value 元素
+     * @return false表示一定不存在，true表示可能存在
+     */
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = bitIndex(hash1 + i * hash2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 哈希函数个数
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * @return 位数组长度
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    private long bitIndex(int combinedHash) {
+        // 取非负值后对位数组长度取模
+        return (combinedHash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    /**
+     * 64位FNV-1a哈希，再做一次混淆使高低32位均匀分布
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,91 @@
+package com.leadexchange.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 中日韩二元分词器
+ * 连续的中日韩字符切分为相邻两字的重叠二元词（单独一个字时保留单字），
+ * 连续的字母和数字作为一个词并转为小写，其余字符视为分隔符。
+ * 不依赖词典，召回稳定，适合无Elasticsearch部署的嵌入式检索。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public final class CjkBigramTokenizer {
+
+    private CjkBigramTokenizer() {
+    }
+
+    /**
+     * 分词，保留重复词以便统计词频
+     * @param text 文本
+     * @return 词列表，文本为空时为空列表
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        List<Integer> cjkRun = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        int offset = 0;
+        while (offset < text.length()) {
+            int codePoint = text.codePointAt(offset);
+            offset += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                cjkRun.add(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, tokens);
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjkRun, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjk(cjkRun, tokens);
+        return tokens;
+    }
+
+    /**
+     * 是否为单个中日韩字符组成的词
+     * @param token 词
+     * @return 是否为单字
+     */
+    public static boolean isSingleCjk(String token) {
+        return token.codePointCount(0, token.length()) == 1 && isCjk(token.codePointAt(0));
+    }
+
+    /**
+     * 是否为中日韩字符
+     * @param codePoint 码点
+     * @return 是否为中日韩字符
+     */
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(List<Integer> run, List<String> tokens) {
+        if (run.size() == 1) {
+            tokens.add(new String(Character.toChars(run.get(0))));
+        }
+        for (int i = 0; i + 1 < run.size(); i++) {
+            tokens.add(new StringBuilder().appendCodePoint(run.get(i)).appendCodePoint(run.get(i + 1)).toString());
+        }
+        run.clear();
+    }
+}
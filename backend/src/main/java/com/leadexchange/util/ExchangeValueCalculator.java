@@ -2,17 +2,18 @@ package com.leadexchange.util;
 
 import com.leadexchange.domain.lead.Lead;
 import com.leadexchange.domain.lead.LeadRating;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 交换价值计算引擎
  * 实现线索交换价值计算算法
- * A级=8分, B级=4分, C级=2分, D级=1分
- * 
+ * 默认 A级=8分, B级=4分, C级=2分, D级=1分，可通过 app.exchange.values 配置
+ * 价值均为整数，内部以评级序号索引的数组计算，BigDecimal 仅用于兼容原有接口和持久化
+ *
  * @author AI Assistant
  * @since 1.0.0
  */
@@ -20,31 +21,85 @@ import java.util.Map;
 public class ExchangeValueCalculator {
     
     /**
-     * 线索评级对应的积分值
+     * 线索评级对应的积分值，按评级序号索引
      */
-    private static final Map<LeadRating, Integer> RATING_VALUES = Map.of(
-        LeadRating.A, 8,
-        LeadRating.B, 4,
-        LeadRating.C, 2,
-        LeadRating.D, 1
-    );
+    private final int[] ratingValues = new int[LeadRating.values().length];
+    
+    public ExchangeValueCalculator() {
+        for (LeadRating rating : LeadRating.values()) {
+            ratingValues[rating.ordinal()] = rating.getExchangeValue();
+        }
+    }
+    
+    @Value("${app.exchange.values.a-grade:8}")
+    public void setAGradeValue(int value) {
+        setRatingValue(LeadRating.A, value);
+    }
+    
+    @Value("${app.exchange.values.b-grade:4}")
+    public void setBGradeValue(int value) {
+        setRatingValue(LeadRating.B, value);
+    }
+    
+    @Value("${app.exchange.values.c-grade:2}")
+    public void setCGradeValue(int value) {
+        setRatingValue(LeadRating.C, value);
+    }
+    
+    @Value("${app.exchange.values.d-grade:1}")
+    public void setDGradeValue(int value) {
+        setRatingValue(LeadRating.D, value);
+    }
+    
+    private void setRatingValue(LeadRating rating, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("线索价值不能为负数，评级：" + rating + "，价值：" + value);
+        }
+        ratingValues[rating.ordinal()] = value;
+    }
     
     /**
      * 计算单个线索的价值
      * @param lead 线索对象
      * @return 线索价值（积分）
      */
-    public BigDecimal calculateLeadValue(Lead lead) {
-        if (lead == null || lead.getRating() == null) {
-            return BigDecimal.ZERO;
+    public int valueOf(Lead lead) {
+        return lead == null ? 0 : getRatingValue(lead.getRating());
+    }
+    
+    /**
+     * 计算多个线索的总价值
+     * @param leads 线索列表
+     * @return 总价值（积分）
+     */
+    public int totalValueOf(List<Lead> leads) {
+        if (leads == null) {
+            return 0;
         }
-        
-        Integer baseValue = RATING_VALUES.get(lead.getRating());
-        if (baseValue == null) {
-            return BigDecimal.ZERO;
+        int total = 0;
+        for (int i = 0, size = leads.size(); i < size; i++) {
+            total += valueOf(leads.get(i));
         }
-        
-        return BigDecimal.valueOf(baseValue);
+        return total;
+    }
+    
+    /**
+     * 一次计算交换的目标价值、提供价值和差额
+     * @param targetLead 目标线索
+     * @param offeredLeads 提供的线索列表
+     * @return 交换估值
+     */
+    public Valuation valuate(Lead targetLead, List<Lead> offeredLeads) {
+        return new Valuation(valueOf(targetLead), totalValueOf(offeredLeads));
+    }
+    
+    /**
+     * 计算单个线索的价值
+     * @param lead 线索对象
+     * @return 线索价值（积分）
+     */
+    public BigDecimal calculateLeadValue(Lead lead) {
+        return BigDecimal.valueOf(valueOf(lead));
     }
     
     /**
@@ -53,13 +108,7 @@ public class ExchangeValueCalculator {
      * @return 总价值（积分）
      */
     public BigDecimal calculateTotalValue(List<Lead> leads) {
-        if (leads == null || leads.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        return leads.stream()
-                .map(this::calculateLeadValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return BigDecimal.valueOf(totalValueOf(leads));
     }
     
     /**
@@ -69,14 +118,10 @@ public class ExchangeValueCalculator {
      * @return true表示交换公平，false表示不公平
      */
     public boolean isExchangeFair(List<Lead> offeredLeads, Lead targetLead) {
-        BigDecimal offeredValue = calculateTotalValue(offeredLeads);
-        BigDecimal targetValue = calculateLeadValue(targetLead);
+        Valuation valuation = valuate(targetLead, offeredLeads);
         
         // 允许10%的价值差异
-        BigDecimal tolerance = targetValue.multiply(BigDecimal.valueOf(0.1));
-        BigDecimal difference = offeredValue.subtract(targetValue).abs();
-        
-        return difference.compareTo(tolerance) <= 0;
+        return Math.abs(valuation.getDifference()) * 10L <= valuation.getTargetValue();
     }
     
     /**
@@ -86,10 +131,7 @@ public class ExchangeValueCalculator {
      * @return 价值差额（正数表示提供方价值更高，负数表示目标方价值更高）
      */
     public BigDecimal calculateValueDifference(List<Lead> offeredLeads, Lead targetLead) {
-        BigDecimal offeredValue = calculateTotalValue(offeredLeads);
-        BigDecimal targetValue = calculateLeadValue(targetLead);
-        
-        return offeredValue.subtract(targetValue);
+        return BigDecimal.valueOf(valuate(targetLead, offeredLeads).getDifference());
     }
     
     /**
@@ -99,14 +141,7 @@ public class ExchangeValueCalculator {
      * @return 需要补充的积分（正数表示申请方需要补充，负数表示目标方需要补充）
      */
     public BigDecimal calculateRequiredCredits(List<Lead> offeredLeads, Lead targetLead) {
-        BigDecimal valueDifference = calculateValueDifference(offeredLeads, targetLead);
-        
-        // 如果提供方价值不足，需要补充积分
-        if (valueDifference.compareTo(BigDecimal.ZERO) < 0) {
-            return valueDifference.abs();
-        }
-        
-        return BigDecimal.ZERO;
+        return BigDecimal.valueOf(valuate(targetLead, offeredLeads).getShortfall());
     }
     
     /**
@@ -123,23 +158,22 @@ public class ExchangeValueCalculator {
             return new ExchangeValidationResult(false, "目标线索不存在");
         }
         
-        if (offeredLeads == null || offeredLeads.isEmpty()) {
-            if (additionalCredits == null || additionalCredits.compareTo(BigDecimal.ZERO) <= 0) {
-                return new ExchangeValidationResult(false, "必须提供线索或积分");
-            }
+        boolean hasCredits = additionalCredits != null && additionalCredits.compareTo(BigDecimal.ZERO) > 0;
+        if ((offeredLeads == null || offeredLeads.isEmpty()) && !hasCredits) {
+            return new ExchangeValidationResult(false, "必须提供线索或积分");
         }
         
-        BigDecimal offeredValue = calculateTotalValue(offeredLeads);
-        BigDecimal targetValue = calculateLeadValue(targetLead);
-        BigDecimal totalOfferedValue = offeredValue;
-        
-        if (additionalCredits != null && additionalCredits.compareTo(BigDecimal.ZERO) > 0) {
-            totalOfferedValue = totalOfferedValue.add(additionalCredits);
+        Valuation valuation = valuate(targetLead, offeredLeads);
+        if (valuation.getShortfall() == 0) {
+            return new ExchangeValidationResult(true, "交换条件满足");
         }
         
-        if (totalOfferedValue.compareTo(targetValue) < 0) {
-            BigDecimal shortage = targetValue.subtract(totalOfferedValue);
-            return new ExchangeValidationResult(false, 
+        BigDecimal shortage = BigDecimal.valueOf(valuation.getShortfall());
+        if (hasCredits) {
+            shortage = shortage.subtract(additionalCredits);
+        }
+        if (shortage.compareTo(BigDecimal.ZERO) > 0) {
+            return new ExchangeValidationResult(false,
                 String.format("提供的价值不足，还需要%.2f积分", shortage.doubleValue()));
         }
         
@@ -152,7 +186,7 @@ public class ExchangeValueCalculator {
      * @return 对应的积分值
      */
     public int getRatingValue(LeadRating rating) {
-        return RATING_VALUES.getOrDefault(rating, 0);
+        return rating == null ? 0 : ratingValues[rating.ordinal()];
     }
     
     /**
@@ -179,6 +213,47 @@ public class ExchangeValueCalculator {
         return availableCredits.divide(BigDecimal.valueOf(ratingValue), 0, BigDecimal.ROUND_DOWN).intValue();
     }
     
+    /**
+     * 交换估值
+     */
+    public static class Valuation {
+        private final int targetValue;
+        private final int offeredValue;
+        
+        public Valuation(int targetValue, int offeredValue) {
+            this.targetValue = targetValue;
+            this.offeredValue = offeredValue;
+        }
+        
+        /**
+         * @return 目标线索价值
+         */
+        public int getTargetValue() {
+            return targetValue;
+        }
+        
+        /**
+         * @return 提供线索总价值
+         */
+        public int getOfferedValue() {
+            return offeredValue;
+        }
+        
+        /**
+         * @return 价值差额（提供价值减目标价值）
+         */
+        public int getDifference() {
+            return offeredValue - targetValue;
+        }
+        
+        /**
+         * @return 提供价值不足的部分，不足时为正数，否则为0
+         */
+        public int getShortfall() {
+            return Math.max(0, targetValue - offeredValue);
+        }
+    }
+    
     /**
      * 交换验证结果
      */
@@ -199,4 +274,4 @@ public class ExchangeValueCalculator {
             return message;
         }
     }
-}
\ No newline at end of file
+}
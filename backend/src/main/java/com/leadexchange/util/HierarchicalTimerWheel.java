@@ -0,0 +1,192 @@
+package com.leadexchange.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮
+ * 第0层每格一个tick，第L层每格 wheelSize^L 个tick；到期时间超出最高层范围的任务进入溢出区，
+ * 时间推进到对应区间时逐层下沉，最终在第0层到期。调度、取消均为O(1)，推进按tick步进，
+ * 空格只做一次取模判断。线程安全。
+ *
+ * @param <K> 任务键类型
+ * @param <V> 任务值类型
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class HierarchicalTimerWheel<K, V> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int levels;
+
+    /**
+     * 各层的格子，每格按插入顺序保存任务
+     */
+    private final List<List<Map<K, Entry<K, V>>>> wheels;
+
+    /**
+     * 超出最高层范围的任务
+     */
+    private final Map<K, Entry<K, V>> overflow = new LinkedHashMap<>();
+
+    /**
+     * 任务索引，用于O(1)取消
+     */
+    private final Map<K, Entry<K, V>> index = new HashMap<>();
+
+    /**
+     * 各层一格对应的tick数
+     */
+    private final long[] levelSpans;
+
+    private long currentTick;
+
+    /**
+     * @param tickMillis 每个tick的毫秒数
+     * @param wheelSize 每层格数
+     * @param levels 层数
+     * @param startMillis 起始时间（毫秒）
+     */
+    public HierarchicalTimerWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("时间轮参数不合法");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.levelSpans = new long[levels + 1];
+        this.levelSpans[0] = 1;
+        for (int i = 1; i <= levels; i++) {
+            this.levelSpans[i] = Math.multiplyExact(this.levelSpans[i - 1], wheelSize);
+        }
+        this.wheels = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            List<Map<K, Entry<K, V>>> slots = new ArrayList<>(wheelSize);
+            for (int slot = 0; slot < wheelSize; slot++) {
+                slots.add(new LinkedHashMap<>());
+            }
+            this.wheels.add(slots);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * 调度任务，同键任务已存在时替换
+     * @param key 任务键
+     * @param value 任务值
+     * @param deadlineMillis 到期时间（毫秒）
+     */
+    public synchronized void schedule(K key, V value, long deadlineMillis) {
+        cancel(key);
+        // 向上取整，保证不早于到期时间触发
+        long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        Entry<K, V> entry = new Entry<>(key, value, Math.max(deadlineTick, currentTick + 1));
+        index.put(key, entry);
+        place(entry);
+    }
+
+    /**
+     * 取消任务
+     * @param key 任务键
+     * @return true表示任务存在并已取消
+     */
+    public synchronized boolean cancel(K key) {
+        Entry<K, V> entry = index.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.container.remove(key);
+        return true;
+    }
+
+    /**
+     * 推进时间轮到指定时间
+     * @param nowMillis 当前时间（毫秒）
+     * @return 已到期的任务值，按到期先后排列
+     */
+    public synchronized List<V> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<V> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            // 自高层向低层下沉本轮进入范围的任务
+            if (currentTick % levelSpans[levels] == 0) {
+                cascade(overflow);
+            }
+            for (int level = levels - 1; level >= 1; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    cascade(slotOf(level, currentTick));
+                }
+            }
+            Map<K, Entry<K, V>> slot = slotOf(0, currentTick);
+            if (!slot.isEmpty()) {
+                for (Entry<K, V> entry : slot.values()) {
+                    index.remove(entry.key);
+                    expired.add(entry.value);
+                }
+                slot.clear();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return 待触发的任务数量
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 将任务放入与当前时间处于同一区间的最低层
+     */
+    private void place(Entry<K, V> entry) {
+        for (int level = 0; level < levels; level++) {
+            if (entry.deadlineTick / levelSpans[level + 1] == currentTick / levelSpans[level + 1]) {
+                Map<K, Entry<K, V>> slot = slotOf(level, entry.deadlineTick);
+                slot.put(entry.key, entry);
+                entry.container = slot;
+                return;
+            }
+        }
+        overflow.put(entry.key, entry);
+        entry.container = overflow;
+    }
+
+    private void cascade(Map<K, Entry<K, V>> container) {
+        if (container.isEmpty()) {
+            return;
+        }
+        List<Entry<K, V>> entries = new ArrayList<>(container.values());
+        container.clear();
+        for (Entry<K, V> entry : entries) {
+            place(entry);
+        }
+    }
+
+    private Map<K, Entry<K, V>> slotOf(int level, long tick) {
+        return wheels.get(level).get((int) ((tick / levelSpans[level]) % wheelSize));
+    }
+
+    /**
+     * 时间轮任务
+     */
+    private static final class Entry<K, V> {
+
+        private final K key;
+        private final V value;
+        private final long deadlineTick;
+        private Map<K, Entry<K, V>> container;
+
+        private Entry(K key, V value, long deadlineTick) {
+            this.key = key;
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
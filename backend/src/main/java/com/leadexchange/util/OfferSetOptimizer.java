@@ -0,0 +1,154 @@
+package com.leadexchange.util;
+
+import java.util.Arrays;
+
+/**
+ * 交换线索组合优化器
+ * 给定若干价值档位及每档可用的线索数量，选出总价值最接近目标价值的非空组合：
+ * 优先价值差额最小，其次线索数量最少，差额相同时优先不低于目标价值（申请方无需补充积分）。
+ * 采用有界背包动态规划，状态为组合总价值，只需计算到 目标价值 + 最大档位价值 - 1：
+ * 超过该值的组合去掉任意一条线索后仍不低于目标价值且更接近目标。
+ * 复杂度与档位数量、目标价值相关，与线索总数无关。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+public class OfferSetOptimizer {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private OfferSetOptimizer() {
+    }
+
+    /**
+     * 计算最优组合
+     * @param values 各档位的单条线索价值，须为正数
+     * @param counts 各档位的可用线索数量
+     * @param target 目标价值，须为正数
+     * @return 最优组合，没有可用线索时返回null
+     */
+    public static Solution optimize(int[] values, int[] counts, int target) {
+        if (values == null || counts == null || values.length != counts.length) {
+            throw new IllegalArgumentException("档位价值与数量不匹配");
+        }
+        if (target <= 0) {
+            throw new IllegalArgumentException("目标价值必须为正数");
+        }
+        int maxValue = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] <= 0 || counts[i] < 0) {
+                throw new IllegalArgumentException("档位价值必须为正数，数量不能为负数");
+            }
+            if (counts[i] > 0) {
+                maxValue = Math.max(maxValue, values[i]);
+            }
+        }
+        if (maxValue == 0) {
+            return null;
+        }
+
+        int limit = target + maxValue - 1;
+        // minCount[s]：总价值恰为s的最少线索数；take[i][s]：达到该最优时第i档取用的数量
+        int[] minCount = new int[limit + 1];
+        Arrays.fill(minCount, UNREACHABLE);
+        minCount[0] = 0;
+        int[][] take = new int[values.length][limit + 1];
+
+        for (int i = 0; i < values.length; i++) {
+            int value = values[i];
+            int maxTake = Math.min(counts[i], limit / value);
+            if (maxTake == 0) {
+                continue;
+            }
+            int[] previous = minCount.clone();
+            for (int s = value; s <= limit; s++) {
+                int upper = Math.min(maxTake, s / value);
+                for (int k = 1; k <= upper; k++) {
+                    int base = previous[s - k * value];
+                    if (base != UNREACHABLE && base + k < minCount[s]) {
+                        minCount[s] = base + k;
+                        take[i][s] = k;
+                    }
+                }
+            }
+        }
+
+        int best = -1;
+        for (int s = 1; s <= limit; s++) {
+            if (minCount[s] != UNREACHABLE && (best < 0 || isBetter(s, minCount[s], best, minCount[best], target))) {
+                best = s;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+
+        // 按档位倒序回溯各档取用数量
+        int[] chosen = new int[values.length];
+        int remaining = best;
+        for (int i = values.length - 1; i >= 0 && remaining > 0; i--) {
+            int k = take[i][remaining];
+            chosen[i] = k;
+            remaining -= k * values[i];
+        }
+        return new Solution(chosen, best, minCount[best], best - target);
+    }
+
+    private static boolean isBetter(int sum, int count, int bestSum, int bestCount, int target) {
+        int diff = Math.abs(sum - target);
+        int bestDiff = Math.abs(bestSum - target);
+        if (diff != bestDiff) {
+            return diff < bestDiff;
+        }
+        if (count != bestCount) {
+            return count < bestCount;
+        }
+        return sum >= target && bestSum < target;
+    }
+
+    /**
+     * 组合结果
+     */
+    public static class Solution {
+
+        private final int[] counts;
+        private final int totalValue;
+        private final int leadCount;
+        private final int difference;
+
+        public Solution(int[] counts, int totalValue, int leadCount, int difference) {
+            this.counts = counts;
+            this.totalValue = totalValue;
+            this.leadCount = leadCount;
+            this.difference = difference;
+        }
+
+        /**
+         * @return 各档位取用的线索数量
+         */
+        public int[] getCounts() {
+            return counts.clone();
+        }
+
+        /**
+         * @return 组合总价值
+         */
+        public int getTotalValue() {
+            return totalValue;
+        }
+
+        /**
+         * @return 组合线索数量
+         */
+        public int getLeadCount() {
+            return leadCount;
+        }
+
+        /**
+         * @return 组合总价值减目标价值，负数表示低于目标价值
+         */
+        public int getDifference() {
+            return difference;
+        }
+    }
+}
@@ -8,6 +8,9 @@ import com.leadexchange.domain.exchange.ExchangeStatus;
 import com.leadexchange.domain.exchange.UserCredit;
 import com.leadexchange.service.ExchangeEngineService;
 import com.leadexchange.service.UserCreditService;
+import com.leadexchange.service.exchange.ExchangeCommandDispatcher;
+import com.leadexchange.service.exchange.ExchangeExpirySweeper;
+import com.leadexchange.service.exchange.IdempotencyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,9 +25,13 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -52,6 +59,15 @@ class ExchangeControllerTest {
     @MockBean
     private UserCreditService userCreditService;
     
+    @MockBean
+    private ExchangeExpirySweeper exchangeExpirySweeper;
+    
+    @MockBean
+    private IdempotencyService idempotencyService;
+    
+    @MockBean
+    private ExchangeCommandDispatcher commandDispatcher;
+    
     private ExchangeApplication exchangeApplication;
     private ExchangeHistory exchangeHistory;
     private UserCredit userCredit;
@@ -81,6 +97,16 @@ class ExchangeControllerTest {
         userCredit.setBalance(BigDecimal.valueOf(100));
         userCredit.setTotalEarned(BigDecimal.valueOf(200));
         userCredit.setTotalSpent(BigDecimal.valueOf(100));
+        
+        // 幂等服务直接执行业务操作
+        when(idempotencyService.execute(any(), any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(5)).get());
+        
+        // 命令分发器直接执行业务操作
+        when(commandDispatcher.dispatch(any(), any()))
+            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        when(commandDispatcher.dispatchForApplication(any(), any()))
+            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
     }
     
     @Test
@@ -212,6 +238,52 @@ class ExchangeControllerTest {
                 .andExpect(jsonPath("$.data.responseMessage").value("拒绝交换"));
     }
     
+    @Test
+    @WithMockUser
+    void testReviewExchange_IdempotentCommandRunsInsideOwnerPartition() throws Exception {
+        // Given 记录幂等执行时是否处于分区命令内
+        AtomicBoolean inPartition = new AtomicBoolean();
+        List<Boolean> idempotencyInPartition = new ArrayList<>();
+        List<Boolean> businessInPartition = new ArrayList<>();
+        when(commandDispatcher.dispatchForApplication(eq(1L), any())).thenAnswer(invocation -> {
+            inPartition.set(true);
+            try {
+                return ((Supplier<?>) invocation.getArgument(1)).get();
+            } finally {
+                inPartition.set(false);
+            }
+        });
+        when(idempotencyService.execute(any(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            idempotencyInPartition.add(inPartition.get());
+            return ((Supplier<?>) invocation.getArgument(5)).get();
+        });
+        when(exchangeEngineService.approveExchange(anyLong(), anyLong(), anyString())).thenAnswer(invocation -> {
+            businessInPartition.add(inPartition.get());
+            return exchangeApplication;
+        });
+        when(exchangeEngineService.rejectExchange(anyLong(), anyLong(), anyString())).thenAnswer(invocation -> {
+            businessInPartition.add(inPartition.get());
+            return exchangeApplication;
+        });
+        ExchangeController.ExchangeReviewRequest request = new ExchangeController.ExchangeReviewRequest();
+        request.setResponseMessage("审核意见");
+
+        // When
+        for (String action : Arrays.asList("approve", "reject")) {
+            mockMvc.perform(post("/api/exchanges/{id}/" + action, 1L)
+                    .with(csrf())
+                    .header("Idempotency-Key", "key-" + action)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.success").value(true));
+        }
+
+        // Then 幂等认领与完成标记和业务处理都在分区内执行，而不是在请求线程等待分区
+        assertEquals(Arrays.asList(true, true), idempotencyInPartition);
+        assertEquals(Arrays.asList(true, true), businessInPartition);
+    }
+    
     @Test
     @WithMockUser
     void testCancelExchange_Success() throws Exception {
@@ -329,7 +401,7 @@ class ExchangeControllerTest {
     @WithMockUser(roles = "ADMIN")
     void testProcessExpiredApplications_Success() throws Exception {
         // Given
-        when(exchangeEngineService.processExpiredApplications())
+        when(exchangeExpirySweeper.sweep())
             .thenReturn(5);
         
         // When & Then
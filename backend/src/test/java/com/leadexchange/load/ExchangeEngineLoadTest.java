@@ -0,0 +1,397 @@
+package com.leadexchange.load;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.domain.lead.AuditStatus;
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.domain.user.User;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.repository.user.UserRepository;
+import com.leadexchange.service.ExchangeEngineService;
+import com.leadexchange.service.UserCreditService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+/**
+ * 交换引擎并发压测
+ * 基于H2环境，在可配置规模的用户和线索上并发执行申请、批准、拒绝、取消流程，
+ * 输出各操作的吞吐量、p50/p99延迟、死锁与锁等待超时次数，并在结束后校验积分守恒等不变量。
+ * 默认构建不运行，使用 mvn test -Pload-test 执行，规模通过系统属性调整，例如：
+ * mvn test -Pload-test -Dload.users=200 -Dload.flows=5000 -Dload.threads=64
+ *
+ * 数据库使用MySQL兼容模式的H2；Redis 使用进程内替身 {@link InMemoryRedis}，积分缓存、排行榜、幂等记录和分布式锁
+ * 按真实语义读写，压测结束后额外校验缓存与数据库一致。RabbitMQ 监听和发件箱投递在压测中关闭
+ * （H2 不支持发件箱认领使用的 SKIP LOCKED）。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lead_exchange_load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "spring.jpa.show-sql=false",
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "app.outbox.relay.enabled=false",
+        "app.exchange.expiry.scheduler.enabled=false",
+        "logging.level.com.leadexchange=WARN",
+        "logging.level.com.leadexchange.load=INFO",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "logging.level.org.springframework=WARN"
+})
+@ActiveProfiles("h2")
+class ExchangeEngineLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeEngineLoadTest.class);
+
+    private static final int USERS = Integer.getInteger("load.users", 50);
+    private static final int LEADS_PER_USER = Integer.getInteger("load.leads-per-user", 10);
+    private static final int FLOWS = Integer.getInteger("load.flows", 2000);
+    private static final int THREADS = Integer.getInteger("load.threads", 32);
+    private static final long SEED = Long.getLong("load.seed", 42L);
+    private static final BigDecimal INITIAL_CREDITS = BigDecimal.valueOf(Long.getLong("load.initial-credits", 1000L));
+
+    private static final LeadRating[] RATINGS = LeadRating.values();
+
+    private static final String CREDIT_CACHE_KEY_PREFIX = "credit:balance:";
+
+    @Autowired
+    private InMemoryRedis inMemoryRedis;
+
+    @Autowired
+    private ExchangeEngineService exchangeEngineService;
+
+    @Autowired
+    private UserCreditService userCreditService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private UserCreditRepository userCreditRepository;
+
+    @Autowired
+    private ExchangeApplicationRepository applicationRepository;
+
+    /**
+     * 线索ID到当前所有者的视图，批准成功后更新，用于生成大概率合法的申请
+     */
+    private final Map<Long, Long> leadOwners = new ConcurrentHashMap<>();
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    @Test
+    void runExchangeFlows() throws Exception {
+        seed();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(FLOWS);
+        for (int i = 0; i < FLOWS; i++) {
+            long flowSeed = SEED * 31 + i;
+            futures.add(executor.submit(() -> runFlow(new Random(flowSeed))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        report(elapsedNanos);
+        List<String> violations = checkInvariants();
+        violations.stream().limit(20).forEach(violation -> log.error("不变量违反：{}", violation));
+        assertEquals(0, violations.size(), "存在不变量违反，详见日志");
+    }
+
+    /**
+     * 单个交换流程：提交申请，再随机批准、拒绝或取消
+     */
+    private void runFlow(Random random) {
+        Long applicantId = userIds.get(random.nextInt(userIds.size()));
+        List<Long> ownLeads = leadsOf(applicantId);
+        List<Long> otherLeads = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : leadOwners.entrySet()) {
+            if (!entry.getValue().equals(applicantId)) {
+                otherLeads.add(entry.getKey());
+            }
+        }
+        if (ownLeads.isEmpty() || otherLeads.isEmpty()) {
+            return;
+        }
+        Long targetLeadId = otherLeads.get(random.nextInt(otherLeads.size()));
+        Collections.shuffle(ownLeads, random);
+        List<Long> offeredLeadIds = new ArrayList<>(ownLeads.subList(0, Math.min(ownLeads.size(), 1 + random.nextInt(2))));
+
+        ExchangeApplication application = timed("apply",
+                () -> exchangeEngineService.applyForExchange(applicantId, targetLeadId, offeredLeadIds, "压测"));
+        if (application == null) {
+            return;
+        }
+        Long applicationId = application.getId();
+        Long ownerId = application.getTargetOwnerId();
+
+        int outcome = random.nextInt(100);
+        if (outcome < 50) {
+            ExchangeApplication approved = timed("approve",
+                    () -> exchangeEngineService.approveExchange(applicationId, ownerId, "同意"));
+            if (approved != null && approved.getStatus() == ExchangeStatus.COMPLETED) {
+                leadOwners.put(targetLeadId, applicantId);
+                offeredLeadIds.forEach(leadId -> leadOwners.put(leadId, ownerId));
+            }
+        } else if (outcome < 75) {
+            timed("reject", () -> exchangeEngineService.rejectExchange(applicationId, ownerId, "拒绝"));
+        } else {
+            timed("cancel", () -> exchangeEngineService.cancelExchange(applicationId, applicantId));
+        }
+    }
+
+    private <T> T timed(String operation, Supplier<T> action) {
+        OperationStats operationStats = stats.computeIfAbsent(operation, key -> new OperationStats());
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            operationStats.record(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            operationStats.record(System.nanoTime() - start);
+            operationStats.fail(e);
+            return null;
+        }
+    }
+
+    private List<Long> leadsOf(Long userId) {
+        List<Long> leads = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : leadOwners.entrySet()) {
+            if (entry.getValue().equals(userId)) {
+                leads.add(entry.getKey());
+            }
+        }
+        return leads;
+    }
+
+    /**
+     * 准备用户、积分和线索
+     */
+    private void seed() {
+        Random random = new Random(SEED);
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setUsername("load_user_" + u);
+            user.setPassword("load");
+            user.setPhone(String.format("199%08d", u));
+            user.setRealName("压测用户" + u);
+            user = userRepository.save(user);
+            userIds.add(user.getId());
+
+            userCreditService.createInitialCredit(user.getId());
+            userCreditService.addCredits(user.getId(), INITIAL_CREDITS, "LOAD_TEST", null, "压测初始积分");
+
+            for (int l = 0; l < LEADS_PER_USER; l++) {
+                Lead lead = new Lead();
+                lead.setOwnerId(user.getId());
+                lead.setTitle("压测线索" + u + "-" + l);
+                lead.setCompanyName("压测企业" + u + "-" + l);
+                lead.setContactPerson("联系人");
+                lead.setContactPhone("13800000000");
+                lead.setCompanyType("民营企业");
+                lead.setOfficeType("写字楼");
+                lead.setStatus(LeadStatus.PUBLISHED);
+                lead.setAuditStatus(AuditStatus.APPROVED);
+                lead.setRating(RATINGS[random.nextInt(RATINGS.length)]);
+                lead = leadRepository.save(lead);
+                leadOwners.put(lead.getId(), user.getId());
+            }
+        }
+        log.info("压测数据准备完成，用户：{}，线索：{}，流程：{}，线程：{}", USERS, leadOwners.size(), FLOWS, THREADS);
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n交换引擎压测报告（%d个流程，%d线程，耗时%.2fs）%n", FLOWS, THREADS, seconds));
+        report.append(String.format("%-8s %8s %8s %10s %9s %9s %9s %9s %8s %8s%n",
+                "操作", "次数", "失败", "吞吐(/s)", "p50(ms)", "p99(ms)", "max(ms)", "业务拒绝", "死锁", "锁超时"));
+        for (String operation : Arrays.asList("apply", "approve", "reject", "cancel")) {
+            OperationStats operationStats = stats.get(operation);
+            if (operationStats == null) {
+                continue;
+            }
+            long[] latencies = operationStats.sortedLatencies();
+            report.append(String.format("%-8s %8d %8d %10.1f %9.2f %9.2f %9.2f %9d %8d %8d%n",
+                    operation, latencies.length, operationStats.failures.get(),
+                    latencies.length / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0),
+                    operationStats.businessRejections.get(), operationStats.deadlocks.get(),
+                    operationStats.lockTimeouts.get()));
+        }
+        stats.forEach((operation, operationStats) -> operationStats.otherErrors.forEach((type, count) ->
+                report.append(String.format("其他错误 %s：%s x%d%n", operation, type, count.get()))));
+        log.info(report.toString());
+    }
+
+    /**
+     * 校验不变量：积分总量守恒、每个用户可用+冻结=总积分、冻结积分等于未结束申请的差额之和、
+     * 同版本的积分缓存与数据库一致、线索总数不变
+     */
+    private List<String> checkInvariants() {
+        List<String> violations = new ArrayList<>();
+
+        List<UserCredit> credits = userCreditRepository.findAll();
+        BigDecimal expectedTotal = INITIAL_CREDITS.multiply(BigDecimal.valueOf(USERS));
+        BigDecimal actualTotal = credits.stream().map(UserCredit::getTotalCredits).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (actualTotal.compareTo(expectedTotal) != 0) {
+            violations.add("积分总量不守恒，期望：" + expectedTotal + "，实际：" + actualTotal);
+        }
+
+        Map<Long, BigDecimal> pendingFrozen = new HashMap<>();
+        for (ExchangeApplication application : applicationRepository.findAll()) {
+            if (application.getStatus() == ExchangeStatus.PENDING
+                    && application.getCreditDifference().signum() > 0) {
+                pendingFrozen.merge(application.getApplicantId(), application.getCreditDifference(), BigDecimal::add);
+            }
+        }
+        for (UserCredit credit : credits) {
+            if (credit.getAvailableCredits().signum() < 0 || credit.getFrozenCredits().signum() < 0) {
+                violations.add("用户" + credit.getUserId() + "积分为负：可用" + credit.getAvailableCredits()
+                        + "，冻结" + credit.getFrozenCredits());
+            }
+            if (credit.getAvailableCredits().add(credit.getFrozenCredits()).compareTo(credit.getTotalCredits()) != 0) {
+                violations.add("用户" + credit.getUserId() + "可用+冻结不等于总积分：" + credit.getAvailableCredits()
+                        + "+" + credit.getFrozenCredits() + "≠" + credit.getTotalCredits());
+            }
+            BigDecimal expectedFrozen = pendingFrozen.getOrDefault(credit.getUserId(), BigDecimal.ZERO);
+            if (credit.getFrozenCredits().compareTo(expectedFrozen) != 0) {
+                violations.add("用户" + credit.getUserId() + "冻结积分与待处理申请不符，期望：" + expectedFrozen
+                        + "，实际：" + credit.getFrozenCredits());
+            }
+            checkCachedCredit(credit, violations);
+        }
+
+        long leadCount = leadRepository.count();
+        if (leadCount != (long) USERS * LEADS_PER_USER) {
+            violations.add("线索总数变化，期望：" + (long) USERS * LEADS_PER_USER + "，实际：" + leadCount);
+        }
+        return violations;
+    }
+
+    /**
+     * 缓存版本与数据库版本相同时，缓存的余额必须与数据库一致
+     */
+    private void checkCachedCredit(UserCredit credit, List<String> violations) {
+        Map<String, String> cached = inMemoryRedis.hash(CREDIT_CACHE_KEY_PREFIX + credit.getUserId());
+        String version = cached.get("version");
+        if (version == null || credit.getVersion() == null || Integer.parseInt(version) != credit.getVersion()) {
+            return;
+        }
+        if (new BigDecimal(cached.get("availableCredits")).compareTo(credit.getAvailableCredits()) != 0
+                || new BigDecimal(cached.get("frozenCredits")).compareTo(credit.getFrozenCredits()) != 0
+                || new BigDecimal(cached.get("totalCredits")).compareTo(credit.getTotalCredits()) != 0) {
+            violations.add("用户" + credit.getUserId() + "积分缓存与数据库不一致，版本：" + version
+                    + "，缓存可用/冻结/总计：" + cached.get("availableCredits") + "/" + cached.get("frozenCredits")
+                    + "/" + cached.get("totalCredits"));
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+    }
+
+    /**
+     * 以进程内Redis替身取代真实连接
+     */
+    @TestConfiguration
+    static class InMemoryRedisConfig {
+
+        @Bean
+        InMemoryRedis inMemoryRedis() {
+            return new InMemoryRedis();
+        }
+
+        @Bean
+        @Primary
+        StringRedisTemplate inMemoryStringRedisTemplate(InMemoryRedis inMemoryRedis) {
+            return inMemoryRedis.template();
+        }
+    }
+
+    /**
+     * 单个操作的统计
+     */
+    private static final class OperationStats {
+
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong businessRejections = new AtomicLong();
+        private final AtomicLong deadlocks = new AtomicLong();
+        private final AtomicLong lockTimeouts = new AtomicLong();
+        private final Map<String, AtomicLong> otherErrors = new ConcurrentHashMap<>();
+
+        private void record(long nanos) {
+            latencies.add(nanos);
+        }
+
+        private void fail(RuntimeException e) {
+            failures.incrementAndGet();
+            boolean business = false;
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                String message = String.valueOf(cause.getMessage()).toLowerCase(Locale.ROOT);
+                if (cause instanceof DeadlockLoserDataAccessException || message.contains("deadlock")) {
+                    deadlocks.incrementAndGet();
+                    return;
+                }
+                if (cause instanceof PessimisticLockingFailureException || message.contains("timeout trying to lock")) {
+                    lockTimeouts.incrementAndGet();
+                    return;
+                }
+                if (cause instanceof IllegalArgumentException || cause instanceof IllegalStateException) {
+                    business = true;
+                }
+            }
+            if (business) {
+                businessRejections.incrementAndGet();
+            } else {
+                otherErrors.computeIfAbsent(e.getClass().getSimpleName(), key -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        private long[] sortedLatencies() {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.leadexchange.load;
+
+import com.leadexchange.service.exchange.CreditBalanceCache;
+import com.leadexchange.service.exchange.CreditLeaderboardService;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 进程内Redis替身
+ * 以内存结构实现压测路径用到的字符串、哈希、有序集合命令以及键过期，所有命令在同一把锁内执行，
+ * 与Redis单线程执行命令的语义一致；积分缓存、排行榜使用的Lua脚本按脚本内容匹配到等价的Java实现。
+ * 未实现的命令直接抛出异常，避免压测在不知情的情况下绕过Redis路径。
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+final class InMemoryRedis {
+
+    /**
+     * Spring 创建Bean时回调的生命周期方法，替身无需处理
+     */
+    private static final Set<String> LIFECYCLE_METHODS = new HashSet<>(Arrays.asList(
+            "afterPropertiesSet", "setBeanClassLoader", "setBeanName", "destroy"));
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Map<String, Double>> zsets = new HashMap<>();
+    private final Map<String, Long> expireAt = new HashMap<>();
+    private final Map<String, BiFunction<List<String>, List<String>, Long>> scripts = new HashMap<>();
+
+    private final StringRedisTemplate template;
+    private final ValueOperations<String, String> valueOperations;
+    private final HashOperations<String, Object, Object> hashOperations;
+    private final ZSetOperations<String, String> zSetOperations;
+
+    @SuppressWarnings("unchecked")
+    InMemoryRedis() {
+        registerScript(CreditBalanceCache.class, "VERSIONED_PUT_SCRIPT", this::versionedPut);
+        registerScript(CreditLeaderboardService.class, "VERSIONED_UPDATE_SCRIPT", this::versionedUpdate);
+        registerScript(CreditLeaderboardService.class, "RELEASE_LOCK_SCRIPT", this::releaseLock);
+        valueOperations = mock(ValueOperations.class, this::onValue);
+        hashOperations = mock(HashOperations.class, this::onHash);
+        zSetOperations = mock(ZSetOperations.class, this::onZSet);
+        template = mock(StringRedisTemplate.class, this::onTemplate);
+    }
+
+    /**
+     * 由替身实现的 StringRedisTemplate
+     */
+    StringRedisTemplate template() {
+        return template;
+    }
+
+    /**
+     * 读取哈希的全部字段，键不存在时为空
+     */
+    synchronized Map<String, String> hash(String key) {
+        expireIfDue(key);
+        Map<String, String> hash = hashes.get(key);
+        return hash == null ? Collections.emptyMap() : new HashMap<>(hash);
+    }
+
+    private void registerScript(Class<?> owner, String field,
+                                BiFunction<List<String>, List<String>, Long> implementation) {
+        RedisScript<?> script = (RedisScript<?>) ReflectionTestUtils.getField(owner, field);
+        scripts.put(script.getScriptAsString(), implementation);
+    }
+
+    private synchronized Object onTemplate(InvocationOnMock invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        switch (invocation.getMethod().getName()) {
+            case "opsForValue":
+                return valueOperations;
+            case "opsForHash":
+                return hashOperations;
+            case "opsForZSet":
+                return zSetOperations;
+            case "hasKey":
+                return exists(key(args[0]));
+            case "delete":
+                if (args[0] instanceof Collection) {
+                    long deleted = 0;
+                    for (Object key : (Collection<?>) args[0]) {
+                        deleted += delete(key(key)) ? 1 : 0;
+                    }
+                    return deleted;
+                }
+                return delete(key(args[0]));
+            case "rename":
+                rename(key(args[0]), key(args[1]));
+                return null;
+            case "expire":
+                return expire(key(args[0]), args.length == 2 ? ((Duration) args[1]).toMillis()
+                        : ((TimeUnit) args[2]).toMillis((Long) args[1]));
+            case "execute":
+                if (args[0] instanceof RedisScript) {
+                    return runScript((RedisScript<?>) args[0], strings(args[1]), strings(varargs(invocation)));
+                }
+                break;
+            default:
+                break;
+        }
+        return unsupported(invocation);
+    }
+
+    private synchronized Object onValue(InvocationOnMock invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        String name = invocation.getMethod().getName();
+        switch (name) {
+            case "getOperations":
+                return template;
+            case "get":
+                expireIfDue(key(args[0]));
+                return strings.get(key(args[0]));
+            case "set":
+            case "setIfAbsent":
+                if (args.length == 3 && !(args[2] instanceof Duration)) {
+                    return unsupported(invocation);
+                }
+                String key = key(args[0]);
+                expireIfDue(key);
+                if ("setIfAbsent".equals(name) && exists(key)) {
+                    return false;
+                }
+                delete(key);
+                strings.put(key, (String) args[1]);
+                if (args.length == 3 && args[2] instanceof Duration) {
+                    expireAt.put(key, System.currentTimeMillis() + ((Duration) args[2]).toMillis());
+                } else if (args.length == 4) {
+                    expireAt.put(key, System.currentTimeMillis() + ((TimeUnit) args[3]).toMillis((Long) args[2]));
+                }
+                return "set".equals(name) ? null : true;
+            case "increment":
+                expireIfDue(key(args[0]));
+                long delta = args.length == 1 ? 1L : ((Number) args[1]).longValue();
+                long value = Long.parseLong(strings.getOrDefault(key(args[0]), "0")) + delta;
+                strings.put(key(args[0]), String.valueOf(value));
+                return value;
+            default:
+                return unsupported(invocation);
+        }
+    }
+
+    private synchronized Object onHash(InvocationOnMock invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        String key = args.length > 0 ? key(args[0]) : null;
+        if (key != null) {
+            expireIfDue(key);
+        }
+        Map<String, String> hash = key == null ? null : hashes.get(key);
+        switch (invocation.getMethod().getName()) {
+            case "getOperations":
+                return template;
+            case "entries":
+                return hash == null ? new HashMap<>() : new HashMap<Object, Object>(hash);
+            case "get":
+                return hash == null ? null : hash.get(String.valueOf(args[1]));
+            case "hasKey":
+                return hash != null && hash.containsKey(String.valueOf(args[1]));
+            case "size":
+                return hash == null ? 0L : (long) hash.size();
+            case "put":
+                hashes.computeIfAbsent(key, k -> new HashMap<>()).put(String.valueOf(args[1]), String.valueOf(args[2]));
+                return null;
+            case "putAll":
+                Map<String, String> target = hashes.computeIfAbsent(key, k -> new HashMap<>());
+                ((Map<?, ?>) args[1]).forEach((field, value) -> target.put(String.valueOf(field), String.valueOf(value)));
+                return null;
+            case "delete":
+                long removed = 0;
+                for (Object field : varargs(invocation)) {
+                    removed += hash != null && hash.remove(String.valueOf(field)) != null ? 1 : 0;
+                }
+                removeIfEmpty(key);
+                return removed;
+            default:
+                return unsupported(invocation);
+        }
+    }
+
+    private synchronized Object onZSet(InvocationOnMock invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        String key = args.length > 0 ? key(args[0]) : null;
+        if (key != null) {
+            expireIfDue(key);
+        }
+        Map<String, Double> zset = key == null ? null : zsets.get(key);
+        switch (invocation.getMethod().getName()) {
+            case "getOperations":
+                return template;
+            case "add":
+                if (args[1] instanceof Set) {
+                    long added = 0;
+                    for (Object element : (Set<?>) args[1]) {
+                        ZSetOperations.TypedTuple<?> tuple = (ZSetOperations.TypedTuple<?>) element;
+                        added += zadd(key, String.valueOf(tuple.getValue()), tuple.getScore()) ? 1 : 0;
+                    }
+                    return added;
+                }
+                return zadd(key, String.valueOf(args[1]), ((Number) args[2]).doubleValue());
+            case "incrementScore":
+                double score = (zset == null ? 0 : zset.getOrDefault(String.valueOf(args[1]), 0d))
+                        + ((Number) args[2]).doubleValue();
+                zadd(key, String.valueOf(args[1]), score);
+                return score;
+            case "score":
+                return zset == null ? null : zset.get(String.valueOf(args[1]));
+            case "remove":
+                long removed = 0;
+                for (Object member : varargs(invocation)) {
+                    removed += zset != null && zset.remove(String.valueOf(member)) != null ? 1 : 0;
+                }
+                removeIfEmpty(key);
+                return removed;
+            case "size":
+            case "zCard":
+                return zset == null ? 0L : (long) zset.size();
+            case "rank":
+            case "reverseRank":
+                List<ZSetOperations.TypedTuple<String>> ordered =
+                        sorted(zset, "reverseRank".equals(invocation.getMethod().getName()));
+                for (int i = 0; i < ordered.size(); i++) {
+                    if (ordered.get(i).getValue().equals(String.valueOf(args[1]))) {
+                        return (long) i;
+                    }
+                }
+                return null;
+            case "rangeWithScores":
+            case "reverseRangeWithScores":
+                return slice(sorted(zset, "reverseRangeWithScores".equals(invocation.getMethod().getName())),
+                        (Long) args[1], (Long) args[2]);
+            case "rangeByScoreWithScores":
+                double min = ((Number) args[1]).doubleValue();
+                double max = ((Number) args[2]).doubleValue();
+                long offset = args.length > 3 ? (Long) args[3] : 0L;
+                long count = args.length > 4 ? (Long) args[4] : -1L;
+                Set<ZSetOperations.TypedTuple<String>> result = new LinkedHashSet<>();
+                long skipped = 0;
+                for (ZSetOperations.TypedTuple<String> tuple : sorted(zset, false)) {
+                    if (tuple.getScore() < min || tuple.getScore() > max) {
+                        continue;
+                    }
+                    if (skipped++ < offset) {
+                        continue;
+                    }
+                    if (count >= 0 && result.size() >= count) {
+                        break;
+                    }
+                    result.add(tuple);
+                }
+                return result;
+            default:
+                return unsupported(invocation);
+        }
+    }
+
+    /**
+     * 等价于 CreditBalanceCache.VERSIONED_PUT_SCRIPT
+     */
+    private Long versionedPut(List<String> keys, List<String> args) {
+        String key = keys.get(0);
+        Map<String, String> hash = hashes.get(key);
+        String current = hash == null ? null : hash.get("version");
+        if (current != null) {
+            if (Double.parseDouble(current) >= Double.parseDouble(args.get(0))) {
+                return 0L;
+            }
+        } else if (!"1".equals(args.get(1))) {
+            return 0L;
+        }
+        Map<String, String> target = hashes.computeIfAbsent(key, k -> new HashMap<>());
+        target.put("version", args.get(0));
+        for (int i = 3; i + 1 < args.size(); i += 2) {
+            target.put(args.get(i), args.get(i + 1));
+        }
+        expireAt.put(key, System.currentTimeMillis() + Long.parseLong(args.get(2)));
+        return 1L;
+    }
+
+    /**
+     * 等价于 CreditLeaderboardService.VERSIONED_UPDATE_SCRIPT
+     */
+    private Long versionedUpdate(List<String> keys, List<String> args) {
+        long updated = 0;
+        for (int i = 0; i + 3 < args.size(); i += 4) {
+            Map<String, String> versions = hashes.computeIfAbsent(keys.get(0), k -> new HashMap<>());
+            String current = versions.get(args.get(i));
+            if (current == null || Double.parseDouble(current) < Double.parseDouble(args.get(i + 1))) {
+                versions.put(args.get(i), args.get(i + 1));
+                zadd(keys.get(1), args.get(i), Double.parseDouble(args.get(i + 2)));
+                zadd(keys.get(2), args.get(i), Double.parseDouble(args.get(i + 3)));
+                updated++;
+            }
+        }
+        removeIfEmpty(keys.get(0));
+        return updated;
+    }
+
+    /**
+     * 等价于 CreditLeaderboardService.RELEASE_LOCK_SCRIPT
+     */
+    private Long releaseLock(List<String> keys, List<String> args) {
+        if (args.get(0).equals(strings.get(keys.get(0)))) {
+            return delete(keys.get(0)) ? 1L : 0L;
+        }
+        return 0L;
+    }
+
+    private Object runScript(RedisScript<?> script, List<String> keys, List<String> args) {
+        BiFunction<List<String>, List<String>, Long> implementation = scripts.get(script.getScriptAsString());
+        if (implementation == null) {
+            throw new UnsupportedOperationException("内存Redis替身未实现脚本：" + script.getScriptAsString());
+        }
+        keys.forEach(this::expireIfDue);
+        return implementation.apply(keys, args);
+    }
+
+    private boolean zadd(String key, String member, double score) {
+        return zsets.computeIfAbsent(key, k -> new HashMap<>()).put(member, score) == null;
+    }
+
+    private List<ZSetOperations.TypedTuple<String>> sorted(Map<String, Double> zset, boolean reverse) {
+        List<ZSetOperations.TypedTuple<String>> tuples = new ArrayList<>();
+        if (zset != null) {
+            zset.forEach((member, score) -> tuples.add(new DefaultTypedTuple<>(member, score)));
+        }
+        Comparator<ZSetOperations.TypedTuple<String>> order = Comparator
+                .comparing((ZSetOperations.TypedTuple<String> tuple) -> tuple.getScore())
+                .thenComparing(tuple -> tuple.getValue());
+        tuples.sort(reverse ? order.reversed() : order);
+        return tuples;
+    }
+
+    private Set<ZSetOperations.TypedTuple<String>> slice(List<ZSetOperations.TypedTuple<String>> tuples,
+                                                         long start, long end) {
+        int size = tuples.size();
+        int from = (int) Math.max(0, start < 0 ? size + start : start);
+        int to = (int) Math.min(size - 1, end < 0 ? size + end : end);
+        return from > to ? new LinkedHashSet<>() : new LinkedHashSet<>(tuples.subList(from, to + 1));
+    }
+
+    private boolean exists(String key) {
+        expireIfDue(key);
+        return strings.containsKey(key) || hashes.containsKey(key) || zsets.containsKey(key);
+    }
+
+    private boolean delete(String key) {
+        expireAt.remove(key);
+        boolean removed = strings.remove(key) != null;
+        removed |= hashes.remove(key) != null;
+        removed |= zsets.remove(key) != null;
+        return removed;
+    }
+
+    private void rename(String source, String target) {
+        if (!exists(source)) {
+            throw new RedisSystemException("ERR no such key", new IllegalStateException("ERR no such key"));
+        }
+        String value = strings.get(source);
+        Map<String, String> hash = hashes.get(source);
+        Map<String, Double> zset = zsets.get(source);
+        Long expiry = expireAt.get(source);
+        delete(source);
+        delete(target);
+        if (value != null) {
+            strings.put(target, value);
+        }
+        if (hash != null) {
+            hashes.put(target, hash);
+        }
+        if (zset != null) {
+            zsets.put(target, zset);
+        }
+        if (expiry != null) {
+            expireAt.put(target, expiry);
+        }
+    }
+
+    private boolean expire(String key, long millis) {
+        if (!exists(key)) {
+            return false;
+        }
+        expireAt.put(key, System.currentTimeMillis() + millis);
+        return true;
+    }
+
+    private void expireIfDue(String key) {
+        Long deadline = expireAt.get(key);
+        if (deadline != null && deadline <= System.currentTimeMillis()) {
+            delete(key);
+        }
+    }
+
+    private void removeIfEmpty(String key) {
+        Map<String, String> hash = hashes.get(key);
+        if (hash != null && hash.isEmpty()) {
+            delete(key);
+        }
+        Map<String, Double> zset = zsets.get(key);
+        if (zset != null && zset.isEmpty()) {
+            delete(key);
+        }
+    }
+
+    private Object unsupported(InvocationOnMock invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return RETURNS_DEFAULTS.answer(invocation);
+        }
+        if (LIFECYCLE_METHODS.contains(invocation.getMethod().getName())) {
+            return null;
+        }
+        throw new UnsupportedOperationException("内存Redis替身未实现命令：" + invocation.getMethod());
+    }
+
+    /**
+     * 可变参数部分；Mockito 传入展开后的参数，兼容未展开的数组形式
+     */
+    private static Object[] varargs(InvocationOnMock invocation) {
+        Object[] args = invocation.getArguments();
+        int fixed = invocation.getMethod().getParameterCount() - 1;
+        Object[] tail = Arrays.copyOfRange(args, Math.min(fixed, args.length), args.length);
+        if (tail.length == 1 && tail[0] instanceof Object[]) {
+            return (Object[]) tail[0];
+        }
+        return tail;
+    }
+
+    private static List<String> strings(Object values) {
+        List<String> result = new ArrayList<>();
+        if (values instanceof Collection) {
+            ((Collection<?>) values).forEach(value -> result.add(String.valueOf(value)));
+        } else if (values instanceof Object[]) {
+            for (Object value : (Object[]) values) {
+                result.add(String.valueOf(value));
+            }
+        }
+        return result;
+    }
+
+    private static String key(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,89 @@
+package com.leadexchange.repository;
+
+import com.leadexchange.domain.exchange.ExchangeTransaction;
+import com.leadexchange.domain.exchange.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 交易记录批量写入单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+class ExchangeTransactionRepositoryImplTest {
+
+    private RecordingJdbcTemplate jdbcTemplate;
+
+    private ExchangeTransactionRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new RecordingJdbcTemplate();
+        repository = new ExchangeTransactionRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void testBatchInsert_WritesAllRowsInOneStatement() {
+        // Given
+        ExchangeTransaction expense = ExchangeTransaction.createExchangeTransaction(1L, TransactionType.EXPENSE,
+                new BigDecimal("30"), new BigDecimal("70"), new BigDecimal("70"), 9L, "支付");
+        ExchangeTransaction income = ExchangeTransaction.createExchangeTransaction(2L, TransactionType.INCOME,
+                new BigDecimal("30"), new BigDecimal("100"), new BigDecimal("130"), 9L, "收到");
+
+        // When
+        int inserted = repository.batchInsert(Arrays.asList(expense, income));
+
+        // Then
+        assertEquals(2, inserted);
+        assertEquals(1, jdbcTemplate.statements.size());
+        String sql = jdbcTemplate.statements.get(0);
+        assertTrue(sql.startsWith("INSERT INTO exchange_transactions"));
+        assertTrue(sql.endsWith("VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?), (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"));
+        Object[] values = jdbcTemplate.arguments.get(0);
+        assertEquals(20, values.length);
+        assertEquals(1L, values[0]);
+        assertEquals("EXPENSE", values[1]);
+        assertEquals(2L, values[10]);
+        assertEquals("INCOME", values[11]);
+        assertEquals(new BigDecimal("130"), values[14]);
+        assertNotNull(values[18]);
+    }
+
+    @Test
+    void testBatchInsert_EmptyListSkipsStatement() {
+        // When
+        int inserted = repository.batchInsert(Collections.emptyList());
+
+        // Then
+        assertEquals(0, inserted);
+        assertTrue(jdbcTemplate.statements.isEmpty());
+    }
+
+    /**
+     * 记录执行语句的JdbcTemplate，按参数个数除以列数返回写入行数
+     */
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+
+        private final List<String> statements = new ArrayList<>();
+        private final List<Object[]> arguments = new ArrayList<>();
+
+        @Override
+        public int update(String sql, Object... args) {
+            statements.add(sql);
+            arguments.add(args);
+            return args.length / 10;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.leadexchange.service;
 
 import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeFeedEntry;
 import com.leadexchange.domain.exchange.ExchangeHistory;
 import com.leadexchange.domain.exchange.ExchangeStatus;
 import com.leadexchange.domain.lead.Lead;
 import com.leadexchange.domain.lead.LeadRating;
 import com.leadexchange.repository.ExchangeApplicationRepository;
 import com.leadexchange.repository.ExchangeHistoryRepository;
+import com.leadexchange.repository.ExchangeOfferedLeadRepository;
 import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.service.exchange.ExchangeFeedService;
+import com.leadexchange.service.exchange.LeadReservationService;
 import com.leadexchange.service.ExchangeEngineService;
 import com.leadexchange.util.ExchangeValueCalculator;
 import org.junit.jupiter.api.BeforeEach;
@@ -47,12 +51,21 @@ class ExchangeEngineServiceTest {
     @Mock
     private ExchangeHistoryRepository exchangeHistoryRepository;
     
+    @Mock
+    private ExchangeOfferedLeadRepository exchangeOfferedLeadRepository;
+    
     @Mock
     private LeadRepository leadRepository;
     
     @Mock
     private UserCreditService userCreditService;
     
+    @Mock
+    private LeadReservationService leadReservationService;
+    
+    @Mock
+    private ExchangeFeedService exchangeFeedService;
+    
     @Mock
     private ExchangeValueCalculator exchangeValueCalculator;
     
@@ -170,7 +183,7 @@ class ExchangeEngineServiceTest {
         Long reviewerId = 2L;
         String responseMessage = "同意交换";
         
-        when(exchangeApplicationRepository.findById(applicationId))
+        when(exchangeApplicationRepository.findByIdWithLock(applicationId))
             .thenReturn(Optional.of(exchangeApplication));
         when(exchangeApplicationRepository.save(any(ExchangeApplication.class)))
             .thenReturn(exchangeApplication);
@@ -196,7 +209,7 @@ class ExchangeEngineServiceTest {
         Long reviewerId = 2L;
         String responseMessage = "同意交换";
         
-        when(exchangeApplicationRepository.findById(applicationId))
+        when(exchangeApplicationRepository.findByIdWithLock(applicationId))
             .thenReturn(Optional.empty());
         
         // When & Then
@@ -214,7 +227,7 @@ class ExchangeEngineServiceTest {
         Long reviewerId = 3L; // 不是目标线索的所有者
         String responseMessage = "同意交换";
         
-        when(exchangeApplicationRepository.findById(applicationId))
+        when(exchangeApplicationRepository.findByIdWithLock(applicationId))
             .thenReturn(Optional.of(exchangeApplication));
         
         // When & Then
@@ -232,7 +245,7 @@ class ExchangeEngineServiceTest {
         Long reviewerId = 2L;
         String responseMessage = "拒绝交换";
         
-        when(exchangeApplicationRepository.findById(applicationId))
+        when(exchangeApplicationRepository.findByIdWithLock(applicationId))
             .thenReturn(Optional.of(exchangeApplication));
         when(exchangeApplicationRepository.save(any(ExchangeApplication.class)))
             .thenReturn(exchangeApplication);
@@ -257,7 +270,7 @@ class ExchangeEngineServiceTest {
         Long applicationId = 1L;
         Long applicantId = 1L;
         
-        when(exchangeApplicationRepository.findById(applicationId))
+        when(exchangeApplicationRepository.findByIdWithLock(applicationId))
             .thenReturn(Optional.of(exchangeApplication));
         when(exchangeApplicationRepository.save(any(ExchangeApplication.class)))
             .thenReturn(exchangeApplication);
@@ -340,20 +353,39 @@ class ExchangeEngineServiceTest {
     }
     
     @Test
-    void testProcessExpiredApplications() {
+    void testExpireIfDue_ExpiresPendingAndReleasesFrozenCredits() {
         // Given
-        List<ExchangeApplication> expiredApplications = Arrays.asList(exchangeApplication);
-        when(exchangeApplicationRepository.findExpiredApplications(any(LocalDateTime.class)))
-            .thenReturn(expiredApplications);
-        when(exchangeApplicationRepository.saveAll(anyList()))
-            .thenReturn(expiredApplications);
+        exchangeApplication.setCreditDifference(new BigDecimal("20"));
+        exchangeApplication.setExpiryTime(LocalDateTime.now().minusMinutes(1));
+        when(exchangeApplicationRepository.findByIdWithLock(1L)).thenReturn(Optional.of(exchangeApplication));
+        when(exchangeApplicationRepository.save(any(ExchangeApplication.class))).thenReturn(exchangeApplication);
+        when(exchangeFeedService.describe(any(ExchangeApplication.class))).thenReturn(new ExchangeFeedEntry());
+        
+        // When
+        boolean expired = exchangeEngineService.expireIfDue(1L, "系统自动过期处理");
+        
+        // Then
+        assertTrue(expired);
+        assertEquals(ExchangeStatus.EXPIRED, exchangeApplication.getStatus());
+        verify(userCreditService).unfreezeCredits(eq(1L), eq(new BigDecimal("20")), eq("EXCHANGE"), eq(1L), anyString());
+        verify(leadReservationService).release(1L);
+        verify(exchangeHistoryRepository).save(any(ExchangeHistory.class));
+    }
+    
+    @Test
+    void testExpireIfDue_SkipsApplicationNoLongerPending() {
+        // Given 申请在认领后已被审核通过
+        exchangeApplication.setCreditDifference(new BigDecimal("20"));
+        exchangeApplication.setExpiryTime(LocalDateTime.now().minusMinutes(1));
+        exchangeApplication.setStatus(ExchangeStatus.APPROVED);
+        when(exchangeApplicationRepository.findByIdWithLock(1L)).thenReturn(Optional.of(exchangeApplication));
         
         // When
-        int result = exchangeEngineService.processExpiredApplications();
+        boolean expired = exchangeEngineService.expireIfDue(1L, "系统自动过期处理");
         
         // Then
-        assertEquals(1, result);
-        verify(exchangeApplicationRepository).saveAll(anyList());
-        verify(eventPublisher, times(1)).publishEvent(any());
+        assertFalse(expired);
+        verify(userCreditService, never()).unfreezeCredits(any(), any(), any(), any(), any());
+        verify(exchangeApplicationRepository, never()).save(any());
     }
 }
\ No newline at end of file
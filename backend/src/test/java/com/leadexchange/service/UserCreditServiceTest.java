@@ -0,0 +1,201 @@
+package com.leadexchange.service;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.ExchangeTransaction;
+import com.leadexchange.domain.exchange.FrozenCreditEntry;
+import com.leadexchange.domain.exchange.TransactionType;
+import com.leadexchange.repository.ExchangeTransactionRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import com.leadexchange.service.exchange.CreditAggregateService;
+import com.leadexchange.service.exchange.CreditBalanceCache;
+import com.leadexchange.service.exchange.CreditLeaderboardService;
+import com.leadexchange.service.exchange.CreditLockCoordinator;
+import com.leadexchange.service.exchange.CreditUpdateExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用户积分服务单元测试
+ * 覆盖交换结算的带余额条件UPDATE与流水批量写入
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class UserCreditServiceTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("30");
+
+    @Mock
+    private UserCreditRepository userCreditRepository;
+
+    @Mock
+    private ExchangeTransactionRepository transactionRepository;
+
+    @Mock
+    private CreditLockCoordinator creditLockCoordinator;
+
+    @Mock
+    private CreditUpdateExecutor creditUpdateExecutor;
+
+    @Mock
+    private CreditBalanceCache creditBalanceCache;
+
+    @Mock
+    private CreditLeaderboardService creditLeaderboardService;
+
+    @Mock
+    private CreditAggregateService creditAggregateService;
+
+    @InjectMocks
+    private UserCreditService userCreditService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSettleTransfer_FromFrozenUpdatesInUserIdOrderAndBatchInsertsLedger() {
+        // Given 付款方1的冻结积分支付给收款方2
+        when(userCreditRepository.debitFrozenCredits(eq(1L), eq(AMOUNT), any())).thenReturn(1);
+        when(userCreditRepository.creditAvailableCredits(eq(2L), eq(AMOUNT), any())).thenReturn(1);
+        when(userCreditRepository.findSnapshotsByUserIdIn(anyList())).thenReturn(Arrays.asList(
+                snapshot(1L, "70", "0"), snapshot(2L, "130", "0")));
+
+        // When
+        userCreditService.settleTransfer(1L, 2L, AMOUNT, true, "EXCHANGE", 9L, "支付", "收到");
+
+        // Then
+        InOrder inOrder = inOrder(creditLockCoordinator, userCreditRepository);
+        inOrder.verify(creditLockCoordinator).lockStripes(Arrays.asList(1L, 2L));
+        inOrder.verify(userCreditRepository).debitFrozenCredits(eq(1L), eq(AMOUNT), any());
+        inOrder.verify(userCreditRepository).creditAvailableCredits(eq(2L), eq(AMOUNT), any());
+        verify(creditLockCoordinator).markBulkUpdated(Arrays.asList(1L, 2L));
+
+        ArgumentCaptor<List<ExchangeTransaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).batchInsert(captor.capture());
+        List<ExchangeTransaction> ledger = captor.getValue();
+        assertEquals(2, ledger.size());
+        assertEquals(TransactionType.EXPENSE, ledger.get(0).getTransactionType());
+        assertEquals(0, new BigDecimal("70").compareTo(ledger.get(0).getBalanceBefore()));
+        assertEquals(0, new BigDecimal("70").compareTo(ledger.get(0).getBalanceAfter()));
+        assertEquals(TransactionType.INCOME, ledger.get(1).getTransactionType());
+        assertEquals(0, new BigDecimal("100").compareTo(ledger.get(1).getBalanceBefore()));
+        assertEquals(0, new BigDecimal("130").compareTo(ledger.get(1).getBalanceAfter()));
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testSettleTransfer_LostGuardAbortsBeforeLedgerIsWritten() {
+        // Given 付款方5大于收款方2，先入账后扣款；扣款条件不满足
+        when(userCreditRepository.creditAvailableCredits(eq(2L), eq(AMOUNT), any())).thenReturn(1);
+        when(userCreditRepository.debitAvailableCredits(eq(5L), eq(AMOUNT), any())).thenReturn(0);
+
+        // When & Then 抛出运行时异常，由事务回滚已执行的入账UPDATE
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> userCreditService.settleTransfer(5L, 2L, AMOUNT, false, "EXCHANGE", 9L, "支付", "收到"));
+        assertTrue(exception.getMessage().contains("可用积分不足"));
+        verify(creditLockCoordinator, never()).markBulkUpdated(any());
+        verify(creditAggregateService, never()).recordChange(any(), any(), any(), any());
+        verify(creditBalanceCache, never()).putAfterCommit(any());
+        verify(transactionRepository, never()).batchInsert(any());
+    }
+
+    @Test
+    void testSettleTransfer_OptimisticModeSkipsStripeLocks() {
+        // Given
+        when(creditLockCoordinator.isOptimisticMode()).thenReturn(true);
+        when(userCreditRepository.debitAvailableCredits(eq(1L), eq(AMOUNT), any())).thenReturn(1);
+        when(userCreditRepository.creditAvailableCredits(eq(2L), eq(AMOUNT), any())).thenReturn(1);
+        when(userCreditRepository.findSnapshotsByUserIdIn(anyList())).thenReturn(Arrays.asList(
+                snapshot(1L, "70", "0"), snapshot(2L, "130", "0")));
+
+        // When
+        userCreditService.settleTransfer(1L, 2L, AMOUNT, false, "EXCHANGE", 9L, "支付", "收到");
+
+        // Then
+        verify(creditLockCoordinator, never()).lockStripes(any());
+        verify(transactionRepository).batchInsert(anyList());
+    }
+
+    @Test
+    void testSettleTransfer_SamePayerAndPayeeRejected() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> userCreditService.settleTransfer(1L, 1L, AMOUNT, true, "EXCHANGE", 9L, "支付", "收到"));
+        verifyNoInteractions(userCreditRepository, transactionRepository);
+    }
+
+    @Test
+    void testGetUsersWithFrozenCredits_FirstPageSkipsCountQuery() {
+        // Given
+        List<FrozenCreditEntry> entries = Collections.singletonList(new FrozenCreditEntry(3L, AMOUNT));
+        when(userCreditRepository.findFrozenCreditEntries(any(Pageable.class))).thenReturn(entries);
+
+        // When
+        List<FrozenCreditEntry> result = userCreditService.getUsersWithFrozenCredits(null, null, 20);
+
+        // Then 首页也不走带COUNT的分页查询
+        assertSame(entries, result);
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(userCreditRepository).findFrozenCreditEntries(captor.capture());
+        assertEquals(20, captor.getValue().getPageSize());
+        verify(userCreditRepository, never()).findWithFrozenCredits(any());
+    }
+
+    @Test
+    void testGetUsersWithFrozenCredits_NextPageContinuesFromCursor() {
+        // Given
+        List<FrozenCreditEntry> entries = Collections.singletonList(new FrozenCreditEntry(2L, AMOUNT));
+        when(userCreditRepository.findFrozenCreditEntriesBefore(eq(AMOUNT), eq(3L), any(Pageable.class)))
+                .thenReturn(entries);
+
+        // When
+        List<FrozenCreditEntry> result = userCreditService.getUsersWithFrozenCredits(AMOUNT, 3L, 20);
+
+        // Then
+        assertSame(entries, result);
+        verify(userCreditRepository, never()).findFrozenCreditEntries(any());
+    }
+
+    @Test
+    void testGetUserIdsWithZeroCredits_FirstPageStartsAfterZero() {
+        // Given
+        when(userCreditRepository.findZeroCreditUserIdsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(4L, 6L));
+
+        // When
+        List<Long> userIds = userCreditService.getUserIdsWithZeroCredits(null, 2);
+
+        // Then
+        assertEquals(Arrays.asList(4L, 6L), userIds);
+        verify(userCreditRepository, never()).findWithZeroCredits(any());
+    }
+
+    @Test
+    void testCursorQueries_RejectInvalidPageSize() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> userCreditService.getUsersWithFrozenCredits(null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> userCreditService.getUserIdsWithZeroCredits(null, 501));
+        verifyNoInteractions(userCreditRepository);
+    }
+
+    private CreditBalanceSnapshot snapshot(Long userId, String available, String frozen) {
+        BigDecimal availableCredits = new BigDecimal(available);
+        BigDecimal frozenCredits = new BigDecimal(frozen);
+        return new CreditBalanceSnapshot(userId, availableCredits.add(frozenCredits), availableCredits,
+                frozenCredits, BigDecimal.ZERO, BigDecimal.ZERO, 1);
+    }
+}
@@ -0,0 +1,107 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.repository.CreditAggregateRepository;
+import com.leadexchange.repository.ExchangeTransactionRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import com.leadexchange.service.UserCreditService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 系统积分汇总一致性测试
+ * 在H2上以真实事务执行入账、扣款、冻结和结算，校验各条带之和与积分表、流水表的求和一致
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@DataJpaTest(properties = "app.exchange.credit.aggregates.stripes=4")
+@Import({UserCreditService.class, CreditLockCoordinator.class, CreditUpdateExecutor.class,
+        CreditAggregateService.class, CreditAggregateConsistencyTest.MetricsConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CreditAggregateConsistencyTest {
+
+    @MockBean
+    private CreditBalanceCache creditBalanceCache;
+
+    @MockBean
+    private CreditLeaderboardService creditLeaderboardService;
+
+    @MockBean
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private UserCreditService userCreditService;
+
+    @Autowired
+    private CreditAggregateService creditAggregateService;
+
+    @Autowired
+    private UserCreditRepository userCreditRepository;
+
+    @Autowired
+    private CreditAggregateRepository creditAggregateRepository;
+
+    @Autowired
+    private ExchangeTransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        creditAggregateService.initStripes();
+    }
+
+    @Test
+    void testStripedTotalsMatchTableSumsAfterCreditDebitAndSettle() {
+        // Given
+        assertEquals(4, creditAggregateRepository.count());
+        userCreditService.createInitialCredit(1L);
+        userCreditService.createInitialCredit(2L);
+
+        // When 每次操作在独立事务中提交，提交前写入一个条带
+        userCreditService.addCredits(1L, new BigDecimal("100"), "TEST", 1L, "入账");
+        userCreditService.addCredits(2L, new BigDecimal("50"), "TEST", 2L, "入账");
+        userCreditService.deductCredits(1L, new BigDecimal("20"), "TEST", 3L, "扣款");
+        userCreditService.freezeCredits(1L, new BigDecimal("30"), "TEST", 4L, "冻结");
+        userCreditService.settleTransfer(1L, 2L, new BigDecimal("30"), true, "EXCHANGE", 5L, "支付", "收到");
+        userCreditService.settleTransfer(2L, 1L, new BigDecimal("10"), false, "EXCHANGE", 6L, "支付", "收到");
+
+        // Then
+        assertSameAmount(userCreditRepository.sumTotalCredits(), creditAggregateRepository.sumTotalCredits());
+        assertSameAmount(userCreditRepository.sumAvailableCredits(), creditAggregateRepository.sumAvailableCredits());
+        assertSameAmount(userCreditRepository.sumFrozenCredits(), creditAggregateRepository.sumFrozenCredits());
+        assertSameAmount(transactionRepository.sumTotalTransactionAmount(),
+                creditAggregateRepository.sumTransactionAmount());
+        // 总积分只随入账增加：100 + 50 + 30 + 10
+        assertSameAmount(new BigDecimal("190"), creditAggregateRepository.sumTotalCredits());
+        // 条带行启动时已创建，积分变更不新增条带
+        assertEquals(4, creditAggregateRepository.count());
+    }
+
+    private void assertSameAmount(BigDecimal expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, expected.compareTo(actual), "期望：" + expected + "，实际：" + actual);
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.UserCredit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用户积分余额缓存单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class CreditBalanceCacheTest {
+
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private CreditBalanceCache creditBalanceCache;
+
+    @BeforeEach
+    void setUp() {
+        creditBalanceCache = new CreditBalanceCache(stringRedisTemplate);
+        ReflectionTestUtils.setField(creditBalanceCache, "enabled", true);
+        ReflectionTestUtils.setField(creditBalanceCache, "localTtlMs", 60000L);
+        ReflectionTestUtils.setField(creditBalanceCache, "localMaxEntries", 100);
+        ReflectionTestUtils.setField(creditBalanceCache, "redisTtlMs", 600000L);
+    }
+
+    @Test
+    void testPut_StaleLowerVersionDoesNotOverwriteNewerEntry() {
+        // Given 版本5已写入
+        creditBalanceCache.put(credit(5, "80"));
+
+        // When 迟到的版本4写入
+        creditBalanceCache.put(credit(4, "100"));
+
+        // Then 仍返回版本5的余额，且命中L1不读Redis
+        Optional<UserCredit> cached = creditBalanceCache.get(USER_ID);
+        assertTrue(cached.isPresent());
+        assertEquals(5, cached.get().getVersion());
+        assertEquals(0, new BigDecimal("80").compareTo(cached.get().getAvailableCredits()));
+        verify(stringRedisTemplate, never()).opsForHash();
+    }
+
+    @Test
+    void testPut_NewerVersionReplacesEntry() {
+        // Given
+        creditBalanceCache.put(credit(4, "100"));
+
+        // When
+        creditBalanceCache.put(credit(5, "80"));
+
+        // Then
+        UserCredit cached = creditBalanceCache.get(USER_ID).orElseThrow(IllegalStateException::new);
+        assertEquals(5, cached.getVersion());
+        assertEquals(0, new BigDecimal("80").compareTo(cached.getAvailableCredits()));
+    }
+
+    @Test
+    void testGet_OlderRemoteEntryDoesNotOverwriteNewerLocalEntry() {
+        // Given 本节点已写入版本5，L1已过期；Redis中仍是其他节点写入的版本4
+        ReflectionTestUtils.setField(creditBalanceCache, "localTtlMs", 0L);
+        creditBalanceCache.put(credit(5, "80"));
+        Map<Object, Object> remote = new HashMap<>();
+        remote.put("id", "7");
+        remote.put("version", "4");
+        remote.put("availableCredits", "100");
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("credit:balance:1")).thenReturn(remote);
+
+        // When
+        UserCredit cached = creditBalanceCache.get(USER_ID).orElseThrow(IllegalStateException::new);
+
+        // Then 以本节点更新的版本为准
+        assertEquals(5, cached.getVersion());
+        assertEquals(0, new BigDecimal("80").compareTo(cached.getAvailableCredits()));
+    }
+
+    private UserCredit credit(int version, String available) {
+        UserCredit userCredit = new UserCredit(USER_ID);
+        userCredit.setId(7L);
+        userCredit.setVersion(version);
+        userCredit.setAvailableCredits(new BigDecimal(available));
+        userCredit.setFrozenCredits(BigDecimal.ZERO);
+        userCredit.setTotalCredits(new BigDecimal(available));
+        return userCredit;
+    }
+}
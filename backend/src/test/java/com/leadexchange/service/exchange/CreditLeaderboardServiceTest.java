@@ -0,0 +1,168 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.CreditRankingType;
+import com.leadexchange.repository.ExchangeHistoryRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 积分排行榜服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class CreditLeaderboardServiceTest {
+
+    private static final String LOCK_KEY = "{credit:rank}:reconcile-lock";
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private UserCreditRepository userCreditRepository;
+
+    @Mock
+    private ExchangeHistoryRepository exchangeHistoryRepository;
+
+    private CreditLeaderboardService leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        leaderboardService = new CreditLeaderboardService(stringRedisTemplate, userCreditRepository,
+                exchangeHistoryRepository);
+        ReflectionTestUtils.setField(leaderboardService, "enabled", true);
+        ReflectionTestUtils.setField(leaderboardService, "reconcilePageSize", 2);
+        ReflectionTestUtils.setField(leaderboardService, "reconcileLockSeconds", 600L);
+    }
+
+    @Test
+    void testGetRank_RedisFailureDegradesToNull() {
+        // Given
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.reverseRank(anyString(), eq("1")))
+                .thenThrow(new RedisConnectionFailureException("连接失败"));
+
+        // When
+        CreditLeaderboardService.RankEntry entry = leaderboardService.getRank(CreditRankingType.TOTAL_CREDITS, 1L);
+
+        // Then
+        assertNull(entry);
+    }
+
+    @Test
+    void testGetRank_ReturnsOneBasedRank() {
+        // Given
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.reverseRank(anyString(), eq("1"))).thenReturn(2L);
+        when(zSetOperations.score(anyString(), eq("1"))).thenReturn(150.0);
+
+        // When
+        CreditLeaderboardService.RankEntry entry = leaderboardService.getRank(CreditRankingType.TOTAL_CREDITS, 1L);
+
+        // Then
+        assertEquals(3, entry.getRank());
+        assertEquals(150.0, entry.getScore());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReconcile_PagesUserRangesRebuildsCountsAndReleasesOwnLock() {
+        // Given 两页用户：[1, 2]和[5]，最后一页区间上界不封顶
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(valueOperations.setIfAbsent(eq(LOCK_KEY), anyString(), eq(600L), eq(TimeUnit.SECONDS))).thenReturn(true);
+        when(userCreditRepository.findSnapshotsAfterUserId(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(snapshot(1L), snapshot(2L)));
+        when(userCreditRepository.findSnapshotsAfterUserId(eq(2L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(snapshot(5L)));
+        when(exchangeHistoryRepository.countCompletedExchangesByUserRange(0L, 2L))
+                .thenReturn(Collections.singletonList(new Object[]{1L, 3L}));
+        when(exchangeHistoryRepository.countCompletedExchangesByUserRange(2L, Long.MAX_VALUE))
+                .thenReturn(Arrays.asList(new Object[]{5L, 1L}, new Object[]{9L, 2L}));
+
+        // When
+        leaderboardService.reconcile();
+
+        // Then 交换次数按区间写入重建键后原子替换
+        String countKey = "{credit:rank}:exchanges";
+        ArgumentCaptor<Set<ZSetOperations.TypedTuple<String>>> tuples = ArgumentCaptor.forClass(Set.class);
+        verify(zSetOperations, times(2)).add(eq(countKey + ":rebuild"), tuples.capture());
+        assertEquals(1, tuples.getAllValues().get(0).size());
+        assertEquals(2, tuples.getAllValues().get(1).size());
+        verify(stringRedisTemplate).rename(countKey + ":rebuild", countKey);
+
+        // 用加锁时的令牌比较后释放
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).setIfAbsent(eq(LOCK_KEY), token.capture(), eq(600L), eq(TimeUnit.SECONDS));
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(Collections.singletonList(LOCK_KEY)),
+                eq(token.getValue()));
+        verify(stringRedisTemplate, never()).delete(LOCK_KEY);
+    }
+
+    @Test
+    void testReconcile_NoCompletedExchangesClearsCountRanking() {
+        // Given
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(LOCK_KEY), anyString(), eq(600L), eq(TimeUnit.SECONDS))).thenReturn(true);
+        when(userCreditRepository.findSnapshotsAfterUserId(eq(0L), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        when(exchangeHistoryRepository.countCompletedExchangesByUserRange(0L, Long.MAX_VALUE))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        leaderboardService.reconcile();
+
+        // Then
+        verify(stringRedisTemplate).delete("{credit:rank}:exchanges");
+        verify(stringRedisTemplate, never()).rename(anyString(), anyString());
+    }
+
+    @Test
+    void testReconcile_LockHeldByAnotherNodeSkips() {
+        // Given
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(LOCK_KEY), anyString(), eq(600L), eq(TimeUnit.SECONDS))).thenReturn(false);
+
+        // When
+        leaderboardService.reconcile();
+
+        // Then 不读库，也不释放他人的锁
+        verifyNoInteractions(userCreditRepository, exchangeHistoryRepository);
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    private CreditBalanceSnapshot snapshot(Long userId) {
+        return new CreditBalanceSnapshot(userId, new BigDecimal("100"), new BigDecimal("100"), BigDecimal.ZERO,
+                BigDecimal.ZERO, BigDecimal.ZERO, 1);
+    }
+}
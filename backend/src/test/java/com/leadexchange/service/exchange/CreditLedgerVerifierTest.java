@@ -0,0 +1,164 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.CreditCheckpoint;
+import com.leadexchange.domain.exchange.CreditLedgerEntry;
+import com.leadexchange.repository.CreditCheckpointRepository;
+import com.leadexchange.repository.ExchangeTransactionRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 积分流水校验器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class CreditLedgerVerifierTest {
+
+    private static final String AUDIT_LOCK_KEY = "credit:ledger:audit-lock";
+
+    @Mock
+    private UserCreditRepository userCreditRepository;
+
+    @Mock
+    private ExchangeTransactionRepository transactionRepository;
+
+    @Mock
+    private CreditCheckpointRepository checkpointRepository;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private CreditLedgerVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        verifier = new CreditLedgerVerifier(userCreditRepository, transactionRepository, checkpointRepository,
+                stringRedisTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(verifier, "auditThreads", 1);
+        ReflectionTestUtils.setField(verifier, "auditBatchSize", 500);
+        ReflectionTestUtils.setField(verifier, "maxReportedDivergences", 100);
+        ReflectionTestUtils.setField(verifier, "auditLockSeconds", 3600L);
+        verifier.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifier.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAudit_ReadsEachUserFromItsOwnCheckpoint() {
+        // Given 同一批次：用户1检查点已到最新流水，用户2没有检查点且有两条流水，用户3没有检查点也没有流水
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(AUDIT_LOCK_KEY, "1", 3600L, TimeUnit.SECONDS)).thenReturn(true);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+        when(userCreditRepository.findSnapshotsAfterUserId(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(snapshot(1L, "50"), snapshot(2L, "40"), snapshot(3L, "0")));
+        CreditCheckpoint upToDate = new CreditCheckpoint(1L);
+        upToDate.setId(10L);
+        upToDate.advance(100L, new BigDecimal("50"), 8);
+        when(checkpointRepository.findByUserIdIn(Arrays.asList(1L, 2L, 3L)))
+                .thenReturn(Collections.singletonList(upToDate));
+        when(transactionRepository.findLastTransactionIds(Arrays.asList(1L, 2L, 3L)))
+                .thenReturn(Arrays.asList(new Object[]{1L, 100L}, new Object[]{2L, 7L}));
+        when(transactionRepository.findLedgerEntries(Collections.singletonList(2L), 0L))
+                .thenReturn(Arrays.asList(entry(3L, 2L, "0", "30"), entry(7L, 2L, "30", "40")));
+
+        // When
+        verifier.scheduledAudit();
+
+        // Then 只有用户2从自己的检查点读取流水，用户1不重读历史
+        verify(transactionRepository, times(1)).findLedgerEntries(anyCollection(), anyLong());
+        CreditLedgerVerifier.AuditReport report = verifier.getLastReport();
+        assertEquals(3, report.getUsersChecked());
+        assertEquals(2, report.getEntriesReplayed());
+        assertEquals(0, report.getDivergenceCount());
+
+        // 用户2推进到最后一条流水，用户3写入初始检查点，用户1不变
+        ArgumentCaptor<Iterable<CreditCheckpoint>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(checkpointRepository).saveAll(saved.capture());
+        Map<Long, CreditCheckpoint> byUser = new HashMap<>();
+        for (CreditCheckpoint checkpoint : saved.getValue()) {
+            byUser.put(checkpoint.getUserId(), checkpoint);
+        }
+        assertEquals(2, byUser.size());
+        assertEquals(7L, byUser.get(2L).getLastTransactionId());
+        assertEquals(0, new BigDecimal("40").compareTo(byUser.get(2L).getBalance()));
+        assertEquals(2L, byUser.get(2L).getEntryCount());
+        assertEquals(0L, byUser.get(3L).getLastTransactionId());
+        assertNotNull(byUser.get(3L).getCheckpointTime());
+        assertEquals(2, report.getCheckpointsAdvanced());
+        verify(stringRedisTemplate).delete(AUDIT_LOCK_KEY);
+    }
+
+    @Test
+    void testAudit_ChainBreakIsReportedAndCheckpointNotAdvanced() {
+        // Given 用户2的第二条流水变更前余额与上一条变更后余额不符
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(AUDIT_LOCK_KEY, "1", 3600L, TimeUnit.SECONDS)).thenReturn(true);
+        when(userCreditRepository.findSnapshotsAfterUserId(eq(0L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(snapshot(2L, "45")));
+        when(checkpointRepository.findByUserIdIn(Collections.singletonList(2L))).thenReturn(new ArrayList<>());
+        when(transactionRepository.findLastTransactionIds(Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(new Object[]{2L, 7L}));
+        when(transactionRepository.findLedgerEntries(Collections.singletonList(2L), 0L))
+                .thenReturn(Arrays.asList(entry(3L, 2L, "0", "30"), entry(7L, 2L, "35", "45")));
+
+        // When
+        verifier.scheduledAudit();
+
+        // Then
+        CreditLedgerVerifier.AuditReport report = verifier.getLastReport();
+        assertEquals(1, report.getDivergenceCount());
+        CreditLedgerVerifier.Divergence divergence = report.getDivergences().get(0);
+        assertEquals(CreditLedgerVerifier.DivergenceType.CHAIN_BREAK, divergence.getType());
+        assertEquals(7L, divergence.getTransactionId());
+        verify(checkpointRepository, never()).saveAll(any());
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    private CreditBalanceSnapshot snapshot(Long userId, String available) {
+        BigDecimal amount = new BigDecimal(available);
+        return new CreditBalanceSnapshot(userId, amount, amount, BigDecimal.ZERO, amount, BigDecimal.ZERO, 1);
+    }
+
+    private CreditLedgerEntry entry(Long id, Long userId, String before, String after) {
+        return new CreditLedgerEntry(id, userId, new BigDecimal(before), new BigDecimal(after));
+    }
+}
@@ -0,0 +1,161 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.repository.UserCreditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 积分锁协调器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class CreditLockCoordinatorTest {
+
+    @Mock
+    private UserCreditRepository userCreditRepository;
+
+    private CreditLockCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        coordinator = new CreditLockCoordinator(userCreditRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(coordinator, "stripeCount", 64);
+        ReflectionTestUtils.setField(coordinator, "waitTimeoutMs", 100L);
+        ReflectionTestUtils.setField(coordinator, "concurrencyMode", CreditConcurrencyMode.PESSIMISTIC);
+        coordinator.init();
+        beginTransaction();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            completeTransaction();
+        }
+    }
+
+    @Test
+    void testLockCredits_LocksRowsInAscendingUserIdOrder() {
+        // Given
+        when(userCreditRepository.findByUserIdWithLock(anyLong()))
+                .thenAnswer(invocation -> Optional.of(new UserCredit(invocation.getArgument(0))));
+
+        // When
+        List<UserCredit> credits = coordinator.lockCredits(Arrays.asList(9L, 3L, 5L));
+
+        // Then
+        assertEquals(Arrays.asList(3L, 5L, 9L), Arrays.asList(credits.get(0).getUserId(),
+                credits.get(1).getUserId(), credits.get(2).getUserId()));
+        InOrder inOrder = inOrder(userCreditRepository);
+        inOrder.verify(userCreditRepository).findByUserIdWithLock(3L);
+        inOrder.verify(userCreditRepository).findByUserIdWithLock(5L);
+        inOrder.verify(userCreditRepository).findByUserIdWithLock(9L);
+    }
+
+    @Test
+    void testLockStripes_HeldUserIsReentrant() {
+        // Given
+        coordinator.lockStripes(Arrays.asList(5L, 2L));
+
+        // When & Then
+        assertDoesNotThrow(() -> coordinator.lockStripes(Collections.singletonList(2L)));
+        assertDoesNotThrow(() -> coordinator.lockStripes(Arrays.asList(5L, 7L)));
+    }
+
+    @Test
+    void testLockStripes_NestedLowerUserIdRejected() {
+        // Given
+        coordinator.lockStripes(Collections.singletonList(5L));
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> coordinator.lockStripes(Collections.singletonList(2L)));
+        assertTrue(exception.getMessage().contains("加锁顺序错误"));
+        verifyNoInteractions(userCreditRepository);
+    }
+
+    @Test
+    void testLockStripes_NestedLowerStripeRejected() {
+        // Given 用户ID升序但条带序号回绕：5 -> 条带5，65 -> 条带1
+        coordinator.lockStripes(Collections.singletonList(5L));
+
+        // When & Then
+        assertThrows(IllegalStateException.class,
+                () -> coordinator.lockStripes(Collections.singletonList(65L)));
+    }
+
+    @Test
+    void testLockStripes_ReleasedAndForgottenAfterCompletion() throws Exception {
+        // Given
+        coordinator.lockStripes(Collections.singletonList(5L));
+
+        // When
+        completeTransaction();
+
+        // Then 其他线程可立即获取同一条带，新事务可从较小的用户ID开始加锁
+        AtomicBoolean acquired = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread other = new Thread(() -> {
+            beginTransaction();
+            try {
+                coordinator.lockStripes(Collections.singletonList(5L));
+                acquired.set(true);
+            } finally {
+                completeTransaction();
+                done.countDown();
+            }
+        });
+        other.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(acquired.get());
+
+        beginTransaction();
+        assertDoesNotThrow(() -> coordinator.lockStripes(Collections.singletonList(2L)));
+    }
+
+    @Test
+    void testLockStripes_RequiresTransaction() {
+        // Given
+        completeTransaction();
+
+        // When & Then
+        assertThrows(IllegalStateException.class,
+                () -> coordinator.lockStripes(Collections.singletonList(1L)));
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private static void completeTransaction() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clear();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                TransactionSynchronization.STATUS_COMMITTED);
+    }
+}
@@ -0,0 +1,146 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.CreditBalanceSnapshot;
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.repository.UserCreditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 积分更新执行器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class CreditUpdateExecutorTest {
+
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private UserCreditRepository userCreditRepository;
+
+    @Mock
+    private CreditLockCoordinator creditLockCoordinator;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CreditUpdateExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new CreditUpdateExecutor(userCreditRepository, creditLockCoordinator, meterRegistry);
+        executor.init();
+    }
+
+    @Test
+    void testOptimisticUpdate_AppliesDeltaOnLatestRowDespiteStaleSnapshot() {
+        // Given 事务内快照停留在100，其他事务已提交为200；增量UPDATE作用于最新行后读回150
+        when(creditLockCoordinator.getConcurrencyMode()).thenReturn(CreditConcurrencyMode.OPTIMISTIC);
+        when(userCreditRepository.findSnapshotByUserId(USER_ID))
+                .thenReturn(Optional.of(snapshot("100", "0", 3)))
+                .thenReturn(Optional.of(snapshot("150", "0", 5)));
+        when(userCreditRepository.applyBalanceDelta(eq(USER_ID), any(), any(), any(), any(), any(), any()))
+                .thenReturn(1);
+
+        // When
+        CreditUpdateExecutor.CreditUpdateResult result = executor.update(USER_ID,
+                credit -> credit.deductCredits(new BigDecimal("50")), credit -> "积分不足");
+
+        // Then
+        verify(userCreditRepository).applyBalanceDelta(eq(USER_ID), argThat(isZero()),
+                argThat(equalTo("-50")), argThat(isZero()), argThat(isZero()), argThat(equalTo("50")), any());
+        assertEquals(0, new BigDecimal("200").compareTo(result.getBeforeBalance()));
+        assertEquals(0, new BigDecimal("150").compareTo(result.getCredit().getAvailableCredits()));
+        assertEquals(0, new BigDecimal("-50").compareTo(result.getAvailableDelta()));
+        assertEquals(5, result.getCredit().getVersion());
+        verify(creditLockCoordinator).markBulkUpdated(anyCollection());
+        verify(creditLockCoordinator, never()).lockCredit(anyLong());
+    }
+
+    @Test
+    void testOptimisticUpdate_GuardMissFallsBackToLockedPath() {
+        // Given 快照显示余额充足，但最新行余额已不足，条件UPDATE未命中
+        when(creditLockCoordinator.getConcurrencyMode()).thenReturn(CreditConcurrencyMode.OPTIMISTIC);
+        when(userCreditRepository.findSnapshotByUserId(USER_ID)).thenReturn(Optional.of(snapshot("100", "0", 3)));
+        when(userCreditRepository.applyBalanceDelta(eq(USER_ID), any(), any(), any(), any(), any(), any()))
+                .thenReturn(0);
+        UserCredit latest = snapshot("20", "0", 4).toUserCredit();
+        when(creditLockCoordinator.lockCredit(USER_ID)).thenReturn(latest);
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> executor.update(USER_ID, credit -> credit.deductCredits(new BigDecimal("50")),
+                        credit -> "积分不足"));
+        assertEquals("积分不足", exception.getMessage());
+        verify(userCreditRepository, times(1)).applyBalanceDelta(eq(USER_ID), any(), any(), any(), any(), any(), any());
+        verify(userCreditRepository, never()).save(any());
+        assertEquals(1.0, meterRegistry.counter("credit.optimistic.conflicts").count());
+        assertEquals(1.0, meterRegistry.counter("credit.optimistic.fallbacks").count());
+    }
+
+    @Test
+    void testOptimisticUpdate_StaleInsufficientSnapshotUsesLockedPath() {
+        // Given 快照显示余额不足，加锁读取到的最新余额充足
+        when(creditLockCoordinator.getConcurrencyMode()).thenReturn(CreditConcurrencyMode.OPTIMISTIC);
+        when(userCreditRepository.findSnapshotByUserId(USER_ID)).thenReturn(Optional.of(snapshot("10", "0", 3)));
+        UserCredit latest = snapshot("200", "0", 4).toUserCredit();
+        when(creditLockCoordinator.lockCredit(USER_ID)).thenReturn(latest);
+        when(userCreditRepository.save(latest)).thenReturn(latest);
+
+        // When
+        CreditUpdateExecutor.CreditUpdateResult result = executor.update(USER_ID,
+                credit -> credit.freezeCredits(new BigDecimal("50")), credit -> "积分不足");
+
+        // Then
+        verify(userCreditRepository, never()).applyBalanceDelta(any(), any(), any(), any(), any(), any(), any());
+        assertEquals(0, new BigDecimal("150").compareTo(result.getCredit().getAvailableCredits()));
+        assertEquals(0, new BigDecimal("50").compareTo(result.getFrozenDelta()));
+    }
+
+    @Test
+    void testPessimisticUpdate_LocksRowDirectly() {
+        // Given
+        when(creditLockCoordinator.getConcurrencyMode()).thenReturn(CreditConcurrencyMode.PESSIMISTIC);
+        UserCredit locked = snapshot("100", "0", 1).toUserCredit();
+        when(creditLockCoordinator.lockCredit(USER_ID)).thenReturn(locked);
+        when(userCreditRepository.save(locked)).thenReturn(locked);
+
+        // When
+        CreditUpdateExecutor.CreditUpdateResult result = executor.update(USER_ID,
+                credit -> { credit.addCredits(new BigDecimal("30")); return true; }, credit -> "积分不足");
+
+        // Then
+        verify(userCreditRepository, never()).findSnapshotByUserId(anyLong());
+        assertEquals(0, new BigDecimal("30").compareTo(result.getTotalDelta()));
+        assertEquals(0, new BigDecimal("100").compareTo(result.getBeforeBalance()));
+    }
+
+    private CreditBalanceSnapshot snapshot(String available, String frozen, int version) {
+        BigDecimal availableCredits = new BigDecimal(available);
+        BigDecimal frozenCredits = new BigDecimal(frozen);
+        return new CreditBalanceSnapshot(USER_ID, availableCredits.add(frozenCredits), availableCredits,
+                frozenCredits, availableCredits.add(frozenCredits), BigDecimal.ZERO, version);
+    }
+
+    private static ArgumentMatcher<BigDecimal> isZero() {
+        return value -> value != null && value.signum() == 0;
+    }
+
+    private static ArgumentMatcher<BigDecimal> equalTo(String expected) {
+        return value -> value != null && value.compareTo(new BigDecimal(expected)) == 0;
+    }
+}
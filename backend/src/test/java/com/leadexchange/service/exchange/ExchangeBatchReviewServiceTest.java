@@ -0,0 +1,285 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeOfferedLead;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import com.leadexchange.domain.exchange.LeadReservation;
+import com.leadexchange.domain.exchange.LeadReservationRole;
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.repository.ExchangeOfferedLeadRepository;
+import com.leadexchange.repository.LeadReservationRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.service.ExchangeEngineService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 交换申请批量处理服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ExchangeBatchReviewServiceTest {
+
+    private static final Long OWNER_ID = 2L;
+
+    @Mock
+    private ExchangeEngineService exchangeEngineService;
+
+    @Mock
+    private ExchangeApplicationRepository applicationRepository;
+
+    @Mock
+    private ExchangeCommandDispatcher commandDispatcher;
+
+    @Mock
+    private ExchangeOfferedLeadRepository offeredLeadRepository;
+
+    @Mock
+    private LeadRepository leadRepository;
+
+    @Mock
+    private LeadReservationRepository reservationRepository;
+
+    @Mock
+    private UserCreditRepository userCreditRepository;
+
+    @Mock
+    private CreditLockCoordinator creditLockCoordinator;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ExchangeBatchReviewService batchReviewService;
+
+    @BeforeEach
+    void setUp() {
+        batchReviewService = new ExchangeBatchReviewService(exchangeEngineService, applicationRepository,
+                commandDispatcher, offeredLeadRepository, leadRepository, reservationRepository, userCreditRepository,
+                creditLockCoordinator, transactionTemplate);
+        ReflectionTestUtils.setField(batchReviewService, "maxBatchSize", 500);
+        ReflectionTestUtils.setField(batchReviewService, "threads", 2);
+        batchReviewService.start();
+        lenient().when(commandDispatcher.dispatch(anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchReviewService.shutdown();
+    }
+
+    @Test
+    void testApprove_OwnerGroupSettledInOneTransactionWithBulkLoads() {
+        // Given 申请1和2竞争线索100，申请3需要所有者补偿30积分而所有者只有20
+        ExchangeApplication first = application(1L, 5L, 100L, "0");
+        ExchangeApplication second = application(2L, 6L, 100L, "0");
+        ExchangeApplication third = application(3L, 7L, 101L, "-30");
+        when(applicationRepository.findAllById(Arrays.asList(1L, 2L, 3L)))
+                .thenReturn(Arrays.asList(first, second, third));
+        when(applicationRepository.findAllByIdInWithLock(Arrays.asList(1L, 2L, 3L)))
+                .thenReturn(Arrays.asList(first, second, third));
+        when(offeredLeadRepository.findByApplicationIdIn(Arrays.asList(1L, 2L, 3L))).thenReturn(Arrays.asList(
+                new ExchangeOfferedLead(1L, 201L, 5L),
+                new ExchangeOfferedLead(2L, 202L, 6L),
+                new ExchangeOfferedLead(3L, 203L, 7L)));
+        when(leadRepository.findActiveOwnerIdsByIdIn(anyCollection())).thenReturn(Arrays.asList(
+                new Object[]{100L, OWNER_ID}, new Object[]{101L, OWNER_ID},
+                new Object[]{201L, 5L}, new Object[]{202L, 6L}, new Object[]{203L, 7L}));
+        when(creditLockCoordinator.lockCredits(anyCollection())).thenReturn(Arrays.asList(
+                credit(OWNER_ID, "20"), credit(5L, "0"), credit(6L, "0"), credit(7L, "0")));
+        when(exchangeEngineService.approveExchange(1L, OWNER_ID, "同意"))
+                .thenReturn(withStatus(first, ExchangeStatus.COMPLETED));
+
+        // When
+        ExchangeBatchReviewService.BatchResult result = batchReviewService.process(
+                ExchangeBatchReviewService.Action.APPROVE, Arrays.asList(1L, 2L, 3L), OWNER_ID, "同意");
+
+        // Then 整组一个事务，先按ID升序锁定申请，再一次读取线索所有者、一次按序锁定全部积分记录
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(leadRepository, times(1)).findActiveOwnerIdsByIdIn(anyCollection());
+        InOrder inOrder = inOrder(applicationRepository, creditLockCoordinator);
+        inOrder.verify(applicationRepository).findAllByIdInWithLock(Arrays.asList(1L, 2L, 3L));
+        inOrder.verify(creditLockCoordinator).lockCredits(new HashSet<>(Arrays.asList(OWNER_ID, 5L, 6L, 7L)));
+        verify(exchangeEngineService, times(1)).approveExchange(anyLong(), anyLong(), anyString());
+
+        List<ExchangeBatchReviewService.ItemResult> items = result.getItems();
+        assertEquals(1, result.getSucceeded());
+        assertEquals("COMPLETED", items.get(0).getStatus());
+        assertFalse(items.get(1).isSuccess());
+        assertTrue(items.get(1).getMessage().startsWith("目标线索已被删除或已转出"));
+        assertFalse(items.get(2).isSuccess());
+        assertTrue(items.get(2).getMessage().startsWith("目标线索所有者积分不足"));
+    }
+
+    @Test
+    void testApprove_GroupFailureFallsBackToPerItemTransactions() {
+        // Given 申请1在结算中途失败，整组回滚
+        ExchangeApplication first = application(1L, 5L, 100L, "0");
+        ExchangeApplication second = application(2L, 6L, 101L, "0");
+        when(applicationRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(first, second));
+        when(applicationRepository.findAllByIdInWithLock(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(first, second));
+        when(offeredLeadRepository.findByApplicationIdIn(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                new ExchangeOfferedLead(1L, 201L, 5L), new ExchangeOfferedLead(2L, 202L, 6L)));
+        when(leadRepository.findActiveOwnerIdsByIdIn(anyCollection())).thenReturn(Arrays.asList(
+                new Object[]{100L, OWNER_ID}, new Object[]{101L, OWNER_ID},
+                new Object[]{201L, 5L}, new Object[]{202L, 6L}));
+        when(creditLockCoordinator.lockCredits(anyCollection())).thenReturn(Collections.emptyList());
+        when(exchangeEngineService.approveExchange(1L, OWNER_ID, "同意"))
+                .thenThrow(new IllegalStateException("目标线索已在其他申请中提供"));
+        when(exchangeEngineService.approveExchange(2L, OWNER_ID, "同意"))
+                .thenReturn(withStatus(second, ExchangeStatus.COMPLETED));
+
+        // When
+        ExchangeBatchReviewService.BatchResult result = batchReviewService.process(
+                ExchangeBatchReviewService.Action.APPROVE, Arrays.asList(1L, 2L), OWNER_ID, "同意");
+
+        // Then 逐条重新处理，申请1失败不影响申请2
+        assertEquals(1, result.getSucceeded());
+        assertEquals("目标线索已在其他申请中提供", result.getItems().get(0).getMessage());
+        assertTrue(result.getItems().get(1).isSuccess());
+        verify(exchangeEngineService, times(2)).approveExchange(1L, OWNER_ID, "同意");
+        verify(exchangeEngineService, times(1)).approveExchange(2L, OWNER_ID, "同意");
+    }
+
+    @Test
+    void testReject_ItemChangedBeforeLockFailsAloneWithoutRerunningGroup() {
+        // Given 预取时两条申请均待处理，加锁后申请1已被申请人取消
+        ExchangeApplication first = application(1L, 5L, 100L, "10");
+        ExchangeApplication second = application(2L, 6L, 101L, "10");
+        ExchangeApplication lockedFirst = application(1L, 5L, 100L, "10");
+        lockedFirst.setStatus(ExchangeStatus.CANCELLED);
+        when(applicationRepository.findAllById(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(first, second));
+        when(applicationRepository.findAllByIdInWithLock(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(lockedFirst, second));
+        when(creditLockCoordinator.lockCredits(Collections.singleton(6L)))
+                .thenReturn(Collections.singletonList(credit(6L, "0")));
+        when(exchangeEngineService.rejectExchange(2L, OWNER_ID, "拒绝"))
+                .thenReturn(withStatus(second, ExchangeStatus.REJECTED));
+
+        // When
+        ExchangeBatchReviewService.BatchResult result = batchReviewService.process(
+                ExchangeBatchReviewService.Action.REJECT, Arrays.asList(2L, 1L), OWNER_ID, "拒绝");
+
+        // Then 申请1在修改数据前被拦下，不进入单条流程，整组不回滚重做
+        assertEquals(1, result.getSucceeded());
+        assertEquals("REJECTED", result.getItems().get(0).getStatus());
+        assertEquals("申请状态不允许审核，当前状态：CANCELLED", result.getItems().get(1).getMessage());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(exchangeEngineService, never()).rejectExchange(eq(1L), anyLong(), any());
+        verify(exchangeEngineService, times(1)).rejectExchange(2L, OWNER_ID, "拒绝");
+    }
+
+    @Test
+    void testApprove_TargetOfferedElsewhereFailsAloneWithoutRerunningGroup() {
+        // Given 申请1的目标线索100已被所有者在申请50中提供
+        ExchangeApplication first = application(1L, 5L, 100L, "0");
+        ExchangeApplication second = application(2L, 6L, 101L, "0");
+        when(applicationRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(first, second));
+        when(applicationRepository.findAllByIdInWithLock(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(first, second));
+        when(offeredLeadRepository.findByApplicationIdIn(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                new ExchangeOfferedLead(1L, 201L, 5L), new ExchangeOfferedLead(2L, 202L, 6L)));
+        when(leadRepository.findActiveOwnerIdsByIdIn(anyCollection())).thenReturn(Arrays.asList(
+                new Object[]{100L, OWNER_ID}, new Object[]{101L, OWNER_ID},
+                new Object[]{201L, 5L}, new Object[]{202L, 6L}));
+        when(reservationRepository.findByExclusiveLeadIdIn(new HashSet<>(Arrays.asList(100L, 101L))))
+                .thenReturn(Collections.singletonList(
+                        new LeadReservation(100L, 50L, LeadReservationRole.OFFERED)));
+        when(creditLockCoordinator.lockCredits(anyCollection())).thenReturn(Collections.emptyList());
+        when(exchangeEngineService.approveExchange(2L, OWNER_ID, "同意"))
+                .thenReturn(withStatus(second, ExchangeStatus.COMPLETED));
+
+        // When
+        ExchangeBatchReviewService.BatchResult result = batchReviewService.process(
+                ExchangeBatchReviewService.Action.APPROVE, Arrays.asList(1L, 2L), OWNER_ID, "同意");
+
+        // Then
+        assertEquals(1, result.getSucceeded());
+        assertEquals("目标线索已在其他交换申请中提供，申请ID：50", result.getItems().get(0).getMessage());
+        assertTrue(result.getItems().get(1).isSuccess());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(exchangeEngineService, never()).approveExchange(eq(1L), anyLong(), any());
+    }
+
+    @Test
+    void testCancel_GroupsByTargetOwnerAndLocksOnlyApplicantCredits() {
+        // Given 申请人5取消发给两个不同所有者的申请，申请9不属于申请人
+        ExchangeApplication toOwner2 = application(1L, 5L, 100L, "10");
+        ExchangeApplication toOwner3 = application(2L, 5L, 300L, "10");
+        toOwner3.setTargetOwnerId(3L);
+        ExchangeApplication foreign = application(9L, 8L, 101L, "0");
+        when(applicationRepository.findAllById(Arrays.asList(1L, 2L, 9L)))
+                .thenReturn(Arrays.asList(toOwner2, toOwner3, foreign));
+        when(applicationRepository.findAllByIdInWithLock(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(toOwner2));
+        when(applicationRepository.findAllByIdInWithLock(Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(toOwner3));
+        when(creditLockCoordinator.lockCredits(Collections.singleton(5L)))
+                .thenReturn(Collections.singletonList(credit(5L, "0")));
+        when(exchangeEngineService.cancelExchange(1L, 5L)).thenReturn(withStatus(toOwner2, ExchangeStatus.CANCELLED));
+        when(exchangeEngineService.cancelExchange(2L, 5L)).thenReturn(withStatus(toOwner3, ExchangeStatus.CANCELLED));
+
+        // When
+        ExchangeBatchReviewService.BatchResult result = batchReviewService.process(
+                ExchangeBatchReviewService.Action.CANCEL, Arrays.asList(1L, 2L, 9L), 5L, null);
+
+        // Then 每个所有者一组、一个事务，取消不读取线索
+        verify(commandDispatcher).dispatch(eq(OWNER_ID), any());
+        verify(commandDispatcher).dispatch(eq(3L), any());
+        verify(transactionTemplate, times(2)).execute(any());
+        verifyNoInteractions(leadRepository, offeredLeadRepository);
+        assertEquals(2, result.getSucceeded());
+        assertEquals("只有申请人才能取消此申请", result.getItems().get(2).getMessage());
+    }
+
+    private ExchangeApplication application(Long id, Long applicantId, Long targetLeadId, String difference) {
+        ExchangeApplication application = new ExchangeApplication();
+        application.setId(id);
+        application.setApplicantId(applicantId);
+        application.setTargetLeadId(targetLeadId);
+        application.setTargetOwnerId(OWNER_ID);
+        application.setCreditDifference(new BigDecimal(difference));
+        application.setStatus(ExchangeStatus.PENDING);
+        return application;
+    }
+
+    private ExchangeApplication withStatus(ExchangeApplication source, ExchangeStatus status) {
+        ExchangeApplication application = new ExchangeApplication();
+        application.setId(source.getId());
+        application.setStatus(status);
+        return application;
+    }
+
+    private UserCredit credit(Long userId, String available) {
+        UserCredit credit = new UserCredit(userId);
+        credit.setAvailableCredits(new BigDecimal(available));
+        return credit;
+    }
+}
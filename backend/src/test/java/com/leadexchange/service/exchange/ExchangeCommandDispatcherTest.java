@@ -0,0 +1,207 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 交换命令分发器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ExchangeCommandDispatcherTest {
+
+    @Mock
+    private ExchangeApplicationRepository applicationRepository;
+
+    private ExchangeCommandDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new ExchangeCommandDispatcher(applicationRepository);
+        ReflectionTestUtils.setField(dispatcher, "partitions", 4);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 100);
+        ReflectionTestUtils.setField(dispatcher, "timeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testDirect_RunsOnCallerThreadWithoutLookup() {
+        // Given
+        start(ExchangeCommandDispatcher.Mode.DIRECT);
+
+        // When
+        String thread = dispatcher.dispatch(2L, () -> Thread.currentThread().getName());
+        String byApplication = dispatcher.dispatchForApplication(1L, () -> Thread.currentThread().getName());
+
+        // Then
+        assertEquals(ExchangeCommandDispatcher.Mode.DIRECT, dispatcher.getMode());
+        assertEquals(Thread.currentThread().getName(), thread);
+        assertEquals(Thread.currentThread().getName(), byApplication);
+        verifyNoInteractions(applicationRepository);
+    }
+
+    @Test
+    void testPartitioned_SameOwnerAlwaysRoutedToSamePartition() {
+        // Given
+        start(ExchangeCommandDispatcher.Mode.PARTITIONED);
+        int partition = Math.floorMod(Long.hashCode(2L), 4);
+
+        // When
+        String first = dispatcher.dispatch(2L, () -> Thread.currentThread().getName());
+        String second = dispatcher.dispatch(2L, () -> Thread.currentThread().getName());
+
+        // Then
+        assertEquals(ExchangeCommandDispatcher.Mode.PARTITIONED, dispatcher.getMode());
+        assertTrue(first.startsWith("exchange-partition-" + partition + "-"));
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testPartitioned_ApplicationRoutedByTargetOwner() {
+        // Given 申请1的目标线索所有者为2，申请不存在时在调用线程执行
+        start(ExchangeCommandDispatcher.Mode.PARTITIONED);
+        when(applicationRepository.findTargetOwnerIdById(1L)).thenReturn(Optional.of(2L));
+        when(applicationRepository.findTargetOwnerIdById(9L)).thenReturn(Optional.empty());
+
+        // When
+        String owned = dispatcher.dispatchForApplication(1L, () -> Thread.currentThread().getName());
+        String missing = dispatcher.dispatchForApplication(9L, () -> Thread.currentThread().getName());
+
+        // Then
+        assertEquals(dispatcher.dispatch(2L, () -> Thread.currentThread().getName()), owned);
+        assertEquals(Thread.currentThread().getName(), missing);
+    }
+
+    @Test
+    void testPartitioned_SingleAndBatchCommandsForApplicationShareOnePartition() {
+        // Given 申请1由申请人5发起，目标线索所有者为2；单条取消按申请分发，批量处理按分区键分组后分发
+        start(ExchangeCommandDispatcher.Mode.PARTITIONED);
+        ExchangeApplication application = new ExchangeApplication();
+        application.setId(1L);
+        application.setApplicantId(5L);
+        application.setTargetOwnerId(2L);
+        when(applicationRepository.findTargetOwnerIdById(1L)).thenReturn(Optional.of(2L));
+
+        // When
+        String single = dispatcher.dispatchForApplication(1L, () -> Thread.currentThread().getName());
+        String batch = dispatcher.dispatch(ExchangeCommandDispatcher.partitionKey(application),
+                () -> Thread.currentThread().getName());
+
+        // Then
+        assertEquals(2L, ExchangeCommandDispatcher.partitionKey(application));
+        assertEquals(single, batch);
+    }
+
+    @Test
+    void testPartitioned_SameOwnerCommandsRunSeriallyInArrivalOrder() throws Exception {
+        // Given 第一条命令阻塞分区线程，其余命令按提交顺序排队
+        start(ExchangeCommandDispatcher.Mode.PARTITIONED);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService callers = Executors.newFixedThreadPool(5);
+        try {
+            Future<?> blocker = callers.submit(() -> dispatcher.dispatch(2L, () -> {
+                started.countDown();
+                await(release);
+                order.add(0);
+                return null;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<?>> queued = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                int sequence = i;
+                queued.add(callers.submit(() -> dispatcher.dispatch(2L, () -> order.add(sequence))));
+                // 等待命令进入分区队列后再提交下一条，保证到达顺序确定
+                waitForQueued(2L, i);
+            }
+
+            // When
+            release.countDown();
+            blocker.get(5, TimeUnit.SECONDS);
+            for (Future<?> future : queued) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        // Then
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void testPartitioned_NestedDispatchToSamePartitionRunsInline() {
+        // Given
+        start(ExchangeCommandDispatcher.Mode.PARTITIONED);
+
+        // When 命令内再次分发到同一分区，不应自我等待
+        String inner = dispatcher.dispatch(2L, () -> dispatcher.dispatch(2L, () -> Thread.currentThread().getName()));
+
+        // Then
+        assertTrue(inner.startsWith("exchange-partition-"));
+    }
+
+    @Test
+    void testPartitioned_CommandExceptionPropagatesToCaller() {
+        // Given
+        start(ExchangeCommandDispatcher.Mode.PARTITIONED);
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> dispatcher.dispatch(2L, () -> {
+                    throw new IllegalStateException("申请状态不允许审核");
+                }));
+        assertEquals("申请状态不允许审核", exception.getMessage());
+    }
+
+    private void start(ExchangeCommandDispatcher.Mode mode) {
+        ReflectionTestUtils.setField(dispatcher, "mode", mode);
+        dispatcher.start();
+    }
+
+    private void waitForQueued(Long ownerId, int expected) throws InterruptedException {
+        ThreadPoolExecutor[] workers = (ThreadPoolExecutor[]) ReflectionTestUtils.getField(dispatcher, "workers");
+        ThreadPoolExecutor worker = workers[Math.floorMod(Long.hashCode(ownerId), 4)];
+        long deadline = System.currentTimeMillis() + 5000;
+        while (worker.getQueue().size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, worker.getQueue().size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.service.ExchangeEngineService;
+import com.leadexchange.util.HierarchicalTimerWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 交换申请到期调度器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ExchangeExpirySchedulerTest {
+
+    private static final String REDIS_KEY = "exchange:expiry";
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private ExchangeEngineService exchangeEngineService;
+
+    @Mock
+    private ExchangeApplicationRepository applicationRepository;
+
+    private HierarchicalTimerWheel<Long, Long> timerWheel;
+
+    private ExchangeExpiryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ExchangeExpiryScheduler(stringRedisTemplate, exchangeEngineService, applicationRepository);
+        timerWheel = new HierarchicalTimerWheel<>(100, 512, 3, System.currentTimeMillis());
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "redisKey", REDIS_KEY);
+        ReflectionTestUtils.setField(scheduler, "tickMs", 100L);
+        ReflectionTestUtils.setField(scheduler, "retryDelayMs", 5000L);
+        ReflectionTestUtils.setField(scheduler, "timerWheel", timerWheel);
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+    }
+
+    @Test
+    void testExpire_ClaimedAndExpired() {
+        // Given
+        when(zSetOperations.remove(REDIS_KEY, "1")).thenReturn(1L);
+        when(exchangeEngineService.expireIfDue(eq(1L), anyString())).thenReturn(true);
+
+        // When
+        scheduler.expire(1L);
+
+        // Then
+        verify(zSetOperations, never()).add(anyString(), anyString(), anyDouble());
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    void testExpire_NotClaimedSkipsProcessing() {
+        // Given 其他节点已认领
+        when(zSetOperations.remove(REDIS_KEY, "1")).thenReturn(0L);
+
+        // When
+        scheduler.expire(1L);
+
+        // Then
+        verifyNoInteractions(exchangeEngineService);
+    }
+
+    @Test
+    void testExpire_PendingButNotYetDueIsRescheduledAtDeadline() {
+        // Given 提前触发：认领成功但申请尚未到期
+        LocalDateTime expireTime = LocalDateTime.now().plusMinutes(5);
+        ExchangeApplication application = new ExchangeApplication();
+        application.setId(1L);
+        application.setStatus(ExchangeStatus.PENDING);
+        application.setExpiryTime(expireTime);
+        when(zSetOperations.remove(REDIS_KEY, "1")).thenReturn(1L);
+        when(exchangeEngineService.expireIfDue(eq(1L), anyString())).thenReturn(false);
+        when(applicationRepository.findById(1L)).thenReturn(Optional.of(application));
+
+        // When
+        scheduler.expire(1L);
+
+        // Then
+        ArgumentCaptor<Double> score = ArgumentCaptor.forClass(Double.class);
+        verify(zSetOperations).add(eq(REDIS_KEY), eq("1"), score.capture());
+        long deadline = expireTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + 1;
+        assertEquals(deadline, score.getValue().longValue());
+        assertEquals(1, timerWheel.size());
+    }
+
+    @Test
+    void testExpire_AlreadyHandledIsNotRescheduled() {
+        // Given 申请已被审核
+        ExchangeApplication application = new ExchangeApplication();
+        application.setId(1L);
+        application.setStatus(ExchangeStatus.APPROVED);
+        application.setExpiryTime(LocalDateTime.now().minusMinutes(1));
+        when(zSetOperations.remove(REDIS_KEY, "1")).thenReturn(1L);
+        when(exchangeEngineService.expireIfDue(eq(1L), anyString())).thenReturn(false);
+        when(applicationRepository.findById(1L)).thenReturn(Optional.of(application));
+
+        // When
+        scheduler.expire(1L);
+
+        // Then
+        verify(zSetOperations, never()).add(anyString(), anyString(), anyDouble());
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    void testExpire_FailureIsRetriedLater() {
+        // Given
+        when(zSetOperations.remove(REDIS_KEY, "1")).thenReturn(1L);
+        when(exchangeEngineService.expireIfDue(eq(1L), anyString())).thenThrow(new IllegalStateException("数据库不可用"));
+        long before = System.currentTimeMillis();
+
+        // When
+        scheduler.expire(1L);
+
+        // Then
+        ArgumentCaptor<Double> score = ArgumentCaptor.forClass(Double.class);
+        verify(zSetOperations).add(eq(REDIS_KEY), eq("1"), score.capture());
+        assertTrue(score.getValue().longValue() >= before + 5000L);
+        assertEquals(1, timerWheel.size());
+    }
+}
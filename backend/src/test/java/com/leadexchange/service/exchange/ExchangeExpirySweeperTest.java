@@ -0,0 +1,217 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import com.leadexchange.domain.exchange.UserCredit;
+import com.leadexchange.repository.ExchangeApplicationRepository;
+import com.leadexchange.repository.UserCreditRepository;
+import com.leadexchange.service.ExchangeEngineService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 交换申请过期清理任务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ExchangeExpirySweeperTest {
+
+    @Mock
+    private ExchangeApplicationRepository applicationRepository;
+
+    @Mock
+    private ExchangeEngineService exchangeEngineService;
+
+    @Mock
+    private UserCreditRepository userCreditRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private CreditLockCoordinator creditLockCoordinator;
+
+    private ExchangeExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        creditLockCoordinator = new CreditLockCoordinator(userCreditRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(creditLockCoordinator, "stripeCount", 64);
+        ReflectionTestUtils.setField(creditLockCoordinator, "waitTimeoutMs", 100L);
+        ReflectionTestUtils.setField(creditLockCoordinator, "concurrencyMode", CreditConcurrencyMode.PESSIMISTIC);
+        creditLockCoordinator.init();
+        sweeper = new ExchangeExpirySweeper(applicationRepository, exchangeEngineService, creditLockCoordinator,
+                transactionTemplate);
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 2);
+        ReflectionTestUtils.setField(sweeper, "maxChunksPerRun", 10);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                inTransaction(invocation.<TransactionCallback<?>>getArgument(0)));
+    }
+
+    @Test
+    void testSweep_ClaimsChunksUntilShortChunk() {
+        // Given
+        ExchangeApplication first = application(1L);
+        ExchangeApplication second = application(2L);
+        ExchangeApplication third = application(3L);
+        when(applicationRepository.claimExpiredApplications(any(LocalDateTime.class), eq(2)))
+                .thenReturn(Arrays.asList(first, second))
+                .thenReturn(Collections.singletonList(third));
+
+        // When
+        int expired = sweeper.sweep();
+
+        // Then 每批在独立事务中认领并过期，不足一批后停止
+        assertEquals(3, expired);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(exchangeEngineService).expireApplication(same(first), anyString());
+        verify(exchangeEngineService).expireApplication(same(second), anyString());
+        verify(exchangeEngineService).expireApplication(same(third), anyString());
+    }
+
+    @Test
+    void testSweep_ApplicantsLockedInAscendingOrderBeforeExpiring() {
+        // Given 按过期时间认领，申请人ID为降序；过期时逐条解冻会再次锁定各自申请人的积分
+        ExchangeApplication first = application(1L, 9L, new BigDecimal("10"));
+        ExchangeApplication second = application(2L, 3L, new BigDecimal("20"));
+        ExchangeApplication free = application(3L, 5L, BigDecimal.ZERO);
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 3);
+        when(applicationRepository.claimExpiredApplications(any(LocalDateTime.class), eq(3)))
+                .thenReturn(Arrays.asList(first, second, free))
+                .thenReturn(Collections.emptyList());
+        when(userCreditRepository.findByUserIdWithLock(anyLong()))
+                .thenAnswer(invocation -> Optional.of(new UserCredit(invocation.getArgument(0))));
+        when(exchangeEngineService.expireApplication(any(ExchangeApplication.class), anyString()))
+                .thenAnswer(invocation -> {
+                    ExchangeApplication application = invocation.getArgument(0);
+                    if (application.getCreditDifference().compareTo(BigDecimal.ZERO) > 0) {
+                        creditLockCoordinator.lockCredit(application.getApplicantId());
+                    }
+                    return application;
+                });
+
+        // When
+        int expired = sweeper.sweep();
+
+        // Then 整批在一个事务内完成，没有因加锁顺序退回逐条处理；无冻结积分的申请人不加锁
+        assertEquals(3, expired);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(applicationRepository, never()).claimExpiredApplication(anyLong(), any(LocalDateTime.class));
+        InOrder inOrder = inOrder(userCreditRepository);
+        inOrder.verify(userCreditRepository).findByUserIdWithLock(3L);
+        inOrder.verify(userCreditRepository).findByUserIdWithLock(9L);
+        verify(userCreditRepository, never()).findByUserIdWithLock(5L);
+    }
+
+    @Test
+    void testSweep_EmptyClaimDoesNothing() {
+        // Given
+        when(applicationRepository.claimExpiredApplications(any(LocalDateTime.class), eq(2)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        int expired = sweeper.sweep();
+
+        // Then
+        assertEquals(0, expired);
+        verifyNoInteractions(exchangeEngineService);
+    }
+
+    @Test
+    void testSweep_FailedChunkRetriesRowsIndividuallyAndSkipsNoLongerPending() {
+        // Given 第1条过期时失败导致整批回滚；逐条重试时第2条已被审核，认领不到
+        ExchangeApplication first = application(1L);
+        ExchangeApplication second = application(2L);
+        when(applicationRepository.claimExpiredApplications(any(LocalDateTime.class), eq(2)))
+                .thenReturn(Arrays.asList(first, second));
+        when(exchangeEngineService.expireApplication(same(first), anyString()))
+                .thenThrow(new IllegalStateException("解冻积分失败"))
+                .thenReturn(first);
+        when(applicationRepository.claimExpiredApplication(eq(1L), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(first));
+        when(applicationRepository.claimExpiredApplication(eq(2L), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+
+        // When
+        int expired = sweeper.sweep();
+
+        // Then
+        assertEquals(1, expired);
+        verify(exchangeEngineService, times(2)).expireApplication(same(first), anyString());
+        verify(exchangeEngineService, never()).expireApplication(same(second), anyString());
+        // 失败后本轮不再认领新批次
+        verify(applicationRepository, times(1)).claimExpiredApplications(any(LocalDateTime.class), eq(2));
+    }
+
+    @Test
+    void testSweep_StopsAfterMaxChunksPerRun() {
+        // Given
+        ReflectionTestUtils.setField(sweeper, "maxChunksPerRun", 2);
+        List<ExchangeApplication> fullChunk = Arrays.asList(application(1L), application(2L));
+        when(applicationRepository.claimExpiredApplications(any(LocalDateTime.class), eq(2))).thenReturn(fullChunk);
+
+        // When
+        int expired = sweeper.sweep();
+
+        // Then
+        assertEquals(4, expired);
+        verify(applicationRepository, times(2)).claimExpiredApplications(any(LocalDateTime.class), eq(2));
+    }
+
+    private ExchangeApplication application(Long id) {
+        ExchangeApplication application = new ExchangeApplication();
+        application.setId(id);
+        application.setStatus(ExchangeStatus.PENDING);
+        application.setExpiryTime(LocalDateTime.now().minusMinutes(1));
+        return application;
+    }
+
+    private ExchangeApplication application(Long id, Long applicantId, BigDecimal creditDifference) {
+        ExchangeApplication application = application(id);
+        application.setApplicantId(applicantId);
+        application.setCreditDifference(creditDifference);
+        return application;
+    }
+
+    /**
+     * 模拟事务：开启事务同步，回调结束后按提交或回滚触发完成回调，释放协调器持有的条带锁
+     */
+    private static Object inTransaction(TransactionCallback<?> callback) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        int status = TransactionSynchronization.STATUS_ROLLED_BACK;
+        try {
+            Object result = callback.doInTransaction(new SimpleTransactionStatus());
+            status = TransactionSynchronization.STATUS_COMMITTED;
+            return result;
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clear();
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.ExchangeWant;
+import com.leadexchange.domain.exchange.ExchangeWantStatus;
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.event.exchange.ExchangeWantEvent;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.ExchangeWantRepository;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.util.ExchangeValueCalculator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 交换撮合引擎单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ExchangeMatchingEngineTest {
+
+    @Mock
+    private LeadRepository leadRepository;
+
+    @Mock
+    private ExchangeWantRepository wantRepository;
+
+    private ExchangeMatchingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExchangeMatchingEngine(leadRepository, wantRepository, new ExchangeValueCalculator());
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "recoveryPageSize", 100);
+        ReflectionTestUtils.setField(engine, "maxCandidates", 200);
+        ReflectionTestUtils.setField(engine, "maxMatchesPerEvent", 20);
+        ReflectionTestUtils.setField(engine, "maxMatchesPerUser", 50);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 100);
+        engine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testOnLeadChanged_NewOfferClosesBilateralSwap() throws Exception {
+        // Given 用户1持有X行业线索并想要Y行业，用户2想要X行业
+        recover(Collections.singletonList(lead(11L, 1L, "X")),
+                Arrays.asList(want(21L, 1L, "Y"), want(22L, 2L, "X")));
+        when(leadRepository.findAllById(Collections.singletonList(12L)))
+                .thenReturn(Collections.singletonList(lead(12L, 2L, "Y")));
+
+        // When 用户2发布Y行业线索
+        engine.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.CREATED, 12L));
+        awaitMatching();
+
+        // Then
+        List<ExchangeMatchingEngine.ExchangeMatch> matches = engine.getMatches(1L);
+        assertEquals(1, matches.size());
+        assertEquals(2, matches.get(0).getLegs().size());
+        assertEquals("[11, 12]", matches.get(0).getMatchKey());
+        assertEquals(1, engine.getMatches(2L).size());
+    }
+
+    @Test
+    void testOnWantChanged_NewWantClosesThreeWayCycle() throws Exception {
+        // Given 1给2（X），2给3（Y），缺3给1的需求；任意两人之间无法互换
+        recover(Arrays.asList(lead(11L, 1L, "X"), lead(12L, 2L, "Y"), lead(13L, 3L, "Z")),
+                Arrays.asList(want(22L, 2L, "X"), want(23L, 3L, "Y")));
+
+        // When 用户1登记想要Z行业
+        engine.onWantChanged(new ExchangeWantEvent(this, want(21L, 1L, "Z")));
+        awaitMatching();
+
+        // Then
+        List<ExchangeMatchingEngine.ExchangeMatch> matches = engine.getMatches(1L);
+        assertEquals(1, matches.size());
+        assertEquals(3, matches.get(0).getLegs().size());
+        assertEquals("[11, 12, 13]", matches.get(0).getMatchKey());
+        assertTrue(matches.get(0).involves(2L));
+        assertTrue(matches.get(0).involves(3L));
+    }
+
+    @Test
+    void testOnLeadChanged_RemovedOfferInvalidatesMatchAndRepublishRematches() throws Exception {
+        // Given 已撮合的二元互换
+        recover(Arrays.asList(lead(11L, 1L, "X"), lead(12L, 2L, "Y")),
+                Arrays.asList(want(21L, 1L, "Y"), want(22L, 2L, "X")));
+        when(leadRepository.findAllById(Collections.singletonList(12L)))
+                .thenReturn(Collections.singletonList(lead(12L, 2L, "Y")))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(Collections.singletonList(lead(12L, 2L, "Y")));
+        engine.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.UPDATED, 12L));
+        awaitMatching();
+        assertEquals(1, engine.getMatches(1L).size());
+
+        // When 线索12被删除
+        engine.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.DELETED, 12L));
+        awaitMatching();
+
+        // Then 双方的撮合结果都被作废
+        assertTrue(engine.getMatches(1L).isEmpty());
+        assertTrue(engine.getMatches(2L).isEmpty());
+
+        // When 线索12重新发布
+        engine.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.STATUS_CHANGED, 12L));
+        awaitMatching();
+
+        // Then 重新撮合
+        assertEquals(1, engine.getMatches(1L).size());
+        assertEquals(1, engine.getMatches(2L).size());
+    }
+
+    @Test
+    void testOnWantChanged_CancelledWantInvalidatesMatch() throws Exception {
+        // Given
+        recover(Collections.singletonList(lead(11L, 1L, "X")),
+                Arrays.asList(want(21L, 1L, "Y"), want(22L, 2L, "X")));
+        when(leadRepository.findAllById(Collections.singletonList(12L)))
+                .thenReturn(Collections.singletonList(lead(12L, 2L, "Y")));
+        engine.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.CREATED, 12L));
+        awaitMatching();
+        assertEquals(1, engine.getMatches(2L).size());
+
+        // When 用户2取消需求
+        ExchangeWant cancelled = want(22L, 2L, "X");
+        cancelled.cancel();
+        engine.onWantChanged(new ExchangeWantEvent(this, cancelled));
+        awaitMatching();
+
+        // Then
+        assertTrue(engine.getMatches(1L).isEmpty());
+        assertTrue(engine.getMatches(2L).isEmpty());
+    }
+
+    @Test
+    void testOnLeadChanged_MatchingRunsOffTheCallerThread() throws Exception {
+        // Given
+        recover(Collections.emptyList(), Collections.emptyList());
+        AtomicReference<String> threadName = new AtomicReference<>();
+        when(leadRepository.findAllById(Collections.singletonList(12L))).thenAnswer(invocation -> {
+            threadName.set(Thread.currentThread().getName());
+            return Collections.emptyList();
+        });
+
+        // When
+        engine.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.CREATED, 12L));
+        awaitMatching();
+
+        // Then 查询与撮合在撮合线程上执行，不占用提交事务的请求线程
+        assertTrue(threadName.get().startsWith("exchange-matching-"));
+    }
+
+    @Test
+    void testOnLeadChanged_IgnoredBeforeRecovery() throws Exception {
+        // When 订单簿尚未恢复
+        engine.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.CREATED, 12L));
+        awaitMatching();
+
+        // Then
+        verifyNoInteractions(leadRepository);
+    }
+
+    private void recover(List<Lead> leads, List<ExchangeWant> wants) {
+        when(leadRepository.findByStatusAfterId(eq(LeadStatus.PUBLISHED), eq(0L), any(Pageable.class)))
+                .thenReturn(leads);
+        when(wantRepository.findByStatusAfterId(eq(ExchangeWantStatus.ACTIVE), eq(0L), any(Pageable.class)))
+                .thenReturn(wants);
+        engine.recover();
+    }
+
+    private void awaitMatching() throws Exception {
+        ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(engine, "matchExecutor");
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private Lead lead(Long id, Long ownerId, String industry) {
+        Lead lead = new Lead();
+        lead.setId(id);
+        lead.setOwnerId(ownerId);
+        lead.setStatus(LeadStatus.PUBLISHED);
+        lead.setRating(LeadRating.B);
+        lead.setIndustryDirection(industry);
+        lead.setDeleted(0);
+        return lead;
+    }
+
+    private ExchangeWant want(Long id, Long userId, String industry) {
+        ExchangeWant want = new ExchangeWant();
+        want.setId(id);
+        want.setUserId(userId);
+        want.setMinRating(LeadRating.C);
+        want.setIndustryDirection(industry);
+        return want;
+    }
+}
@@ -0,0 +1,146 @@
+package com.leadexchange.service.exchange;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadexchange.common.exception.BusinessException;
+import com.leadexchange.domain.exchange.IdempotencyRecord;
+import com.leadexchange.domain.exchange.IdempotencyStatus;
+import com.leadexchange.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 幂等请求服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String KEY = "key-1";
+    private static final String OPERATION = "exchange.approve";
+    private static final Map<String, Object> REQUEST = Collections.singletonMap("applicationId", 9);
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(recordRepository, stringRedisTemplate, transactionManager,
+                new ObjectMapper());
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "inProgressTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(idempotencyService, "bloomExpectedInsertions", 1000L);
+        ReflectionTestUtils.setField(idempotencyService, "bloomFalsePositiveRate", 0.01);
+        idempotencyService.init();
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void testExecute_ReclaimedExecutorIsFencedAndRolledBack() {
+        // Given 首次执行超时期间记录已被重新认领，令牌已变
+        IdempotencyRecord claimed = record(0);
+        when(recordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenReturn(claimed);
+        when(recordRepository.markCompleted(eq(5L), eq(0), anyString(), any())).thenReturn(0);
+
+        // When & Then
+        assertThrows(BusinessException.class, () -> idempotencyService.execute(USER_ID, KEY, OPERATION, REQUEST,
+                String.class, () -> "done"));
+        // 业务事务回滚，不提交本次执行的结果
+        verify(transactionManager, times(1)).rollback(any());
+        // 释放也须持有旧令牌，不会删除新执行者的记录
+        verify(recordRepository).deleteInProgress(5L, 0);
+        verify(stringRedisTemplate, never()).opsForValue();
+    }
+
+    @Test
+    void testExecute_StaleRecordReclaimedWithNextToken() {
+        // Given 已有记录处理中且已超时
+        when(recordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        IdempotencyRecord existing = record(2);
+        when(recordRepository.findByUserIdAndIdempotencyKey(USER_ID, KEY)).thenReturn(Optional.of(existing));
+        when(recordRepository.reclaimStale(eq(5L), eq(fingerprint()), eq(2), any(), any())).thenReturn(1);
+        when(recordRepository.markCompleted(eq(5L), eq(3), anyString(), any())).thenReturn(1);
+
+        // When
+        String response = idempotencyService.execute(USER_ID, KEY, OPERATION, REQUEST, String.class, () -> "done");
+
+        // Then
+        assertEquals("done", response);
+        verify(recordRepository).markCompleted(eq(5L), eq(3), eq("\"done\""), any());
+        verify(recordRepository, never()).deleteInProgress(anyLong(), anyInt());
+    }
+
+    @Test
+    void testExecute_InProgressWithinLeaseRejectedWithoutRunning() {
+        // Given 已有记录处理中且未超时
+        when(recordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(recordRepository.findByUserIdAndIdempotencyKey(USER_ID, KEY)).thenReturn(Optional.of(record(0)));
+        when(recordRepository.reclaimStale(eq(5L), eq(fingerprint()), eq(0), any(), any())).thenReturn(0);
+        AtomicInteger executions = new AtomicInteger();
+
+        // When & Then
+        assertThrows(BusinessException.class, () -> idempotencyService.execute(USER_ID, KEY, OPERATION, REQUEST,
+                String.class, () -> "done" + executions.incrementAndGet()));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void testExecute_CompletedRecordReturnsStoredResponse() {
+        // Given
+        when(recordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        IdempotencyRecord completed = record(0);
+        completed.setStatus(IdempotencyStatus.COMPLETED);
+        completed.setResponseBody("\"first\"");
+        when(recordRepository.findByUserIdAndIdempotencyKey(USER_ID, KEY)).thenReturn(Optional.of(completed));
+
+        // When
+        String response = idempotencyService.execute(USER_ID, KEY, OPERATION, REQUEST, String.class, () -> "second");
+
+        // Then
+        assertEquals("first", response);
+        verify(recordRepository, never()).markCompleted(anyLong(), anyInt(), anyString(), any());
+    }
+
+    private IdempotencyRecord record(int claimToken) {
+        IdempotencyRecord record = new IdempotencyRecord(USER_ID, KEY, OPERATION, fingerprint(),
+                LocalDateTime.now().plusHours(24));
+        record.setId(5L);
+        record.setClaimToken(claimToken);
+        return record;
+    }
+
+    private String fingerprint() {
+        return ReflectionTestUtils.invokeMethod(idempotencyService, "fingerprint", OPERATION, REQUEST);
+    }
+}
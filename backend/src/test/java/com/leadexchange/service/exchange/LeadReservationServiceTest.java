@@ -0,0 +1,83 @@
+package com.leadexchange.service.exchange;
+
+import com.leadexchange.domain.exchange.LeadReservation;
+import com.leadexchange.domain.exchange.LeadReservationRole;
+import com.leadexchange.repository.LeadReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 线索预留服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class LeadReservationServiceTest {
+
+    @Mock
+    private LeadReservationRepository reservationRepository;
+
+    @InjectMocks
+    private LeadReservationService reservationService;
+
+    @Test
+    void testCheckAvailable_OfferedLeadAlreadyReservedRejected() {
+        // Given 线索2已在申请7中提供
+        when(reservationRepository.findByExclusiveLeadIdIn(anyCollection())).thenReturn(
+                Collections.singletonList(new LeadReservation(2L, 7L, LeadReservationRole.OFFERED)));
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> reservationService.checkAvailable(1L, Arrays.asList(2L, 3L)));
+        assertTrue(exception.getMessage().contains("[2]"));
+    }
+
+    @Test
+    void testReserve_ConcurrentDoubleReservationRejectedByUniqueIndex() {
+        // Given 预检之后另一申请抢先写入，唯一索引冲突
+        doThrow(new DataIntegrityViolationException("Duplicate entry for uk_exclusive_lead_id"))
+                .when(reservationRepository).flush();
+
+        // When & Then
+        assertThrows(IllegalStateException.class,
+                () -> reservationService.reserve(8L, 1L, Arrays.asList(2L, 3L)));
+        verify(reservationRepository).saveAll(argThat((List<LeadReservation> reservations) -> reservations.size() == 3));
+    }
+
+    @Test
+    void testCheckTargetNotOffered_OfferedByAnotherApplicationRejected() {
+        // Given
+        when(reservationRepository.findByExclusiveLeadIdIn(Collections.singletonList(1L))).thenReturn(
+                Collections.singletonList(new LeadReservation(1L, 9L, LeadReservationRole.OFFERED)));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> reservationService.checkTargetNotOffered(8L, 1L));
+    }
+
+    @Test
+    void testCheckNotReserved_TargetOrOfferedLeadRejected() {
+        // Given
+        when(reservationRepository.findByLeadId(1L)).thenReturn(
+                Collections.singletonList(new LeadReservation(1L, 8L, LeadReservationRole.TARGET)));
+        when(reservationRepository.findByLeadId(5L)).thenReturn(Collections.emptyList());
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> reservationService.checkNotReserved(1L));
+        assertTrue(exception.getMessage().contains("[8]"));
+        assertDoesNotThrow(() -> reservationService.checkNotReserved(5L));
+    }
+}
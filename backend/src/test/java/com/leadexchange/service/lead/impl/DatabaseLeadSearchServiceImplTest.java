@@ -0,0 +1,198 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.dto.lead.LeadSearchResponse;
+import com.leadexchange.repository.lead.LeadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 数据库线索搜索服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class DatabaseLeadSearchServiceImplTest {
+
+    @Mock
+    private LeadRepository leadRepository;
+
+    @InjectMocks
+    private DatabaseLeadSearchServiceImpl searchService;
+
+    @Mock
+    private Root<Lead> root;
+
+    @Mock
+    private CriteriaQuery<?> query;
+
+    @Mock
+    private CriteriaBuilder criteriaBuilder;
+
+    @Mock
+    private Path<Object> path;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(searchService, "keywordScanWindow", 100L);
+    }
+
+    @Test
+    void testSearch_FullPageWithoutKeywordReturnsLastIdAsCursor() {
+        // Given
+        LeadSearchRequest request = new LeadSearchRequest();
+        request.setSize(2);
+        request.setRating(LeadRating.A);
+        when(leadRepository.findTop(any(), eq(Sort.by(Sort.Direction.DESC, "id")), eq(2)))
+                .thenReturn(Arrays.asList(lead(9L, "线索9"), lead(7L, "线索7")));
+
+        // When
+        LeadSearchResponse response = searchService.search(request);
+
+        // Then 无关键词时不限制ID窗口，只拼接给出的条件
+        assertEquals("DATABASE", response.getEngine());
+        assertEquals(2, response.getHits().size());
+        assertEquals("7", response.getNextCursor());
+        verify(leadRepository, never()).findMaxId();
+        applyCapturedSpecification();
+        verify(root).get("rating");
+        verify(root, never()).get("intendedRegion");
+        verify(root, never()).get("investmentAmount");
+        verify(criteriaBuilder, never()).like(any(), anyString(), anyChar());
+        verify(criteriaBuilder).lessThan(any(), eq(Long.MAX_VALUE));
+        verify(criteriaBuilder, never()).greaterThanOrEqualTo(any(), anyLong());
+    }
+
+    @Test
+    void testSearch_KeywordMatchesWithinIdWindowAndEscapesWildcards() {
+        // Given 最大ID为1000，首页只在 [901, 1001) 内匹配关键词
+        LeadSearchRequest request = LeadSearchRequest.ofKeyword(" 50%_off ");
+        request.setRegion("  ");
+        when(leadRepository.findMaxId()).thenReturn(1000L);
+        when(leadRepository.findTop(any(), any(Sort.class), eq(10)))
+                .thenReturn(Collections.singletonList(lead(950L, "清仓50%_off")));
+
+        // When
+        LeadSearchResponse response = searchService.search(request);
+
+        // Then 窗口内不足一页时以窗口下界作为游标
+        assertEquals("901", response.getNextCursor());
+        assertEquals(Collections.singletonList("清仓<em>50%_off</em>"),
+                response.getHits().get(0).getHighlights().get("title"));
+        applyCapturedSpecification();
+        verify(criteriaBuilder, times(3)).like(any(), eq("%50\\%\\_off%"), eq('\\'));
+        verify(criteriaBuilder).greaterThanOrEqualTo(any(), eq(901L));
+        verify(root, never()).get("intendedRegion");
+    }
+
+    @Test
+    void testSearch_KeywordCursorStartsWindowBelowCursor() {
+        // Given
+        LeadSearchRequest request = LeadSearchRequest.ofKeyword("餐饮");
+        request.setCursor(" 120 ");
+        when(leadRepository.findTop(any(), any(Sort.class), eq(10))).thenReturn(Collections.emptyList());
+
+        // When
+        LeadSearchResponse response = searchService.search(request);
+
+        // Then
+        assertEquals("20", response.getNextCursor());
+        verify(leadRepository, never()).findMaxId();
+        applyCapturedSpecification();
+        verify(criteriaBuilder).lessThan(any(), eq(120L));
+        verify(criteriaBuilder).greaterThanOrEqualTo(any(), eq(20L));
+    }
+
+    @Test
+    void testSearch_LastKeywordWindowHasNoCursor() {
+        // Given 最大ID小于窗口大小，一个窗口即覆盖全部线索
+        when(leadRepository.findMaxId()).thenReturn(50L);
+        when(leadRepository.findTop(any(), any(Sort.class), eq(10)))
+                .thenReturn(Collections.singletonList(lead(30L, "餐饮加盟")));
+
+        // When
+        LeadSearchResponse response = searchService.search(LeadSearchRequest.ofKeyword("餐饮"));
+
+        // Then
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    void testSearch_InvalidCursorOrPageSizeRejected() {
+        // Given
+        LeadSearchRequest badCursor = new LeadSearchRequest();
+        badCursor.setCursor("abc");
+        LeadSearchRequest badSize = new LeadSearchRequest();
+        badSize.setSize(101);
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> searchService.search(badCursor));
+        assertEquals("无效的翻页游标: abc", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(badSize));
+        verifyNoInteractions(leadRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchPage_UnsortedPageableOrderedByIdDescending() {
+        // Given
+        LeadSearchRequest request = new LeadSearchRequest();
+        request.setMinInvestment(new BigDecimal("100"));
+        when(leadRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(Page.empty());
+
+        // When
+        searchService.searchPage(request, PageRequest.of(2, 20));
+
+        // Then
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(leadRepository).findAll(any(Specification.class), pageable.capture());
+        assertEquals(2, pageable.getValue().getPageNumber());
+        assertEquals(20, pageable.getValue().getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "id"), pageable.getValue().getSort());
+    }
+
+    /**
+     * 取出传给仓库的查询条件，在模拟的 Criteria API 上执行以检查生成的谓词
+     */
+    @SuppressWarnings("unchecked")
+    private void applyCapturedSpecification() {
+        ArgumentCaptor<Specification<Lead>> specification = ArgumentCaptor.forClass(Specification.class);
+        verify(leadRepository).findTop(specification.capture(), any(Sort.class), anyInt());
+        doReturn(path).when(root).get(anyString());
+        specification.getValue().toPredicate(root, query, criteriaBuilder);
+    }
+
+    private Lead lead(Long id, String title) {
+        Lead lead = new Lead();
+        lead.setId(id);
+        lead.setTitle(title);
+        return lead;
+    }
+}
@@ -0,0 +1,161 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadRating;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.dto.lead.LeadSearchResponse;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Elasticsearch线索搜索服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ElasticsearchLeadSearchServiceImplTest {
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private SearchHits<Lead> searchHits;
+
+    @InjectMocks
+    private ElasticsearchLeadSearchServiceImpl searchService;
+
+    @Test
+    void testSearch_KeywordQueryFiltersAndSortsByScoreThenId() {
+        // Given
+        LeadSearchRequest request = LeadSearchRequest.ofKeyword(" 餐饮 ");
+        request.setRating(LeadRating.B);
+        request.setRegion(" 上海 ");
+        request.setMinInvestment(new BigDecimal("100"));
+        request.setMaxInvestment(new BigDecimal("500"));
+        request.setCursor("1.5,42");
+        when(elasticsearchOperations.search(any(NativeSearchQuery.class), eq(Lead.class))).thenReturn(searchHits);
+        when(searchHits.getSearchHits()).thenReturn(Collections.emptyList());
+
+        // When
+        LeadSearchResponse response = searchService.search(request);
+
+        // Then 过滤条件放在 filter 子句，关键词在 must 子句参与打分
+        NativeSearchQuery query = capturedQuery();
+        BoolQueryBuilder bool = (BoolQueryBuilder) query.getQuery();
+        assertEquals(4, bool.filter().size());
+        assertTerm(bool.filter().get(0), "status", "PUBLISHED");
+        assertTerm(bool.filter().get(1), "rating", "B");
+        assertTerm(bool.filter().get(2), "intendedRegion", "上海");
+        RangeQueryBuilder range = (RangeQueryBuilder) bool.filter().get(3);
+        assertEquals("investmentAmount", range.fieldName());
+        assertEquals(new BigDecimal("100"), range.from());
+        assertEquals(new BigDecimal("500"), range.to());
+
+        MultiMatchQueryBuilder multiMatch = (MultiMatchQueryBuilder) bool.must().get(0);
+        assertEquals("餐饮", multiMatch.value());
+        assertEquals(3.0f, multiMatch.fields().get("title"));
+        assertEquals(4, multiMatch.fields().size());
+
+        assertEquals(2, query.getElasticsearchSorts().size());
+        assertTrue(query.getElasticsearchSorts().get(0) instanceof ScoreSortBuilder);
+        FieldSortBuilder idSort = (FieldSortBuilder) query.getElasticsearchSorts().get(1);
+        assertEquals("id", idSort.getFieldName());
+        assertEquals(SortOrder.DESC, idSort.order());
+        assertEquals(4, query.getHighlightBuilder().fields().size());
+
+        // 有关键词时游标为 [得分, ID]
+        assertEquals(Arrays.asList(1.5d, 42L), query.getSearchAfter());
+        assertEquals(10, query.getPageable().getPageSize());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearch_WithoutKeywordSortsByIdAndReturnsSortValuesAsCursor() {
+        // Given
+        LeadSearchRequest request = new LeadSearchRequest();
+        request.setSize(1);
+        request.setCursor("50");
+        Lead lead = new Lead();
+        lead.setId(42L);
+        SearchHit<Lead> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(lead);
+        when(hit.getSortValues()).thenReturn(Collections.singletonList(42L));
+        when(hit.getHighlightFields()).thenReturn(Collections.emptyMap());
+        when(elasticsearchOperations.search(any(NativeSearchQuery.class), eq(Lead.class))).thenReturn(searchHits);
+        when(searchHits.getSearchHits()).thenReturn(Collections.singletonList(hit));
+        when(searchHits.getTotalHits()).thenReturn(5L);
+
+        // When
+        LeadSearchResponse response = searchService.search(request);
+
+        // Then
+        NativeSearchQuery query = capturedQuery();
+        BoolQueryBuilder bool = (BoolQueryBuilder) query.getQuery();
+        assertEquals(1, bool.filter().size());
+        assertTrue(bool.must().isEmpty());
+        assertEquals(1, query.getElasticsearchSorts().size());
+        assertNull(query.getHighlightBuilder());
+        assertEquals(Collections.singletonList(50L), query.getSearchAfter());
+
+        assertEquals("ELASTICSEARCH", response.getEngine());
+        assertEquals(5L, response.getTotal());
+        assertNull(response.getHits().get(0).getScore());
+        assertEquals("42", response.getNextCursor());
+    }
+
+    @Test
+    void testSearch_CursorNotMatchingSortRejected() {
+        // Given 有关键词时需要 [得分, ID]，无关键词时只需要 [ID]
+        LeadSearchRequest scored = LeadSearchRequest.ofKeyword("餐饮");
+        scored.setCursor("42");
+        LeadSearchRequest unscored = new LeadSearchRequest();
+        unscored.setCursor("1.5,42");
+        LeadSearchRequest malformed = LeadSearchRequest.ofKeyword("餐饮");
+        malformed.setCursor("abc,42");
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(scored));
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(unscored));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> searchService.search(malformed));
+        assertEquals("无效的翻页游标: abc,42", exception.getMessage());
+        verifyNoInteractions(elasticsearchOperations);
+    }
+
+    private NativeSearchQuery capturedQuery() {
+        ArgumentCaptor<NativeSearchQuery> query = ArgumentCaptor.forClass(NativeSearchQuery.class);
+        verify(elasticsearchOperations).search(query.capture(), eq(Lead.class));
+        return query.getValue();
+    }
+
+    private void assertTerm(Object clause, String field, Object value) {
+        TermQueryBuilder term = (TermQueryBuilder) clause;
+        assertEquals(field, term.fieldName());
+        assertEquals(value, term.value());
+    }
+}
@@ -0,0 +1,95 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.lead.LeadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 内嵌线索搜索服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class EmbeddedLeadSearchServiceImplTest {
+
+    @Mock
+    private LeadRepository leadRepository;
+
+    @InjectMocks
+    private EmbeddedLeadSearchServiceImpl searchService;
+
+    @TempDir
+    Path dataDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(searchService, "dataDir", dataDir.toString());
+        ReflectionTestUtils.setField(searchService, "buildBatchSize", 100);
+        ReflectionTestUtils.setField(searchService, "replayOverlapSeconds", 60L);
+        when(leadRepository.findActiveAfterId(eq(0L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        searchService.init();
+    }
+
+    @Test
+    void testOnLeadChanged_UpdatesAppliedSeriallyInCommitOrder() throws Exception {
+        // Given 第一次更新读到旧标题后阻塞，第二次更新读到新标题
+        CountDownLatch firstRead = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        when(leadRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            if (reads.incrementAndGet() == 1) {
+                firstRead.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return Collections.singletonList(lead(1L, "旧标题餐饮"));
+            }
+            return Collections.singletonList(lead(1L, "新标题酒店"));
+        });
+
+        // When
+        searchService.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.UPDATED, 1L));
+        assertTrue(firstRead.await(5, TimeUnit.SECONDS));
+        searchService.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.UPDATED, 1L));
+        Thread.sleep(100);
+
+        // Then 前一次更新写入索引前，后一次更新不会开始读取
+        assertEquals(1, reads.get());
+        release.countDown();
+        searchService.shutdown();
+        assertEquals(2, reads.get());
+        LeadInvertedIndex index = (LeadInvertedIndex) ReflectionTestUtils.getField(searchService, "index");
+        assertEquals(1, index.search("酒店", new LeadSearchRequest(), null, null, 0, 10).getTotal());
+        assertEquals(0, index.search("餐饮", new LeadSearchRequest(), null, null, 0, 10).getTotal());
+    }
+
+    private Lead lead(Long id, String title) {
+        Lead lead = new Lead();
+        lead.setId(id);
+        lead.setTitle(title);
+        lead.setCompanyName("测试企业");
+        lead.setStatus(LeadStatus.PUBLISHED);
+        lead.setDeleted(0);
+        return lead;
+    }
+}
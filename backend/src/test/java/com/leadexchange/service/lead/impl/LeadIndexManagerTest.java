@@ -0,0 +1,192 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.repository.lead.LeadRepository;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 线索索引管理器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class LeadIndexManagerTest {
+
+    private static final String LOCK_KEY = "lead:index:reindex-lock";
+
+    @Mock
+    private RestHighLevelClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private LeadRepository leadRepository;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @InjectMocks
+    private LeadIndexManager indexManager;
+
+    private ExecutorService launchExecutor;
+
+    @BeforeEach
+    void setUp() {
+        // 不调用 init，避免启动时访问 Elasticsearch
+        launchExecutor = Executors.newSingleThreadExecutor();
+        ReflectionTestUtils.setField(indexManager, "launchExecutor", launchExecutor);
+        ReflectionTestUtils.setField(indexManager, "lockSeconds", 21600L);
+        ReflectionTestUtils.setField(indexManager, "reindexBatchSize", 500);
+        ReflectionTestUtils.setField(indexManager, "maxAttempts", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        launchExecutor.shutdownNow();
+    }
+
+    @Test
+    void testTriggerReindex_LockHeldByOtherNodeNotStarted() {
+        // Given
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(LOCK_KEY), anyString(), eq(21600L), eq(TimeUnit.SECONDS)))
+                .thenReturn(false);
+
+        // When
+        boolean started = indexManager.triggerReindex();
+
+        // Then 未获取到锁时不报告已启动，也不释放其他节点的锁
+        assertFalse(started);
+        assertFalse(indexManager.isRunning());
+        assertNull(indexManager.getLastReport());
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+        verify(stringRedisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTriggerReindex_ReleasesLockWithOwnerToken() throws Exception {
+        // Given 获取锁后重建因无法访问集群而失败
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(LOCK_KEY), anyString(), eq(21600L), eq(TimeUnit.SECONDS)))
+                .thenReturn(true);
+
+        // When
+        boolean started = indexManager.triggerReindex();
+        launchExecutor.shutdown();
+        assertTrue(launchExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then 结束后以获取锁时的令牌比较删除
+        assertTrue(started);
+        assertFalse(indexManager.isRunning());
+        assertFalse(indexManager.getLastReport().isSucceeded());
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).setIfAbsent(eq(LOCK_KEY), token.capture(), eq(21600L), eq(TimeUnit.SECONDS));
+        ArgumentCaptor<RedisScript<Long>> script = ArgumentCaptor.forClass(RedisScript.class);
+        verify(stringRedisTemplate).execute(script.capture(), eq(Collections.singletonList(LOCK_KEY)),
+                eq(token.getValue()));
+        assertTrue(script.getValue().getScriptAsString().contains("redis.call('GET', KEYS[1]) == ARGV[1]"));
+        verify(stringRedisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    void testIndexQuery_UpdateTimeUsedAsExternalVersion() {
+        // Given
+        LocalDateTime createTime = LocalDateTime.of(2024, 1, 1, 8, 0);
+        LocalDateTime updateTime = LocalDateTime.of(2024, 1, 2, 9, 30, 15);
+        Lead updated = lead(5L, createTime, updateTime);
+        Lead created = lead(6L, createTime, null);
+        Lead unsaved = lead(7L, null, null);
+
+        // When
+        IndexQuery updatedQuery = LeadIndexManager.indexQuery(updated);
+        IndexQuery createdQuery = LeadIndexManager.indexQuery(created);
+        IndexQuery unsavedQuery = LeadIndexManager.indexQuery(unsaved);
+
+        // Then 无更新时间时退回创建时间
+        assertEquals("5", updatedQuery.getId());
+        assertSame(updated, updatedQuery.getObject());
+        assertEquals(epochMillis(updateTime), updatedQuery.getVersion());
+        assertEquals(epochMillis(createTime), createdQuery.getVersion());
+        assertNull(unsavedQuery.getVersion());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReplay_VersionConflictsTreatedAsWritten() {
+        // Given 索引中已有管道写入的更新版本
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime updateTime = LocalDateTime.of(2024, 1, 1, 0, 5);
+        when(leadRepository.findUpdatedSince(eq(since), eq(0L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(lead(5L, since, updateTime)));
+        when(elasticsearchOperations.bulkIndex(anyList(), any(IndexCoordinates.class)))
+                .thenThrow(new BulkFailureException("部分文档写入失败", Collections.singletonMap("5",
+                        "ElasticsearchException[version_conflict_engine_exception: [5]: version conflict]")));
+
+        // When
+        Long replayed = ReflectionTestUtils.invokeMethod(indexManager, "replay", "leads_v2", since);
+
+        // Then 不重试，按已写入计数
+        assertEquals(1L, replayed);
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<IndexCoordinates> coordinates = ArgumentCaptor.forClass(IndexCoordinates.class);
+        verify(elasticsearchOperations, times(1)).bulkIndex(queries.capture(), coordinates.capture());
+        assertEquals("leads_v2", coordinates.getValue().getIndexName());
+        assertEquals(epochMillis(updateTime), queries.getValue().get(0).getVersion());
+    }
+
+    @Test
+    void testIsVersionConflict_OnlyMatchesVersionConflicts() {
+        // When & Then
+        assertTrue(LeadIndexManager.isVersionConflict("version_conflict_engine_exception: [5]"));
+        assertFalse(LeadIndexManager.isVersionConflict("es_rejected_execution_exception"));
+        assertFalse(LeadIndexManager.isVersionConflict(null));
+    }
+
+    private long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private Lead lead(Long id, LocalDateTime createTime, LocalDateTime updateTime) {
+        Lead lead = new Lead();
+        lead.setId(id);
+        lead.setDeleted(0);
+        lead.setCreateTime(createTime);
+        lead.setUpdateTime(updateTime);
+        return lead;
+    }
+}
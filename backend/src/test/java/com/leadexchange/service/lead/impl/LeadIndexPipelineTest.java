@@ -0,0 +1,273 @@
+package com.leadexchange.service.lead.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.rabbitmq.client.Channel;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 线索索引管道单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class LeadIndexPipelineTest {
+
+    @Mock
+    private LeadRepository leadRepository;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private Channel channel;
+
+    @InjectMocks
+    private LeadIndexPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        // 刷新线程不会在测试期间运行，由测试直接调用 flushDue
+        ReflectionTestUtils.setField(pipeline, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(pipeline, "initialBatchSize", 200);
+        ReflectionTestUtils.setField(pipeline, "minBatchSize", 20);
+        ReflectionTestUtils.setField(pipeline, "maxBatchSize", 1000);
+        ReflectionTestUtils.setField(pipeline, "targetLatencyMs", 500L);
+        ReflectionTestUtils.setField(pipeline, "batchSizeStep", 50);
+        ReflectionTestUtils.setField(pipeline, "maxAttempts", 3);
+        ReflectionTestUtils.setField(pipeline, "retryBackoffMs", 1000L);
+        ReflectionTestUtils.setField(pipeline, "maxBackoffMs", 60000L);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_CoalescesDeliveriesPerLeadAndAcksAfterWrite() throws Exception {
+        // Given 线索5收到两条消息，线索6收到一条
+        pipeline.onMessage(message(5L, 1L), channel);
+        pipeline.onMessage(message(5L, 2L), channel);
+        pipeline.onMessage(message(6L, 3L), channel);
+        assertEquals(2, pipeline.getPendingCount());
+        verifyNoInteractions(channel);
+        when(leadRepository.findAllById(any())).thenReturn(Arrays.asList(lead(5L), lead(6L)));
+
+        // When
+        pipeline.flushDue();
+
+        // Then 一次读取、一次批量写入，写入后才确认全部消息
+        verify(leadRepository).findAllById(new HashSet<>(Arrays.asList(5L, 6L)));
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(elasticsearchOperations, channel);
+        inOrder.verify(elasticsearchOperations).bulkIndex(queries.capture(), eq(Lead.class));
+        inOrder.verify(channel).basicAck(1L, false);
+        inOrder.verify(channel).basicAck(2L, false);
+        inOrder.verify(channel).basicAck(3L, false);
+        assertEquals(Arrays.asList("5", "6"), Arrays.asList(queries.getValue().get(0).getId(),
+                queries.getValue().get(1).getId()));
+        assertEquals(0, pipeline.getPendingCount());
+        assertEquals(250, pipeline.getBatchSize());
+    }
+
+    @Test
+    void testFlush_DeletedAndMissingLeadsRemovedFromIndex() throws Exception {
+        // Given 线索5已逻辑删除，线索6已不存在
+        Lead deleted = lead(5L);
+        deleted.setDeleted(1);
+        pipeline.onMessage(message(5L, 1L), channel);
+        pipeline.onMessage(message(6L, 2L), channel);
+        when(leadRepository.findAllById(any())).thenReturn(Collections.singletonList(deleted));
+
+        // When
+        pipeline.flushDue();
+
+        // Then
+        verify(elasticsearchOperations, never()).bulkIndex(anyList(), any(Class.class));
+        ArgumentCaptor<NativeSearchQuery> query = ArgumentCaptor.forClass(NativeSearchQuery.class);
+        verify(elasticsearchOperations).delete(query.capture(), eq(Lead.class));
+        assertEquals(new HashSet<>(Arrays.asList("5", "6")), ((IdsQueryBuilder) query.getValue().getQuery()).ids());
+        verify(channel).basicAck(1L, false);
+        verify(channel).basicAck(2L, false);
+    }
+
+    @Test
+    void testFlush_FailedDocumentRetriedWithBackoffAndBatchHalved() throws Exception {
+        // Given 批量写入中线索5被拒绝，线索6成功
+        pipeline.onMessage(message(5L, 1L), channel);
+        pipeline.onMessage(message(6L, 2L), channel);
+        when(leadRepository.findAllById(any()))
+                .thenReturn(Arrays.asList(lead(5L), lead(6L)))
+                .thenReturn(Collections.singletonList(lead(5L)));
+        when(elasticsearchOperations.bulkIndex(anyList(), eq(Lead.class)))
+                .thenThrow(new BulkFailureException("部分文档写入失败",
+                        Collections.singletonMap("5", "es_rejected_execution_exception")))
+                .thenReturn(Collections.emptyList());
+        long before = System.currentTimeMillis();
+
+        // When
+        pipeline.flushDue();
+
+        // Then 成功的线索立即确认，失败的线索按退避等待重试，批量大小减半
+        verify(channel).basicAck(2L, false);
+        verify(channel, never()).basicAck(eq(1L), anyBoolean());
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        assertEquals(1, pipeline.getPendingCount());
+        assertEquals(100, pipeline.getBatchSize());
+        long nextAttemptAt = (Long) ReflectionTestUtils.getField(pendingEntry(5L), "nextAttemptAt");
+        assertTrue(nextAttemptAt >= before + 1000 && nextAttemptAt <= System.currentTimeMillis() + 1000);
+
+        // 退避期间不重试，新到的同一线索消息并入待重试条目
+        pipeline.flushDue();
+        verify(leadRepository, times(1)).findAllById(any());
+        pipeline.onMessage(message(5L, 3L), channel);
+        assertEquals(1, pipeline.getPendingCount());
+
+        // 退避到期后重试成功，确认全部消息
+        ReflectionTestUtils.setField(pendingEntry(5L), "nextAttemptAt", 0L);
+        pipeline.flushDue();
+        verify(channel).basicAck(1L, false);
+        verify(channel).basicAck(3L, false);
+        assertEquals(0, pipeline.getPendingCount());
+        assertEquals(150, pipeline.getBatchSize());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_VersionConflictAckedWithoutRetry() throws Exception {
+        // Given 索引中线索5已是更新的版本
+        LocalDateTime updateTime = LocalDateTime.of(2024, 1, 2, 9, 30);
+        Lead stale = lead(5L);
+        stale.setUpdateTime(updateTime);
+        pipeline.onMessage(message(5L, 1L), channel);
+        when(leadRepository.findAllById(any())).thenReturn(Collections.singletonList(stale));
+        when(elasticsearchOperations.bulkIndex(anyList(), eq(Lead.class)))
+                .thenThrow(new BulkFailureException("部分文档写入失败",
+                        Collections.singletonMap("5", "version_conflict_engine_exception: [5]")));
+
+        // When
+        pipeline.flushDue();
+
+        // Then 写入带更新时间版本号，版本冲突按成功确认
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        verify(elasticsearchOperations).bulkIndex(queries.capture(), eq(Lead.class));
+        assertEquals(updateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                queries.getValue().get(0).getVersion());
+        verify(channel).basicAck(1L, false);
+        assertEquals(0, pipeline.getPendingCount());
+    }
+
+    @Test
+    void testFlush_DeadLettersAfterMaxAttempts() throws Exception {
+        // Given 整批写入连续失败
+        ReflectionTestUtils.setField(pipeline, "maxAttempts", 2);
+        pipeline.onMessage(message(5L, 1L), channel);
+        pipeline.onMessage(message(5L, 2L), channel);
+        when(leadRepository.findAllById(any())).thenReturn(Collections.singletonList(lead(5L)));
+        when(elasticsearchOperations.bulkIndex(anyList(), eq(Lead.class)))
+                .thenThrow(new IllegalStateException("集群不可用"));
+
+        // When
+        pipeline.flushDue();
+        ReflectionTestUtils.setField(pendingEntry(5L), "nextAttemptAt", 0L);
+        pipeline.flushDue();
+
+        // Then 第二次失败后拒绝全部消息且不重新入队，转入死信队列
+        verify(channel).basicNack(1L, false, false);
+        verify(channel).basicNack(2L, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        assertEquals(0, pipeline.getPendingCount());
+        assertEquals(50, pipeline.getBatchSize());
+    }
+
+    @Test
+    void testAdjustBatchSize_IncreaseAndDecreaseClampedToBounds() throws Exception {
+        // Given 成功时线性增大，不超过上限
+        ReflectionTestUtils.setField(pipeline, "maxBatchSize", 220);
+        when(leadRepository.findAllById(any())).thenReturn(Collections.singletonList(lead(5L)));
+        pipeline.onMessage(message(5L, 1L), channel);
+        pipeline.flushDue();
+        assertEquals(220, pipeline.getBatchSize());
+
+        // When 写入超过目标耗时，每批减半，不低于下限
+        ReflectionTestUtils.setField(pipeline, "targetLatencyMs", -1L);
+        for (int i = 0; i < 5; i++) {
+            pipeline.onMessage(message(5L, 2L + i), channel);
+            pipeline.flushDue();
+        }
+
+        // Then 220 -> 110 -> 55 -> 27 -> 20 -> 20
+        assertEquals(20, pipeline.getBatchSize());
+    }
+
+    @Test
+    void testOnMessage_UnparseableMessageDeadLettered() throws Exception {
+        // Given
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(7L);
+        Message message = new Message("not json".getBytes(StandardCharsets.UTF_8), properties);
+
+        // When
+        pipeline.onMessage(message, channel);
+
+        // Then
+        verify(channel).basicNack(7L, false, false);
+        assertEquals(0, pipeline.getPendingCount());
+    }
+
+    private Object pendingEntry(Long leadId) {
+        Map<?, ?> pending = (Map<?, ?>) ReflectionTestUtils.getField(pipeline, "pending");
+        return pending.get(leadId);
+    }
+
+    private Message message(Long leadId, long deliveryTag) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return new Message(("{\"leadId\":" + leadId + "}").getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private Lead lead(Long id) {
+        Lead lead = new Lead();
+        lead.setId(id);
+        lead.setDeleted(0);
+        return lead;
+    }
+}
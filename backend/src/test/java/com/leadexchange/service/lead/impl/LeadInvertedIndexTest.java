@@ -0,0 +1,176 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.domain.lead.LeadStatus;
+import com.leadexchange.dto.lead.LeadSearchRequest;
+import com.leadexchange.util.CjkBigramTokenizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 线索内存倒排索引单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+class LeadInvertedIndexTest {
+
+    @Test
+    void testTokenize_CjkBigramsAndLowercaseWords() {
+        // When
+        List<String> tokens = CjkBigramTokenizer.tokenize("办公场地 5G-Cloud 楼");
+
+        // Then
+        assertEquals(Arrays.asList("办公", "公场", "场地", "5g", "cloud", "楼"), tokens);
+    }
+
+    @Test
+    void testSearch_TitleMatchRanksAboveDescriptionMatch() {
+        // Given
+        LeadInvertedIndex index = new LeadInvertedIndex();
+        index.put(lead(1L, "新能源项目", "需要办公空间"));
+        index.put(lead(2L, "优质办公场地", null));
+        index.put(lead(3L, "医疗器械", null));
+
+        // When
+        LeadInvertedIndex.SearchResult result = index.search("办公", new LeadSearchRequest(), null, null, 0, 10);
+
+        // Then
+        assertEquals(2, result.getTotal());
+        assertEquals(Arrays.asList(2L, 1L), ids(result));
+        assertTrue(result.getDocs().get(0).getScore() > result.getDocs().get(1).getScore());
+    }
+
+    @Test
+    void testSearch_AllTermsMustMatch() {
+        // Given
+        LeadInvertedIndex index = new LeadInvertedIndex();
+        index.put(lead(1L, "新能源项目", "需要办公空间"));
+        index.put(lead(2L, "优质办公场地", null));
+
+        // When
+        LeadInvertedIndex.SearchResult result = index.search("办公场地", new LeadSearchRequest(), null, null, 0, 10);
+
+        // Then
+        assertEquals(Arrays.asList(2L), ids(result));
+    }
+
+    @Test
+    void testSearch_SingleCharacterMatchesContainingBigrams() {
+        // Given
+        LeadInvertedIndex index = new LeadInvertedIndex();
+        index.put(lead(1L, "写字楼出租", null));
+        index.put(lead(2L, "医疗器械", null));
+
+        // When
+        LeadInvertedIndex.SearchResult result = index.search("楼", new LeadSearchRequest(), null, null, 0, 10);
+
+        // Then
+        assertEquals(Arrays.asList(1L), ids(result));
+    }
+
+    @Test
+    void testSearch_FiltersAndCursor() {
+        // Given
+        LeadInvertedIndex index = new LeadInvertedIndex();
+        for (long id = 1; id <= 5; id++) {
+            index.put(lead(id, "线索" + id, null));
+        }
+        Lead draft = lead(6L, "草稿线索", null);
+        draft.setStatus(LeadStatus.DRAFT);
+        index.put(draft);
+        LeadSearchRequest filter = new LeadSearchRequest();
+        filter.setMinInvestment(new BigDecimal("200"));
+
+        // When
+        LeadInvertedIndex.SearchResult first = index.search(null, filter, null, null, 0, 2);
+        LeadInvertedIndex.SearchResult second = index.search(null, filter, null, 4L, 0, 2);
+
+        // Then
+        assertEquals(4, first.getTotal());
+        assertEquals(Arrays.asList(5L, 4L), ids(first));
+        assertEquals(Arrays.asList(3L, 2L), ids(second));
+        assertNull(first.getDocs().get(0).getScore());
+    }
+
+    @Test
+    void testPut_ReplacesAndRemovesDeletedLead() {
+        // Given
+        LeadInvertedIndex index = new LeadInvertedIndex();
+        index.put(lead(1L, "优质办公场地", null));
+
+        // When
+        index.put(lead(1L, "医疗器械", null));
+        LeadInvertedIndex.SearchResult replaced = index.search("办公", new LeadSearchRequest(), null, null, 0, 10);
+        Lead deleted = lead(1L, "医疗器械", null);
+        deleted.setDeleted(1);
+        index.put(deleted);
+
+        // Then
+        assertEquals(0, replaced.getTotal());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testHighlight_WrapsMatchedSpans() {
+        // Given
+        LeadInvertedIndex index = new LeadInvertedIndex();
+
+        // When
+        Map<String, List<String>> highlights = index.highlight(lead(1L, "优质办公场地", null), "办公场地");
+
+        // Then
+        assertEquals(Arrays.asList("优质<em>办公场地</em>"), highlights.get("title"));
+        assertFalse(highlights.containsKey("description"));
+    }
+
+    @Test
+    void testSegment_RoundTripPreservesResults(@TempDir Path dir) throws Exception {
+        // Given
+        LeadInvertedIndex index = new LeadInvertedIndex();
+        index.put(lead(1L, "新能源项目", "需要办公空间"));
+        index.put(lead(2L, "优质办公场地", null));
+        Path segment = dir.resolve("leads.seg");
+        index.writeSegment(segment, 123L);
+
+        // When
+        LeadInvertedIndex loaded = new LeadInvertedIndex();
+        long checkpoint = loaded.loadSegment(segment);
+
+        // Then
+        assertEquals(123L, checkpoint);
+        assertEquals(2, loaded.size());
+        LeadInvertedIndex.SearchResult expected = index.search("办公", new LeadSearchRequest(), null, null, 0, 10);
+        LeadInvertedIndex.SearchResult actual = loaded.search("办公", new LeadSearchRequest(), null, null, 0, 10);
+        assertEquals(ids(expected), ids(actual));
+        assertEquals(expected.getDocs().get(0).getScore(), actual.getDocs().get(0).getScore());
+
+        loaded.remove(2L);
+        assertEquals(Arrays.asList(1L), ids(loaded.search("办公", new LeadSearchRequest(), null, null, 0, 10)));
+    }
+
+    private Lead lead(Long id, String title, String description) {
+        Lead lead = new Lead();
+        lead.setId(id);
+        lead.setTitle(title);
+        lead.setCompanyName("测试企业");
+        lead.setDescription(description);
+        lead.setStatus(LeadStatus.PUBLISHED);
+        lead.setInvestmentAmount(new BigDecimal(id * 100));
+        lead.setDeleted(0);
+        return lead;
+    }
+
+    private List<Long> ids(LeadInvertedIndex.SearchResult result) {
+        return result.getDocs().stream().map(LeadInvertedIndex.ScoredDoc::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,148 @@
+package com.leadexchange.service.lead.impl;
+
+import com.leadexchange.domain.lead.Lead;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.lead.LeadRepository;
+import com.leadexchange.repository.lead.LeadViewRepository;
+import com.leadexchange.service.exchange.LeadReservationService;
+import com.leadexchange.service.lead.LeadSearchService;
+import com.leadexchange.service.rating.RatingEngineService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 线索服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class LeadServiceImplTest {
+
+    @Mock
+    private LeadRepository leadRepository;
+
+    @Mock
+    private LeadViewRepository leadViewRepository;
+
+    @Mock
+    private RatingEngineService ratingEngineService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private LeadSearchService leadSearchService;
+
+    @Mock
+    private LeadReservationService leadReservationService;
+
+    @InjectMocks
+    private LeadServiceImpl leadService;
+
+    @Test
+    void testTransferLeadsOwnership_GuardedByExpectedOwner() {
+        // Given
+        List<Long> leadIds = Arrays.asList(2L, 3L);
+        when(leadRepository.transferOwnership(eq(leadIds), eq(1L), eq(2L), any())).thenReturn(2);
+
+        // When
+        int transferred = leadService.transferLeadsOwnership(leadIds, 1L, 2L);
+
+        // Then
+        assertEquals(2, transferred);
+        ArgumentCaptor<LeadChangeEvent> captor = ArgumentCaptor.forClass(LeadChangeEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(LeadChangeEvent.ChangeType.OWNER_CHANGED, captor.getValue().getChangeType());
+        assertEquals(leadIds, captor.getValue().getLeadIds());
+    }
+
+    @Test
+    void testTransferLeadsOwnership_NoMatchingRowsPublishesNothing() {
+        // Given 线索已被转走，按原所有者校验的UPDATE未命中
+        List<Long> leadIds = Collections.singletonList(2L);
+        when(leadRepository.transferOwnership(eq(leadIds), eq(1L), eq(2L), any())).thenReturn(0);
+
+        // When
+        int transferred = leadService.transferLeadsOwnership(leadIds, 1L, 2L);
+
+        // Then
+        assertEquals(0, transferred);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testTransferLeadsOwnership_EmptyListSkipsUpdate() {
+        // When
+        int transferred = leadService.transferLeadsOwnership(Collections.emptyList(), 1L, 2L);
+
+        // Then
+        assertEquals(0, transferred);
+        verifyNoInteractions(leadRepository);
+    }
+
+    @Test
+    void testTransferLeadOwnership_ChangesOwnerNotCreator() {
+        // Given
+        Lead lead = new Lead();
+        lead.setId(2L);
+        lead.setOwnerId(1L);
+        lead.setCreateBy(1L);
+        lead.setDeleted(0);
+        when(leadRepository.findById(2L)).thenReturn(Optional.of(lead));
+
+        // When
+        boolean transferred = leadService.transferLeadOwnership(2L, 5L);
+
+        // Then
+        assertTrue(transferred);
+        assertEquals(5L, lead.getOwnerId());
+        assertEquals(1L, lead.getCreateBy());
+        verify(leadRepository).save(lead);
+    }
+
+    @Test
+    void testUpdateLead_ReservedLeadRejected() {
+        // Given 线索正在待处理的交换申请中
+        Lead lead = new Lead();
+        lead.setId(2L);
+        when(leadRepository.findById(2L)).thenReturn(Optional.of(lead));
+        doThrow(new IllegalStateException("线索正在待处理的交换申请中，不能修改或删除，申请ID：[8]"))
+                .when(leadReservationService).checkNotReserved(2L);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> leadService.updateLead(lead));
+        verify(leadRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testDeleteLead_ReservedLeadRejected() {
+        // Given
+        Lead lead = new Lead();
+        lead.setId(2L);
+        lead.setDeleted(0);
+        when(leadRepository.findById(2L)).thenReturn(Optional.of(lead));
+        doThrow(new IllegalStateException("线索正在待处理的交换申请中，不能修改或删除，申请ID：[8]"))
+                .when(leadReservationService).checkNotReserved(2L);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> leadService.deleteLead(2L));
+        assertEquals(0, lead.getDeleted());
+        verify(leadRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,222 @@
+package com.leadexchange.service.outbox;
+
+import com.leadexchange.domain.outbox.OutboxEvent;
+import com.leadexchange.domain.outbox.OutboxStatus;
+import com.leadexchange.repository.outbox.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 发件箱投递任务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private OutboxRelay relay;
+
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxEventRepository, rabbitTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(relay, "enabled", true);
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(relay, "confirmTimeoutMs", 200L);
+        ReflectionTestUtils.setField(relay, "leaseMs", 60000L);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+        ReflectionTestUtils.setField(relay, "retryBackoffMs", 1000L);
+        ReflectionTestUtils.setField(relay, "maxBackoffMs", 300000L);
+        ReflectionTestUtils.setField(relay, "retentionHours", 72L);
+        ReflectionTestUtils.setField(relay, "cleanupBatchSize", 2);
+    }
+
+    @Test
+    void testRelay_PublishesOutsideTheClaimTransaction() {
+        // Given
+        stubTransactions();
+        OutboxEvent event = event(1L);
+        when(outboxEventRepository.claimPending(any(LocalDateTime.class), eq(2)))
+                .thenReturn(Collections.singletonList(event));
+        when(outboxEventRepository.findAllById(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(event));
+        AtomicBoolean sentInTransaction = new AtomicBoolean();
+        doAnswer(invocation -> {
+            sentInTransaction.set(inTransaction.get());
+            confirm(invocation.getArgument(3), true);
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        // When
+        relay.relay();
+
+        // Then 认领与回写各自一个事务，发送和等待确认不在事务内
+        assertFalse(sentInTransaction.get());
+        verify(transactionTemplate, times(2)).execute(any());
+        assertEquals(OutboxStatus.PUBLISHED, event.getStatus());
+        assertEquals(1, event.getAttempts());
+        assertNotNull(event.getPublishedTime());
+    }
+
+    @Test
+    void testRelay_ClaimLeasesEventsBeforeCommit() {
+        // Given 认领后发送失败，回写前检查租约
+        stubTransactions();
+        OutboxEvent event = event(1L);
+        when(outboxEventRepository.claimPending(any(LocalDateTime.class), eq(2)))
+                .thenReturn(Collections.singletonList(event));
+        LocalDateTime before = LocalDateTime.now();
+        AtomicBoolean leased = new AtomicBoolean();
+        doAnswer(invocation -> {
+            leased.set(event.getNextAttemptTime().isAfter(before.plusSeconds(59)));
+            throw new AmqpConnectException(new RuntimeException("连接断开"));
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        when(outboxEventRepository.findAllById(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(event));
+
+        // When
+        relay.relay();
+
+        // Then 租约在发送前已设置，失败后按退避重新计算下次投递时间
+        assertTrue(leased.get());
+        assertEquals(OutboxStatus.PENDING, event.getStatus());
+        assertEquals(1, event.getAttempts());
+        assertTrue(event.getLastError().startsWith("发送失败"));
+        assertTrue(event.getNextAttemptTime().isBefore(before.plusSeconds(10)));
+    }
+
+    @Test
+    void testRelay_NackAndMissingConfirmAreRetriedUntilMaxAttempts() {
+        // Given 一条被拒绝且已是最后一次尝试，一条未等到确认
+        stubTransactions();
+        OutboxEvent rejected = event(1L);
+        rejected.setAttempts(2);
+        OutboxEvent unconfirmed = event(2L);
+        when(outboxEventRepository.claimPending(any(LocalDateTime.class), eq(2)))
+                .thenReturn(Arrays.asList(rejected, unconfirmed))
+                .thenReturn(Collections.emptyList());
+        when(outboxEventRepository.findAllById(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(rejected, unconfirmed));
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            if ("1".equals(correlation.getId())) {
+                confirm(correlation, false);
+            }
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        // When
+        relay.relay();
+
+        // Then 整批满额时继续认领下一批
+        assertEquals(OutboxStatus.FAILED, rejected.getStatus());
+        assertTrue(rejected.getLastError().startsWith("消息代理拒绝"));
+        assertEquals(OutboxStatus.PENDING, unconfirmed.getStatus());
+        assertEquals("等待发布确认超时", unconfirmed.getLastError());
+        verify(outboxEventRepository, times(2)).claimPending(any(LocalDateTime.class), eq(2));
+    }
+
+    @Test
+    void testRelay_ResultAlreadyWrittenByAnotherNodeIsKept() {
+        // Given 租约到期后其他节点已投递成功
+        stubTransactions();
+        OutboxEvent claimed = event(1L);
+        OutboxEvent reloaded = event(1L);
+        reloaded.markPublished();
+        when(outboxEventRepository.claimPending(any(LocalDateTime.class), eq(2)))
+                .thenReturn(Collections.singletonList(claimed));
+        when(outboxEventRepository.findAllById(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(reloaded));
+        doThrow(new AmqpConnectException(new RuntimeException("连接断开")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        // When
+        relay.relay();
+
+        // Then
+        assertEquals(OutboxStatus.PUBLISHED, reloaded.getStatus());
+        assertNull(reloaded.getLastError());
+    }
+
+    @Test
+    void testRelay_ClaimFailureStopsRun() {
+        // Given
+        when(transactionTemplate.execute(any())).thenThrow(new IllegalStateException("连接池耗尽"));
+
+        // When
+        relay.relay();
+
+        // Then
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void testCleanup_DeletesInBatchesUntilShortBatch() {
+        // Given
+        stubTransactions();
+        when(outboxEventRepository.deletePublishedBefore(any(LocalDateTime.class), eq(2)))
+                .thenReturn(2)
+                .thenReturn(2)
+                .thenReturn(1);
+
+        // When
+        relay.cleanup();
+
+        // Then
+        verify(outboxEventRepository, times(3)).deletePublishedBefore(any(LocalDateTime.class), eq(2));
+    }
+
+    private void stubTransactions() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            inTransaction.set(true);
+            try {
+                return invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus());
+            } finally {
+                inTransaction.set(false);
+            }
+        });
+    }
+
+    private void confirm(CorrelationData correlation, boolean ack) {
+        correlation.getFuture().set(new CorrelationData.Confirm(ack, ack ? null : "队列已满"));
+    }
+
+    private OutboxEvent event(Long id) {
+        OutboxEvent event = new OutboxEvent(OutboxService.AGGREGATE_LEAD, 10L + id, "UPDATED",
+                "lead.exchange", "lead.updated", "{}");
+        event.setId(id);
+        return event;
+    }
+}
@@ -0,0 +1,137 @@
+package com.leadexchange.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leadexchange.config.RabbitMQConfig;
+import com.leadexchange.domain.exchange.ExchangeApplication;
+import com.leadexchange.domain.exchange.ExchangeStatus;
+import com.leadexchange.domain.outbox.OutboxEvent;
+import com.leadexchange.domain.outbox.OutboxStatus;
+import com.leadexchange.event.exchange.ExchangeApplicationEvent;
+import com.leadexchange.event.lead.LeadChangeEvent;
+import com.leadexchange.repository.outbox.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 发件箱服务单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxService(outboxEventRepository, new ObjectMapper());
+    }
+
+    @Test
+    void testEnqueue_WritesPendingEventDueNow() {
+        // Given
+        when(outboxEventRepository.save(any(OutboxEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        OutboxEvent event = outboxService.enqueue(OutboxService.AGGREGATE_LEAD, 5L, "CREATED",
+                RabbitMQConfig.LEAD_EXCHANGE, RabbitMQConfig.LEAD_CREATED_ROUTING_KEY,
+                Collections.singletonMap("leadId", 5L));
+
+        // Then
+        assertEquals(OutboxStatus.PENDING, event.getStatus());
+        assertEquals(0, event.getAttempts());
+        assertEquals("{\"leadId\":5}", event.getPayload());
+        assertEquals(RabbitMQConfig.LEAD_CREATED_ROUTING_KEY, event.getRoutingKey());
+        assertFalse(event.getNextAttemptTime().isAfter(event.getCreateTime()));
+    }
+
+    @Test
+    void testOnExchangeApplicationEvent_CompletedAlsoGoesToLeadExchange() {
+        // Given
+        when(outboxEventRepository.save(any(OutboxEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        outboxService.onExchangeApplicationEvent(new ExchangeApplicationEvent(this,
+                ExchangeApplicationEvent.EventType.EXCHANGE_COMPLETED, application()));
+
+        // Then
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository, times(2)).save(saved.capture());
+        assertEquals(RabbitMQConfig.NOTIFICATION_EXCHANGE, saved.getAllValues().get(0).getExchangeName());
+        assertEquals(RabbitMQConfig.LEAD_EXCHANGE, saved.getAllValues().get(1).getExchangeName());
+        assertEquals(RabbitMQConfig.LEAD_EXCHANGED_ROUTING_KEY, saved.getAllValues().get(1).getRoutingKey());
+        assertEquals(1L, saved.getAllValues().get(0).getAggregateId());
+    }
+
+    @Test
+    void testOnExchangeApplicationEvent_OtherEventsOnlyNotify() {
+        // Given
+        when(outboxEventRepository.save(any(OutboxEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        outboxService.onExchangeApplicationEvent(new ExchangeApplicationEvent(this,
+                ExchangeApplicationEvent.EventType.APPLICATION_SUBMITTED, application()));
+
+        // Then
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(saved.capture());
+        assertEquals(RabbitMQConfig.NOTIFICATION_ROUTING_KEY, saved.getValue().getRoutingKey());
+        assertEquals("exchange.application.submitted", saved.getValue().getEventType());
+    }
+
+    @Test
+    void testOnLeadChanged_OneEventPerLeadWhenIndexEnabled() {
+        // Given
+        ReflectionTestUtils.setField(outboxService, "leadIndexEnabled", true);
+        when(outboxEventRepository.save(any(OutboxEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        outboxService.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.UPDATED,
+                Arrays.asList(11L, 12L)));
+
+        // Then
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository, times(2)).save(saved.capture());
+        List<OutboxEvent> events = saved.getAllValues();
+        assertEquals(11L, events.get(0).getAggregateId());
+        assertEquals(12L, events.get(1).getAggregateId());
+        assertEquals(RabbitMQConfig.LEAD_UPDATED_ROUTING_KEY, events.get(0).getRoutingKey());
+    }
+
+    @Test
+    void testOnLeadChanged_SkippedWhenIndexDisabled() {
+        // When
+        outboxService.onLeadChanged(new LeadChangeEvent(this, LeadChangeEvent.ChangeType.CREATED, 11L));
+
+        // Then
+        verifyNoInteractions(outboxEventRepository);
+    }
+
+    private ExchangeApplication application() {
+        ExchangeApplication application = new ExchangeApplication();
+        application.setId(1L);
+        application.setApplicantId(1L);
+        application.setTargetLeadId(1L);
+        application.setTargetLeadOwnerId(2L);
+        application.setOfferedLeadIds("2,3");
+        application.setStatus(ExchangeStatus.PENDING);
+        return application;
+    }
+}
@@ -0,0 +1,66 @@
+package com.leadexchange.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 布隆过滤器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+class BloomFilterTest {
+
+    @Test
+    void testMightContain_NoFalseNegatives() {
+        // Given
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key-" + i);
+        }
+
+        // Then
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("key-" + i));
+        }
+    }
+
+    @Test
+    void testMightContain_FalsePositiveRateWithinBound() {
+        // Given
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key-" + i);
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then: 允许在期望误判率基础上有一定波动
+        assertTrue(falsePositives / 100_000.0 < 0.02);
+    }
+
+    @Test
+    void testMightContain_EmptyFilter() {
+        // Given
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        // When & Then
+        assertFalse(filter.mightContain("anything"));
+    }
+
+    @Test
+    void testConstructor_InvalidArguments() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
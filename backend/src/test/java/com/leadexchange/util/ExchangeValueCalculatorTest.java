@@ -375,4 +375,45 @@ class ExchangeValueCalculatorTest {
         // Then
         assertEquals(0, count);
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testValuate_SinglePass() {
+        // Given
+        List<Lead> offeredLeads = Arrays.asList(leadB, leadC, leadD);
+        
+        // When
+        ExchangeValueCalculator.Valuation valuation = exchangeValueCalculator.valuate(leadA, offeredLeads);
+        
+        // Then
+        assertEquals(8, valuation.getTargetValue());
+        assertEquals(7, valuation.getOfferedValue());
+        assertEquals(-1, valuation.getDifference());
+        assertEquals(1, valuation.getShortfall());
+    }
+    
+    @Test
+    void testValuate_NullInputs() {
+        // When
+        ExchangeValueCalculator.Valuation valuation = exchangeValueCalculator.valuate(null, null);
+        
+        // Then
+        assertEquals(0, valuation.getTargetValue());
+        assertEquals(0, valuation.getOfferedValue());
+        assertEquals(0, valuation.getShortfall());
+    }
+    
+    @Test
+    void testConfiguredRatingValues() {
+        // Given
+        exchangeValueCalculator.setAGradeValue(10);
+        exchangeValueCalculator.setDGradeValue(0);
+        
+        // When
+        int totalValue = exchangeValueCalculator.totalValueOf(Arrays.asList(leadA, leadB, leadD));
+        
+        // Then
+        assertEquals(10, exchangeValueCalculator.getRatingValue(LeadRating.A));
+        assertEquals(14, totalValue);
+        assertThrows(IllegalArgumentException.class, () -> exchangeValueCalculator.setBGradeValue(-1));
+    }
+}
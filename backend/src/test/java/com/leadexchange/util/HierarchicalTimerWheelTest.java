@@ -0,0 +1,121 @@
+package com.leadexchange.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层时间轮单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+class HierarchicalTimerWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    // 每tick 100毫秒，每层8格，共2层：第0层覆盖0.8秒，第1层覆盖6.4秒
+    private HierarchicalTimerWheel<Long, Long> wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HierarchicalTimerWheel<>(100, 8, 2, START);
+    }
+
+    @Test
+    void testAdvance_FiresOnlyDueEntries() {
+        // Given
+        wheel.schedule(1L, 1L, START + 300);
+        wheel.schedule(2L, 2L, START + 500);
+
+        // When
+        List<Long> firstBatch = wheel.advance(START + 300);
+        List<Long> secondBatch = wheel.advance(START + 400);
+        List<Long> thirdBatch = wheel.advance(START + 500);
+
+        // Then
+        assertEquals(Collections.singletonList(1L), firstBatch);
+        assertTrue(secondBatch.isEmpty());
+        assertEquals(Collections.singletonList(2L), thirdBatch);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvance_CascadesFromHigherLevelAndOverflow() {
+        // Given: 分别落在第0层、第1层和溢出区
+        wheel.schedule(1L, 1L, START + 700);
+        wheel.schedule(2L, 2L, START + 3_000);
+        wheel.schedule(3L, 3L, START + 20_000);
+
+        // When: 每个tick推进一次，记录每个任务实际触发的时间
+        List<Long> fireTimes = new ArrayList<>();
+        List<Long> fired = new ArrayList<>();
+        for (long now = START; now <= START + 21_000; now += 100) {
+            for (Long value : wheel.advance(now)) {
+                fired.add(value);
+                fireTimes.add(now);
+            }
+        }
+
+        // Then
+        assertEquals(Arrays.asList(1L, 2L, 3L), fired);
+        assertEquals(Arrays.asList(START + 700, START + 3_000, START + 20_000), fireTimes);
+    }
+
+    @Test
+    void testAdvance_LargeJumpFiresEverythingDue() {
+        // Given
+        wheel.schedule(1L, 1L, START + 250);
+        wheel.schedule(2L, 2L, START + 5_000);
+        wheel.schedule(3L, 3L, START + 60_000);
+
+        // When
+        List<Long> fired = wheel.advance(START + 10_000);
+
+        // Then
+        assertEquals(Arrays.asList(1L, 2L), fired);
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void testCancel_RemovesEntry() {
+        // Given
+        wheel.schedule(1L, 1L, START + 3_000);
+
+        // When
+        boolean cancelled = wheel.cancel(1L);
+
+        // Then
+        assertTrue(cancelled);
+        assertFalse(wheel.cancel(1L));
+        assertTrue(wheel.advance(START + 5_000).isEmpty());
+    }
+
+    @Test
+    void testSchedule_ReplacesExistingKey() {
+        // Given
+        wheel.schedule(1L, 1L, START + 300);
+
+        // When
+        wheel.schedule(1L, 1L, START + 900);
+
+        // Then
+        assertTrue(wheel.advance(START + 800).isEmpty());
+        assertEquals(Collections.singletonList(1L), wheel.advance(START + 900));
+    }
+
+    @Test
+    void testSchedule_PastDeadlineFiresOnNextTick() {
+        // Given
+        wheel.schedule(1L, 1L, START - 5_000);
+
+        // When & Then
+        assertEquals(Collections.singletonList(1L), wheel.advance(START + 100));
+    }
+}
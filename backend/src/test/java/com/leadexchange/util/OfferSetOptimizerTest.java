@@ -0,0 +1,88 @@
+package com.leadexchange.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 交换线索组合优化器单元测试
+ *
+ * @author AI Assistant
+ * @since 1.0.0
+ */
+class OfferSetOptimizerTest {
+
+    // A/B/C/D 四档价值
+    private static final int[] VALUES = {8, 4, 2, 1};
+
+    @Test
+    void testOptimize_ExactMatchWithFewestLeads() {
+        // Given: 可用 B x2、C x2、D x4，目标价值8
+        int[] counts = {0, 2, 2, 4};
+
+        // When
+        OfferSetOptimizer.Solution solution = OfferSetOptimizer.optimize(VALUES, counts, 8);
+
+        // Then: 两条B恰好满足
+        assertNotNull(solution);
+        assertArrayEquals(new int[]{0, 2, 0, 0}, solution.getCounts());
+        assertEquals(8, solution.getTotalValue());
+        assertEquals(2, solution.getLeadCount());
+        assertEquals(0, solution.getDifference());
+    }
+
+    @Test
+    void testOptimize_PrefersNotShortOnEqualDifference() {
+        // Given: 一条B和一条C，目标价值3；B多1，C差1
+        int[] counts = {0, 1, 1, 0};
+
+        // When
+        OfferSetOptimizer.Solution solution = OfferSetOptimizer.optimize(VALUES, counts, 3);
+
+        // Then: 差额相同时选择无需补充积分的B
+        assertNotNull(solution);
+        assertArrayEquals(new int[]{0, 1, 0, 0}, solution.getCounts());
+        assertEquals(1, solution.getDifference());
+    }
+
+    @Test
+    void testOptimize_SmallerDifferenceWinsOverNotShort() {
+        // Given: 一条A和一条C，目标价值4；C差2，A多4
+        int[] counts = {1, 0, 1, 0};
+
+        // When
+        OfferSetOptimizer.Solution solution = OfferSetOptimizer.optimize(VALUES, counts, 4);
+
+        // Then
+        assertNotNull(solution);
+        assertArrayEquals(new int[]{0, 0, 1, 0}, solution.getCounts());
+        assertEquals(-2, solution.getDifference());
+    }
+
+    @Test
+    void testOptimize_RespectsAvailableCounts() {
+        // Given: 大量D，目标价值8
+        int[] counts = {0, 0, 0, 5000};
+
+        // When
+        OfferSetOptimizer.Solution solution = OfferSetOptimizer.optimize(VALUES, counts, 8);
+
+        // Then
+        assertNotNull(solution);
+        assertArrayEquals(new int[]{0, 0, 0, 8}, solution.getCounts());
+        assertEquals(0, solution.getDifference());
+    }
+
+    @Test
+    void testOptimize_NoAvailableLeads() {
+        // When & Then
+        assertNull(OfferSetOptimizer.optimize(VALUES, new int[]{0, 0, 0, 0}, 8));
+    }
+
+    @Test
+    void testOptimize_InvalidArguments() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> OfferSetOptimizer.optimize(VALUES, new int[]{1, 1}, 8));
+        assertThrows(IllegalArgumentException.class, () -> OfferSetOptimizer.optimize(VALUES, new int[]{1, 1, 1, 1}, 0));
+    }
+}